@@ -0,0 +1,3 @@
+#!/bin/sh
+# Allows replication connections with a password, used by the postgres-replica service of docker-compose.yaml
+echo "host replication all all scram-sha-256" >> "$PGDATA/pg_hba.conf"
@@ -0,0 +1,47 @@
+package com.product.inventory.benchmark;
+
+import com.product.inventory.model.StockUpdate;
+import com.product.inventory.model.StockUpdateReport;
+import com.product.inventory.service.ProductService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Warehouse reconciliation: one batch sets the quantity of many products at once.
+ * Compare with UpdateQuantityBenchmark.absoluteUpdate for the cost of one request per product.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BatchStockUpdateBenchmark {
+
+    @Param({"1000", "50000"})
+    public int batchSize;
+
+    private ProductService productService;
+    private List<StockUpdate> updates;
+
+    @Setup
+    public void setup() {
+        productService = BenchmarkEnvironment.context().getBean(ProductService.class);
+        int catalogSize = BenchmarkEnvironment.catalogSize();
+        updates = new ArrayList<>(batchSize);
+        for (long id = 1; id <= Math.min(batchSize, catalogSize); id++) {
+            updates.add(StockUpdate.quantity(id, 0));
+        }
+    }
+
+    @Benchmark
+    public StockUpdateReport reconcile() {
+        int quantity = ThreadLocalRandom.current().nextInt(1, 1000);
+        updates.forEach(u -> u.setQuantity(quantity));
+        return productService.updateQuantities(updates);
+    }
+}
@@ -0,0 +1,107 @@
+package com.product.inventory.benchmark;
+
+import com.product.inventory.InventoryApplication;
+import com.product.inventory.TestPostgresContainer;
+import com.product.inventory.model.Product;
+import com.product.inventory.repositoty.ProductBulkRepository;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Application context shared by the benchmarks of one JMH fork.
+ * Connects to the database given by -Dbench.datasource.url or starts PostgreSQL with Testcontainers,
+ * and seeds a catalog of -Dbench.catalog.size products unless the table already holds exactly that many.
+ * Seeding empties the product table first, which is refused for a database given by URL whose table is not empty
+ * unless -Dbench.reset=true, so pointing the benchmarks at a real inventory does not wipe it.
+ */
+public final class BenchmarkEnvironment {
+
+    private static final String[] KINDS = {"Laptop", "Monitor", "Keyboard", "Mouse", "Phone", "Camera", "Printer",
+            "Speaker", "Router", "Tablet"};
+    private static final String[] BRANDS = {"Gaming", "Office", "Wireless", "Portable", "Pro", "Mini"};
+    private static final int SEED_BATCH_SIZE = 5000;
+
+    private static ConfigurableApplicationContext context;
+
+    private BenchmarkEnvironment() {
+    }
+
+    public static synchronized ConfigurableApplicationContext context() {
+        if (context == null) {
+            boolean external = !System.getProperty("bench.datasource.url", "").isBlank();
+            ConfigurableApplicationContext started = start();
+            seed(started, Integer.getInteger("bench.catalog.size", 100_000),
+                    !external || Boolean.getBoolean("bench.reset"));
+            context = started;
+        }
+        return context;
+    }
+
+    public static int catalogSize() {
+        return context().getBean(JdbcTemplate.class).queryForObject("SELECT COUNT(*) FROM product", Integer.class);
+    }
+
+    private static ConfigurableApplicationContext start() {
+        String url = System.getProperty("bench.datasource.url", "");
+        String username = System.getProperty("bench.datasource.username", "admin");
+        String password = System.getProperty("bench.datasource.password", "admin");
+        if (url.isBlank()) {
+            TestPostgresContainer postgres = TestPostgresContainer.getInstance();
+            postgres.start();
+            url = postgres.getJdbcUrl();
+            username = postgres.getUsername();
+            password = postgres.getPassword();
+        }
+        return new SpringApplicationBuilder(InventoryApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.datasource.url=" + url,
+                        "spring.datasource.username=" + username,
+                        "spring.datasource.password=" + password,
+                        "logging.level.root=WARN")
+                .run();
+    }
+
+    /**
+     * @param resetAllowed : existing products may be deleted
+     */
+    private static void seed(ConfigurableApplicationContext context, int size, boolean resetAllowed) {
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        Integer existing = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM product", Integer.class);
+        if (existing != null && existing == size) {
+            return;
+        }
+        if (existing != null && existing > 0 && !resetAllowed) {
+            context.close();
+            throw new IllegalStateException("Product table of -Dbench.datasource.url holds " + existing
+                    + " products instead of " + size + ", seeding would delete them."
+                    + " Use a dedicated benchmark database, or -Dbench.reset=true to empty it anyway");
+        }
+        jdbcTemplate.execute("TRUNCATE product RESTART IDENTITY");
+        ProductBulkRepository bulkRepository = context.getBean(ProductBulkRepository.class);
+        Random random = new Random(42);
+        List<Product> batch = new ArrayList<>(SEED_BATCH_SIZE);
+        for (int i = 0; i < size; i++) {
+            String name = BRANDS[random.nextInt(BRANDS.length)] + " " + KINDS[random.nextInt(KINDS.length)] + " " + i;
+            // roughly one product in twenty is out of stock
+            int quantity = random.nextInt(20) == 0 ? 0 : random.nextInt(500);
+            BigDecimal price = BigDecimal.valueOf(100 + random.nextInt(500_000), 2);
+            batch.add(new Product(name, quantity, price));
+            if (batch.size() == SEED_BATCH_SIZE) {
+                bulkRepository.insertAll(batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            bulkRepository.insertAll(batch);
+        }
+        jdbcTemplate.execute("ANALYZE product");
+    }
+}
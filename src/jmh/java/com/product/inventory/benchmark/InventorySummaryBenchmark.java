@@ -0,0 +1,36 @@
+package com.product.inventory.benchmark;
+
+import com.product.inventory.service.ProductService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * GET /products/summary served from memory and recomputed from database
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class InventorySummaryBenchmark {
+
+    private ProductService productService;
+
+    @Setup
+    public void setup() {
+        productService = BenchmarkEnvironment.context().getBean(ProductService.class);
+    }
+
+    @Benchmark
+    public Map<String, Object> cachedSummary() {
+        return productService.getInventorySummary(false);
+    }
+
+    @Benchmark
+    public Map<String, Object> refreshedSummary() {
+        return productService.getInventorySummary(true);
+    }
+}
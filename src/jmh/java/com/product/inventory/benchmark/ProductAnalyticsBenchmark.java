@@ -0,0 +1,65 @@
+package com.product.inventory.benchmark;
+
+import com.product.inventory.model.InventoryTotals;
+import com.product.inventory.model.PriceBucket;
+import com.product.inventory.model.ProductFilter;
+import com.product.inventory.model.ProductRanking;
+import com.product.inventory.model.ProductStats;
+import com.product.inventory.model.RankedProduct;
+import com.product.inventory.repositoty.ProductRepository;
+import com.product.inventory.service.ProductAnalytics;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Analytic queries over the in-memory column snapshot, with a full-table aggregate query for comparison
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ProductAnalyticsBenchmark {
+
+    private ProductAnalytics productAnalytics;
+    private ProductRepository repository;
+    private final ProductFilter all = new ProductFilter();
+    private final ProductFilter filtered = new ProductFilter(1, 50, new BigDecimal("10.00"), new BigDecimal("500.00"), "1");
+
+    @Setup
+    public void setup() {
+        productAnalytics = BenchmarkEnvironment.context().getBean(ProductAnalytics.class);
+        repository = BenchmarkEnvironment.context().getBean(ProductRepository.class);
+        // loads the snapshot
+        productAnalytics.getStats(all, false);
+    }
+
+    @Benchmark
+    public ProductStats stats() {
+        return productAnalytics.getStats(all, false);
+    }
+
+    @Benchmark
+    public ProductStats filteredStats() {
+        return productAnalytics.getStats(filtered, false);
+    }
+
+    @Benchmark
+    public List<PriceBucket> priceHistogram() {
+        return productAnalytics.getPriceHistogram(all, 20, false);
+    }
+
+    @Benchmark
+    public List<RankedProduct> topByStockValue() {
+        return productAnalytics.getTopProducts(all, ProductRanking.STOCK_VALUE, 10, false);
+    }
+
+    @Benchmark
+    public InventoryTotals databaseAggregate() {
+        return repository.summarize();
+    }
+}
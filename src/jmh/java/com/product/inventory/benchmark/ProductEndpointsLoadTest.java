@@ -0,0 +1,169 @@
+package com.product.inventory.benchmark;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Closed-loop HTTP load test of the /products endpoints against a running application.
+ * Every client sends its next request as soon as the previous one is answered, so with enough clients
+ * the measured throughput is what the server can handle. Run it once against the application in
+ * platform-thread mode and once with the virtual-threads profile to compare both, or against the
+ * reactive variant (mvn -Preactive) with the same numbers of clients to compare it with MVC/JPA.
+ * Only endpoints served by both variants are called.
+ * Every client sends its own X-Client-Id, requests answered with 429 by admission control are counted as rejected.
+ * <p>
+ * Arguments: base url (default http://localhost:8080), concurrent clients (default 200),
+ * duration in seconds (default 30)
+ */
+public final class ProductEndpointsLoadTest {
+
+    private static final Pattern ID_PATTERN = Pattern.compile("\"id\"\\s*:\\s*(\\d+)");
+    private static final String[] SEARCH_TERMS = {"laptop", "mouse", "pro", "wireless key", "tab"};
+
+    private ProductEndpointsLoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        String baseUrl = args.length > 0 ? args[0] : "http://localhost:8080";
+        int clients = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 30;
+
+        ExecutorService httpExecutor = Executors.newFixedThreadPool(Math.min(clients, 64));
+        HttpClient httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(httpExecutor)
+                .build();
+        try {
+            run(httpClient, baseUrl, clients, seconds);
+        } finally {
+            httpExecutor.shutdownNow();
+        }
+    }
+
+    private static void run(HttpClient httpClient, String baseUrl, int clients, int seconds) throws Exception {
+        long[] ids = loadProductIds(httpClient, baseUrl);
+        if (ids.length == 0) {
+            throw new IllegalStateException("No products found, import some products first");
+        }
+
+        List<Endpoint> endpoints = List.of(
+                new Endpoint("GET /products/{id}", 50, r -> baseUrl + "/products/" + ids[r.nextInt(ids.length)]),
+                new Endpoint("GET /products", 20, r -> baseUrl + "/products?page=" + (1 + r.nextInt(50))),
+                new Endpoint("GET /products/search", 20,
+                        r -> baseUrl + "/products/search?name=" + SEARCH_TERMS[r.nextInt(SEARCH_TERMS.length)]
+                                .replace(" ", "%20")),
+                new Endpoint("GET /products/summary", 10, r -> baseUrl + "/products/summary"));
+        int totalWeight = endpoints.stream().mapToInt(e -> e.weight).sum();
+
+        System.out.printf(Locale.ROOT, "%d clients for %d s against %s%n", clients, seconds, baseUrl);
+        long deadline = System.nanoTime() + Duration.ofSeconds(seconds).toNanos();
+        CountDownLatch done = new CountDownLatch(clients);
+        for (int i = 0; i < clients; i++) {
+            String clientId = "load-client-" + i;
+            Thread client = new Thread(() -> {
+                try {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    while (System.nanoTime() < deadline) {
+                        Endpoint endpoint = pick(endpoints, random.nextInt(totalWeight));
+                        endpoint.call(httpClient, endpoint.url.apply(random), clientId);
+                    }
+                } finally {
+                    done.countDown();
+                }
+            }, clientId);
+            client.setDaemon(true);
+            client.start();
+        }
+        done.await();
+
+        System.out.printf(Locale.ROOT, "%-24s %10s %10s %10s %10s %10s %10s%n",
+                "endpoint", "requests", "errors", "rejected", "req/s", "p50 ms", "p99 ms");
+        long total = 0;
+        for (Endpoint endpoint : endpoints) {
+            long[] latencies = endpoint.latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+            total += latencies.length;
+            System.out.printf(Locale.ROOT, "%-24s %10d %10d %10d %10.1f %10.2f %10.2f%n", endpoint.name,
+                    latencies.length, endpoint.errors.get(), endpoint.rejected.get(), latencies.length / (double) seconds,
+                    percentile(latencies, 0.50), percentile(latencies, 0.99));
+        }
+        System.out.printf(Locale.ROOT, "%-24s %10d %10s %10s %10.1f%n", "total", total, "", "", total / (double) seconds);
+    }
+
+    private static long[] loadProductIds(HttpClient httpClient, String baseUrl) throws Exception {
+        HttpResponse<String> response = httpClient.send(
+                HttpRequest.newBuilder(URI.create(baseUrl + "/products?size=100")).build(),
+                HttpResponse.BodyHandlers.ofString());
+        List<Long> ids = new ArrayList<>();
+        Matcher matcher = ID_PATTERN.matcher(response.body());
+        while (matcher.find()) {
+            ids.add(Long.valueOf(matcher.group(1)));
+        }
+        return ids.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    private static Endpoint pick(List<Endpoint> endpoints, int roll) {
+        for (Endpoint endpoint : endpoints) {
+            roll -= endpoint.weight;
+            if (roll < 0) {
+                return endpoint;
+            }
+        }
+        return endpoints.get(endpoints.size() - 1);
+    }
+
+    private static double percentile(long[] sortedNanos, double percentile) {
+        if (sortedNanos.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.min(sortedNanos.length - 1, Math.ceil(percentile * sortedNanos.length) - 1);
+        return sortedNanos[Math.max(index, 0)] / 1_000_000.0;
+    }
+
+    private static final class Endpoint {
+        private final String name;
+        private final int weight;
+        private final Function<ThreadLocalRandom, String> url;
+        private final ConcurrentLinkedQueue<Long> latencies = new ConcurrentLinkedQueue<>();
+        private final AtomicLong errors = new AtomicLong();
+        private final AtomicLong rejected = new AtomicLong();
+
+        private Endpoint(String name, int weight, Function<ThreadLocalRandom, String> url) {
+            this.name = name;
+            this.weight = weight;
+            this.url = url;
+        }
+
+        private void call(HttpClient httpClient, String url, String clientId) {
+            long start = System.nanoTime();
+            try {
+                HttpResponse<Void> response = httpClient.send(HttpRequest.newBuilder(URI.create(url))
+                        .header("X-Client-Id", clientId)
+                        .timeout(Duration.ofSeconds(30)).build(), HttpResponse.BodyHandlers.discarding());
+                if (response.statusCode() == 429) {
+                    rejected.incrementAndGet();
+                } else if (response.statusCode() >= 400) {
+                    errors.incrementAndGet();
+                } else {
+                    latencies.add(System.nanoTime() - start);
+                }
+            } catch (Exception e) {
+                errors.incrementAndGet();
+            }
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.product.inventory.benchmark;
+
+import com.product.inventory.model.Product;
+import com.product.inventory.model.ProductCursorPage;
+import com.product.inventory.model.ProductSortKey;
+import com.product.inventory.service.ProductService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * GET /products by page number and by cursor, at increasing depth into the catalog
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ProductListingBenchmark {
+
+    private static final int PAGE_SIZE = 100;
+
+    // position of the page as a fraction of the catalog
+    @Param({"0.0", "0.5", "0.99"})
+    public double depth;
+
+    private ProductService productService;
+    private int pageNumber;
+    private String cursor;
+
+    @Setup
+    public void setup() {
+        productService = BenchmarkEnvironment.context().getBean(ProductService.class);
+        pageNumber = (int) (BenchmarkEnvironment.catalogSize() * depth) / PAGE_SIZE;
+        // walking the cursors once is the only way to get the cursor of a deep page
+        ProductCursorPage page = productService.getProductsAfter(null, ProductSortKey.NAME, false, PAGE_SIZE);
+        for (int i = 0; i < pageNumber && page.getNextCursor() != null; i++) {
+            cursor = page.getNextCursor();
+            page = productService.getProductsAfter(cursor, ProductSortKey.NAME, false, PAGE_SIZE);
+        }
+    }
+
+    @Benchmark
+    public List<Product> offsetPage() {
+        return productService.getAllProducts(PageRequest.of(pageNumber, PAGE_SIZE, Sort.by("name", "id")));
+    }
+
+    @Benchmark
+    public ProductCursorPage cursorPage() {
+        return productService.getProductsAfter(cursor, ProductSortKey.NAME, false, PAGE_SIZE);
+    }
+}
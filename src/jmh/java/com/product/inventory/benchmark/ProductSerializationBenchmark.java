@@ -0,0 +1,77 @@
+package com.product.inventory.benchmark;
+
+import com.product.inventory.model.Product;
+import com.product.inventory.service.ProductBinaryReader;
+import com.product.inventory.service.ProductBinaryWriter;
+import org.openjdk.jmh.annotations.*;
+import tools.jackson.core.type.TypeReference;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON and binary encoding and decoding of products, as done for every listing response and import line
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ProductSerializationBenchmark {
+
+    @Param({"1", "100"})
+    public int products;
+
+    private ObjectMapper objectMapper;
+    private List<Product> page;
+    private String json;
+    private byte[] binary;
+
+    @Setup
+    public void setup() throws IOException {
+        objectMapper = JsonMapper.builder().build();
+        page = new ArrayList<>(products);
+        for (int i = 0; i < products; i++) {
+            Product product = new Product("Wireless Keyboard " + i, i % 50, new BigDecimal("49.99"));
+            product.setId((long) i + 1);
+            page.add(product);
+        }
+        json = objectMapper.writeValueAsString(page);
+        binary = serializeBinary();
+    }
+
+    @Benchmark
+    public byte[] serialize() {
+        return objectMapper.writeValueAsBytes(page);
+    }
+
+    @Benchmark
+    public List<Product> deserialize() {
+        return objectMapper.readValue(json, new TypeReference<>() {
+        });
+    }
+
+    @Benchmark
+    public byte[] serializeBinary() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ProductBinaryWriter writer = new ProductBinaryWriter(out);
+        for (Product product : page) {
+            writer.write(product);
+        }
+        writer.flush();
+        return out.toByteArray();
+    }
+
+    @Benchmark
+    public List<Product> deserializeBinary() throws IOException {
+        return new ProductBinaryReader(new ByteArrayInputStream(binary)).readAll();
+    }
+}
@@ -0,0 +1,45 @@
+package com.product.inventory.benchmark;
+
+import com.product.inventory.model.Product;
+import com.product.inventory.service.ProductService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * GET /products/search for frequent, rare and missing terms, by one client and by 16 clients searching at once
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SearchByNameBenchmark {
+
+    @Param({"laptop", "wireless mouse 12", "nothing matches"})
+    public String term;
+
+    private ProductService productService;
+
+    @Setup
+    public void setup() {
+        productService = BenchmarkEnvironment.context().getBean(ProductService.class);
+    }
+
+    @Benchmark
+    public List<Product> search() {
+        return productService.searchByName(term, PageRequest.of(0, 20));
+    }
+
+    /**
+     * Identical searches running at the same time share one query
+     */
+    @Benchmark
+    @Threads(16)
+    public List<Product> concurrentSearch() {
+        return productService.searchByName(term, PageRequest.of(0, 20));
+    }
+}
@@ -0,0 +1,178 @@
+package com.product.inventory.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Starts the application repeatedly in each startup mode and reports time-to-first-request and resident memory.
+ * Time-to-first-request runs from launching the process until the first request is answered with 200, so it includes
+ * JVM startup, schema migration and the first database query. Memory is the resident set size of the process (VmRSS,
+ * Linux only) right after that request. Every run gets a free port, the database is taken from the environment
+ * (SPRING_DATASOURCE_URL, SPRING_DATASOURCE_USERNAME, SPRING_DATASOURCE_PASSWORD) and output goes to target/startup.
+ * <p>
+ * Arguments: runs per mode (default 5), then modes as label=command, e.g. "cds=java -XX:SharedArchiveFile=app.jsa -jar
+ * app.jar". Commands are split on spaces. Without modes, every mode built in target is run: jar (mvn package),
+ * aot (mvn -Paot package), cds or aot+cds (mvn -Pcds package or mvn -Paot,cds package) and native
+ * (mvn -Pnative native:compile).
+ * The first request goes to -Dstartup.path (default /products?size=1).
+ */
+public final class StartupBenchmark {
+
+    private static final Path TARGET = Path.of("target");
+    private static final String JAR = "inventory-0.0.1-SNAPSHOT.jar";
+    private static final Duration START_TIMEOUT = Duration.ofMinutes(2);
+
+    private StartupBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int runs = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+        List<Mode> modes = new ArrayList<>();
+        for (int i = 1; i < args.length; i++) {
+            int separator = args[i].indexOf('=');
+            modes.add(new Mode(args[i].substring(0, separator), null,
+                    Arrays.asList(args[i].substring(separator + 1).trim().split(" +"))));
+        }
+        if (modes.isEmpty()) {
+            modes = builtModes();
+        }
+        if (modes.isEmpty()) {
+            throw new IllegalStateException("Nothing to start, build the application first (mvn package)");
+        }
+        String path = System.getProperty("startup.path", "/products?size=1");
+        Files.createDirectories(TARGET.resolve("startup"));
+
+        HttpClient httpClient = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+        System.out.printf(Locale.ROOT, "%-10s %6s %12s %12s %12s %12s%n",
+                "mode", "runs", "min ms", "median ms", "max ms", "rss MB");
+        for (Mode mode : modes) {
+            long[] millis = new long[runs];
+            long[] rssKb = new long[runs];
+            for (int run = 0; run < runs; run++) {
+                long[] result = start(httpClient, mode, run, path);
+                millis[run] = result[0];
+                rssKb[run] = result[1];
+            }
+            Arrays.sort(millis);
+            Arrays.sort(rssKb);
+            System.out.printf(Locale.ROOT, "%-10s %6d %12d %12d %12d %12.1f%n", mode.label, runs,
+                    millis[0], millis[runs / 2], millis[runs - 1], rssKb[runs / 2] / 1024.0);
+        }
+    }
+
+    /**
+     * @return time to first request in milliseconds and resident set size in KB, 0 when unknown
+     */
+    private static long[] start(HttpClient httpClient, Mode mode, int run, String path) throws Exception {
+        int port = freePort();
+        List<String> arguments = new ArrayList<>(mode.command);
+        arguments.add("--server.port=" + port);
+        File log = TARGET.resolve("startup").resolve(mode.label.replace('+', '-') + "-" + run + ".log")
+                .toAbsolutePath().toFile();
+        ProcessBuilder builder = new ProcessBuilder(arguments).directory(mode.directory)
+                .redirectErrorStream(true).redirectOutput(log);
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                .timeout(Duration.ofSeconds(10)).build();
+
+        long start = System.nanoTime();
+        Process process = builder.start();
+        try {
+            while (true) {
+                if (!process.isAlive()) {
+                    throw new IllegalStateException(mode.label + " exited with " + process.exitValue() + ", see " + log);
+                }
+                if (System.nanoTime() - start > START_TIMEOUT.toNanos()) {
+                    throw new IllegalStateException(mode.label + " did not answer within " + START_TIMEOUT + ", see " + log);
+                }
+                try {
+                    if (httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                        break;
+                    }
+                } catch (IOException e) {
+                    // not listening yet
+                }
+                Thread.sleep(5);
+            }
+            long millis = (System.nanoTime() - start) / 1_000_000;
+            return new long[]{millis, residentSetKb(process.pid())};
+        } finally {
+            process.destroy();
+            process.waitFor();
+        }
+    }
+
+    private static List<Mode> builtModes() {
+        List<Mode> modes = new ArrayList<>();
+        boolean aot = Files.exists(TARGET.resolve("classes/com/product/inventory/InventoryApplication__BeanDefinitions.class"));
+        if (Files.exists(TARGET.resolve(JAR))) {
+            modes.add(new Mode("jar", null, java(false, "-jar", TARGET.resolve(JAR).toString())));
+            if (aot) {
+                modes.add(new Mode("aot", null, java(true, "-jar", TARGET.resolve(JAR).toString())));
+            }
+        }
+        // the archive is only used with the class path it was created with, relative to target/cds
+        File cds = TARGET.resolve("cds").toFile();
+        if (new File(cds, "application.jsa").exists()) {
+            modes.add(new Mode(aot ? "aot+cds" : "cds", cds,
+                    java(aot, "-XX:SharedArchiveFile=application.jsa", "-jar", JAR)));
+        }
+        if (Files.exists(TARGET.resolve("inventory"))) {
+            modes.add(new Mode("native", null, List.of(TARGET.resolve("inventory").toAbsolutePath().toString())));
+        }
+        return modes;
+    }
+
+    private static List<String> java(boolean aot, String... arguments) {
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.add("-Dspring.aot.enabled=" + aot);
+        command.addAll(Arrays.asList(arguments));
+        return command;
+    }
+
+    private static long residentSetKb(long pid) throws IOException {
+        Path status = Path.of("/proc", Long.toString(pid), "status");
+        if (!Files.exists(status)) {
+            return 0;
+        }
+        for (String line : Files.readAllLines(status)) {
+            if (line.startsWith("VmRSS:")) {
+                return Long.parseLong(line.replaceAll("\\D", ""));
+            }
+        }
+        return 0;
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static final class Mode {
+        private final String label;
+        private final File directory;
+        private final List<String> command;
+
+        /**
+         * @param directory : working directory, null for the current one
+         */
+        private Mode(String label, File directory, List<String> command) {
+            this.label = label;
+            this.directory = directory;
+            this.command = command;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.product.inventory.benchmark;
+
+import com.product.inventory.model.Product;
+import com.product.inventory.model.StockReservation;
+import com.product.inventory.service.ProductService;
+import com.product.inventory.service.StockReservationService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Concurrent checkouts on a few hot products: reserve and release, one conditional update of the product row each,
+ * and reserve and confirm, which deletes the reservation and applies the delta in one transaction.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(16)
+@State(Scope.Benchmark)
+public class StockReservationBenchmark {
+
+    @Param({"1", "100"})
+    public int hotProducts;
+
+    private ProductService productService;
+    private StockReservationService reservationService;
+
+    @Setup
+    public void setup() {
+        productService = BenchmarkEnvironment.context().getBean(ProductService.class);
+        reservationService = BenchmarkEnvironment.context().getBean(StockReservationService.class);
+        for (long id = 1; id <= hotProducts; id++) {
+            productService.updateQuantity(id, 100_000_000);
+        }
+    }
+
+    @Benchmark
+    public void reserveAndRelease() {
+        long id = 1 + ThreadLocalRandom.current().nextInt(hotProducts);
+        StockReservation reservation = reservationService.reserve(id, 1, null);
+        reservationService.release(reservation.getId());
+    }
+
+    @Benchmark
+    public Product reserveAndConfirm() {
+        long id = 1 + ThreadLocalRandom.current().nextInt(hotProducts);
+        StockReservation reservation = reservationService.reserve(id, 1, null);
+        return reservationService.confirm(reservation.getId());
+    }
+}
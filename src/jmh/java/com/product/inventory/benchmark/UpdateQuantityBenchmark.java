@@ -0,0 +1,48 @@
+package com.product.inventory.benchmark;
+
+import com.product.inventory.model.Product;
+import com.product.inventory.service.ProductService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Concurrent stock updates spread over a few hot products, as during a flash sale.
+ * Compares absolute read-modify-write updates with atomic deltas.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(16)
+@State(Scope.Benchmark)
+public class UpdateQuantityBenchmark {
+
+    @Param({"1", "100"})
+    public int hotProducts;
+
+    private ProductService productService;
+
+    @Setup
+    public void setup() {
+        productService = BenchmarkEnvironment.context().getBean(ProductService.class);
+        for (long id = 1; id <= hotProducts; id++) {
+            productService.updateQuantity(id, 1_000_000);
+        }
+    }
+
+    @Benchmark
+    public Product absoluteUpdate() {
+        long id = 1 + ThreadLocalRandom.current().nextInt(hotProducts);
+        return productService.updateQuantity(id, ThreadLocalRandom.current().nextInt(1000));
+    }
+
+    @Benchmark
+    public Product deltaUpdate() {
+        long id = 1 + ThreadLocalRandom.current().nextInt(hotProducts);
+        // balanced increments and decrements keep stock far away from zero
+        return productService.adjustQuantity(id, ThreadLocalRandom.current().nextBoolean() ? 1 : -1);
+    }
+}
@@ -0,0 +1,109 @@
+package com.product.inventory.configuration;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Concurrency limit of one endpoint which shrinks when its latency grows beyond what is usual for it (additive
+ * increase, multiplicative decrease). Recent latency is a moving average over completed requests, the baseline
+ * follows it slowly upwards and quickly downwards. At most once per adjust interval the limit drops
+ * by a tenth while recent latency is more than {@code tolerance} times the baseline, and grows by one up to its
+ * maximum otherwise, so an overloaded endpoint sheds load before requests pile up behind the database while an
+ * endpoint which is slow even when idle keeps its limit. The limit never drops below its minimum.
+ * Acquiring never waits, all counters are atomics. Time is given by the caller in {@link System#nanoTime} units.
+ */
+public final class AdaptiveConcurrencyLimit {
+
+    // the baseline moves a hundredth of the way to recent latency per adjust interval, 10s at 100ms
+    private static final int BASELINE_INTERVALS = 100;
+
+    private final int maxLimit;
+    private final int minLimit;
+    private final double tolerance;
+    private final long adjustIntervalNanos;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger limit;
+    // -1 until the first request completed
+    private final AtomicLong recentNanos = new AtomicLong(-1);
+    // -1 until the first adjustment, only changed by the thread adjusting the limit
+    private final AtomicLong baselineNanos = new AtomicLong(-1);
+    private final AtomicLong lastAdjust;
+
+    /**
+     * @param maxLimit            : starting and highest limit
+     * @param minLimit            : lowest limit
+     * @param tolerance           : growth of latency over the baseline above which the limit shrinks,
+     *                            0 keeps the limit fixed
+     * @param adjustIntervalNanos : minimum time between two changes of the limit
+     */
+    public AdaptiveConcurrencyLimit(int maxLimit, int minLimit, double tolerance, long adjustIntervalNanos,
+                                    long nowNanos) {
+        this.maxLimit = Math.max(1, maxLimit);
+        this.minLimit = Math.max(1, Math.min(minLimit, this.maxLimit));
+        this.tolerance = tolerance;
+        this.adjustIntervalNanos = adjustIntervalNanos;
+        this.limit = new AtomicInteger(this.maxLimit);
+        this.lastAdjust = new AtomicLong(nowNanos);
+    }
+
+    /**
+     * @return false when the limit is reached, nothing has to be released then
+     */
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit.get()) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * @param latencyNanos : time the request took
+     */
+    public void release(long latencyNanos, long nowNanos) {
+        inFlight.decrementAndGet();
+        if (tolerance <= 0) {
+            return;
+        }
+        // moving average with weight 1/8 for the new sample, as TCP does for round trip times
+        long recent = recentNanos.accumulateAndGet(latencyNanos, (average, sample) ->
+                average < 0 ? sample : average + (sample - average) / 8);
+        long last = lastAdjust.get();
+        if (nowNanos - last < adjustIntervalNanos || !lastAdjust.compareAndSet(last, nowNanos)) {
+            return;
+        }
+        long baseline = baselineNanos.get();
+        if (baseline >= 0 && recent > baseline * tolerance) {
+            limit.updateAndGet(current -> Math.max(minLimit, Math.min(current - 1, current * 9 / 10)));
+        } else {
+            limit.updateAndGet(current -> Math.min(maxLimit, current + 1));
+        }
+        if (baseline < 0) {
+            baselineNanos.set(recent);
+        } else if (recent < baseline) {
+            baselineNanos.set(baseline - (baseline - recent) / 2);
+        } else {
+            baselineNanos.set(baseline + (recent - baseline) / BASELINE_INTERVALS);
+        }
+    }
+
+    public int getLimit() {
+        return limit.get();
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * @return latency the recent latency is compared with, -1 before the first adjustment
+     */
+    public long getBaselineNanos() {
+        return baselineNanos.get();
+    }
+}
@@ -0,0 +1,31 @@
+package com.product.inventory.configuration;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Cost of an endpoint for {@link AdmissionInterceptor}, relative to reading a product by id (cost 1).
+ * A request takes as many tokens from its client's bucket, and the endpoint may run
+ * {@code inventory.admission.max-concurrency / cost} requests at once. Endpoints without it cost 1.
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface AdmissionCost {
+
+    int value();
+
+    /**
+     * False for long-lived requests such as streams, which are limited by other means
+     */
+    boolean concurrencyLimited() default true;
+
+    /**
+     * False for endpoints whose latency depends on the size of the request or response, such as import and export.
+     * Their concurrency limit stays fixed instead of shrinking when latency rises
+     */
+    boolean adaptive() default true;
+}
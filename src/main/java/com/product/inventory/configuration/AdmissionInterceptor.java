@@ -0,0 +1,219 @@
+package com.product.inventory.configuration;
+
+import com.product.inventory.exception.TooManyRequestsException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Admits requests to the product endpoints before they reach the controller, answering 429 with Retry-After
+ * instead of letting them queue for threads and connections. Enabled with {@code inventory.admission.enabled}.
+ * <ul>
+ *     <li>Every client has a {@link TokenBucket} refilled with {@code rate} tokens per second up to {@code burst}.
+ *     A request takes the {@link AdmissionCost} of its endpoint from it, so expensive endpoints such as search
+ *     run out first.</li>
+ *     <li>Every endpoint may run {@code max-concurrency / cost} requests at once. The limit is an
+ *     {@link AdaptiveConcurrencyLimit} shrinking down to {@code min-concurrency / cost} while the latency of the
+ *     endpoint is more than {@code latency-tolerance} times its usual latency.</li>
+ * </ul>
+ * Clients are told apart by {@code client-header} when it is set, by remote address otherwise. Behind a proxy the
+ * remote address is the client address the proxy forwarded, see {@code server.forward-headers-strategy}. Buckets of idle
+ * clients are dropped once more than {@code max-clients} are tracked, clients beyond that share one bucket.
+ */
+@Component
+public class AdmissionInterceptor implements AsyncHandlerInterceptor {
+
+    private static final String PERMIT = AdmissionInterceptor.class.getName() + ".PERMIT";
+    private static final long SWEEP_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final long CONCURRENCY_RETRY_AFTER_SECONDS = 1;
+
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final double rate;
+    private final int burst;
+    private final String clientHeader;
+    private final int maxClients;
+    private final int maxConcurrency;
+    private final int minConcurrency;
+    private final double latencyTolerance;
+    private final Duration adjustInterval;
+
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+    private final TokenBucket overflowBucket;
+    private final AtomicLong lastSweep;
+    private final Map<Method, AdaptiveConcurrencyLimit> limits = new ConcurrentHashMap<>();
+    private final Counter rateRejections;
+    private final Counter concurrencyRejections;
+
+    /**
+     * @param rate           : tokens per second and client
+     * @param burst          : tokens a client may use at once after being idle
+     * @param clientHeader   : request header identifying the client, empty to use the remote address
+     * @param maxConcurrency   : requests of cost 1 an endpoint may run at once
+     * @param minConcurrency   : requests of cost 1 an endpoint may run at once however slow it gets
+     * @param latencyTolerance : growth of the latency of an endpoint over its usual latency above which its
+     *                         concurrency limit shrinks
+     * @param adjustInterval   : minimum time between two changes of a concurrency limit
+     */
+    public AdmissionInterceptor(MeterRegistry meterRegistry,
+                                @Value("${inventory.admission.enabled:true}") boolean enabled,
+                                @Value("${inventory.admission.rate:200}") double rate,
+                                @Value("${inventory.admission.burst:1000}") int burst,
+                                @Value("${inventory.admission.client-header:}") String clientHeader,
+                                @Value("${inventory.admission.max-clients:100000}") int maxClients,
+                                @Value("${inventory.admission.max-concurrency:200}") int maxConcurrency,
+                                @Value("${inventory.admission.min-concurrency:10}") int minConcurrency,
+                                @Value("${inventory.admission.latency-tolerance:2}") double latencyTolerance,
+                                @Value("${inventory.admission.adjust-interval:100ms}") Duration adjustInterval) {
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.rate = rate;
+        this.burst = burst;
+        this.clientHeader = clientHeader;
+        this.maxClients = maxClients;
+        this.maxConcurrency = maxConcurrency;
+        this.minConcurrency = minConcurrency;
+        this.latencyTolerance = latencyTolerance;
+        this.adjustInterval = adjustInterval;
+        long now = System.nanoTime();
+        this.overflowBucket = new TokenBucket(rate, burst, now);
+        this.lastSweep = new AtomicLong(now);
+        this.rateRejections = rejections("rate");
+        this.concurrencyRejections = rejections("concurrency");
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Throws Too many requests exception when the client has no tokens left or the endpoint is at its limit
+     */
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        // async dispatches continue a request admitted before
+        if (!enabled || request.getDispatcherType() != DispatcherType.REQUEST
+                || !(handler instanceof HandlerMethod handlerMethod)) {
+            return true;
+        }
+        AdmissionCost cost = handlerMethod.getMethodAnnotation(AdmissionCost.class);
+        int weight = cost == null ? 1 : Math.max(1, cost.value());
+        long now = System.nanoTime();
+
+        TokenBucket bucket = bucket(clientId(request), now);
+        long wait = bucket.tryTake(weight, now);
+        if (wait > 0) {
+            rateRejections.increment();
+            throw new TooManyRequestsException("Too many requests, retry later",
+                    Math.max(1, TimeUnit.NANOSECONDS.toSeconds(wait + TimeUnit.SECONDS.toNanos(1) - 1)));
+        }
+        if (cost != null && !cost.concurrencyLimited()) {
+            return true;
+        }
+        AdaptiveConcurrencyLimit limit = limits.computeIfAbsent(handlerMethod.getMethod(),
+                method -> newLimit(method, weight, cost == null || cost.adaptive(), now));
+        if (!limit.tryAcquire()) {
+            // the client is not to blame for a busy endpoint
+            bucket.giveBack(weight);
+            concurrencyRejections.increment();
+            throw new TooManyRequestsException("Server is busy, retry later", CONCURRENCY_RETRY_AFTER_SECONDS);
+        }
+        request.setAttribute(PERMIT, new Permit(limit, now));
+        return true;
+    }
+
+    /**
+     * Called once the response is complete, for async requests after their last dispatch
+     */
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        if (request.getAttribute(PERMIT) instanceof Permit permit) {
+            request.removeAttribute(PERMIT);
+            long now = System.nanoTime();
+            permit.limit.release(now - permit.startNanos, now);
+        }
+    }
+
+    /**
+     * @return limit of the endpoint, null before its first admitted request
+     */
+    public AdaptiveConcurrencyLimit getLimit(Method endpoint) {
+        return limits.get(endpoint);
+    }
+
+    private AdaptiveConcurrencyLimit newLimit(Method method, int weight, boolean adaptive, long now) {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(maxConcurrency / weight,
+                minConcurrency / weight, adaptive ? latencyTolerance : 0, adjustInterval.toNanos(), now);
+        Gauge.builder("inventory.admission.limit", limit, AdaptiveConcurrencyLimit::getLimit)
+                .description("Requests an endpoint may run at once")
+                .tag("endpoint", method.getName())
+                .register(meterRegistry);
+        return limit;
+    }
+
+    private String clientId(HttpServletRequest request) {
+        if (!clientHeader.isEmpty()) {
+            String client = request.getHeader(clientHeader);
+            if (client != null && !client.isBlank()) {
+                return client;
+            }
+        }
+        return request.getRemoteAddr();
+    }
+
+    private TokenBucket bucket(String client, long now) {
+        TokenBucket bucket = buckets.get(client);
+        if (bucket != null) {
+            return bucket;
+        }
+        if (buckets.size() >= maxClients) {
+            sweep(now);
+            if (buckets.size() >= maxClients) {
+                return overflowBucket;
+            }
+        }
+        return buckets.computeIfAbsent(client, c -> new TokenBucket(rate, burst, now));
+    }
+
+    /**
+     * Drops full buckets, at most once per second so a crowd of new clients does not scan the map on every request
+     */
+    private void sweep(long now) {
+        long last = lastSweep.get();
+        if (now - last >= SWEEP_INTERVAL_NANOS && lastSweep.compareAndSet(last, now)) {
+            buckets.values().removeIf(bucket -> bucket.isFull(now));
+        }
+    }
+
+    private Counter rejections(String reason) {
+        return Counter.builder("inventory.admission.rejected")
+                .description("Requests answered with 429")
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+
+    private static final class Permit {
+        private final AdaptiveConcurrencyLimit limit;
+        private final long startNanos;
+
+        private Permit(AdaptiveConcurrencyLimit limit, long startNanos) {
+            this.limit = limit;
+            this.startNanos = startNanos;
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.product.inventory.configuration;
+
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration for in-process caches.
+ * Caches are Caffeine caches configured by spring.cache.* properties,
+ * their hit, miss and eviction counts are published as cache.* metrics.
+ */
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    public static final String PRODUCTS_CACHE = "products";
+}
@@ -0,0 +1,28 @@
+package com.product.inventory.configuration;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a query-only service method whose concurrent identical calls share one execution and its result
+ * (see {@link CoalescingAspect}). Only mark methods which never write and whose result is not changed by callers.
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Coalesced {
+
+    /**
+     * Name of the calls in metrics, the method name by default
+     */
+    String value() default "";
+
+    /**
+     * SpEL expression over the method parameters (e.g. {@code #name}). Calls with equal keys are identical.
+     * All arguments by default
+     */
+    String key() default "";
+}
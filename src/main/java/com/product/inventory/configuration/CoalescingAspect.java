@@ -0,0 +1,111 @@
+package com.product.inventory.configuration;
+
+import com.product.inventory.service.InventoryVersion;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.expression.MethodBasedEvaluationContext;
+import org.springframework.core.DefaultParameterNameDiscoverer;
+import org.springframework.core.ParameterNameDiscoverer;
+import org.springframework.expression.Expression;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Coalesces concurrent identical calls of {@link Coalesced} methods with a {@link SingleFlight}, so a burst of
+ * clients asking for the same search or summary runs its queries once. Enabled with
+ * {@code inventory.coalescing.enabled}.
+ * A call only shares the result of a call started after every product change counted by {@link InventoryVersion}
+ * when it arrived, so it never gets data older than the ETag its caller has read before, nor misses a write its
+ * client has made before.
+ * Calls are counted as inventory.coalescing.calls, tagged with the name of the method and whether they were
+ * executed or joined another.
+ */
+@Aspect
+@Component
+public class CoalescingAspect {
+
+    private final InventoryVersion inventoryVersion;
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+
+    private final SingleFlight flights = new SingleFlight();
+    private final SpelExpressionParser parser = new SpelExpressionParser();
+    private final ParameterNameDiscoverer parameterNames = new DefaultParameterNameDiscoverer();
+    private final Map<Method, Coalescing> methods = new ConcurrentHashMap<>();
+
+    public CoalescingAspect(InventoryVersion inventoryVersion, MeterRegistry meterRegistry,
+                            @Value("${inventory.coalescing.enabled:true}") boolean enabled) {
+        this.inventoryVersion = inventoryVersion;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+    }
+
+    @Around("@annotation(coalesced)")
+    public Object coalesce(ProceedingJoinPoint joinPoint, Coalesced coalesced) throws Throwable {
+        if (!enabled) {
+            return joinPoint.proceed();
+        }
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        Coalescing coalescing = methods.computeIfAbsent(method, m -> new Coalescing(m, coalesced));
+        Object key = Arrays.asList(method, coalescing.key(joinPoint));
+        // read before joining, like the ETag is read before the data
+        long generation = inventoryVersion.getChanges();
+        return flights.run(key, generation, () -> {
+            coalescing.executed.increment();
+            return joinPoint.proceed();
+        }, coalescing.joined::increment);
+    }
+
+    /**
+     * @return number of calls running, each possibly joined by others
+     */
+    public int getRunningCount() {
+        return flights.size();
+    }
+
+    /**
+     * Key expression and counters of one method
+     */
+    private final class Coalescing {
+
+        private final Method method;
+        // null to key by all arguments
+        private final Expression key;
+        private final Counter executed;
+        private final Counter joined;
+
+        Coalescing(Method method, Coalesced coalesced) {
+            this.method = method;
+            this.key = coalesced.key().isEmpty() ? null : parser.parseExpression(coalesced.key());
+            String name = coalesced.value().isEmpty() ? method.getName() : coalesced.value();
+            this.executed = calls(name, "executed");
+            this.joined = calls(name, "joined");
+        }
+
+        Object key(ProceedingJoinPoint joinPoint) {
+            if (key == null) {
+                return Arrays.asList(joinPoint.getArgs());
+            }
+            return key.getValue(new MethodBasedEvaluationContext(joinPoint.getTarget(), method, joinPoint.getArgs(),
+                    parameterNames));
+        }
+
+        private Counter calls(String name, String result) {
+            return Counter.builder("inventory.coalescing.calls")
+                    .description("Calls of coalesced methods, executed or joined with an identical call running")
+                    .tag("method", name)
+                    .tag("result", result)
+                    .register(meterRegistry);
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.product.inventory.configuration;
+
+/**
+ * Names of the application meters.
+ * Latency percentiles and histograms of all meters starting with "inventory" are configured
+ * by management.metrics.distribution.* properties, all meters are scraped from /actuator/prometheus.
+ */
+public final class MetricsConfig {
+
+    public static final String SERVICE_TIMER = "inventory.service";
+    public static final String BULK_REPOSITORY_TIMER = "inventory.repository.bulk";
+
+    private MetricsConfig() {
+    }
+}
@@ -0,0 +1,80 @@
+package com.product.inventory.configuration;
+
+import com.product.inventory.model.Product;
+import com.product.inventory.model.ProductFeedFormat;
+import com.product.inventory.service.ProductBinaryReader;
+import com.product.inventory.service.ProductBinaryWriter;
+import org.springframework.core.ResolvableType;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractSmartHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads and writes a product or a list of products in the binary format of {@link ProductBinaryWriter},
+ * for clients sending Accept: application/x-product-binary
+ */
+public class ProductBinaryHttpMessageConverter extends AbstractSmartHttpMessageConverter<Object> {
+
+    public ProductBinaryHttpMessageConverter() {
+        super(ProductFeedFormat.BINARY.getMediaType());
+    }
+
+    @Override
+    public boolean canRead(ResolvableType type, MediaType mediaType) {
+        return (isProduct(type) || isProductCollection(type)) && canRead(mediaType);
+    }
+
+    @Override
+    public boolean canWrite(ResolvableType type, Class<?> valueClass, MediaType mediaType) {
+        return (Product.class.isAssignableFrom(valueClass) || isProductCollection(type)) && canWrite(mediaType);
+    }
+
+    @Override
+    public Object read(ResolvableType type, HttpInputMessage inputMessage, Map<String, Object> hints)
+            throws IOException {
+        List<Product> products = new ProductBinaryReader(inputMessage.getBody()).readAll();
+        if (!isProduct(type)) {
+            return products;
+        }
+        if (products.size() != 1) {
+            throw new HttpMessageNotReadableException("Expected one product but got " + products.size(),
+                    inputMessage);
+        }
+        return products.get(0);
+    }
+
+    @Override
+    protected void writeInternal(Object value, ResolvableType type, HttpOutputMessage outputMessage,
+                                 Map<String, Object> hints) throws IOException {
+        ProductBinaryWriter writer = new ProductBinaryWriter(outputMessage.getBody());
+        if (value instanceof Product product) {
+            writer.write(product);
+        } else {
+            for (Object product : (Collection<?>) value) {
+                writer.write((Product) product);
+            }
+        }
+        writer.flush();
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return Product.class.isAssignableFrom(clazz) || Collection.class.isAssignableFrom(clazz);
+    }
+
+    private static boolean isProduct(ResolvableType type) {
+        return Product.class.isAssignableFrom(type.toClass());
+    }
+
+    private static boolean isProductCollection(ResolvableType type) {
+        return Collection.class.isAssignableFrom(type.toClass())
+                && Product.class.isAssignableFrom(type.asCollection().getGeneric(0).toClass());
+    }
+}
@@ -0,0 +1,20 @@
+package com.product.inventory.configuration;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a query-only service method whose reads may be served by a read replica
+ * (see {@link ReplicaRoutingDataSource}). Only mark methods which never write and can live with data
+ * up to {@code inventory.datasource.replica-max-lag} old. Never mark methods which seed a view kept up to date
+ * from change events, changes missing from a lagging replica would never be applied to it.
+ * Without configured replicas it has no effect.
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ReadFromReplica {
+}
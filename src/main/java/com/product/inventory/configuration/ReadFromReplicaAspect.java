@@ -0,0 +1,28 @@
+package com.product.inventory.configuration;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+
+/**
+ * Routes connections taken while a {@link ReadFromReplica} method runs to a replica.
+ * A connection already bound to a surrounding transaction keeps being used, so such a method
+ * called from a write transaction still reads on the primary
+ */
+@Aspect
+@Component
+public class ReadFromReplicaAspect {
+
+    @Around("@annotation(com.product.inventory.configuration.ReadFromReplica)")
+    public Object readFromReplica(ProceedingJoinPoint joinPoint) throws Throwable {
+        boolean outermost = ReplicaRoutingDataSource.beginReplicaRead();
+        try {
+            return joinPoint.proceed();
+        } finally {
+            if (outermost) {
+                ReplicaRoutingDataSource.endReplicaRead();
+            }
+        }
+    }
+}
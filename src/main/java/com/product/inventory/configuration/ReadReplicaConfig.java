@@ -0,0 +1,81 @@
+package com.product.inventory.configuration;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.jdbc.autoconfigure.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Read replicas, configured with {@code inventory.datasource.replicas} as a comma separated list of JDBC urls.
+ * Replaces the auto-configured data source with a {@link ReplicaRoutingDataSource} over one Hikari pool
+ * for the primary and one per replica, named replica-1, replica-2, ... in the pool metrics.
+ * Replicas are connected to with the spring.datasource credentials and spring.datasource.hikari settings.
+ * Without replicas configured the application runs on the primary alone.
+ */
+@Configuration
+@ConditionalOnProperty("inventory.datasource.replicas")
+public class ReadReplicaConfig {
+
+    private final DataSourceProperties properties;
+    private final Environment environment;
+    private final MeterRegistry meterRegistry;
+    // created with the replicas, shared by the routing data source and the lag checks
+    private HikariDataSource primaryPool;
+
+    public ReadReplicaConfig(DataSourceProperties properties, Environment environment, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.environment = environment;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * @param urls     : JDBC urls of the replicas
+     * @param poolSize : max connections per replica
+     */
+    @Bean
+    public ReadReplicas readReplicas(@Value("${inventory.datasource.replicas}") List<String> urls,
+                                     @Value("${inventory.datasource.replica-pool-size:${spring.datasource.hikari.maximum-pool-size:10}}") int poolSize,
+                                     @Value("${inventory.datasource.replica-max-lag:1s}") Duration maxLag,
+                                     @Value("${inventory.datasource.replica-lag-check-interval:1s}") Duration checkInterval) {
+        Map<String, DataSource> pools = new LinkedHashMap<>();
+        for (int i = 0; i < urls.size(); i++) {
+            String name = "replica-" + (i + 1);
+            HikariDataSource pool = pool(urls.get(i).trim(), name);
+            pool.setMaximumPoolSize(poolSize);
+            pool.setReadOnly(true);
+            pools.put(name, pool);
+        }
+        primaryPool = pool(properties.determineUrl(), "primary");
+        return new ReadReplicas(primaryPool, pools, maxLag, checkInterval, meterRegistry);
+    }
+
+    @Bean
+    public DataSource dataSource(ReadReplicas readReplicas) {
+        // the replicas, and with them the primary pool, are created first
+        return new ReplicaRoutingDataSource(primaryPool, readReplicas);
+    }
+
+    private HikariDataSource pool(String url, String name) {
+        HikariDataSource pool = properties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .url(url)
+                .build();
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(pool));
+        pool.setPoolName(name);
+        pool.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+        return pool;
+    }
+}
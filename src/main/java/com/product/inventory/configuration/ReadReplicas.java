@@ -0,0 +1,203 @@
+package com.product.inventory.configuration;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Connection pools of the read replicas and how far each one lags behind the primary.
+ * The replication lag of every replica is checked every {@code inventory.datasource.replica-lag-check-interval}:
+ * a replica which has replayed the WAL position the primary had at the start of the check is caught up, otherwise
+ * its lag is the time since it replayed its last transaction. A replica whose WAL receiver has disconnected
+ * therefore starts lagging as soon as the primary writes anything, however much it had replayed before.
+ * A replica lagging more than {@code inventory.datasource.replica-max-lag}, failing the check or refusing
+ * a connection is left out until a later check finds it caught up. Replicas are only used once checked.
+ * Lag is published as the inventory.datasource.replica.lag gauge, tagged with the replica name.
+ */
+public class ReadReplicas implements SmartLifecycle, Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(ReadReplicas.class);
+
+    private static final String PRIMARY_LSN_SQL = "SELECT pg_current_wal_lsn()::text";
+
+    // 0 on a replica which has replayed the given primary position and on a server which is no replica at all,
+    // null on a replica which has not replayed anything yet
+    private static final String LAG_SQL = """
+            SELECT CASE WHEN NOT pg_is_in_recovery() OR pg_last_wal_replay_lsn() >= ?::pg_lsn THEN 0
+                ELSE EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) END""";
+
+    private final DataSource primary;
+
+    private final List<Replica> replicas = new ArrayList<>();
+    private final long maxLagMillis;
+    private final Duration checkInterval;
+    private final AtomicInteger next = new AtomicInteger();
+
+    private ScheduledExecutorService checker;
+    private volatile boolean running;
+
+    /**
+     * @param primary : pool of the primary, its WAL position is what replicas have to catch up with
+     * @param pools   : connection pool per replica name
+     */
+    public ReadReplicas(DataSource primary, Map<String, DataSource> pools, Duration maxLag, Duration checkInterval,
+                        MeterRegistry meterRegistry) {
+        this.primary = primary;
+        this.maxLagMillis = maxLag.toMillis();
+        this.checkInterval = checkInterval;
+        pools.forEach((name, pool) -> {
+            Replica replica = new Replica(name, pool);
+            replicas.add(replica);
+            Gauge.builder("inventory.datasource.replica.lag", replica, r -> r.lagSeconds)
+                    .tag("replica", name)
+                    .description("Replication lag of the replica in seconds, NaN when it could not be measured")
+                    .baseUnit("seconds")
+                    .register(meterRegistry);
+        });
+    }
+
+    /**
+     * @return next available replica, null when none is available
+     */
+    public DataSource choose() {
+        int start = Math.floorMod(next.getAndIncrement(), replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = replicas.get((start + i) % replicas.size());
+            if (replica.available) {
+                return replica.pool;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Leaves the replica out until the next check finds it available again
+     */
+    public void markUnavailable(DataSource pool, Exception cause) {
+        for (Replica replica : replicas) {
+            if (replica.pool == pool) {
+                replica.setUnavailable(replica.lagSeconds, cause.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Measures the lag of every replica. Runs every check interval while started
+     */
+    public void check() {
+        String primaryLsn;
+        try (Connection connection = primary.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet result = statement.executeQuery(PRIMARY_LSN_SQL)) {
+            result.next();
+            primaryLsn = result.getString(1);
+        } catch (SQLException | RuntimeException e) {
+            // whether a replica is behind can not be told
+            replicas.forEach(replica -> replica.setUnavailable(Double.NaN, "primary position unknown: "
+                    + e.getMessage()));
+            return;
+        }
+        for (Replica replica : replicas) {
+            try (Connection connection = replica.pool.getConnection();
+                 PreparedStatement statement = connection.prepareStatement(LAG_SQL)) {
+                statement.setString(1, primaryLsn);
+                BigDecimal lag;
+                try (ResultSet result = statement.executeQuery()) {
+                    result.next();
+                    lag = result.getBigDecimal(1);
+                }
+                if (lag == null) {
+                    replica.setUnavailable(Double.NaN, "nothing replayed yet");
+                } else if (lag.movePointRight(3).longValue() > maxLagMillis) {
+                    replica.setUnavailable(lag.doubleValue(), "lagging " + lag + " s behind");
+                } else {
+                    replica.setAvailable(lag.doubleValue());
+                }
+            } catch (SQLException | RuntimeException e) {
+                replica.setUnavailable(Double.NaN, e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public void start() {
+        check();
+        checker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "read-replica-lag-check");
+            thread.setDaemon(true);
+            return thread;
+        });
+        checker.scheduleWithFixedDelay(this::check, checkInterval.toMillis(), checkInterval.toMillis(),
+                TimeUnit.MILLISECONDS);
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        checker.shutdownNow();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (Replica replica : replicas) {
+            if (replica.pool instanceof Closeable closeable) {
+                closeable.close();
+            }
+        }
+    }
+
+    private static class Replica {
+
+        private final String name;
+        private final DataSource pool;
+        private volatile boolean available;
+        private volatile double lagSeconds = Double.NaN;
+
+        Replica(String name, DataSource pool) {
+            this.name = name;
+            this.pool = pool;
+        }
+
+        void setAvailable(double lagSeconds) {
+            this.lagSeconds = lagSeconds;
+            if (!available) {
+                log.info("Read replica {} is available", name);
+                available = true;
+            }
+        }
+
+        void setUnavailable(double lagSeconds, String reason) {
+            this.lagSeconds = lagSeconds;
+            if (available) {
+                log.warn("Read replica {} is not used, {}", name, reason);
+                available = false;
+            }
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.product.inventory.configuration;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.flyway.autoconfigure.FlywayMigrationStrategy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Versioned schema migrations (db/migration) are applied by Flyway before JPA starts.
+ * With {@code inventory.schema.migrate-on-startup=false} a starting node does not run them, e.g. when they are
+ * applied once per deployment by a job starting the application with -Dspring.context.exit=onRefresh.
+ * Decided at runtime rather than with spring.flyway.enabled, which Spring AOT fixes at build time.
+ */
+@Configuration
+public class SchemaMigrationConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(SchemaMigrationConfig.class);
+
+    @Bean
+    public FlywayMigrationStrategy flywayMigrationStrategy(
+            @Value("${inventory.schema.migrate-on-startup:true}") boolean migrateOnStartup) {
+        return flyway -> {
+            if (migrateOnStartup) {
+                flyway.migrate();
+            } else {
+                log.info("Schema migrations are not run on startup");
+            }
+        };
+    }
+}
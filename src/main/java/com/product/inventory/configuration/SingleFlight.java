@@ -0,0 +1,81 @@
+package com.product.inventory.configuration;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Runs at most one call per key at a time: a call arriving while an identical one runs waits for it and gets
+ * its result or exception instead of running again. Nothing is kept once the running call has finished.
+ * Every call carries a generation, e.g. the number of changes it must see. A call only joins a running call
+ * of the same or a later generation, a call started before a change it must see is left to finish on its own.
+ */
+public final class SingleFlight {
+
+    private final Map<Object, Flight> flights = new ConcurrentHashMap<>();
+
+    /**
+     * Computation of a call, may throw anything the coalesced method throws
+     */
+    public interface Computation {
+        Object compute() throws Throwable;
+    }
+
+    /**
+     * @param generation : lowest generation of a running call this one may join
+     * @param onJoined   : run instead of the computation when the call joins another
+     * @return result of this call, or of the identical call it joined
+     */
+    public Object run(Object key, long generation, Computation computation, Runnable onJoined) throws Throwable {
+        Flight own = new Flight(generation);
+        while (true) {
+            Flight running = flights.putIfAbsent(key, own);
+            if (running == null) {
+                break;
+            }
+            if (running.generation >= generation) {
+                onJoined.run();
+                return running.await();
+            }
+            // too old for this call, later calls of this generation join this one instead
+            if (flights.replace(key, running, own)) {
+                break;
+            }
+        }
+        try {
+            Object result = computation.compute();
+            own.result.complete(result);
+            return result;
+        } catch (Throwable e) {
+            own.result.completeExceptionally(e);
+            throw e;
+        } finally {
+            flights.remove(key, own);
+        }
+    }
+
+    /**
+     * @return number of calls running
+     */
+    public int size() {
+        return flights.size();
+    }
+
+    private static final class Flight {
+        private final long generation;
+        private final CompletableFuture<Object> result = new CompletableFuture<>();
+
+        private Flight(long generation) {
+            this.generation = generation;
+        }
+
+        private Object await() throws Throwable {
+            try {
+                return result.get();
+            } catch (ExecutionException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.product.inventory.configuration;
+
+import net.ttddyy.dsproxy.listener.logging.SLF4JLogLevel;
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Wraps the data source so that statements running longer than {@code inventory.jdbc.slow-query-threshold}
+ * are logged on the inventory.slow-query logger with their SQL and bind parameters.
+ * Every statement goes through the proxy, including native queries and JdbcTemplate batches.
+ * The proxy unwraps to the pool, so connection pool metrics are still published. 0 disables logging.
+ */
+@Component
+public class SlowQueryLoggingPostProcessor implements BeanPostProcessor {
+
+    private static final String LOGGER_NAME = "inventory.slow-query";
+
+    private final Duration threshold;
+
+    public SlowQueryLoggingPostProcessor(@Value("${inventory.jdbc.slow-query-threshold:200ms}") Duration threshold) {
+        this.threshold = threshold;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (!(bean instanceof DataSource dataSource) || bean instanceof ProxyDataSource || threshold.isZero()) {
+            return bean;
+        }
+        return ProxyDataSourceBuilder.create(beanName, dataSource)
+                .logSlowQueryBySlf4j(threshold.toMillis(), TimeUnit.MILLISECONDS, SLF4JLogLevel.WARN, LOGGER_NAME)
+                .multiline()
+                .build();
+    }
+}
@@ -0,0 +1,64 @@
+package com.product.inventory.configuration;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket kept in a single atomic long, so concurrent requests of a client never block each other.
+ * Instead of a token count it keeps the time at which the bucket will be full again (generic cell rate algorithm):
+ * taking tokens moves that time forward, and the bucket holds too few tokens when it lies more than the burst
+ * ahead of now. Time is given by the caller in {@link System#nanoTime} units.
+ */
+public final class TokenBucket {
+
+    private final long nanosPerToken;
+    private final long burstNanos;
+    private final AtomicLong fullAt;
+
+    /**
+     * @param tokensPerSecond : refill rate
+     * @param burst           : capacity, a full bucket admits this many tokens at once
+     * @param nowNanos        : the bucket starts full
+     */
+    public TokenBucket(double tokensPerSecond, int burst, long nowNanos) {
+        if (tokensPerSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException("Rate must be positive and burst at least 1");
+        }
+        this.nanosPerToken = Math.max(1, (long) (1e9 / tokensPerSecond));
+        this.burstNanos = nanosPerToken * burst;
+        this.fullAt = new AtomicLong(nowNanos);
+    }
+
+    /**
+     * Takes tokens if the bucket holds enough of them. More tokens than the burst are taken from a full bucket
+     *
+     * @return 0 when taken, otherwise nanoseconds until enough tokens are available
+     */
+    public long tryTake(int tokens, long nowNanos) {
+        long cost = Math.min(tokens * nanosPerToken, burstNanos);
+        while (true) {
+            long current = fullAt.get();
+            long next = Math.max(current, nowNanos) + cost;
+            long wait = next - nowNanos - burstNanos;
+            if (wait > 0) {
+                return wait;
+            }
+            if (fullAt.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Returns tokens taken for a request which was not served after all
+     */
+    public void giveBack(int tokens) {
+        fullAt.addAndGet(-Math.min(tokens * nanosPerToken, burstNanos));
+    }
+
+    /**
+     * @return true when the bucket is full, forgetting it changes nothing for its client
+     */
+    public boolean isFull(long nowNanos) {
+        return fullAt.get() <= nowNanos;
+    }
+}
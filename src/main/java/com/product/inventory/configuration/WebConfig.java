@@ -0,0 +1,38 @@
+package com.product.inventory.configuration;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverters;
+import org.springframework.http.converter.json.JacksonJsonHttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Adds the binary product format to content negotiation. It comes after JSON,
+ * so JSON stays the default for clients accepting any type.
+ * Requests to the product endpoints pass the {@link AdmissionInterceptor} first
+ */
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    private final AdmissionInterceptor admissionInterceptor;
+    private final JacksonJsonHttpMessageConverter jsonConverter;
+
+    public WebConfig(AdmissionInterceptor admissionInterceptor, JacksonJsonHttpMessageConverter jsonConverter) {
+        this.admissionInterceptor = admissionInterceptor;
+        this.jsonConverter = jsonConverter;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(admissionInterceptor).addPathPatterns("/products", "/products/**");
+    }
+
+    /**
+     * Custom converters come before the defaults, so JSON is added again ahead of the binary format
+     */
+    @Override
+    public void configureMessageConverters(HttpMessageConverters.ServerBuilder builder) {
+        builder.addCustomConverter(jsonConverter)
+                .addCustomConverter(new ProductBinaryHttpMessageConverter());
+    }
+}
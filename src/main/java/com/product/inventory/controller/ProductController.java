@@ -1,32 +1,97 @@
 package com.product.inventory.controller;
 
+import com.product.inventory.configuration.AdmissionCost;
+import com.product.inventory.exception.PreconditionFailedException;
+import com.product.inventory.model.ImportReport;
+import com.product.inventory.model.LowStockPage;
+import com.product.inventory.model.PriceBucket;
 import com.product.inventory.model.Product;
+import com.product.inventory.model.ProductCleanupRequest;
+import com.product.inventory.model.ProductCleanupStatus;
+import com.product.inventory.model.ProductCursorPage;
+import com.product.inventory.model.ProductFeedFormat;
+import com.product.inventory.model.ProductFilter;
+import com.product.inventory.model.ProductRanking;
+import com.product.inventory.model.ProductSortKey;
+import com.product.inventory.model.ProductStats;
+import com.product.inventory.model.RankedProduct;
+import com.product.inventory.model.StockAvailability;
+import com.product.inventory.model.StockReservation;
+import com.product.inventory.model.StockUpdate;
+import com.product.inventory.model.StockUpdateReport;
+import com.product.inventory.service.InventoryVersion;
+import com.product.inventory.service.ProductAnalytics;
+import com.product.inventory.service.ProductChangeStream;
+import com.product.inventory.service.ProductCleanupService;
+import com.product.inventory.service.ProductExportService;
+import com.product.inventory.service.ProductImportService;
 import com.product.inventory.service.ProductService;
+import com.product.inventory.service.StockReservationService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.PositiveOrZero;
 import org.springdoc.core.annotations.ParameterObject;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.time.Duration;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Supplier;
 
 @RestController
 @RequestMapping("/products")
 @Validated
 public class ProductController {
 
+    private static final String NDJSON = "application/x-ndjson";
+    private static final String CSV = "text/csv";
+    // suffixes of ETags telling the representations apart
+    private static final String JSON_FORMAT = "json";
+    private static final String BINARY_FORMAT = "binary";
+
     private final ProductService productService;
+    private final ProductImportService productImportService;
+    private final ProductExportService productExportService;
+    private final ProductChangeStream productChangeStream;
+    private final ProductAnalytics productAnalytics;
+    private final InventoryVersion inventoryVersion;
+    private final ProductCleanupService productCleanupService;
+    private final StockReservationService stockReservationService;
 
-    public ProductController(ProductService productService) {
+    public ProductController(ProductService productService, ProductImportService productImportService,
+                             ProductExportService productExportService, ProductChangeStream productChangeStream,
+                             ProductAnalytics productAnalytics, InventoryVersion inventoryVersion,
+                             ProductCleanupService productCleanupService,
+                             StockReservationService stockReservationService) {
         this.productService = productService;
+        this.productImportService = productImportService;
+        this.productExportService = productExportService;
+        this.productChangeStream = productChangeStream;
+        this.productAnalytics = productAnalytics;
+        this.inventoryVersion = inventoryVersion;
+        this.productCleanupService = productCleanupService;
+        this.stockReservationService = stockReservationService;
     }
 
     // POST /products – Add new product to the inventory
@@ -40,36 +105,149 @@ public class ProductController {
         return ResponseEntity.status(HttpStatus.CREATED).body(createdProduct);
     }
 
+    // POST /products/import – Bulk import of products, one product per line as JSON lines or CSV
+    @Operation(summary = "Import products from JSON lines or CSV (header: name,quantity,price)")
+    @ApiResponses(value =
+            {@ApiResponse(responseCode = "200", description = "Import finished, rejected rows are listed in report"),
+            @ApiResponse(responseCode = "400", description = "CSV header is missing product columns")})
+    @AdmissionCost(value = 20, adaptive = false)
+    @PostMapping(value = "/import", consumes = {NDJSON, CSV})
+    public ResponseEntity<ImportReport> importProducts(@RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+                                                       InputStream body) throws IOException {
+        return ResponseEntity.ok(productImportService.importProducts(body, ProductFeedFormat.fromContentType(contentType)));
+    }
+
+    // GET /products/export?format=jsonl&gzip=false – Export of all products as one stream
+    @Operation(summary = "Export all products as JSON lines (format=jsonl), CSV (format=csv) " +
+            "or binary records (format=bin), optionally gzipped")
+    @ApiResponses(value =
+            {@ApiResponse(responseCode = "200", description = "Products are streamed"),
+            @ApiResponse(responseCode = "400", description = "Unknown format")})
+    @AdmissionCost(value = 20, adaptive = false)
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportProducts(@RequestParam(defaultValue = "jsonl") String format,
+                                                                @RequestParam(defaultValue = "false") boolean gzip) {
+        ProductFeedFormat feedFormat;
+        try {
+            feedFormat = ProductFeedFormat.fromExtension(format);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        String fileName = "products." + feedFormat.getExtension() + (gzip ? ".gz" : "");
+        StreamingResponseBody body = out -> productExportService.exportProducts(out, feedFormat, gzip);
+        return ResponseEntity.ok()
+                .contentType(gzip ? MediaType.parseMediaType("application/gzip") : feedFormat.getMediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"")
+                .body(body);
+    }
+
     // GET /products – Get all products in inventory
     @Operation(summary = "Get list of all Products in pages in Inventory")
-    @ApiResponses(value = {@ApiResponse(responseCode = "200", description = "List is Returned")})
+    @ApiResponses(value =
+            {@ApiResponse(responseCode = "200", description = "List is Returned"),
+            @ApiResponse(responseCode = "304", description = "No product has changed since If-None-Match")})
+    @AdmissionCost(2)
     @GetMapping
-    public ResponseEntity<List<Product>> getAllProducts(@ParameterObject Pageable pageable) {
-        return ResponseEntity.ok(productService.getAllProducts(pageable));
+    public ResponseEntity<List<Product>> getAllProducts(@ParameterObject Pageable pageable, WebRequest request) {
+        return ifNoneMatch(request, inventoryETag(request, true), () -> productService.getAllProducts(pageable));
+    }
+
+    // GET /products/{id} – Get product by id
+    @Operation(summary = "Get product by id")
+    @ApiResponses(value =
+            {@ApiResponse(responseCode = "200", description = "Product is Returned"),
+            @ApiResponse(responseCode = "304", description = "Product is still in the version of If-None-Match"),
+            @ApiResponse(responseCode = "404", description = "Product not found")})
+    @GetMapping("/{id}")
+    public ResponseEntity<Product> getProduct(@PathVariable Long id, WebRequest request) {
+        Product product = productService.getProductById(id);
+        return ifNoneMatch(request, versionETag(product, request), () -> product);
     }
 
-    // GET /products/search?name=xyz – Search products by name (case-insensitive)
-    @Operation(summary = "Search products by name (case-insensitive)")
+    // GET /products/cursor?sort=id&direction=asc&size=20&cursor=${nextCursor} – Get all products with cursor pagination
+    @Operation(summary = "Get list of all Products with cursor pagination. " +
+            "Pass nextCursor of previous page as cursor to get the next page")
+    @ApiResponses(value =
+            {@ApiResponse(responseCode = "200", description = "Page is Returned"),
+            @ApiResponse(responseCode = "304", description = "No product has changed since If-None-Match"),
+            @ApiResponse(responseCode = "400", description = "Invalid cursor, sort, direction or size")})
+    @AdmissionCost(2)
+    @GetMapping("/cursor")
+    public ResponseEntity<ProductCursorPage> getProductsWithCursor(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "id") String sort,
+            @RequestParam(defaultValue = "asc") String direction,
+            @RequestParam(defaultValue = "20") @Min(value = 1, message = "Size must be at least 1")
+            @Max(value = 1000, message = "Size must be at most 1000") int size,
+            WebRequest request) {
+        ProductSortKey sortKey;
+        try {
+            sortKey = ProductSortKey.fromString(sort);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Sort must be one of id, name, price");
+        }
+        boolean descending;
+        try {
+            descending = Sort.Direction.fromString(direction).isDescending();
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Direction must be one of asc, desc");
+        }
+        return ifNoneMatch(request, inventoryETag(request, false),
+                () -> productService.getProductsAfter(cursor, sortKey, descending, size));
+    }
+
+    // GET /products/search?name=xyz&page=1&size=20 – Search products by name (case-insensitive), best matches first
+    @Operation(summary = "Search products by name (case-insensitive). Best matches come first")
     @ApiResponses(value =
             {@ApiResponse(responseCode = "200", description = "Search is successful"),
+            @ApiResponse(responseCode = "304", description = "No product has changed since If-None-Match"),
             @ApiResponse(responseCode = "400", description = "Name must not be blank")})
+    @AdmissionCost(5)
     @GetMapping("/search")
     public ResponseEntity<List<Product>> searchProduct(@RequestParam
-                           @NotBlank(message = "Name must not be blank") String name) {
-        return ResponseEntity.ok(productService.searchByName(name));
+                           @NotBlank(message = "Name must not be blank") String name,
+                           @ParameterObject Pageable pageable, WebRequest request) {
+        return ifNoneMatch(request, inventoryETag(request, true), () -> productService.searchByName(name, pageable));
     }
 
     // PUT /products/{id}/quantity?quantity=${quantity} – Update product quantity
-    @Operation(summary = "Update quantity for given product")
+    @Operation(summary = "Update quantity for given product. " +
+            "Send the ETag of the product as If-Match to update it only if nobody has changed it since")
     @ApiResponses(value =
             {@ApiResponse(responseCode = "200", description = "Update is successful"),
             @ApiResponse(responseCode = "400", description = "Quantity must be greater than or equal to 0"),
-            @ApiResponse(responseCode = "404", description = "Product not found")})
+            @ApiResponse(responseCode = "404", description = "Product not found"),
+            @ApiResponse(responseCode = "412", description = "Product has been changed since the ETag of If-Match")})
     @PutMapping("/{id}/quantity")
     public ResponseEntity<Product> updateProductQuantity(@PathVariable Long id,
                          @RequestParam @PositiveOrZero(message = "Quantity must be greater than or equal to 0")
-                         Integer quantity) {
-        Product updated = productService.updateQuantity(id, quantity);
+                         Integer quantity,
+                         @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        Product updated = productService.updateQuantity(id, quantity, parseVersionETag(ifMatch));
+        return ResponseEntity.ok(updated);
+    }
+
+    // PUT /products/quantities – Set or change quantities of many products at once
+    @Operation(summary = "Set quantity or add delta for many products in one transaction. " +
+            "Unknown ids and rejected entries are reported without aborting the batch")
+    @ApiResponses(value =
+            {@ApiResponse(responseCode = "200", description = "Batch is applied, see report for skipped entries"),
+            @ApiResponse(responseCode = "400", description = "Too many updates in one batch")})
+    @AdmissionCost(value = 10, adaptive = false)
+    @PutMapping("/quantities")
+    public ResponseEntity<StockUpdateReport> updateProductQuantities(@RequestBody List<StockUpdate> updates) {
+        return ResponseEntity.ok(productService.updateQuantities(updates));
+    }
+
+    // PATCH /products/{id}/quantity/delta?delta=${delta} – Increment or decrement product quantity
+    @Operation(summary = "Add delta to quantity for given product. Use negative delta to remove stock")
+    @ApiResponses(value =
+            {@ApiResponse(responseCode = "200", description = "Update is successful"),
+            @ApiResponse(responseCode = "404", description = "Product not found"),
+            @ApiResponse(responseCode = "409", description = "Insufficient stock")})
+    @PatchMapping("/{id}/quantity/delta")
+    public ResponseEntity<Product> adjustProductQuantity(@PathVariable Long id, @RequestParam int delta) {
+        Product updated = productService.adjustQuantity(id, delta);
         return ResponseEntity.ok(updated);
     }
 
@@ -84,11 +262,282 @@ public class ProductController {
         return ResponseEntity.ok("Product deleted Successfully");
     }
 
-    // GET /products/summary – Inventory statistics
-    @Operation(summary = "Get Inventory statistics")
-    @ApiResponses(value = {@ApiResponse(responseCode = "200", description = "Summary is Returned")})
+    // POST /products/{id}/reservations?quantity=${quantity}&ttlSeconds=900 – Hold stock for a checkout
+    @Operation(summary = "Reserve quantity of given product until the reservation is confirmed, released or " +
+            "ttlSeconds have passed. Reserved quantity is not available to other reservations")
+    @ApiResponses(value =
+            {@ApiResponse(responseCode = "201", description = "Reservation created"),
+            @ApiResponse(responseCode = "400", description = "Invalid quantity or ttl"),
+            @ApiResponse(responseCode = "404", description = "Product not found"),
+            @ApiResponse(responseCode = "409", description = "Insufficient stock")})
+    @PostMapping("/{id}/reservations")
+    public ResponseEntity<StockReservation> reserveStock(@PathVariable Long id, @RequestParam int quantity,
+                                                         @RequestParam(required = false) Long ttlSeconds) {
+        StockReservation reservation = stockReservationService.reserve(id, quantity,
+                ttlSeconds == null ? null : Duration.ofSeconds(ttlSeconds));
+        return ResponseEntity.created(URI.create("/products/reservations/" + reservation.getId())).body(reservation);
+    }
+
+    // GET /products/{id}/availability – Quantity on hand, reserved and available to sell
+    @Operation(summary = "Get quantity on hand, reserved quantity and quantity available to sell of given product")
+    @ApiResponses(value =
+            {@ApiResponse(responseCode = "200", description = "Availability is Returned"),
+            @ApiResponse(responseCode = "404", description = "Product not found")})
+    @GetMapping("/{id}/availability")
+    public ResponseEntity<StockAvailability> getAvailability(@PathVariable Long id) {
+        return ResponseEntity.ok(stockReservationService.getAvailability(id));
+    }
+
+    // GET /products/reservations/{reservationId} – Active reservation
+    @Operation(summary = "Get an active reservation")
+    @ApiResponses(value =
+            {@ApiResponse(responseCode = "200", description = "Reservation is Returned"),
+            @ApiResponse(responseCode = "404", description = "Reservation not found, finished or expired")})
+    @GetMapping("/reservations/{reservationId}")
+    public ResponseEntity<StockReservation> getReservation(@PathVariable String reservationId) {
+        return ResponseEntity.ok(stockReservationService.getReservation(reservationId));
+    }
+
+    // POST /products/reservations/{reservationId}/confirm – Remove reserved quantity from stock
+    @Operation(summary = "Confirm a reservation, its quantity is removed from the product")
+    @ApiResponses(value =
+            {@ApiResponse(responseCode = "200", description = "Product with its new quantity is Returned"),
+            @ApiResponse(responseCode = "404", description = "Reservation or product not found"),
+            @ApiResponse(responseCode = "409", description = "Insufficient stock, the reservation is released")})
+    @PostMapping("/reservations/{reservationId}/confirm")
+    public ResponseEntity<Product> confirmReservation(@PathVariable String reservationId) {
+        return ResponseEntity.ok(stockReservationService.confirm(reservationId));
+    }
+
+    // DELETE /products/reservations/{reservationId} – Give reserved quantity back
+    @Operation(summary = "Release a reservation, its quantity is available again")
+    @ApiResponses(value =
+            {@ApiResponse(responseCode = "204", description = "Reservation released"),
+            @ApiResponse(responseCode = "404", description = "Reservation not found, finished or expired")})
+    @DeleteMapping("/reservations/{reservationId}")
+    public ResponseEntity<Void> releaseReservation(@PathVariable String reservationId) {
+        stockReservationService.release(reservationId);
+        return ResponseEntity.noContent().build();
+    }
+
+    // POST /products/cleanup – Remove many products in the background, optionally into the archive table
+    @Operation(summary = "Remove products by id, or all products out of stock for at least outOfStockDays, " +
+            "in chunks in the background. Use archive=true to move them to the archive table")
+    @ApiResponses(value =
+            {@ApiResponse(responseCode = "202", description = "Cleanup is queued, progress is served at Location"),
+            @ApiResponse(responseCode = "400", description = "Invalid cleanup request")})
+    @AdmissionCost(10)
+    @PostMapping("/cleanup")
+    public ResponseEntity<ProductCleanupStatus> cleanupProducts(@RequestBody ProductCleanupRequest request) {
+        ProductCleanupStatus status = productCleanupService.submit(request);
+        return ResponseEntity.accepted().location(URI.create("/products/cleanup/" + status.getId())).body(status);
+    }
+
+    // GET /products/cleanup/{cleanupId} – Progress of a cleanup
+    @Operation(summary = "Get progress of a cleanup")
+    @ApiResponses(value =
+            {@ApiResponse(responseCode = "200", description = "Progress is returned"),
+            @ApiResponse(responseCode = "404", description = "Cleanup not found")})
+    @GetMapping("/cleanup/{cleanupId}")
+    public ResponseEntity<ProductCleanupStatus> getCleanup(@PathVariable String cleanupId) {
+        return ResponseEntity.ok(productCleanupService.getStatus(cleanupId));
+    }
+
+    // GET /products/out-of-stock?lowStock=false&page=1&size=20 – Out-of-stock or low-stock products
+    @Operation(summary = "Get out-of-stock products, lowest quantity first. " +
+            "Use lowStock=true to include products at or below the low-stock threshold")
+    @ApiResponses(value =
+            {@ApiResponse(responseCode = "200", description = "Page is Returned"),
+            @ApiResponse(responseCode = "304", description = "No product has changed since If-None-Match")})
+    @AdmissionCost(2)
+    @GetMapping("/out-of-stock")
+    public ResponseEntity<LowStockPage> getOutOfStockProducts(@RequestParam(defaultValue = "false") boolean lowStock,
+                                                              @ParameterObject Pageable pageable, WebRequest request) {
+        return ifNoneMatch(request, inventoryETag(request, false),
+                () -> productService.getOutOfStockProducts(lowStock, pageable));
+    }
+
+    // GET /products/events?since=${sequence} – Stream of product changes as Server-Sent Events
+    @Operation(summary = "Stream product changes (created, quantity_changed, deleted) as Server-Sent Events. " +
+            "Pass the id of the last received event as since or Last-Event-ID to resume, without it only new changes are sent")
+    @ApiResponses(value =
+            {@ApiResponse(responseCode = "200", description = "Changes are streamed"),
+            @ApiResponse(responseCode = "503", description = "Too many open change streams")})
+    @AdmissionCost(value = 1, concurrencyLimited = false)
+    @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamProductChanges(@RequestParam(required = false) Long since,
+                                           @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+        return productChangeStream.subscribe(since != null ? since : lastEventId);
+    }
+
+    // GET /products/analytics/stats?minPrice=10&name=mouse – Stock value and price statistics of matching products
+    @Operation(summary = "Get count, total quantity, stock value and price range of the products matching all given filters. " +
+            "Computed in memory, use refresh=true to re-read the products from database first")
+    @ApiResponses(value = {@ApiResponse(responseCode = "200", description = "Statistics are Returned")})
+    @AdmissionCost(5)
+    @GetMapping("/analytics/stats")
+    public ResponseEntity<ProductStats> getProductStats(@ParameterObject ProductFilter filter,
+                                                        @RequestParam(defaultValue = "false") boolean refresh) {
+        return ResponseEntity.ok(productAnalytics.getStats(filter, refresh));
+    }
+
+    // GET /products/analytics/price-histogram?buckets=10 – Products per price range
+    @Operation(summary = "Split the price range of the products matching all given filters into equal buckets " +
+            "and count products and quantity per bucket")
+    @ApiResponses(value =
+            {@ApiResponse(responseCode = "200", description = "Buckets are Returned"),
+            @ApiResponse(responseCode = "400", description = "Invalid number of buckets")})
+    @AdmissionCost(5)
+    @GetMapping("/analytics/price-histogram")
+    public ResponseEntity<List<PriceBucket>> getPriceHistogram(
+            @ParameterObject ProductFilter filter,
+            @RequestParam(defaultValue = "10") @Min(value = 1, message = "Buckets must be at least 1")
+            @Max(value = 1000, message = "Buckets must be at most 1000") int buckets,
+            @RequestParam(defaultValue = "false") boolean refresh) {
+        return ResponseEntity.ok(productAnalytics.getPriceHistogram(filter, buckets, refresh));
+    }
+
+    // GET /products/analytics/top?by=quantity&limit=10 – Products with highest quantity or stock value
+    @Operation(summary = "Get the products matching all given filters with the highest quantity (by=quantity) " +
+            "or stock value (by=stock-value)")
+    @ApiResponses(value =
+            {@ApiResponse(responseCode = "200", description = "Products are Returned"),
+            @ApiResponse(responseCode = "400", description = "Invalid ranking or limit")})
+    @AdmissionCost(5)
+    @GetMapping("/analytics/top")
+    public ResponseEntity<List<RankedProduct>> getTopProducts(
+            @ParameterObject ProductFilter filter,
+            @RequestParam(defaultValue = "quantity") String by,
+            @RequestParam(defaultValue = "10") @Min(value = 1, message = "Limit must be at least 1")
+            @Max(value = 1000, message = "Limit must be at most 1000") int limit,
+            @RequestParam(defaultValue = "false") boolean refresh) {
+        ProductRanking ranking;
+        try {
+            ranking = ProductRanking.fromString(by);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "By must be one of quantity, stock-value");
+        }
+        return ResponseEntity.ok(productAnalytics.getTopProducts(filter, ranking, limit, refresh));
+    }
+
+    // GET /products/summary?refresh=false – Inventory statistics
+    @Operation(summary = "Get Inventory statistics. Use refresh=true to recompute them from database")
+    @ApiResponses(value =
+            {@ApiResponse(responseCode = "200", description = "Summary is Returned"),
+            @ApiResponse(responseCode = "304", description = "No product has changed since If-None-Match")})
+    @AdmissionCost(5)
     @GetMapping("/summary")
-    public ResponseEntity<Map<String, Object>> getSummary() {
-        return ResponseEntity.ok(productService.getInventorySummary());
+    public ResponseEntity<Map<String, Object>> getSummary(@RequestParam(defaultValue = "false") boolean refresh,
+                                                          WebRequest request) {
+        String etag = inventoryETag(request, false);
+        if (refresh) {
+            return ResponseEntity.ok().eTag(etag).cacheControl(CacheControl.noCache()).varyBy(HttpHeaders.ACCEPT)
+                    .body(productService.getInventorySummary(true));
+        }
+        return ifNoneMatch(request, etag, () -> productService.getInventorySummary(false));
+    }
+
+    /**
+     * Answers 304 without building the body when If-None-Match holds the current ETag.
+     * Responses may be stored but must be revalidated, so clients see changes on their next request.
+     * The ETag names the format of the body, so the JSON and binary representations never share one
+     *
+     * @param etag : current ETag, read before the body is built, null answers 200 without ETag
+     * @param body : builds the response body
+     */
+    private static <T> ResponseEntity<T> ifNoneMatch(WebRequest request, String etag, Supplier<T> body) {
+        if (etag == null) {
+            return ResponseEntity.ok().cacheControl(CacheControl.noCache()).varyBy(HttpHeaders.ACCEPT).body(body.get());
+        }
+        if (request.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(CacheControl.noCache())
+                    .varyBy(HttpHeaders.ACCEPT).build();
+        }
+        return ResponseEntity.ok().eTag(etag).cacheControl(CacheControl.noCache()).varyBy(HttpHeaders.ACCEPT)
+                .body(body.get());
+    }
+
+    /**
+     * Weak ETag of a response built from many products. Tomcat does not compress responses with a strong ETag,
+     * a gzipped body differs byte for byte from the identity one
+     *
+     * @param binary : the response may be written in the binary format
+     * @return null while there is no inventory version
+     */
+    private String inventoryETag(WebRequest request, boolean binary) {
+        String version = inventoryVersion.getTag();
+        if (version == null) {
+            return null;
+        }
+        return "W/\"" + version + "-" + (binary ? bodyFormat(request) : JSON_FORMAT) + "\"";
+    }
+
+    /**
+     * Strong ETag of a single product, as If-Match needs. A single product stays below
+     * server.compression.min-response-size, so it is not compressed anyway
+     */
+    private static String versionETag(Product product, WebRequest request) {
+        return "\"" + product.getVersion() + "-" + bodyFormat(request) + "\"";
+    }
+
+    /**
+     * Format content negotiation will pick for the response: binary when Accept prefers it over JSON,
+     * at equal quality when it is named while JSON is only matched by a wildcard
+     */
+    private static String bodyFormat(WebRequest request) {
+        String accept = request.getHeader(HttpHeaders.ACCEPT);
+        if (accept == null || accept.isBlank()) {
+            return JSON_FORMAT;
+        }
+        List<MediaType> acceptable;
+        try {
+            acceptable = MediaType.parseMediaTypes(accept);
+        } catch (InvalidMediaTypeException e) {
+            return JSON_FORMAT;
+        }
+        MediaType binary = ProductFeedFormat.BINARY.getMediaType();
+        double jsonQuality = 0;
+        double binaryQuality = 0;
+        boolean jsonNamed = false;
+        boolean binaryNamed = false;
+        for (MediaType type : acceptable) {
+            if (type.includes(MediaType.APPLICATION_JSON)) {
+                jsonQuality = Math.max(jsonQuality, type.getQualityValue());
+                jsonNamed |= !type.isWildcardSubtype();
+            }
+            if (type.includes(binary)) {
+                binaryQuality = Math.max(binaryQuality, type.getQualityValue());
+                binaryNamed |= !type.isWildcardSubtype();
+            }
+        }
+        boolean preferred = binaryQuality > jsonQuality
+                || binaryQuality > 0 && binaryQuality == jsonQuality && binaryNamed && !jsonNamed;
+        return preferred ? BINARY_FORMAT : JSON_FORMAT;
+    }
+
+    /**
+     * @param ifMatch : If-Match header with the ETag of a single product, * or null match any version
+     * @return version the product must have, null for any version
+     */
+    private static Long parseVersionETag(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || "*".equals(ifMatch.trim())) {
+            return null;
+        }
+        String etag = ifMatch.trim();
+        try {
+            // weak ETags never match If-Match
+            if (etag.length() < 2 || !etag.startsWith("\"") || !etag.endsWith("\"")) {
+                throw new NumberFormatException(etag);
+            }
+            String version = etag.substring(1, etag.length() - 1);
+            // the ETag of either representation names the version, a bare version is accepted as well
+            int format = version.indexOf('-');
+            if (format > 0 && (version.endsWith("-" + JSON_FORMAT) || version.endsWith("-" + BINARY_FORMAT))) {
+                version = version.substring(0, format);
+            }
+            return Long.valueOf(version);
+        } catch (NumberFormatException e) {
+            throw new PreconditionFailedException("Product has been changed");
+        }
     }
 }
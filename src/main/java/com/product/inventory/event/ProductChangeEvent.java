@@ -0,0 +1,63 @@
+package com.product.inventory.event;
+
+import com.product.inventory.model.Product;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+
+/**
+ * Published by ProductService after a product row has been changed in the database.
+ * In-memory views of the inventory listen to it to stay up to date without re-reading the table.
+ * Changes committed by other nodes are published as well, relayed by ProductChangeRelay and marked as remote.
+ */
+@Getter
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class ProductChangeEvent {
+
+    public enum Type { CREATED, QUANTITY_CHANGED, DELETED }
+
+    private final Type type;
+    private final Long productId;
+    private final String name;
+    private final BigDecimal price;
+    // null for CREATED events
+    private final Integer oldQuantity;
+    // null for DELETED events
+    private final Integer newQuantity;
+    // version of the row after the change, the last version for DELETED events
+    private final Long version;
+    // committed by another node
+    private final boolean remote;
+
+    public static ProductChangeEvent created(Product product) {
+        return new ProductChangeEvent(Type.CREATED, product.getId(), product.getName(), product.getPrice(),
+                null, product.getQuantity(), product.getVersion(), false);
+    }
+
+    public static ProductChangeEvent quantityChanged(Product product, int oldQuantity) {
+        return new ProductChangeEvent(Type.QUANTITY_CHANGED, product.getId(), product.getName(), product.getPrice(),
+                oldQuantity, product.getQuantity(), product.getVersion(), false);
+    }
+
+    public static ProductChangeEvent deleted(Product product) {
+        return new ProductChangeEvent(Type.DELETED, product.getId(), product.getName(), product.getPrice(),
+                product.getQuantity(), null, product.getVersion(), false);
+    }
+
+    /**
+     * @return change committed by another node
+     */
+    public static ProductChangeEvent remote(Type type, Long productId, String name, BigDecimal price,
+                                            Integer oldQuantity, Integer newQuantity, Long version) {
+        return new ProductChangeEvent(type, productId, name, price, oldQuantity, newQuantity, version, true);
+    }
+
+    /**
+     * @return same change with another quantity before it
+     */
+    public ProductChangeEvent withOldQuantity(Integer oldQuantity) {
+        return new ProductChangeEvent(type, productId, name, price, oldQuantity, newQuantity, version, remote);
+    }
+}
@@ -0,0 +1,15 @@
+package com.product.inventory.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Published when changes committed by other nodes may have been missed, e.g. after the connection they are
+ * relayed through was lost. In-memory views drop what they hold and read it from the database again on next use.
+ */
+@Getter
+@AllArgsConstructor
+public class ProductResyncEvent {
+
+    private final String reason;
+}
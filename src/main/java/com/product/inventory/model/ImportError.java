@@ -0,0 +1,14 @@
+package com.product.inventory.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Rejected row of a bulk import
+ */
+@Getter
+@AllArgsConstructor
+public class ImportError {
+    private final long line;
+    private final String message;
+}
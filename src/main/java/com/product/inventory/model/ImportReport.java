@@ -0,0 +1,21 @@
+package com.product.inventory.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Outcome of a bulk import. Only the first rejected rows are listed in errors,
+ * rejected always holds the full count.
+ */
+@Getter
+@AllArgsConstructor
+public class ImportReport {
+    private final long received;
+    private final long imported;
+    private final long rejected;
+    private final long durationMillis;
+    private final long rowsPerSecond;
+    private final List<ImportError> errors;
+}
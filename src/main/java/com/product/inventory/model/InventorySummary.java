@@ -0,0 +1,21 @@
+package com.product.inventory.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Immutable point-in-time view of the inventory statistics.
+ */
+@Getter
+@AllArgsConstructor
+public class InventorySummary {
+    private final long totalProducts;
+    private final long totalQuantity;
+    private final BigDecimal averagePrice;
+    private final long outOfStockCount;
+    // first out-of-stock products by id, bounded by inventory.summary.max-out-of-stock
+    private final List<OutOfStockProduct> outOfStock;
+}
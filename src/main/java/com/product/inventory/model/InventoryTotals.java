@@ -0,0 +1,22 @@
+package com.product.inventory.model;
+
+import lombok.Getter;
+
+import java.math.BigDecimal;
+
+/**
+ * Aggregates of the product table computed by a single query.
+ */
+@Getter
+public class InventoryTotals {
+    private final long totalProducts;
+    private final long totalQuantity;
+    private final BigDecimal totalPrice;
+
+    public InventoryTotals(Long totalProducts, Long totalQuantity, BigDecimal totalPrice) {
+        // SUM over an empty table is null
+        this.totalProducts = totalProducts == null ? 0 : totalProducts;
+        this.totalQuantity = totalQuantity == null ? 0 : totalQuantity;
+        this.totalPrice = totalPrice == null ? BigDecimal.ZERO : totalPrice;
+    }
+}
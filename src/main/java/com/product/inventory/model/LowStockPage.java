@@ -0,0 +1,18 @@
+package com.product.inventory.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Page of out-of-stock or low-stock products, lowest quantity first.
+ * totalElements counts all listed products, threshold is the highest quantity that counts as low stock.
+ */
+@Getter
+@AllArgsConstructor
+public class LowStockPage {
+    private final int threshold;
+    private final long totalElements;
+    private final List<LowStockProduct> items;
+}
@@ -0,0 +1,15 @@
+package com.product.inventory.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Product whose quantity is at or below the low-stock threshold
+ */
+@Getter
+@AllArgsConstructor
+public class LowStockProduct {
+    private final Long id;
+    private final String name;
+    private final int quantity;
+}
@@ -0,0 +1,18 @@
+package com.product.inventory.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+
+/**
+ * Products with price from fromPrice (inclusive) to toPrice (exclusive)
+ */
+@Getter
+@AllArgsConstructor
+public class PriceBucket {
+    private final BigDecimal fromPrice;
+    private final BigDecimal toPrice;
+    private final long products;
+    private final long totalQuantity;
+}
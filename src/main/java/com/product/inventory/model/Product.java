@@ -1,11 +1,13 @@
 package com.product.inventory.model;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
 import io.swagger.v3.oas.annotations.media.Schema;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.*;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.math.BigDecimal;
 
@@ -13,6 +15,9 @@ import java.math.BigDecimal;
 @Getter
 @NotNull
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_product_name_id", columnList = "name, id"),
+        @Index(name = "idx_product_price_id", columnList = "price, id")})
 @NoArgsConstructor
 public class Product {
     @Id
@@ -34,6 +39,14 @@ public class Product {
     @Positive(message = "Price must be positive")
     private BigDecimal price;
 
+    @Schema(description = "Incremented on every change of the product, served as its ETag",
+            example = "3", accessMode = Schema.AccessMode.READ_ONLY)
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private Long version;
+
     public Product(String name, int quantity, BigDecimal price) {
         this.name = name;
         this.quantity = quantity;
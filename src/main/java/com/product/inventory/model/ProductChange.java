@@ -0,0 +1,29 @@
+package com.product.inventory.model;
+
+import com.product.inventory.event.ProductChangeEvent;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+
+/**
+ * Product change as sent to change stream subscribers, numbered with its sequence in the change log
+ */
+@Getter
+@AllArgsConstructor
+public class ProductChange {
+    private final long sequence;
+    private final ProductChangeEvent.Type type;
+    private final Long productId;
+    private final String name;
+    private final BigDecimal price;
+    // null for CREATED changes
+    private final Integer oldQuantity;
+    // null for DELETED changes
+    private final Integer newQuantity;
+
+    public static ProductChange of(long sequence, ProductChangeEvent event) {
+        return new ProductChange(sequence, event.getType(), event.getProductId(), event.getName(), event.getPrice(),
+                event.getOldQuantity(), event.getNewQuantity());
+    }
+}
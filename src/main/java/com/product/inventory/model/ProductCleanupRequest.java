@@ -0,0 +1,37 @@
+package com.product.inventory.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+/**
+ * Products to be removed by a cleanup, either given by id or all products out of stock for some days
+ */
+@Setter
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductCleanupRequest {
+
+    @Schema(description = "Ids of the products to remove, not used together with outOfStockDays", example = "[3, 5, 8]")
+    private List<Long> ids;
+
+    @Schema(description = "Remove all products which have been out of stock for at least this many days, "
+            + "not used together with ids", example = "90")
+    private Integer outOfStockDays;
+
+    @Schema(description = "Copy removed products to the product_archive table", example = "true")
+    private boolean archive;
+
+    public static ProductCleanupRequest ids(List<Long> ids, boolean archive) {
+        return new ProductCleanupRequest(ids, null, archive);
+    }
+
+    public static ProductCleanupRequest outOfStockDays(int days, boolean archive) {
+        return new ProductCleanupRequest(null, days, archive);
+    }
+}
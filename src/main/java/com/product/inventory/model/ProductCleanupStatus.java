@@ -0,0 +1,33 @@
+package com.product.inventory.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.Instant;
+
+/**
+ * Progress of a cleanup. Total is known when it starts: the number of distinct ids given, or the number of
+ * products out of stock long enough at that time. Ids which do not belong to a product are counted in notFound
+ * once the cleanup is completed.
+ */
+@Getter
+@AllArgsConstructor
+public class ProductCleanupStatus {
+
+    public enum State {
+        QUEUED, RUNNING, COMPLETED, FAILED
+    }
+
+    private final String id;
+    private final State state;
+    private final boolean archive;
+    private final Long total;
+    private final long removed;
+    private final long notFound;
+    private final int chunks;
+    private final Instant startedAt;
+    private final Instant finishedAt;
+    private final long durationMillis;
+    private final long rowsPerSecond;
+    private final String error;
+}
@@ -0,0 +1,17 @@
+package com.product.inventory.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Page of products listed with cursor pagination.
+ * nextCursor continues the listing after the last product, it is null on the last page.
+ */
+@Getter
+@AllArgsConstructor
+public class ProductCursorPage {
+    private final List<Product> items;
+    private final String nextCursor;
+}
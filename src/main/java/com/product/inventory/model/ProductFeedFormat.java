@@ -0,0 +1,47 @@
+package com.product.inventory.model;
+
+import org.springframework.http.MediaType;
+
+import java.util.Locale;
+
+/**
+ * Formats products can be exported to. The line based ones (JSON lines, CSV) can be imported from as well
+ */
+public enum ProductFeedFormat {
+    JSON_LINES("application/x-ndjson", "jsonl"),
+    CSV("text/csv", "csv"),
+    // length-prefixed records, see ProductBinaryWriter
+    BINARY("application/x-product-binary", "bin");
+
+    private final String mediaType;
+    private final String extension;
+
+    ProductFeedFormat(String mediaType, String extension) {
+        this.mediaType = mediaType;
+        this.extension = extension;
+    }
+
+    public MediaType getMediaType() {
+        return MediaType.parseMediaType(mediaType);
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    public static ProductFeedFormat fromContentType(String contentType) {
+        return MediaType.parseMediaType(contentType).isCompatibleWith(CSV.getMediaType()) ? CSV : JSON_LINES;
+    }
+
+    /**
+     * @param extension : jsonl, csv or bin
+     */
+    public static ProductFeedFormat fromExtension(String extension) {
+        for (ProductFeedFormat format : values()) {
+            if (format.extension.equals(extension.toLowerCase(Locale.ROOT))) {
+                return format;
+            }
+        }
+        throw new IllegalArgumentException("Format must be one of jsonl, csv, bin");
+    }
+}
@@ -0,0 +1,29 @@
+package com.product.inventory.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+
+/**
+ * Products an analytic query runs over, all given bounds are inclusive and every condition must match
+ */
+@Setter
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductFilter {
+    @Schema(description = "Lowest quantity", example = "1")
+    private Integer minQuantity;
+    @Schema(description = "Highest quantity", example = "10")
+    private Integer maxQuantity;
+    @Schema(description = "Lowest price", example = "10.00")
+    private BigDecimal minPrice;
+    @Schema(description = "Highest price", example = "99.99")
+    private BigDecimal maxPrice;
+    @Schema(description = "Text the name contains, case-insensitive", example = "mouse")
+    private String name;
+}
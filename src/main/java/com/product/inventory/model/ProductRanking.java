@@ -0,0 +1,16 @@
+package com.product.inventory.model;
+
+import java.util.Locale;
+
+/**
+ * What top products are ranked by
+ */
+public enum ProductRanking {
+    QUANTITY,
+    // quantity * price
+    STOCK_VALUE;
+
+    public static ProductRanking fromString(String value) {
+        return valueOf(value.replace('-', '_').toUpperCase(Locale.ROOT));
+    }
+}
@@ -0,0 +1,41 @@
+package com.product.inventory.model;
+
+import java.math.BigDecimal;
+import java.util.Locale;
+import java.util.function.Function;
+
+/**
+ * Columns products can be listed by with cursor pagination.
+ * Every key is backed by an index on (column, id), so each page is a single index seek.
+ */
+public enum ProductSortKey {
+    ID("id", Product::getId, Long::valueOf),
+    NAME("name", Product::getName, value -> value),
+    PRICE("price", Product::getPrice, BigDecimal::new);
+
+    private final String column;
+    private final Function<Product, Object> extractor;
+    private final Function<String, Object> parser;
+
+    ProductSortKey(String column, Function<Product, Object> extractor, Function<String, Object> parser) {
+        this.column = column;
+        this.extractor = extractor;
+        this.parser = parser;
+    }
+
+    public String getColumn() {
+        return column;
+    }
+
+    public Object valueOf(Product product) {
+        return extractor.apply(product);
+    }
+
+    public Object parse(String value) {
+        return parser.apply(value);
+    }
+
+    public static ProductSortKey fromString(String value) {
+        return valueOf(value.toUpperCase(Locale.ROOT));
+    }
+}
@@ -0,0 +1,21 @@
+package com.product.inventory.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+
+/**
+ * Aggregates over the products matching a {@link ProductFilter}. Prices are null when no product matches
+ */
+@Getter
+@AllArgsConstructor
+public class ProductStats {
+    private final long products;
+    private final long totalQuantity;
+    // sum of quantity * price
+    private final BigDecimal stockValue;
+    private final BigDecimal minPrice;
+    private final BigDecimal maxPrice;
+    private final BigDecimal averagePrice;
+}
@@ -0,0 +1,17 @@
+package com.product.inventory.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+
+@Getter
+@AllArgsConstructor
+public class RankedProduct {
+    private final Long id;
+    private final String name;
+    private final int quantity;
+    private final BigDecimal price;
+    // quantity * price
+    private final BigDecimal stockValue;
+}
@@ -0,0 +1,17 @@
+package com.product.inventory.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Stock of a product: quantity on hand, the part of it held by active reservations and the rest available to sell.
+ * Available is negative when quantity was set below what is reserved.
+ */
+@Getter
+@AllArgsConstructor
+public class StockAvailability {
+    private final Long productId;
+    private final int quantity;
+    private final int reserved;
+    private final int available;
+}
@@ -0,0 +1,24 @@
+package com.product.inventory.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.Instant;
+
+/**
+ * Quantity of a product held for a checkout until it is confirmed, released or expires
+ */
+@Getter
+@AllArgsConstructor
+public class StockReservation {
+
+    public enum State {
+        ACTIVE, CONFIRMED, RELEASED, EXPIRED
+    }
+
+    private final String id;
+    private final Long productId;
+    private final int quantity;
+    private final Instant expiresAt;
+    private final State state;
+}
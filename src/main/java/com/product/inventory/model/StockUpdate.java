@@ -0,0 +1,34 @@
+package com.product.inventory.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * One entry of a batch stock update, either sets the quantity or adds a delta to it
+ */
+@Setter
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockUpdate {
+
+    @Schema(description = "Id of the product", example = "42", required = true)
+    private Long id;
+
+    @Schema(description = "New quantity, not used together with delta", example = "40")
+    private Integer quantity;
+
+    @Schema(description = "Quantity to add, negative to remove stock. Not used together with quantity", example = "-2")
+    private Integer delta;
+
+    public static StockUpdate quantity(Long id, int quantity) {
+        return new StockUpdate(id, quantity, null);
+    }
+
+    public static StockUpdate delta(Long id, int delta) {
+        return new StockUpdate(id, null, delta);
+    }
+}
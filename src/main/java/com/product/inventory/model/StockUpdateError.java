@@ -0,0 +1,15 @@
+package com.product.inventory.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Entry of a batch stock update which was not applied, index is its position in the request
+ */
+@Getter
+@AllArgsConstructor
+public class StockUpdateError {
+    private final int index;
+    private final Long id;
+    private final String message;
+}
@@ -0,0 +1,20 @@
+package com.product.inventory.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Outcome of a batch stock update. Entries for unknown products are listed in missingIds,
+ * invalid entries and deltas which would make the quantity negative are listed in rejected.
+ */
+@Getter
+@AllArgsConstructor
+public class StockUpdateReport {
+    private final int received;
+    private final int updated;
+    private final List<Long> missingIds;
+    private final List<StockUpdateError> rejected;
+    private final long durationMillis;
+}
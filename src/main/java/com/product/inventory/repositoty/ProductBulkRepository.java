@@ -0,0 +1,249 @@
+package com.product.inventory.repositoty;
+
+import com.product.inventory.configuration.MetricsConfig;
+import com.product.inventory.model.Product;
+import io.micrometer.core.annotation.Timed;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Set-based product writes which bypass the JPA entity lifecycle.
+ * Rows are passed to PostgreSQL as arrays and expanded with unnest, so one statement
+ * writes a whole batch while identity ids are still generated by the database and returned.
+ */
+@Repository
+@Timed(MetricsConfig.BULK_REPOSITORY_TIMER)
+public class ProductBulkRepository {
+
+    private static final String INSERT_SQL = """
+            INSERT INTO product (name, quantity, price)
+            SELECT * FROM unnest(?::varchar[], ?::integer[], ?::numeric[])
+            RETURNING id, name, quantity, price, version""";
+
+    // rows are locked in id order first, so concurrent batches can not deadlock each other,
+    // and the locked rows give the quantities before the update
+    private static final String UPDATE_QUANTITIES_SQL = """
+            UPDATE product p SET quantity = COALESCE(u.quantity, old.quantity + u.delta), version = p.version + 1
+            FROM unnest(?::bigint[], ?::integer[], ?::integer[]) AS u(id, quantity, delta)
+            JOIN (SELECT id, quantity FROM product WHERE id = ANY(?::bigint[]) ORDER BY id FOR UPDATE) old
+                ON old.id = u.id
+            WHERE p.id = u.id
+                AND COALESCE(u.quantity::bigint, old.quantity::bigint + u.delta) BETWEEN 0 AND 2147483647
+            RETURNING p.id, p.name, p.quantity, p.price, p.version, old.quantity AS old_quantity""";
+
+    // rows are locked in id order like above. A row changed by someone else since the given version was assigned
+    // gets a version above both
+    private static final String WRITE_QUANTITIES_SQL = """
+            UPDATE product p SET quantity = u.quantity, version = GREATEST(p.version + 1, u.version)
+            FROM unnest(?::bigint[], ?::integer[], ?::bigint[]) AS u(id, quantity, version)
+            JOIN (SELECT id, quantity FROM product WHERE id = ANY(?::bigint[]) ORDER BY id FOR UPDATE) old
+                ON old.id = u.id
+            WHERE p.id = u.id
+            RETURNING p.id, p.name, p.quantity, p.price, p.version, old.quantity AS old_quantity""";
+
+    // the locked row gives the quantity before the update, also when a concurrent update committed first
+    private static final String SET_QUANTITY_SQL = """
+            UPDATE product p SET quantity = ?, version = p.version + 1
+            FROM (SELECT id, quantity FROM product WHERE id = ? FOR UPDATE) old
+            WHERE p.id = old.id
+            RETURNING p.id, p.name, p.quantity, p.price, p.version, old.quantity AS old_quantity""";
+
+    private static final String BY_IDS = "id = ANY(?::bigint[])";
+
+    // rows locked by concurrent writers are skipped rather than waited for, a later cleanup removes them
+    private static final String OUT_OF_STOCK_SINCE = """
+            id IN (SELECT id FROM product WHERE out_of_stock_since <= ?
+                ORDER BY out_of_stock_since, id LIMIT ? FOR UPDATE SKIP LOCKED)""";
+
+    private static final String DELETE_SQL = "DELETE FROM product WHERE %s RETURNING id, name, quantity, price, version";
+
+    // both happen in one statement, a product is never deleted without being archived
+    private static final String ARCHIVE_SQL = """
+            WITH removed AS (DELETE FROM product WHERE %s RETURNING *),
+            archived AS (
+                INSERT INTO product_archive (id, name, quantity, price, version, out_of_stock_since)
+                SELECT id, name, quantity, price, version, out_of_stock_since FROM removed
+                ON CONFLICT (id) DO UPDATE SET name = EXCLUDED.name, quantity = EXCLUDED.quantity,
+                    price = EXCLUDED.price, version = EXCLUDED.version,
+                    out_of_stock_since = EXCLUDED.out_of_stock_since, archived_at = now())
+            SELECT id, name, quantity, price, version FROM removed""";
+
+    private static final String COUNT_OUT_OF_STOCK_SINCE_SQL =
+            "SELECT COUNT(*) FROM product WHERE out_of_stock_since <= ?";
+
+    private static final String EXISTING_IDS_SQL = "SELECT id FROM product WHERE id = ANY(?::bigint[])";
+
+    private static final String FIND_BY_IDS_SQL =
+            "SELECT id, name, quantity, price, version FROM product WHERE id = ANY(?::bigint[])";
+
+    private static final RowMapper<Product> PRODUCT_ROW_MAPPER = (rs, rowNum) -> {
+        Product product = new Product(rs.getString("name"), rs.getInt("quantity"), rs.getBigDecimal("price"));
+        product.setId(rs.getLong("id"));
+        product.setVersion(rs.getLong("version"));
+        return product;
+    };
+
+    // also maps the stock taken by StockReservationRepository
+    static final RowMapper<UpdatedQuantity> UPDATED_QUANTITY_ROW_MAPPER = (rs, rowNum) ->
+            new UpdatedQuantity(PRODUCT_ROW_MAPPER.mapRow(rs, rowNum), rs.getInt("old_quantity"));
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ProductBulkRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Inserts given products with a single statement
+     *
+     * @return inserted products with their generated ids
+     */
+    public List<Product> insertAll(List<Product> products) {
+        String[] names = new String[products.size()];
+        Integer[] quantities = new Integer[products.size()];
+        BigDecimal[] prices = new BigDecimal[products.size()];
+        for (int i = 0; i < products.size(); i++) {
+            Product product = products.get(i);
+            names[i] = product.getName();
+            quantities[i] = product.getQuantity();
+            prices[i] = product.getPrice();
+        }
+        return jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(INSERT_SQL);
+            ps.setArray(1, con.createArrayOf("varchar", names));
+            ps.setArray(2, con.createArrayOf("integer", quantities));
+            ps.setArray(3, con.createArrayOf("numeric", prices));
+            return ps;
+        }, PRODUCT_ROW_MAPPER);
+    }
+
+    /**
+     * Sets or changes quantities of given products with a single statement.
+     * Arrays are read by position, for every product exactly one of quantity and delta is not null.
+     * Ids must be distinct. Products which do not exist or whose quantity would become negative are not updated
+     *
+     * @return updated products with their quantities before the update
+     */
+    public List<UpdatedQuantity> updateQuantities(Long[] ids, Integer[] quantities, Integer[] deltas) {
+        return jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(UPDATE_QUANTITIES_SQL);
+            Array idArray = con.createArrayOf("bigint", ids);
+            ps.setArray(1, idArray);
+            ps.setArray(2, con.createArrayOf("integer", quantities));
+            ps.setArray(3, con.createArrayOf("integer", deltas));
+            ps.setArray(4, idArray);
+            return ps;
+        }, UPDATED_QUANTITY_ROW_MAPPER);
+    }
+
+    /**
+     * Sets quantities of given products to the versions they were given before, with a single statement.
+     * Arrays are read by position, ids must be distinct. A null version takes the next one
+     *
+     * @return updated products with their quantities before the update
+     */
+    public List<UpdatedQuantity> writeQuantities(Long[] ids, Integer[] quantities, Long[] versions) {
+        return jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(WRITE_QUANTITIES_SQL);
+            Array idArray = con.createArrayOf("bigint", ids);
+            ps.setArray(1, idArray);
+            ps.setArray(2, con.createArrayOf("integer", quantities));
+            ps.setArray(3, con.createArrayOf("bigint", versions));
+            ps.setArray(4, idArray);
+            return ps;
+        }, UPDATED_QUANTITY_ROW_MAPPER);
+    }
+
+    /**
+     * Sets quantity of a product with a single statement, whatever its version
+     *
+     * @return updated product with its quantity before the update, empty when product does not exist
+     */
+    public Optional<UpdatedQuantity> setQuantity(Long id, int quantity) {
+        return jdbcTemplate.query(SET_QUANTITY_SQL, UPDATED_QUANTITY_ROW_MAPPER, quantity, id).stream().findFirst();
+    }
+
+    /**
+     * Deletes given products with a single statement
+     *
+     * @param archive : copy the deleted products to product_archive in the same statement
+     * @return deleted products
+     */
+    public List<Product> deleteByIds(Long[] ids, boolean archive) {
+        return jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement((archive ? ARCHIVE_SQL : DELETE_SQL).formatted(BY_IDS));
+            ps.setArray(1, con.createArrayOf("bigint", ids));
+            return ps;
+        }, PRODUCT_ROW_MAPPER);
+    }
+
+    /**
+     * Deletes up to limit products which have been out of stock since cutoff or longer, oldest first.
+     * Products being changed by someone else are left out
+     *
+     * @param archive : copy the deleted products to product_archive in the same statement
+     * @return deleted products, fewer than limit once none are left
+     */
+    public List<Product> deleteOutOfStockSince(Instant cutoff, int limit, boolean archive) {
+        return jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(
+                    (archive ? ARCHIVE_SQL : DELETE_SQL).formatted(OUT_OF_STOCK_SINCE));
+            ps.setTimestamp(1, Timestamp.from(cutoff));
+            ps.setInt(2, limit);
+            return ps;
+        }, PRODUCT_ROW_MAPPER);
+    }
+
+    /**
+     * @return number of products which have been out of stock since cutoff or longer
+     */
+    public long countOutOfStockSince(Instant cutoff) {
+        Long count = jdbcTemplate.queryForObject(COUNT_OUT_OF_STOCK_SINCE_SQL, Long.class, Timestamp.from(cutoff));
+        return count == null ? 0 : count;
+    }
+
+    /**
+     * @return those of given ids which belong to a product
+     */
+    public List<Long> findExistingIds(Long[] ids) {
+        return jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(EXISTING_IDS_SQL);
+            ps.setArray(1, con.createArrayOf("bigint", ids));
+            return ps;
+        }, (rs, rowNum) -> rs.getLong(1));
+    }
+
+    /**
+     * Reads given products with a single statement, however many there are
+     *
+     * @return those of given products which exist
+     */
+    public List<Product> findByIds(Long[] ids) {
+        return jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(FIND_BY_IDS_SQL);
+            ps.setArray(1, con.createArrayOf("bigint", ids));
+            return ps;
+        }, PRODUCT_ROW_MAPPER);
+    }
+
+    /**
+     * Product after a quantity update, with its quantity before the update
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class UpdatedQuantity {
+        private final Product product;
+        private final int oldQuantity;
+    }
+}
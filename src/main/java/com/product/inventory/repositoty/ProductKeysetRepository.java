@@ -0,0 +1,22 @@
+package com.product.inventory.repositoty;
+
+import com.product.inventory.model.Product;
+import com.product.inventory.model.ProductSortKey;
+
+import java.util.List;
+
+/**
+ * Keyset pagination queries, implemented by {@link ProductKeysetRepositoryImpl}
+ */
+public interface ProductKeysetRepository {
+
+    /**
+     * Lists products ordered by sort key and id, starting right after the given position.
+     * Position is compared as a row value, so the query seeks into the (column, id) index
+     * instead of skipping rows like OFFSET does, and no count query is issued.
+     *
+     * @param afterValue : sort key value of the last product of previous page, null for the first page
+     * @param afterId    : id of the last product of previous page, null for the first page
+     */
+    List<Product> findPage(ProductSortKey sortKey, boolean descending, Object afterValue, Long afterId, int limit);
+}
@@ -0,0 +1,50 @@
+package com.product.inventory.repositoty;
+
+import com.product.inventory.model.Product;
+import com.product.inventory.model.ProductSortKey;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+
+import java.util.List;
+
+public class ProductKeysetRepositoryImpl implements ProductKeysetRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<Product> findPage(ProductSortKey sortKey, boolean descending, Object afterValue, Long afterId,
+                                  int limit) {
+        // column names come from ProductSortKey, never from request input
+        String column = sortKey.getColumn();
+        String direction = descending ? "DESC" : "ASC";
+        String comparison = descending ? "<" : ">";
+
+        StringBuilder sql = new StringBuilder("SELECT * FROM product");
+        if (afterId != null) {
+            if (sortKey == ProductSortKey.ID) {
+                sql.append(" WHERE id ").append(comparison).append(" :afterId");
+            } else {
+                sql.append(" WHERE (").append(column).append(", id) ").append(comparison)
+                        .append(" (:afterValue, :afterId)");
+            }
+        }
+        sql.append(" ORDER BY ");
+        if (sortKey != ProductSortKey.ID) {
+            sql.append(column).append(' ').append(direction).append(", ");
+        }
+        sql.append("id ").append(direction).append(" LIMIT :limit");
+
+        Query query = entityManager.createNativeQuery(sql.toString(), Product.class);
+        if (afterId != null) {
+            query.setParameter("afterId", afterId);
+            if (sortKey != ProductSortKey.ID) {
+                query.setParameter("afterValue", afterValue);
+            }
+        }
+        query.setParameter("limit", limit);
+        return query.getResultList();
+    }
+}
@@ -1,28 +1,72 @@
 package com.product.inventory.repositoty;
 
-import com.product.inventory.model.OutOfStockProduct;
+import com.product.inventory.model.InventoryTotals;
+import com.product.inventory.model.LowStockProduct;
 import com.product.inventory.model.Product;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.math.BigDecimal;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
-public interface ProductRepository extends JpaRepository<Product, Long> {
+public interface ProductRepository extends JpaRepository<Product, Long>, ProductKeysetRepository,
+        ProductStreamingRepository {
 
-    List<Product> findByNameContainingIgnoreCase(String name);
+    /**
+     * Same as findAll(pageable) but without the count query a Page needs
+     */
+    Slice<Product> findAllBy(Pageable pageable);
 
-    @Query("SELECT COUNT(p) FROM Product p")
-    Long countProducts();
+    /**
+     * Case-insensitive substring search served by the trigram index on name (see db/migration).
+     * Exact matches come first, then names starting with the text, then by trigram word similarity.
+     *
+     * @param name    : searched text
+     * @param pattern : searched text with LIKE wildcards escaped
+     */
+    @Query(value = "SELECT * FROM product WHERE name ILIKE '%' || :pattern || '%' " +
+            "ORDER BY lower(name) = lower(:name) DESC, name ILIKE :pattern || '%' DESC, " +
+            "word_similarity(:name, name) DESC, name, id " +
+            "LIMIT :limit OFFSET :offset", nativeQuery = true)
+    List<Product> searchByName(@Param("name") String name, @Param("pattern") String pattern,
+                               @Param("limit") int limit, @Param("offset") long offset);
 
-    @Query("SELECT SUM(p.quantity) FROM Product p")
-    Long sumQuantities();
+    @Query("SELECT new com.product.inventory.model.InventoryTotals(COUNT(p), SUM(p.quantity), SUM(p.price)) " +
+            "FROM Product p")
+    InventoryTotals summarize();
 
-    @Query("SELECT AVG(p.price) FROM Product p")
-    BigDecimal averagePrice();
+    /**
+     * Scans the whole table, it is only used to load the in-memory low-stock index
+     *
+     * @param maxQuantity : highest quantity that counts as low stock
+     */
+    @Query("SELECT new com.product.inventory.model.LowStockProduct(p.id, p.name, p.quantity) " +
+            "FROM Product p WHERE p.quantity <= :maxQuantity")
+    List<LowStockProduct> findLowStock(@Param("maxQuantity") int maxQuantity);
 
-    @Query("SELECT p.id AS id, p.name AS name FROM Product p WHERE p.quantity = 0")
-    List<OutOfStockProduct> findByQuantity(int quantity);
+    /**
+     * Adds delta to product quantity in a single statement, unless the result would be negative.
+     * Increments the version like an update through the entity would.
+     *
+     * @return updated product, empty when product does not exist or has not enough stock
+     */
+    @Transactional
+    @Query(value = "UPDATE product SET quantity = quantity + :delta, version = version + 1 " +
+            "WHERE id = :id AND quantity + :delta >= 0 RETURNING *", nativeQuery = true)
+    Optional<Product> adjustQuantity(@Param("id") Long id, @Param("delta") int delta);
+
+    /**
+     * Deletes product in a single statement
+     *
+     * @return deleted product, empty when product does not exist
+     */
+    @Transactional
+    @Query(value = "DELETE FROM product WHERE id = :id RETURNING *", nativeQuery = true)
+    Optional<Product> deleteReturning(@Param("id") Long id);
 }
@@ -0,0 +1,20 @@
+package com.product.inventory.repositoty;
+
+import com.product.inventory.model.Product;
+
+import java.util.stream.Stream;
+
+/**
+ * Forward-only reads of the whole table, implemented by {@link ProductStreamingRepositoryImpl}
+ */
+public interface ProductStreamingRepository {
+
+    /**
+     * Streams all products ordered by id through a database cursor.
+     * Must be consumed inside a transaction and closed afterwards. Products are detached
+     * as they are read, so memory use does not grow with the number of rows.
+     *
+     * @param fetchSize : number of rows fetched from database per round trip
+     */
+    Stream<Product> streamAll(int fetchSize);
+}
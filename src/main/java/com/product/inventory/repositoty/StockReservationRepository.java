@@ -0,0 +1,189 @@
+package com.product.inventory.repositoty;
+
+import com.product.inventory.configuration.MetricsConfig;
+import com.product.inventory.model.StockAvailability;
+import com.product.inventory.model.StockReservation;
+import com.product.inventory.repositoty.ProductBulkRepository.UpdatedQuantity;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Stock reservations and the quantity they hold of their products.
+ * A reservation row and the reserved quantity of its product always change in one statement or transaction,
+ * so product.reserved is what the active reservations hold, and every node checks and takes available-to-sell
+ * on the same product row. Every reservation records the node which made it, which restores its expiry from it.
+ */
+@Repository
+@Timed(MetricsConfig.BULK_REPOSITORY_TIMER)
+public class StockReservationRepository {
+
+    // the product row is locked by the conditional update, concurrent reservations of a product queue on it
+    private static final String RESERVE_SQL = """
+            WITH taken AS (
+                UPDATE product SET reserved = reserved + ? WHERE id = ? AND quantity - reserved >= ? RETURNING id)
+            INSERT INTO stock_reservation (id, product_id, quantity, expires_at, owner)
+            SELECT ?::uuid, id, ?, ?, ? FROM taken""";
+
+    private static final String ACTIVE = "id = ?::uuid AND expires_at > now()";
+
+    private static final String EXPIRED_BY_IDS = "id = ANY(?::uuid[])";
+
+    // expired reservations hold nothing, whichever node made them
+    private static final String EXPIRED = "expires_at <= now()";
+
+    // the reserved quantity is given back in the same statement
+    private static final String RELEASE_SQL = """
+            WITH released AS (DELETE FROM stock_reservation WHERE %s RETURNING product_id, quantity),
+            given_back AS (
+                UPDATE product p SET reserved = p.reserved - r.quantity
+                FROM (SELECT product_id, SUM(quantity)::integer AS quantity FROM released GROUP BY product_id) r
+                WHERE p.id = r.product_id)
+            SELECT COUNT(*) FROM released""";
+
+    private static final String DELETE_SQL =
+            "DELETE FROM stock_reservation WHERE " + ACTIVE + " RETURNING id, product_id, quantity, expires_at";
+
+    // the locked row gives the quantity before the update, like ProductBulkRepository.setQuantity
+    private static final String TAKE_RESERVED_SQL = """
+            UPDATE product p SET quantity = p.quantity - ?, reserved = p.reserved - ?, version = p.version + 1
+            FROM (SELECT id, quantity FROM product WHERE id = ? FOR UPDATE) old
+            WHERE p.id = old.id AND old.quantity >= ?
+            RETURNING p.id, p.name, p.quantity, p.price, p.version, old.quantity AS old_quantity""";
+
+    private static final String GIVE_BACK_RESERVED_SQL = "UPDATE product SET reserved = reserved - ? WHERE id = ?";
+
+    private static final String FIND_SQL =
+            "SELECT id, product_id, quantity, expires_at FROM stock_reservation WHERE " + ACTIVE;
+
+    // reservations written before they had an owner
+    private static final String CLAIM_SQL = "UPDATE stock_reservation SET owner = ? WHERE owner IS NULL";
+
+    // reservations of deleted products are left out
+    private static final String FIND_BY_OWNER_SQL = """
+            SELECT r.id, r.product_id, r.quantity, r.expires_at FROM stock_reservation r
+            JOIN product p ON p.id = r.product_id
+            WHERE r.owner = ?""";
+
+    private static final String AVAILABILITY_SQL = "SELECT id, quantity, reserved FROM product WHERE id = ?";
+
+    private static final RowMapper<StockReservation> RESERVATION_ROW_MAPPER = (rs, rowNum) ->
+            new StockReservation(rs.getString("id"), rs.getLong("product_id"), rs.getInt("quantity"),
+                    rs.getTimestamp("expires_at").toInstant(), StockReservation.State.ACTIVE);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public StockReservationRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Inserts the reservation if its product has at least its quantity available, with a single statement
+     *
+     * @param owner : node making the reservation
+     * @return false when the product does not exist or has less available
+     */
+    public boolean reserve(String owner, StockReservation reservation) {
+        return jdbcTemplate.update(RESERVE_SQL, reservation.getQuantity(), reservation.getProductId(),
+                reservation.getQuantity(), reservation.getId(), reservation.getQuantity(),
+                Timestamp.from(reservation.getExpiresAt()), owner) > 0;
+    }
+
+    /**
+     * Deletes an active reservation without giving its quantity back, the caller takes or gives it back
+     * in the same transaction
+     *
+     * @return deleted reservation, empty when it is not active
+     */
+    public Optional<StockReservation> delete(String id) {
+        return jdbcTemplate.query(DELETE_SQL, RESERVATION_ROW_MAPPER, id).stream().findFirst();
+    }
+
+    /**
+     * Removes reserved quantity from the product, both its quantity on hand and its reserved quantity
+     *
+     * @return updated product with its quantity before the update, empty when it does not exist
+     * or has less than quantity on hand
+     */
+    public Optional<UpdatedQuantity> takeReserved(Long productId, int quantity) {
+        return jdbcTemplate.query(TAKE_RESERVED_SQL, ProductBulkRepository.UPDATED_QUANTITY_ROW_MAPPER, quantity,
+                quantity, productId, quantity).stream().findFirst();
+    }
+
+    /**
+     * @return false when the product does not exist
+     */
+    public boolean giveBackReserved(Long productId, int quantity) {
+        return jdbcTemplate.update(GIVE_BACK_RESERVED_SQL, quantity, productId) > 0;
+    }
+
+    /**
+     * Deletes an active reservation and gives its quantity back, with a single statement
+     *
+     * @return false when it is not active
+     */
+    public boolean release(String id) {
+        return releaseWhere(ACTIVE, id) > 0;
+    }
+
+    /**
+     * Deletes given reservations, whose ttl has passed, and gives their quantity back with a single statement
+     *
+     * @return number of deleted reservations
+     */
+    public int expire(String[] ids) {
+        return jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(RELEASE_SQL.formatted(EXPIRED_BY_IDS));
+            ps.setArray(1, con.createArrayOf("text", ids));
+            return ps;
+        }, (rs, rowNum) -> rs.getInt(1)).get(0);
+    }
+
+    /**
+     * Deletes the reservations of every node whose ttl has passed and gives their quantity back
+     *
+     * @return number of deleted reservations
+     */
+    public int expireAll() {
+        return releaseWhere(EXPIRED);
+    }
+
+    /**
+     * @return active reservation
+     */
+    public Optional<StockReservation> findById(String id) {
+        return jdbcTemplate.query(FIND_SQL, RESERVATION_ROW_MAPPER, id).stream().findFirst();
+    }
+
+    /**
+     * @return quantity on hand and reserved quantity of the product, empty when it does not exist
+     */
+    public Optional<StockAvailability> findAvailability(Long productId) {
+        return jdbcTemplate.query(AVAILABILITY_SQL, (rs, rowNum) -> {
+            int quantity = rs.getInt("quantity");
+            int reserved = rs.getInt("reserved");
+            return new StockAvailability(rs.getLong("id"), quantity, reserved, quantity - reserved);
+        }, productId).stream().findFirst();
+    }
+
+    /**
+     * Reservations without owner, persisted before reservations had one, are taken over by the owner first
+     *
+     * @return reservations of the owner for existing products
+     */
+    public List<StockReservation> findByOwner(String owner) {
+        jdbcTemplate.update(CLAIM_SQL, owner);
+        return jdbcTemplate.query(FIND_BY_OWNER_SQL, RESERVATION_ROW_MAPPER, owner);
+    }
+
+    private int releaseWhere(String condition, Object... args) {
+        Integer released = jdbcTemplate.queryForObject(RELEASE_SQL.formatted(condition), Integer.class, args);
+        return released == null ? 0 : released;
+    }
+}
@@ -0,0 +1,321 @@
+package com.product.inventory.service;
+
+import com.product.inventory.event.ProductChangeEvent;
+import com.product.inventory.event.ProductResyncEvent;
+import com.product.inventory.model.InventorySummary;
+import com.product.inventory.model.InventoryTotals;
+import com.product.inventory.model.OutOfStockProduct;
+import com.product.inventory.model.Product;
+import com.product.inventory.repositoty.ProductBulkRepository;
+import com.product.inventory.repositoty.ProductRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Keeps the inventory summary in memory.
+ * Aggregates are loaded from the database with a single aggregate query and are then kept up to date
+ * from {@link ProductChangeEvent}s, so a summary request normally does not touch the database.
+ * The aggregates are re-read once they are older than {@code inventory.summary.max-staleness}
+ * (0 disables caching), together with the {@link LowStockIndex}, which heals any drift of both caused by changes
+ * made outside this service.
+ * Out-of-stock products come from the {@link LowStockIndex}, the summary lists at most
+ * {@code inventory.summary.max-out-of-stock} of them.
+ * <p>
+ * Changes are not blocked while the aggregates are read. Whether a change arriving meanwhile is counted by the
+ * aggregate query can not be told from when it arrived, so the products changed during the read are read again
+ * in the same database snapshot: their contribution as the query saw it is replaced by the one their last change
+ * left. A change is only counted twice when it was committed before the read but arrives after it finished,
+ * which for changes of this node, published right after their commit, takes a stall longer than the whole read.
+ * Changes of other nodes arrive up to {@code inventory.summary.remote-delivery-delay} after they were committed,
+ * so one arriving within that delay after a read started is applied, and the aggregates are re-read on first use
+ * once the delay has passed. The summary may be off by such changes until then.
+ */
+@Component
+public class InventorySummaryEngine {
+
+    private static final int PRICE_SCALE = 2;
+    // products changed during a read are looked up this many times at most without blocking changes,
+    // the ones changed during the last lookup are looked up while changes wait
+    private static final int LOOKUP_ROUNDS = 3;
+
+    private final ProductRepository repo;
+    private final ProductBulkRepository bulkRepo;
+    private final LowStockIndex lowStockIndex;
+    private final TransactionTemplate snapshotTransaction;
+    private final long maxStalenessNanos;
+    private final long remoteDeliveryDelayNanos;
+    private final int maxOutOfStock;
+
+    // only one read at a time, changes are not blocked while it runs
+    private final ReentrantLock loadLock = new ReentrantLock();
+    // guards the aggregates. Not a monitor: a virtual thread blocking inside synchronized
+    // would pin its carrier thread
+    private final ReentrantLock lock = new ReentrantLock();
+    private volatile boolean loaded;
+    private long totalProducts;
+    private long totalQuantity;
+    private BigDecimal totalPrice = BigDecimal.ZERO;
+    // counts changes of the aggregates, a summary built across one is not kept
+    private long changes;
+    // last change of every product changed while a read runs, null when none runs
+    private Map<Long, ProductChangeEvent> changesDuringLoad;
+
+    // when the last read started
+    private volatile long loadedAt;
+    // a change of another node arrived that the last read may have counted, re-read once it surely did not
+    private volatile boolean unsettled;
+    // changes may have been missed, the aggregates are read again on next use
+    private volatile boolean stale;
+    // published view of the aggregates, null when it has to be rebuilt
+    private volatile InventorySummary snapshot;
+
+    public InventorySummaryEngine(ProductRepository repo, ProductBulkRepository bulkRepo, LowStockIndex lowStockIndex,
+                                  PlatformTransactionManager transactionManager,
+                                  @Value("${inventory.summary.max-staleness:60s}") Duration maxStaleness,
+                                  @Value("${inventory.summary.remote-delivery-delay:1s}") Duration remoteDeliveryDelay,
+                                  @Value("${inventory.summary.max-out-of-stock:100}") int maxOutOfStock) {
+        this.repo = repo;
+        this.bulkRepo = bulkRepo;
+        this.lowStockIndex = lowStockIndex;
+        // the changed products are looked up in the snapshot the aggregate query read
+        this.snapshotTransaction = new TransactionTemplate(transactionManager);
+        this.snapshotTransaction.setReadOnly(true);
+        this.snapshotTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.maxStalenessNanos = maxStaleness.toNanos();
+        this.remoteDeliveryDelayNanos = remoteDeliveryDelay.toNanos();
+        this.maxOutOfStock = maxOutOfStock;
+    }
+
+    /**
+     * @param forceRefresh : re-read the aggregates and the low-stock index from the database even if the in-memory view is fresh
+     * @return current inventory summary
+     */
+    public InventorySummary getSummary(boolean forceRefresh) {
+        InventorySummary current = snapshot;
+        if (!forceRefresh && current != null && isFresh()) {
+            return current;
+        }
+        if (forceRefresh || !loaded || !isFresh()) {
+            load(forceRefresh);
+        }
+        return buildSnapshot();
+    }
+
+    /**
+     * Applies a committed product change to the aggregates.
+     * Changes arriving before the first load are ignored, the load will see them.
+     * The low-stock index has already applied the change when this listener runs,
+     * {@link InventoryVersion} only moves after it.
+     */
+    @EventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE + 1)
+    public void onProductChange(ProductChangeEvent event) {
+        long arrivedAt = System.nanoTime();
+        lock.lock();
+        try {
+            if (changesDuringLoad != null) {
+                changesDuringLoad.merge(event.getProductId(), event, InventorySummaryEngine::later);
+            }
+            if (loaded) {
+                apply(event, arrivedAt);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Re-reads the aggregates on next use
+     */
+    @EventListener
+    public void onResync(ProductResyncEvent event) {
+        lock.lock();
+        try {
+            stale = true;
+            changes++;
+            snapshot = null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void apply(ProductChangeEvent event, long arrivedAt) {
+        if (event.isRemote() && arrivedAt - loadedAt < remoteDeliveryDelayNanos) {
+            unsettled = true;
+        }
+        switch (event.getType()) {
+            case CREATED -> {
+                totalProducts++;
+                totalQuantity += event.getNewQuantity();
+                totalPrice = totalPrice.add(event.getPrice());
+            }
+            case QUANTITY_CHANGED -> totalQuantity += event.getNewQuantity() - event.getOldQuantity();
+            case DELETED -> {
+                totalProducts--;
+                totalQuantity -= event.getOldQuantity();
+                totalPrice = totalPrice.subtract(event.getPrice());
+            }
+        }
+        changes++;
+        snapshot = null;
+    }
+
+    private boolean isFresh() {
+        long age = System.nanoTime() - loadedAt;
+        return !stale && maxStalenessNanos > 0 && age < maxStalenessNanos
+                && !(unsettled && age >= remoteDeliveryDelayNanos);
+    }
+
+    private void load(boolean force) {
+        loadLock.lock();
+        try {
+            if (!force && loaded && isFresh()) {
+                return;
+            }
+            lowStockIndex.reload();
+            long startedAt = System.nanoTime();
+            lock.lock();
+            try {
+                // a resync during the read makes the next summary read again
+                stale = false;
+                changesDuringLoad = new HashMap<>();
+            } finally {
+                lock.unlock();
+            }
+            try {
+                snapshotTransaction.executeWithoutResult(status -> {
+                    InventoryTotals totals = repo.summarize();
+                    // changed products as the aggregate query saw them, null for the ones it did not see
+                    Map<Long, Product> counted = new HashMap<>();
+                    for (int round = 1; round < LOOKUP_ROUNDS; round++) {
+                        if (!lookUpChanged(counted)) {
+                            break;
+                        }
+                    }
+                    lock.lock();
+                    try {
+                        lookUpChanged(counted);
+                        install(totals, counted, startedAt);
+                    } finally {
+                        lock.unlock();
+                    }
+                });
+            } finally {
+                lock.lock();
+                try {
+                    changesDuringLoad = null;
+                } finally {
+                    lock.unlock();
+                }
+            }
+        } finally {
+            loadLock.unlock();
+        }
+    }
+
+    /**
+     * Reads the products changed during the read which were not looked up yet
+     *
+     * @return whether there were any
+     */
+    private boolean lookUpChanged(Map<Long, Product> counted) {
+        Long[] ids;
+        lock.lock();
+        try {
+            ids = changesDuringLoad.keySet().stream()
+                    .filter(id -> !counted.containsKey(id))
+                    .toArray(Long[]::new);
+        } finally {
+            lock.unlock();
+        }
+        if (ids.length == 0) {
+            return false;
+        }
+        for (Long id : ids) {
+            counted.put(id, null);
+        }
+        bulkRepo.findByIds(ids).forEach(product -> counted.put(product.getId(), product));
+        return true;
+    }
+
+    private void install(InventoryTotals totals, Map<Long, Product> counted, long startedAt) {
+        long products = totals.getTotalProducts();
+        long quantity = totals.getTotalQuantity();
+        BigDecimal price = totals.getTotalPrice();
+        for (ProductChangeEvent last : changesDuringLoad.values()) {
+            Product read = counted.get(last.getProductId());
+            if (read != null) {
+                products--;
+                quantity -= read.getQuantity();
+                price = price.subtract(read.getPrice());
+            }
+            if (last.getType() != ProductChangeEvent.Type.DELETED) {
+                products++;
+                quantity += last.getNewQuantity();
+                price = price.add(last.getPrice());
+            }
+        }
+        totalProducts = products;
+        totalQuantity = quantity;
+        totalPrice = price;
+
+        loadedAt = startedAt;
+        unsettled = false;
+        loaded = true;
+        changes++;
+        snapshot = null;
+    }
+
+    private InventorySummary buildSnapshot() {
+        long seen;
+        lock.lock();
+        try {
+            if (snapshot != null) {
+                return snapshot;
+            }
+            seen = changes;
+        } finally {
+            lock.unlock();
+        }
+        // read without blocking changes, the low-stock index may have to load first
+        long outOfStockCount = lowStockIndex.count(false);
+        List<OutOfStockProduct> outOfStock = lowStockIndex.getOutOfStock(maxOutOfStock);
+        lock.lock();
+        try {
+            BigDecimal averagePrice = totalProducts == 0
+                    ? BigDecimal.ZERO
+                    : totalPrice.divide(BigDecimal.valueOf(totalProducts), PRICE_SCALE, RoundingMode.HALF_UP);
+            InventorySummary built = new InventorySummary(totalProducts, totalQuantity, averagePrice,
+                    outOfStockCount, outOfStock);
+            // the out-of-stock part may miss a change made meanwhile, such a summary is not kept
+            if (changes == seen) {
+                snapshot = built;
+            }
+            return built;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // changes of one product may be published out of order, the one with the higher version is the later one
+    private static ProductChangeEvent later(ProductChangeEvent kept, ProductChangeEvent arrived) {
+        if (kept.getVersion() != null && arrived.getVersion() != null && arrived.getVersion() < kept.getVersion()) {
+            return kept;
+        }
+        return arrived;
+    }
+}
@@ -0,0 +1,85 @@
+package com.product.inventory.service;
+
+import com.product.inventory.event.ProductChangeEvent;
+import com.product.inventory.event.ProductResyncEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Version of the inventory as a whole, it changes with every committed product change.
+ * Responses built from many products (lists, search, summary) are tagged with it, so a client presenting
+ * the current version in If-None-Match has seen the latest data and gets 304 without a query being run.
+ * Callers read the version before the data: a change committed in between only makes the tag older
+ * than the data, never newer, so a client can not be stuck with a stale response.
+ * Changes made by other nodes are counted once relayed by ProductChangeRelay, changes made outside this service
+ * are not counted.
+ * With read replicas configured, data read right after a change may not include it yet. There is no
+ * version until the replicas had time to catch up (max-lag plus one lag check interval).
+ */
+@Component
+public class InventoryVersion {
+
+    // versions of different runs and nodes never match each other
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36) + "."
+            + Integer.toString(ThreadLocalRandom.current().nextInt(Integer.MAX_VALUE), 36);
+    private final AtomicLong changes = new AtomicLong();
+    private final long settleNanos;
+    private volatile long lastChangeNanos;
+
+    /**
+     * @param replicas      : JDBC urls of the read replicas, empty without replicas
+     * @param maxLag        : max replication lag of a replica still read from
+     * @param checkInterval : how often replication lag is checked
+     */
+    public InventoryVersion(@Value("${inventory.datasource.replicas:}") String replicas,
+                            @Value("${inventory.datasource.replica-max-lag:1s}") Duration maxLag,
+                            @Value("${inventory.datasource.replica-lag-check-interval:1s}") Duration checkInterval) {
+        this.settleNanos = replicas.isBlank() ? 0 : maxLag.plus(checkInterval).toNanos();
+        this.lastChangeNanos = System.nanoTime() - settleNanos;
+    }
+
+    /**
+     * Runs last. The in-memory views served under this version (low-stock index, summary) are ordered
+     * before it, so they already include the change once the version moves
+     */
+    @EventListener
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public void onProductChange(ProductChangeEvent event) {
+        lastChangeNanos = System.nanoTime();
+        changes.incrementAndGet();
+    }
+
+    /**
+     * Runs last like {@link #onProductChange}, the views have dropped what they held
+     */
+    @EventListener
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public void onResync(ProductResyncEvent event) {
+        lastChangeNanos = System.nanoTime();
+        changes.incrementAndGet();
+    }
+
+    /**
+     * @return number of changes counted so far, it only grows
+     */
+    public long getChanges() {
+        return changes.get();
+    }
+
+    /**
+     * @return current version, the opaque part of an ETag, null while replicas may not have caught up with it
+     */
+    public String getTag() {
+        if (settleNanos > 0 && System.nanoTime() - lastChangeNanos < settleNanos) {
+            return null;
+        }
+        return epoch + "-" + changes.get();
+    }
+}
@@ -0,0 +1,231 @@
+package com.product.inventory.service;
+
+import com.product.inventory.event.ProductChangeEvent;
+import com.product.inventory.event.ProductResyncEvent;
+import com.product.inventory.model.LowStockProduct;
+import com.product.inventory.model.OutOfStockProduct;
+import com.product.inventory.repositoty.ProductRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Keeps products with quantity at or below {@code inventory.stock.low-threshold} in memory, ordered by quantity and id.
+ * The set is read from the database once and then kept up to date from {@link ProductChangeEvent}s,
+ * so listing out-of-stock or low-stock products costs in proportion to their number and not to the catalog size.
+ * Changes are not blocked while the set is read, the ones committed meanwhile are applied to it once it is read.
+ * The read uses a partial index on quantity covering the default threshold (V6 migration).
+ */
+@Component
+public class LowStockIndex {
+
+    private static final Comparator<LowStockProduct> BY_QUANTITY_AND_ID =
+            Comparator.comparingInt(LowStockProduct::getQuantity).thenComparing(LowStockProduct::getId);
+
+    private final ProductRepository repo;
+    private final int threshold;
+
+    // only one load at a time, changes are not blocked while it reads the table
+    private final ReentrantLock loadLock = new ReentrantLock();
+    // guards the listed products
+    private final ReentrantLock lock = new ReentrantLock();
+    // null before the first load
+    private volatile Listed listed;
+    // changes may have been missed, the products are read again on next use
+    private volatile boolean stale;
+    // changes committed while a load runs, null when none runs
+    private List<ProductChangeEvent> changesDuringLoad;
+
+    public LowStockIndex(ProductRepository repo, @Value("${inventory.stock.low-threshold:10}") int threshold) {
+        this.repo = repo;
+        this.threshold = threshold;
+    }
+
+    public int getThreshold() {
+        return threshold;
+    }
+
+    /**
+     * @param includeLowStock : false lists only products with quantity 0
+     * @param offset          : number of listed products to skip
+     * @param limit           : maximum number of returned products
+     * @return products ordered by quantity and id
+     */
+    public List<LowStockProduct> list(boolean includeLowStock, long offset, int limit) {
+        loadIfNeeded();
+        lock.lock();
+        try {
+            Iterator<LowStockProduct> iterator = listed.view(includeLowStock).iterator();
+            for (long skipped = 0; skipped < offset && iterator.hasNext(); skipped++) {
+                iterator.next();
+            }
+            List<LowStockProduct> page = new ArrayList<>(Math.min(limit, listed.products.size()));
+            while (page.size() < limit && iterator.hasNext()) {
+                page.add(iterator.next());
+            }
+            return page;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @param includeLowStock : false counts only products with quantity 0
+     */
+    public long count(boolean includeLowStock) {
+        loadIfNeeded();
+        lock.lock();
+        try {
+            return includeLowStock ? listed.products.size() : listed.outOfStockCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @param limit : maximum number of returned products
+     * @return out-of-stock products ordered by id
+     */
+    public List<OutOfStockProduct> getOutOfStock(int limit) {
+        return list(false, 0, limit).stream()
+                .map(p -> new OutOfStockProduct(p.getId(), p.getName()))
+                .toList();
+    }
+
+    /**
+     * Re-reads the listed products from database, dropping changes made outside this service
+     */
+    public void reload() {
+        load(true);
+    }
+
+    /**
+     * Applies a committed product change. Runs before other listeners, so views built
+     * from this index after their own update already see the change.
+     * Changes arriving before the first load are ignored, the load will see them.
+     */
+    @EventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onProductChange(ProductChangeEvent event) {
+        lock.lock();
+        try {
+            if (changesDuringLoad != null) {
+                changesDuringLoad.add(event);
+            }
+            if (listed != null) {
+                apply(listed, event);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Re-reads the listed products on next use
+     */
+    @EventListener
+    public void onResync(ProductResyncEvent event) {
+        stale = true;
+    }
+
+    private void loadIfNeeded() {
+        if (listed == null || stale) {
+            load(false);
+        }
+    }
+
+    private void load(boolean force) {
+        loadLock.lock();
+        try {
+            if (!force && listed != null && !stale) {
+                return;
+            }
+            // a resync during the load makes the next use load again
+            stale = false;
+            setChangesDuringLoad(new ArrayList<>());
+            Listed loaded = new Listed();
+            try {
+                repo.findLowStock(threshold).forEach(loaded::add);
+            } catch (RuntimeException e) {
+                setChangesDuringLoad(null);
+                throw e;
+            }
+
+            lock.lock();
+            try {
+                // changes the load has already seen are applied again, every change carries the resulting quantity
+                changesDuringLoad.forEach(event -> apply(loaded, event));
+                changesDuringLoad = null;
+                listed = loaded;
+            } finally {
+                lock.unlock();
+            }
+        } finally {
+            loadLock.unlock();
+        }
+    }
+
+    private void setChangesDuringLoad(List<ProductChangeEvent> changes) {
+        lock.lock();
+        try {
+            changesDuringLoad = changes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void apply(Listed listed, ProductChangeEvent event) {
+        listed.remove(event.getProductId());
+        if (event.getType() != ProductChangeEvent.Type.DELETED && event.getNewQuantity() <= threshold) {
+            listed.add(new LowStockProduct(event.getProductId(), event.getName(), event.getNewQuantity()));
+        }
+    }
+
+    /**
+     * Listed products, replaced as a whole by every load
+     */
+    private static class Listed {
+
+        private final NavigableSet<LowStockProduct> products = new TreeSet<>(BY_QUANTITY_AND_ID);
+        private final Map<Long, LowStockProduct> byId = new HashMap<>();
+        private int outOfStockCount;
+
+        private NavigableSet<LowStockProduct> view(boolean includeLowStock) {
+            if (includeLowStock) {
+                return products;
+            }
+            // entries with quantity 0 sort before any other entry
+            return products.headSet(new LowStockProduct(Long.MIN_VALUE, null, 1), false);
+        }
+
+        private void add(LowStockProduct product) {
+            products.add(product);
+            byId.put(product.getId(), product);
+            if (product.getQuantity() == 0) {
+                outOfStockCount++;
+            }
+        }
+
+        private void remove(Long id) {
+            LowStockProduct existing = byId.remove(id);
+            if (existing != null) {
+                products.remove(existing);
+                if (existing.getQuantity() == 0) {
+                    outOfStockCount--;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.product.inventory.service;
+
+import com.product.inventory.configuration.MetricsConfig;
+import com.product.inventory.event.ProductChangeEvent;
+import com.product.inventory.event.ProductResyncEvent;
+import com.product.inventory.model.PriceBucket;
+import com.product.inventory.model.Product;
+import com.product.inventory.model.ProductFilter;
+import com.product.inventory.model.ProductRanking;
+import com.product.inventory.model.ProductStats;
+import com.product.inventory.model.RankedProduct;
+import com.product.inventory.repositoty.ProductRepository;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Ad hoc analytics (stock value, price histogram, top products) over an in-memory {@link ProductColumns}
+ * snapshot of the product table, so they cost no database round trip and no new aggregate query.
+ * The snapshot is read from the database on first use and then kept up to date from {@link ProductChangeEvent}s.
+ * Changes committed while it is read are applied once the read is finished, so none of them is lost.
+ * Queries are timed as inventory.service like the other service calls.
+ */
+@Service
+public class ProductAnalytics {
+
+    private final ProductRepository repo;
+    private final TransactionTemplate readOnlyTransaction;
+    private final int fetchSize;
+
+    // only one load at a time, changes are not blocked while it reads the table
+    private final ReentrantLock loadLock = new ReentrantLock();
+    // queries share the columns, changes and loads need them exclusively
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile ProductColumns columns;
+    // changes may have been missed, the snapshot is read again on next use
+    private volatile boolean stale;
+    // changes committed while a load runs, null when none runs
+    private List<ProductChangeEvent> changesDuringLoad;
+
+    public ProductAnalytics(ProductRepository repo, PlatformTransactionManager transactionManager,
+                            @Value("${inventory.analytics.fetch-size:10000}") int fetchSize) {
+        this.repo = repo;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * @param refresh : re-read the snapshot from the database first
+     */
+    @Timed(MetricsConfig.SERVICE_TIMER)
+    public ProductStats getStats(ProductFilter filter, boolean refresh) {
+        return query(refresh, columns -> columns.stats(filter));
+    }
+
+    /**
+     * @param buckets : number of equal price ranges the matching products are split into
+     * @param refresh : re-read the snapshot from the database first
+     */
+    @Timed(MetricsConfig.SERVICE_TIMER)
+    public List<PriceBucket> getPriceHistogram(ProductFilter filter, int buckets, boolean refresh) {
+        return query(refresh, columns -> columns.priceHistogram(filter, buckets));
+    }
+
+    /**
+     * @param ranking : what products are ranked by
+     * @param limit   : max number of returned products
+     * @param refresh : re-read the snapshot from the database first
+     */
+    @Timed(MetricsConfig.SERVICE_TIMER)
+    public List<RankedProduct> getTopProducts(ProductFilter filter, ProductRanking ranking, int limit,
+                                              boolean refresh) {
+        return query(refresh, columns -> columns.top(filter, ranking, limit));
+    }
+
+    /**
+     * Applies a committed product change to the snapshot.
+     * Changes arriving before the first load are ignored, the load will see them.
+     */
+    @EventListener
+    public void onProductChange(ProductChangeEvent event) {
+        lock.writeLock().lock();
+        try {
+            if (changesDuringLoad != null) {
+                changesDuringLoad.add(event);
+            }
+            if (columns != null) {
+                apply(columns, event);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Re-reads the snapshot on next use
+     */
+    @EventListener
+    public void onResync(ProductResyncEvent event) {
+        stale = true;
+    }
+
+    private <T> T query(boolean refresh, Function<ProductColumns, T> query) {
+        if (refresh || columns == null || stale) {
+            load(refresh);
+        }
+        lock.readLock().lock();
+        try {
+            return query.apply(columns);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void load(boolean force) {
+        loadLock.lock();
+        try {
+            if (!force && columns != null && !stale) {
+                return;
+            }
+            // a resync during the load makes the next query load again
+            stale = false;
+            setChangesDuringLoad(new ArrayList<>());
+            ProductColumns loaded;
+            try {
+                // a PostgreSQL cursor only fetches rows in chunks inside a transaction
+                loaded = readOnlyTransaction.execute(status -> {
+                    ProductColumns read = new ProductColumns(fetchSize);
+                    try (Stream<Product> products = repo.streamAll(fetchSize)) {
+                        products.forEach(p -> read.put(p.getId(), p.getName(), p.getQuantity(), p.getPrice()));
+                    }
+                    return read;
+                });
+            } catch (RuntimeException e) {
+                setChangesDuringLoad(null);
+                throw e;
+            }
+
+            lock.writeLock().lock();
+            try {
+                // changes the load has already seen are applied again, every change carries the resulting values
+                changesDuringLoad.forEach(event -> apply(loaded, event));
+                changesDuringLoad = null;
+                columns = loaded;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } finally {
+            loadLock.unlock();
+        }
+    }
+
+    private void setChangesDuringLoad(List<ProductChangeEvent> changes) {
+        lock.writeLock().lock();
+        try {
+            changesDuringLoad = changes;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static void apply(ProductColumns columns, ProductChangeEvent event) {
+        if (event.getType() == ProductChangeEvent.Type.DELETED) {
+            columns.remove(event.getProductId());
+        } else {
+            columns.put(event.getProductId(), event.getName(), event.getNewQuantity(), event.getPrice());
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.product.inventory.service;
+
+import com.product.inventory.model.Product;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reads products written by {@link ProductBinaryWriter}. Throws IOException on a missing header
+ * or a truncated record
+ */
+public class ProductBinaryReader {
+
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    private final InputStream in;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int position;
+    private int limit;
+    private byte[] name = new byte[64];
+
+    /**
+     * Reads and checks the header
+     */
+    public ProductBinaryReader(InputStream in) throws IOException {
+        this.in = in;
+        for (byte expected : ProductBinaryWriter.HEADER) {
+            if (!fill() || buffer[position++] != expected) {
+                throw new IOException("Not a product binary stream");
+            }
+        }
+    }
+
+    /**
+     * @return next product, null at the end of the stream
+     */
+    public Product read() throws IOException {
+        if (!fill()) {
+            return null;
+        }
+        long id = readVarint();
+        long version = readVarint();
+        int quantity = Math.toIntExact(readVarint());
+        long cents = readVarint();
+        int nameLength = Math.toIntExact(readVarint());
+        if (name.length < nameLength) {
+            name = Arrays.copyOf(name, Math.max(nameLength, name.length * 2));
+        }
+        for (int read = 0; read < nameLength; ) {
+            if (!fill()) {
+                throw new EOFException("Truncated product record");
+            }
+            int chunk = Math.min(nameLength - read, limit - position);
+            System.arraycopy(buffer, position, name, read, chunk);
+            position += chunk;
+            read += chunk;
+        }
+        Product product = new Product(new String(name, 0, nameLength, StandardCharsets.UTF_8), quantity,
+                BigDecimal.valueOf(cents, ProductBinaryWriter.PRICE_SCALE));
+        product.setId(id);
+        product.setVersion(version == 0 ? null : version - 1);
+        return product;
+    }
+
+    public List<Product> readAll() throws IOException {
+        List<Product> products = new ArrayList<>();
+        Product product;
+        while ((product = read()) != null) {
+            products.add(product);
+        }
+        return products;
+    }
+
+    private long readVarint() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            if (!fill()) {
+                throw new EOFException("Truncated product record");
+            }
+            byte b = buffer[position++];
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    /**
+     * @return false at the end of the stream
+     */
+    private boolean fill() throws IOException {
+        while (position == limit) {
+            int read = in.read(buffer, 0, buffer.length);
+            if (read < 0) {
+                return false;
+            }
+            position = 0;
+            limit = read;
+        }
+        return true;
+    }
+}
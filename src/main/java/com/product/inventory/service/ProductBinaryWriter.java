@@ -0,0 +1,94 @@
+package com.product.inventory.service;
+
+import com.product.inventory.model.Product;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Writes products in the compact binary format (application/x-product-binary), which costs a fraction
+ * of JSON to encode and decode and is about half its size.
+ * <p>
+ * The stream starts with the 4 byte header {@code P R D 1}, followed by one record per product and no trailer.
+ * A record is id, version + 1 (0 when unknown), quantity, price in cents, name length in bytes and the UTF-8 name.
+ * All numbers are unsigned LEB128 varints, prices must not have more than 2 decimals.
+ * {@link ProductBinaryReader} reads it back.
+ */
+public class ProductBinaryWriter {
+
+    static final byte[] HEADER = {'P', 'R', 'D', 1};
+    static final int PRICE_SCALE = 2;
+
+    // the buffer grows up to BUFFER_SIZE before it is flushed, so a single product costs no large allocation
+    private static final int INITIAL_BUFFER_SIZE = 256;
+    private static final int BUFFER_SIZE = 8 * 1024;
+    // 5 varints of at most 10 bytes each
+    private static final int MAX_FIXED_RECORD_SIZE = 50;
+
+    private final OutputStream out;
+    private byte[] buffer = new byte[INITIAL_BUFFER_SIZE];
+    private int position;
+
+    /**
+     * Writes the header, the stream is not closed by this writer
+     */
+    public ProductBinaryWriter(OutputStream out) {
+        this.out = out;
+        System.arraycopy(HEADER, 0, buffer, 0, HEADER.length);
+        position = HEADER.length;
+    }
+
+    public void write(Product product) throws IOException {
+        byte[] name = product.getName().getBytes(StandardCharsets.UTF_8);
+        int recordSize = MAX_FIXED_RECORD_SIZE + name.length;
+        if (position + recordSize > buffer.length) {
+            if (buffer.length < BUFFER_SIZE) {
+                buffer = Arrays.copyOf(buffer, Math.max(Math.min(buffer.length * 2, BUFFER_SIZE), position + recordSize));
+            } else {
+                flushBuffer();
+                if (recordSize > buffer.length) {
+                    buffer = Arrays.copyOf(buffer, recordSize);
+                }
+            }
+        }
+        writeVarint(product.getId());
+        writeVarint(product.getVersion() == null ? 0 : product.getVersion() + 1);
+        writeVarint(product.getQuantity());
+        writeVarint(cents(product.getPrice()));
+        writeVarint(name.length);
+        System.arraycopy(name, 0, buffer, position, name.length);
+        position += name.length;
+    }
+
+    /**
+     * Writes buffered records to the stream and flushes it
+     */
+    public void flush() throws IOException {
+        flushBuffer();
+        out.flush();
+    }
+
+    private void flushBuffer() throws IOException {
+        out.write(buffer, 0, position);
+        position = 0;
+    }
+
+    private void writeVarint(long value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Negative values can not be encoded: " + value);
+        }
+        while ((value & ~0x7FL) != 0) {
+            buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[position++] = (byte) value;
+    }
+
+    private static long cents(BigDecimal price) {
+        return price.setScale(PRICE_SCALE, RoundingMode.UNNECESSARY).unscaledValue().longValueExact();
+    }
+}
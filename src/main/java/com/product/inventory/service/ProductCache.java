@@ -0,0 +1,91 @@
+package com.product.inventory.service;
+
+import com.product.inventory.configuration.CacheConfig;
+import com.product.inventory.event.ProductChangeEvent;
+import com.product.inventory.event.ProductResyncEvent;
+import com.product.inventory.exception.ResourceNotFoundException;
+import com.product.inventory.model.Product;
+import com.product.inventory.repositoty.ProductRepository;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Products by id, read through the products cache.
+ * Every write puts the changed row from its {@link ProductChangeEvent}, whatever path made it (single updates,
+ * stock deltas, batches, changes relayed from other nodes), and deleted products are kept as tombstones.
+ * An entry is only ever replaced by a newer version of the product, so a row read from the database before
+ * a concurrent write can not overwrite what the write put.
+ */
+@Component
+public class ProductCache {
+
+    // newer than any version, a deleted product is never cached again
+    private static final Product DELETED = new Product();
+
+    static {
+        DELETED.setVersion(Long.MAX_VALUE);
+    }
+
+    private final ProductRepository repo;
+    private final Cache productsCache;
+
+    public ProductCache(ProductRepository repo, CacheManager cacheManager) {
+        this.repo = repo;
+        this.productsCache = cacheManager.getCache(CacheConfig.PRODUCTS_CACHE);
+    }
+
+    /**
+     * Throws Resource not found exception when product is not found
+     *
+     * @return cached product, read from the database on a miss
+     */
+    public Product get(Long id) {
+        Product product = productsCache.get(id, Product.class);
+        if (product == null) {
+            product = repo.findById(id).orElseThrow(() -> new ResourceNotFoundException("Product not found"));
+            product = put(id, product);
+        }
+        if (product == DELETED) {
+            throw new ResourceNotFoundException("Product not found");
+        }
+        return product;
+    }
+
+    @EventListener
+    public void onProductChange(ProductChangeEvent event) {
+        if (event.getType() == ProductChangeEvent.Type.DELETED) {
+            put(event.getProductId(), DELETED);
+        } else if (event.getVersion() == null) {
+            productsCache.evict(event.getProductId());
+        } else {
+            Product product = new Product(event.getName(), event.getNewQuantity(), event.getPrice());
+            product.setId(event.getProductId());
+            product.setVersion(event.getVersion());
+            put(event.getProductId(), product);
+        }
+    }
+
+    @EventListener
+    public void onResync(ProductResyncEvent event) {
+        productsCache.clear();
+    }
+
+    /**
+     * @return product cached afterwards, a newer version than the given one when there is
+     */
+    @SuppressWarnings("unchecked")
+    private Product put(Long id, Product product) {
+        Object nativeCache = productsCache.getNativeCache();
+        if (nativeCache instanceof com.github.benmanes.caffeine.cache.Cache<?, ?> caffeine) {
+            nativeCache = caffeine.asMap();
+        }
+        // Spring's caches only replace unconditionally, the map underneath can compare versions
+        ConcurrentMap<Object, Object> entries = (ConcurrentMap<Object, Object>) nativeCache;
+        return (Product) entries.merge(id, product, (cached, given) ->
+                ((Product) given).getVersion() > ((Product) cached).getVersion() ? given : cached);
+    }
+}
@@ -0,0 +1,81 @@
+package com.product.inventory.service;
+
+import com.product.inventory.event.ProductChangeEvent;
+import com.product.inventory.model.ProductChange;
+
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Ring buffer of the latest product changes, numbered with increasing sequence numbers.
+ * Once the buffer is full every change overwrites the oldest one, readers which fall that far behind
+ * are told so by {@link #readAfter(long, int, List)}. Thread-safe.
+ */
+public class ProductChangeLog {
+
+    private final ProductChange[] changes;
+    private final long initialSequence;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private long lastSequence;
+
+    /**
+     * @param capacity        : number of retained changes
+     * @param initialSequence : first change gets the sequence number following this one
+     */
+    public ProductChangeLog(int capacity, long initialSequence) {
+        this.changes = new ProductChange[capacity];
+        this.initialSequence = initialSequence;
+        this.lastSequence = initialSequence;
+    }
+
+    public ProductChange append(ProductChangeEvent event) {
+        lock.lock();
+        try {
+            ProductChange change = ProductChange.of(++lastSequence, event);
+            changes[index(lastSequence)] = change;
+            return change;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return sequence number of the latest change, the initial sequence when there is none
+     */
+    public long getLastSequence() {
+        lock.lock();
+        try {
+            return lastSequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Copies changes following given sequence number, oldest first
+     *
+     * @param sequence : sequence number of the last change the reader has seen
+     * @param max      : max number of copied changes
+     * @param into     : list the changes are added to
+     * @return sequence number the copied changes follow, greater than the given one
+     * when changes following it were already overwritten
+     */
+    public long readAfter(long sequence, int max, List<ProductChange> into) {
+        lock.lock();
+        try {
+            long from = Math.max(sequence, Math.max(initialSequence, lastSequence - changes.length));
+            long to = Math.min(lastSequence, from + max);
+            for (long s = from + 1; s <= to; s++) {
+                into.add(changes[index(s)]);
+            }
+            return from;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int index(long sequence) {
+        return (int) (sequence % changes.length);
+    }
+}
@@ -0,0 +1,102 @@
+package com.product.inventory.service;
+
+import com.product.inventory.event.ProductChangeEvent;
+import com.product.inventory.event.ProductChangeEvent.Type;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.node.ArrayNode;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Batch of product changes as relayed between nodes in the payload of a PostgreSQL notification:
+ * {"node":"...","seq":12,"changes":[["Q",id,version,oldQuantity,newQuantity,"price","name"],...]}.
+ * Sequence numbers count the messages of a node, a gap tells the receiver it has missed some.
+ */
+@Getter
+@AllArgsConstructor
+public class ProductChangeMessage {
+
+    private final String node;
+    private final long sequence;
+    private final List<ProductChangeEvent> changes;
+
+    /**
+     * Splits changes into as few messages as fit, in order
+     *
+     * @param firstSequence : sequence number of the first message, the following ones are numbered on
+     * @param maxBytes      : max size of a message in UTF-8
+     * @return messages as JSON
+     */
+    public static List<String> encode(ObjectMapper mapper, String node, long firstSequence,
+                                      List<ProductChangeEvent> changes, int maxBytes) {
+        String header = "{\"node\":" + mapper.writeValueAsString(node) + ",\"seq\":";
+        // header, sequence number and closing brackets, the node name is ASCII
+        int overhead = header.length() + 32;
+        List<String> messages = new ArrayList<>();
+        StringBuilder message = new StringBuilder();
+        int size = 0;
+        for (ProductChangeEvent change : changes) {
+            String encoded = mapper.writeValueAsString(toArray(mapper, change));
+            int encodedSize = encoded.getBytes(StandardCharsets.UTF_8).length;
+            if (size > 0 && overhead + size + 1 + encodedSize > maxBytes) {
+                messages.add(header + (firstSequence + messages.size()) + ",\"changes\":[" + message + "]}");
+                message.setLength(0);
+                size = 0;
+            }
+            if (size > 0) {
+                message.append(',');
+                size++;
+            }
+            message.append(encoded);
+            size += encodedSize;
+        }
+        if (size > 0) {
+            messages.add(header + (firstSequence + messages.size()) + ",\"changes\":[" + message + "]}");
+        }
+        return messages;
+    }
+
+    /**
+     * Throws runtime exception when the payload is not a message
+     *
+     * @return message with its changes marked as remote
+     */
+    public static ProductChangeMessage decode(ObjectMapper mapper, String payload) {
+        JsonNode root = mapper.readTree(payload);
+        List<ProductChangeEvent> changes = new ArrayList<>();
+        for (JsonNode change : root.required("changes")) {
+            changes.add(ProductChangeEvent.remote(type(change.get(0).asString()), change.get(1).asLong(),
+                    change.get(6).asString(), new BigDecimal(change.get(5).asString()),
+                    change.get(3).isNull() ? null : change.get(3).asInt(),
+                    change.get(4).isNull() ? null : change.get(4).asInt(),
+                    change.get(2).isNull() ? null : change.get(2).asLong()));
+        }
+        return new ProductChangeMessage(root.required("node").asString(), root.required("seq").asLong(), changes);
+    }
+
+    private static ArrayNode toArray(ObjectMapper mapper, ProductChangeEvent change) {
+        return mapper.createArrayNode()
+                .add(change.getType().name().substring(0, 1))
+                .add(change.getProductId())
+                .add(change.getVersion())
+                .add(change.getOldQuantity())
+                .add(change.getNewQuantity())
+                .add(change.getPrice().toPlainString())
+                .add(change.getName());
+    }
+
+    private static Type type(String code) {
+        return switch (code) {
+            case "C" -> Type.CREATED;
+            case "Q" -> Type.QUANTITY_CHANGED;
+            case "D" -> Type.DELETED;
+            default -> throw new IllegalArgumentException("Unknown change type " + code);
+        };
+    }
+}
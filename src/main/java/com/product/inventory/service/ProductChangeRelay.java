@@ -0,0 +1,322 @@
+package com.product.inventory.service;
+
+import com.product.inventory.event.ProductChangeEvent;
+import com.product.inventory.event.ProductResyncEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.jdbc.autoconfigure.DataSourceProperties;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import tools.jackson.databind.ObjectMapper;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Relays product changes between the nodes sharing a database through PostgreSQL LISTEN/NOTIFY, so the in-memory
+ * views of every node (product cache, summary, low-stock index, analytics, reservations, ETags) follow changes
+ * committed by any of them. Enabled with {@code inventory.cluster.enabled}.
+ * <ul>
+ *     <li>Changes committed by this node are collected and sent every {@code poll-interval} as one notification
+ *     per batch of changes fitting a payload, numbered per node.</li>
+ *     <li>Notifications of other nodes are published as remote {@link ProductChangeEvent}s, put in order per product
+ *     by their row versions with a {@link ProductVersionTracker}.</li>
+ *     <li>A {@link ProductResyncEvent} makes every view re-read the database when changes may have been missed:
+ *     on every (re)connect, on a gap in the numbering of a node and when a creation arrived too late.</li>
+ * </ul>
+ * A dedicated connection to the primary is used, it is not taken from the connection pool.
+ */
+@Component
+public class ProductChangeRelay implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductChangeRelay.class);
+
+    // PostgreSQL rejects payloads of 8000 bytes and more
+    private static final int MAX_PAYLOAD_BYTES = 7900;
+    private static final String NOTIFY_SQL =
+            "SELECT pg_notify(?, p.payload) FROM unnest(?::text[]) WITH ORDINALITY AS p(payload, n) ORDER BY p.n";
+
+    private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final DataSourceProperties dataSourceProperties;
+    private final boolean enabled;
+    private final String channel;
+    private final Duration pollInterval;
+    private final Duration reconnectDelay;
+    private final int maxPending;
+
+    // differs between runs and nodes
+    private final String node = Long.toString(System.currentTimeMillis(), 36) + "."
+            + Integer.toString(ThreadLocalRandom.current().nextInt(Integer.MAX_VALUE), 36);
+    private final ProductVersionTracker versions;
+
+    // changes of this node not yet sent, and the sequence number of the next message
+    private final ReentrantLock outboxLock = new ReentrantLock();
+    private List<ProductChangeEvent> outbox = new ArrayList<>();
+    private long nextSequence = 1;
+    // changes were dropped since the last send
+    private boolean overflowed;
+    // encoded messages whose sending failed, sent first after reconnecting. Only touched by the relay thread
+    private final Deque<String> unsent = new ArrayDeque<>();
+    // last sequence number received per node. Only touched by the relay thread
+    private final Map<String, Long> lastReceived = new HashMap<>();
+
+    private final Counter sent;
+    private final Counter applied;
+    private final Counter discarded;
+    private final Counter resyncs;
+    private Thread relay;
+    private volatile boolean connected;
+    private volatile boolean running;
+
+    /**
+     * @param channel        : notification channel shared by all nodes
+     * @param pollInterval   : max time a change of this node waits to be sent, and between checks for notifications
+     * @param reconnectDelay : wait before connecting again after the connection failed
+     * @param maxPending     : max changes waiting to be sent, other nodes resync when more are dropped
+     * @param trackedProducts : number of recently changed products whose version is kept to order changes
+     */
+    public ProductChangeRelay(ObjectMapper objectMapper, ApplicationEventPublisher eventPublisher,
+                              DataSourceProperties dataSourceProperties, MeterRegistry meterRegistry,
+                              @Value("${inventory.cluster.enabled:true}") boolean enabled,
+                              @Value("${inventory.cluster.channel:inventory_product_changes}") String channel,
+                              @Value("${inventory.cluster.poll-interval:10ms}") Duration pollInterval,
+                              @Value("${inventory.cluster.reconnect-delay:1s}") Duration reconnectDelay,
+                              @Value("${inventory.cluster.max-pending:100000}") int maxPending,
+                              @Value("${inventory.cluster.tracked-products:100000}") int trackedProducts) {
+        this.objectMapper = objectMapper;
+        this.eventPublisher = eventPublisher;
+        this.dataSourceProperties = dataSourceProperties;
+        this.enabled = enabled;
+        this.channel = channel;
+        this.pollInterval = pollInterval;
+        this.reconnectDelay = reconnectDelay;
+        this.maxPending = maxPending;
+        this.versions = new ProductVersionTracker(trackedProducts);
+        this.sent = Counter.builder("inventory.cluster.sent")
+                .description("Notifications sent to the other nodes")
+                .register(meterRegistry);
+        this.applied = received(meterRegistry, "applied");
+        this.discarded = received(meterRegistry, "discarded");
+        this.resyncs = Counter.builder("inventory.cluster.resyncs")
+                .description("Times the in-memory views were re-read because changes of other nodes may have been missed")
+                .register(meterRegistry);
+        Gauge.builder("inventory.cluster.connected", this, relay -> relay.connected ? 1 : 0)
+                .description("1 while notifications of other nodes are received")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Queues changes committed by this node
+     */
+    @EventListener
+    public void onProductChange(ProductChangeEvent event) {
+        if (!enabled || event.isRemote()) {
+            return;
+        }
+        versions.record(event);
+        outboxLock.lock();
+        try {
+            if (outbox.size() < maxPending) {
+                outbox.add(event);
+            } else if (!overflowed) {
+                // a gap in the sequence numbers makes the other nodes resync
+                overflowed = true;
+                nextSequence++;
+            }
+        } finally {
+            outboxLock.unlock();
+        }
+    }
+
+    public String getNode() {
+        return node;
+    }
+
+    public boolean isConnected() {
+        return connected;
+    }
+
+    private void run() {
+        while (running) {
+            try (Connection connection = connect()) {
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                int ownPid = pgConnection.getBackendPID();
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + quoted(channel));
+                }
+                connected = true;
+                // whatever other nodes changed while this one was not listening is read from the database
+                resync("connected");
+                while (running) {
+                    send(connection);
+                    PGNotification[] notifications = pgConnection.getNotifications((int) pollInterval.toMillis());
+                    if (notifications != null) {
+                        for (PGNotification notification : notifications) {
+                            if (notification.getPID() != ownPid) {
+                                receive(notification.getParameter());
+                            }
+                        }
+                    }
+                }
+                send(connection);
+            } catch (SQLException | RuntimeException e) {
+                // a failing listener must not end the relay either
+                connected = false;
+                if (running) {
+                    log.warn("Product change relay failed, reconnecting in {}", reconnectDelay, e);
+                    pause();
+                }
+            } finally {
+                connected = false;
+            }
+        }
+    }
+
+    private Connection connect() throws SQLException {
+        return DriverManager.getConnection(dataSourceProperties.determineUrl(),
+                dataSourceProperties.determineUsername(), dataSourceProperties.determinePassword());
+    }
+
+    private void send(Connection connection) throws SQLException {
+        outboxLock.lock();
+        try {
+            if (!outbox.isEmpty()) {
+                List<String> messages = ProductChangeMessage.encode(objectMapper, node, nextSequence, outbox,
+                        MAX_PAYLOAD_BYTES);
+                nextSequence += messages.size();
+                unsent.addAll(messages);
+                outbox = new ArrayList<>();
+            }
+            overflowed = false;
+        } finally {
+            outboxLock.unlock();
+        }
+        if (unsent.isEmpty()) {
+            return;
+        }
+        try (PreparedStatement ps = connection.prepareStatement(NOTIFY_SQL)) {
+            ps.setString(1, channel);
+            ps.setArray(2, connection.createArrayOf("text", unsent.toArray()));
+            ps.execute();
+        }
+        sent.increment(unsent.size());
+        unsent.clear();
+    }
+
+    private void receive(String payload) {
+        ProductChangeMessage message;
+        try {
+            message = ProductChangeMessage.decode(objectMapper, payload);
+        } catch (RuntimeException e) {
+            log.warn("Ignoring malformed product change notification: {}", payload, e);
+            return;
+        }
+        Long last = lastReceived.get(message.getNode());
+        if (last != null && message.getSequence() <= last) {
+            discarded.increment(message.getChanges().size());
+            return;
+        }
+        lastReceived.put(message.getNode(), message.getSequence());
+        for (ProductChangeEvent change : message.getChanges()) {
+            ProductChangeEvent ordered = versions.reorder(change);
+            if (ordered == null) {
+                discarded.increment();
+            } else {
+                applied.increment();
+                eventPublisher.publishEvent(ordered);
+            }
+        }
+        if (last != null && message.getSequence() > last + 1) {
+            resync("missed changes of node " + message.getNode());
+        } else if (versions.takeMissedCreations() > 0) {
+            resync("product created on another node arrived after its first change");
+        }
+    }
+
+    private void resync(String reason) {
+        log.info("Re-reading in-memory views, {}", reason);
+        resyncs.increment();
+        eventPublisher.publishEvent(new ProductResyncEvent(reason));
+    }
+
+    private void pause() {
+        try {
+            Thread.sleep(reconnectDelay.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static String quoted(String identifier) {
+        return "\"" + identifier.replace("\"", "\"\"") + "\"";
+    }
+
+    private static Counter received(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("inventory.cluster.received")
+                .description("Product changes received from other nodes")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        relay = new Thread(this::run, "product-change-relay");
+        relay.setDaemon(true);
+        relay.start();
+    }
+
+    /**
+     * Sends the changes still queued before disconnecting
+     */
+    @Override
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        try {
+            relay.join(TimeUnit.SECONDS.toMillis(5) + pollInterval.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Started before and stopped after the write-behind of quantities, so its last flush is still relayed
+     */
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 8192;
+    }
+}
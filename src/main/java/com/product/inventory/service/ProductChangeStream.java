@@ -0,0 +1,222 @@
+package com.product.inventory.service;
+
+import com.product.inventory.event.ProductChangeEvent;
+import com.product.inventory.exception.ServiceUnavailableException;
+import com.product.inventory.model.ProductChange;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Streams product changes to subscribers as Server-Sent Events, so consumers do not have to poll for them.
+ * Changes committed by other nodes are streamed as well once relayed to this node.
+ * Every change is appended to a {@link ProductChangeLog} of the last {@code inventory.events.buffer-size} changes
+ * and every subscriber reads it from its own position at its own pace, a slow subscriber never blocks
+ * the writers or other subscribers. A subscriber which falls further behind than the buffer gets a reset event
+ * and continues with the oldest retained change.
+ * Sequence numbers start from the startup time, so they keep increasing across restarts and a subscriber
+ * resuming from a sequence number of a previous run gets a reset event as well.
+ */
+@Component
+public class ProductChangeStream implements SmartLifecycle {
+
+    private static final int SEND_BATCH_SIZE = 256;
+    private static final String RESET_EVENT = "reset";
+
+    private final ProductChangeLog changeLog;
+    private final int maxSubscribers;
+    private final Duration timeout;
+    private final Duration heartbeat;
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private ExecutorService senders;
+    private ScheduledExecutorService heartbeats;
+    private volatile boolean running;
+
+    public ProductChangeStream(MeterRegistry meterRegistry,
+                               @Value("${inventory.events.buffer-size:10000}") int bufferSize,
+                               @Value("${inventory.events.max-subscribers:1000}") int maxSubscribers,
+                               @Value("${inventory.events.timeout:30m}") Duration timeout,
+                               @Value("${inventory.events.heartbeat:15s}") Duration heartbeat) {
+        // 1024 sequence numbers per millisecond, still exact as a JavaScript number
+        this.changeLog = new ProductChangeLog(bufferSize, System.currentTimeMillis() << 10);
+        this.maxSubscribers = maxSubscribers;
+        this.timeout = timeout;
+        this.heartbeat = heartbeat;
+        Gauge.builder("inventory.events.subscribers", subscribers, Set::size)
+                .description("Open product change streams")
+                .register(meterRegistry);
+    }
+
+    @EventListener
+    public void onProductChange(ProductChangeEvent event) {
+        changeLog.append(event);
+        subscribers.forEach(Subscriber::schedule);
+    }
+
+    /**
+     * Opens a stream of product changes. Throws 503 when the maximum number of streams is open
+     *
+     * @param since : sequence number of the last change the subscriber has seen, null to get only new changes
+     */
+    public SseEmitter subscribe(Long since) {
+        if (!running || subscribers.size() >= maxSubscribers) {
+            throw new ServiceUnavailableException("Too many open change streams, try again later");
+        }
+        long last = changeLog.getLastSequence();
+        SseEmitter emitter = new SseEmitter(timeout.toMillis());
+        Subscriber subscriber = since == null || since > last
+                ? new Subscriber(emitter, last, since != null)
+                : new Subscriber(emitter, since, false);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(e -> subscribers.remove(subscriber));
+        subscribers.add(subscriber);
+        subscriber.schedule();
+        return emitter;
+    }
+
+    public long getLastSequence() {
+        return changeLog.getLastSequence();
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    @Override
+    public void start() {
+        senders = Executors.newCachedThreadPool(daemonThreads("product-change-stream"));
+        heartbeats = Executors.newSingleThreadScheduledExecutor(daemonThreads("product-change-heartbeat"));
+        heartbeats.scheduleWithFixedDelay(() -> subscribers.forEach(Subscriber::heartbeat),
+                heartbeat.toMillis(), heartbeat.toMillis(), TimeUnit.MILLISECONDS);
+        running = true;
+    }
+
+    /**
+     * Completes all streams before the web server stops, so they do not hold up a graceful shutdown.
+     * Subscribers reconnect with the Last-Event-ID they have seen
+     */
+    @Override
+    public void stop() {
+        running = false;
+        heartbeats.shutdownNow();
+        subscribers.forEach(s -> s.emitter.complete());
+        subscribers.clear();
+        senders.shutdown();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private static ThreadFactory daemonThreads(String name) {
+        return r -> {
+            Thread thread = new Thread(r, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Position of one stream in the change log. Sending runs on the senders pool and never runs twice
+     * at the same time for a subscriber, schedule requests made while it runs make it run once more
+     */
+    private class Subscriber {
+
+        private final SseEmitter emitter;
+        private final AtomicInteger scheduled = new AtomicInteger();
+        private final List<ProductChange> batch = new ArrayList<>(SEND_BATCH_SIZE);
+        // only touched while sending
+        private long sequence;
+        private boolean resetDue;
+        private volatile boolean heartbeatDue;
+
+        Subscriber(SseEmitter emitter, long sequence, boolean resetDue) {
+            this.emitter = emitter;
+            this.sequence = sequence;
+            this.resetDue = resetDue;
+        }
+
+        void heartbeat() {
+            heartbeatDue = true;
+            schedule();
+        }
+
+        void schedule() {
+            if (scheduled.getAndIncrement() == 0) {
+                try {
+                    senders.execute(this::run);
+                } catch (RejectedExecutionException e) {
+                    // stopping, the stream is completed
+                }
+            }
+        }
+
+        private void run() {
+            int missed = 1;
+            try {
+                do {
+                    send();
+                    missed = scheduled.addAndGet(-missed);
+                } while (missed != 0);
+            } catch (IOException | IllegalStateException e) {
+                // client has gone away or stream is already completed
+                subscribers.remove(this);
+                emitter.completeWithError(e);
+            }
+        }
+
+        private void send() throws IOException {
+            boolean sent = false;
+            while (true) {
+                batch.clear();
+                long from = changeLog.readAfter(sequence, SEND_BATCH_SIZE, batch);
+                if (resetDue || from != sequence) {
+                    resetDue = false;
+                    sequence = from;
+                    emitter.send(SseEmitter.event().id(Long.toString(from)).name(RESET_EVENT).data(from));
+                    sent = true;
+                }
+                if (batch.isEmpty()) {
+                    break;
+                }
+                for (ProductChange change : batch) {
+                    emitter.send(SseEmitter.event()
+                            .id(Long.toString(change.getSequence()))
+                            .name(change.getType().name().toLowerCase(Locale.ROOT))
+                            .data(change, MediaType.APPLICATION_JSON));
+                    sequence = change.getSequence();
+                }
+                sent = true;
+            }
+            if (heartbeatDue) {
+                heartbeatDue = false;
+                if (!sent) {
+                    emitter.send(SseEmitter.event().comment("heartbeat"));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,326 @@
+package com.product.inventory.service;
+
+import com.product.inventory.configuration.MetricsConfig;
+import com.product.inventory.event.ProductChangeEvent;
+import com.product.inventory.exception.InvalidRequestException;
+import com.product.inventory.exception.ResourceNotFoundException;
+import com.product.inventory.exception.ServiceUnavailableException;
+import com.product.inventory.model.Product;
+import com.product.inventory.model.ProductCleanupRequest;
+import com.product.inventory.model.ProductCleanupStatus;
+import com.product.inventory.model.ProductCleanupStatus.State;
+import com.product.inventory.repositoty.ProductBulkRepository;
+import io.micrometer.core.annotation.Timed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Removes many products in the background, given by id or all products out of stock for some days,
+ * optionally moving them to the product_archive table.
+ * Products are removed in chunks of {@code inventory.cleanup.chunk-size}. Every chunk is one set-based statement
+ * committed on its own, so no transaction or lock is held for the whole cleanup and a failed cleanup keeps what
+ * it removed so far. Cleanups run one at a time, their progress is kept for the last
+ * {@code inventory.cleanup.retained} cleanups.
+ */
+@Service
+@Timed(MetricsConfig.SERVICE_TIMER)
+public class ProductCleanupService implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductCleanupService.class);
+
+    private final ProductBulkRepository bulkRepo;
+    private final ApplicationEventPublisher eventPublisher;
+    private final QuantityWriteBehind quantityWriteBehind;
+    private final int chunkSize;
+    private final Duration chunkPause;
+    private final int maxIds;
+    private final int retained;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<String, Cleanup> cleanups = new LinkedHashMap<>();
+    private ExecutorService worker;
+    private volatile boolean running;
+
+    /**
+     * @param chunkPause : pause between chunks, leaves room for other writers and replicas to keep up
+     * @param maxIds     : max number of ids in one cleanup
+     * @param retained   : number of cleanups whose progress is kept
+     */
+    public ProductCleanupService(ProductBulkRepository bulkRepo, ApplicationEventPublisher eventPublisher,
+                                 QuantityWriteBehind quantityWriteBehind,
+                                 @Value("${inventory.cleanup.chunk-size:5000}") int chunkSize,
+                                 @Value("${inventory.cleanup.chunk-pause:10ms}") Duration chunkPause,
+                                 @Value("${inventory.cleanup.max-ids:1000000}") int maxIds,
+                                 @Value("${inventory.cleanup.retained:100}") int retained) {
+        this.bulkRepo = bulkRepo;
+        this.eventPublisher = eventPublisher;
+        this.quantityWriteBehind = quantityWriteBehind;
+        this.chunkSize = chunkSize;
+        this.chunkPause = chunkPause;
+        this.maxIds = maxIds;
+        this.retained = retained;
+    }
+
+    /**
+     * Queues a cleanup, it starts once earlier cleanups are done
+     *
+     * @return status of the queued cleanup
+     */
+    public ProductCleanupStatus submit(ProductCleanupRequest request) {
+        validate(request);
+        Cleanup cleanup = new Cleanup(UUID.randomUUID().toString(), request);
+        lock.lock();
+        try {
+            if (!running) {
+                throw new ServiceUnavailableException("Cleanups are not accepted now");
+            }
+            cleanups.put(cleanup.id, cleanup);
+            evictFinished();
+            worker.execute(() -> run(cleanup));
+        } finally {
+            lock.unlock();
+        }
+        return cleanup.status();
+    }
+
+    /**
+     * Throws Resource not found exception when the cleanup is unknown or no longer retained
+     *
+     * @param id : id returned when the cleanup was submitted
+     */
+    public ProductCleanupStatus getStatus(String id) {
+        lock.lock();
+        try {
+            Cleanup cleanup = cleanups.get(id);
+            if (cleanup == null) {
+                throw new ResourceNotFoundException("Cleanup not found");
+            }
+            return cleanup.status();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void validate(ProductCleanupRequest request) {
+        if (request == null || (request.getIds() == null) == (request.getOutOfStockDays() == null)) {
+            throw new InvalidRequestException("Exactly one of ids and outOfStockDays must be given");
+        }
+        if (request.getIds() != null) {
+            if (request.getIds().isEmpty() || request.getIds().stream().anyMatch(Objects::isNull)) {
+                throw new InvalidRequestException("Ids can not be empty or null");
+            }
+            if (request.getIds().size() > maxIds) {
+                throw new InvalidRequestException("At most " + maxIds + " ids are allowed in one cleanup");
+            }
+        } else if (request.getOutOfStockDays() < 0) {
+            throw new InvalidRequestException("OutOfStockDays must be greater than or equal to 0");
+        }
+    }
+
+    private void evictFinished() {
+        Iterator<Cleanup> oldestFirst = cleanups.values().iterator();
+        int excess = cleanups.size() - retained;
+        while (excess > 0 && oldestFirst.hasNext()) {
+            if (oldestFirst.next().isFinished()) {
+                oldestFirst.remove();
+                excess--;
+            }
+        }
+    }
+
+    private void run(Cleanup cleanup) {
+        cleanup.start();
+        log.info("Cleanup {} started: {}", cleanup.id, cleanup.describe());
+        try {
+            // pending write-behind quantities first: a product restocked meanwhile is kept, archived rows are current
+            quantityWriteBehind.flushIfPending();
+            if (cleanup.byIds) {
+                removeByIds(cleanup);
+            } else {
+                removeOutOfStock(cleanup);
+            }
+            cleanup.finish(State.COMPLETED, null);
+            log.info("Cleanup {} completed: {} products removed in {} chunks", cleanup.id, cleanup.removed,
+                    cleanup.chunks);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cleanup.finish(State.FAILED, "Interrupted by shutdown");
+            log.warn("Cleanup {} interrupted after {} products", cleanup.id, cleanup.removed);
+        } catch (RuntimeException e) {
+            cleanup.finish(State.FAILED, e.getMessage());
+            log.warn("Cleanup {} failed after {} products", cleanup.id, cleanup.removed, e);
+        }
+    }
+
+    private void removeByIds(Cleanup cleanup) throws InterruptedException {
+        // id order keeps every chunk on a narrow range of the primary key index
+        Long[] ids = cleanup.takeIds().stream().distinct().sorted().toArray(Long[]::new);
+        cleanup.total = (long) ids.length;
+        for (int from = 0; from < ids.length; from += chunkSize) {
+            if (from > 0) {
+                pause();
+            }
+            Long[] chunk = Arrays.copyOfRange(ids, from, Math.min(from + chunkSize, ids.length));
+            removed(cleanup, bulkRepo.deleteByIds(chunk, cleanup.archive));
+        }
+    }
+
+    private void removeOutOfStock(Cleanup cleanup) throws InterruptedException {
+        // fixed when the cleanup starts, products running out of stock meanwhile are not removed
+        Instant cutoff = Instant.now().minus(Duration.ofDays(cleanup.outOfStockDays));
+        cleanup.total = bulkRepo.countOutOfStockSince(cutoff);
+        List<Product> removed;
+        do {
+            if (cleanup.chunks > 0) {
+                pause();
+            }
+            removed = bulkRepo.deleteOutOfStockSince(cutoff, chunkSize, cleanup.archive);
+            removed(cleanup, removed);
+        } while (removed.size() == chunkSize);
+    }
+
+    private void removed(Cleanup cleanup, List<Product> products) {
+        // published after every committed chunk, so caches and in-memory views follow the cleanup
+        products.forEach(product -> eventPublisher.publishEvent(ProductChangeEvent.deleted(product)));
+        cleanup.removed += products.size();
+        cleanup.chunks++;
+    }
+
+    private void pause() throws InterruptedException {
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+        if (!chunkPause.isZero()) {
+            Thread.sleep(chunkPause.toMillis());
+        }
+    }
+
+    @Override
+    public void start() {
+        lock.lock();
+        try {
+            worker = Executors.newSingleThreadExecutor(r -> {
+                Thread thread = new Thread(r, "product-cleanup");
+                thread.setDaemon(true);
+                return thread;
+            });
+            running = true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Interrupts the running cleanup between two chunks, queued cleanups are dropped
+     */
+    @Override
+    public void stop() {
+        lock.lock();
+        try {
+            running = false;
+            worker.shutdownNow();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            worker.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Progress of one cleanup, only changed by the worker thread
+     */
+    private static class Cleanup {
+
+        private final String id;
+        private final boolean byIds;
+        private final int idCount;
+        private final Integer outOfStockDays;
+        private final boolean archive;
+        // released once the cleanup runs, retained cleanups only keep their progress
+        private List<Long> ids;
+        private volatile State state = State.QUEUED;
+        private volatile Long total;
+        private volatile long removed;
+        private volatile int chunks;
+        private volatile Instant startedAt;
+        private volatile long startNanos;
+        private volatile Instant finishedAt;
+        private volatile long finishNanos;
+        private volatile String error;
+
+        Cleanup(String id, ProductCleanupRequest request) {
+            this.id = id;
+            this.byIds = request.getIds() != null;
+            this.idCount = byIds ? request.getIds().size() : 0;
+            this.outOfStockDays = request.getOutOfStockDays();
+            this.archive = request.isArchive();
+            this.ids = request.getIds();
+        }
+
+        List<Long> takeIds() {
+            List<Long> taken = ids;
+            ids = null;
+            return taken;
+        }
+
+        void start() {
+            startedAt = Instant.now();
+            startNanos = System.nanoTime();
+            state = State.RUNNING;
+        }
+
+        void finish(State state, String error) {
+            finishedAt = Instant.now();
+            finishNanos = System.nanoTime();
+            this.error = error;
+            this.state = state;
+        }
+
+        boolean isFinished() {
+            return state == State.COMPLETED || state == State.FAILED;
+        }
+
+        String describe() {
+            String products = byIds ? idCount + " ids" : "out of stock for " + outOfStockDays + " days";
+            return products + (archive ? ", archived" : "");
+        }
+
+        ProductCleanupStatus status() {
+            State state = this.state;
+            long removed = this.removed;
+            long millis = 0;
+            if (state != State.QUEUED) {
+                millis = ((state == State.RUNNING ? System.nanoTime() : finishNanos) - startNanos) / 1_000_000;
+            }
+            long notFound = state == State.COMPLETED && byIds ? Objects.requireNonNull(total) - removed : 0;
+            return new ProductCleanupStatus(id, state, archive, total, removed, notFound, chunks,
+                    startedAt, finishedAt, millis, removed * 1000 / Math.max(millis, 1), error);
+        }
+    }
+}
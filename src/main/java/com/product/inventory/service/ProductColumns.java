@@ -0,0 +1,433 @@
+package com.product.inventory.service;
+
+import com.product.inventory.model.PriceBucket;
+import com.product.inventory.model.ProductFilter;
+import com.product.inventory.model.ProductRanking;
+import com.product.inventory.model.ProductStats;
+import com.product.inventory.model.RankedProduct;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+/**
+ * Column-wise copy of the product table: ids, quantities, prices in cents and dictionary codes of names,
+ * each in a primitive array ordered by id.
+ * Queries are plain loops over the arrays without an object per product. Large tables are split
+ * into chunks which are scanned in parallel and merged, a name filter is evaluated once per distinct name.
+ * A removed product is only marked as deleted, the rows are compacted in one pass once a quarter of them
+ * are deleted, so removing products one by one costs no array shift each. New products nearly always have
+ * the highest id and are appended.
+ * Not thread-safe, {@link ProductAnalytics} guards it.
+ */
+public class ProductColumns {
+
+    private static final int PRICE_SCALE = 2;
+    private static final int CHUNK_SIZE = 1 << 16;
+    private static final BigDecimal MAX_CENTS = BigDecimal.valueOf(Long.MAX_VALUE);
+    // name code of a removed product, its row stays in place until the next compaction
+    private static final int DELETED = -1;
+
+    private long[] ids;
+    private int[] quantities;
+    private long[] prices;
+    private int[] nameCodes;
+    // rows in the arrays, including the deleted ones
+    private int size;
+    private int deleted;
+
+    // names are only added, deleted products leave their name until the next load
+    private final List<String> names = new ArrayList<>();
+    private final Map<String, Integer> codes = new HashMap<>();
+
+    public ProductColumns(int initialCapacity) {
+        int capacity = Math.max(initialCapacity, 16);
+        ids = new long[capacity];
+        quantities = new int[capacity];
+        prices = new long[capacity];
+        nameCodes = new int[capacity];
+    }
+
+    /**
+     * @return number of products
+     */
+    public int size() {
+        return size - deleted;
+    }
+
+    /**
+     * Adds a product or replaces the values of an existing one
+     */
+    public void put(long id, String name, int quantity, BigDecimal price) {
+        int index = indexOf(id);
+        if (index < 0) {
+            index = -index - 1;
+            ensureCapacity(size + 1);
+            if (index < size) {
+                int moved = size - index;
+                System.arraycopy(ids, index, ids, index + 1, moved);
+                System.arraycopy(quantities, index, quantities, index + 1, moved);
+                System.arraycopy(prices, index, prices, index + 1, moved);
+                System.arraycopy(nameCodes, index, nameCodes, index + 1, moved);
+            }
+            ids[index] = id;
+            size++;
+        } else if (nameCodes[index] == DELETED) {
+            deleted--;
+        }
+        quantities[index] = quantity;
+        prices[index] = price.setScale(PRICE_SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+        nameCodes[index] = codes.computeIfAbsent(name, n -> {
+            names.add(n);
+            return names.size() - 1;
+        });
+    }
+
+    public void remove(long id) {
+        int index = indexOf(id);
+        if (index >= 0 && nameCodes[index] != DELETED) {
+            nameCodes[index] = DELETED;
+            deleted++;
+            if (deleted > size / 4) {
+                compact();
+            }
+        }
+    }
+
+    public ProductStats stats(ProductFilter filter) {
+        Stats stats = scan(filter, Stats::new);
+        if (stats.products == 0) {
+            return new ProductStats(0, 0, BigDecimal.ZERO, null, null, null);
+        }
+        BigDecimal averagePrice = new BigDecimal(stats.priceSum.toBigInteger())
+                .divide(BigDecimal.valueOf(stats.products), 0, RoundingMode.HALF_UP)
+                .movePointLeft(PRICE_SCALE);
+        return new ProductStats(stats.products, stats.totalQuantity,
+                new BigDecimal(stats.stockValue.toBigInteger(), PRICE_SCALE),
+                BigDecimal.valueOf(stats.minPrice, PRICE_SCALE), BigDecimal.valueOf(stats.maxPrice, PRICE_SCALE),
+                averagePrice);
+    }
+
+    /**
+     * Splits the price range of the matching products into equal buckets
+     *
+     * @param buckets : number of buckets, fewer are returned when the range has fewer cents
+     */
+    public List<PriceBucket> priceHistogram(ProductFilter filter, int buckets) {
+        Stats range = scan(filter, Stats::new);
+        if (range.products == 0) {
+            return List.of();
+        }
+        long min = range.minPrice;
+        // ceiling of the range divided by buckets, the highest price falls into the last bucket
+        long width = Math.max(1, (range.maxPrice - min) / buckets + 1);
+        int count = (int) Math.min(buckets, (range.maxPrice - min) / width + 1);
+        Histogram histogram = scan(filter, matcher -> new Histogram(matcher, min, width, count));
+
+        List<PriceBucket> result = new ArrayList<>(count);
+        for (int b = 0; b < count; b++) {
+            result.add(new PriceBucket(BigDecimal.valueOf(min + b * width, PRICE_SCALE),
+                    BigDecimal.valueOf(min + (b + 1) * width, PRICE_SCALE),
+                    histogram.products[b], histogram.quantities[b]));
+        }
+        return result;
+    }
+
+    /**
+     * @return at most limit matching products, highest first, ties ordered by id
+     */
+    public List<RankedProduct> top(ProductFilter filter, ProductRanking ranking, int limit) {
+        Comparator<Integer> order = ranking == ProductRanking.QUANTITY
+                ? Comparator.comparingInt((Integer i) -> quantities[i])
+                : (i, j) -> compareStockValue(i, j);
+        // highest first, lower id first among equals
+        Comparator<Integer> best = order.reversed().thenComparingLong(i -> ids[i]);
+        Top top = scan(filter, matcher -> new Top(matcher, best, limit));
+
+        List<Integer> rows = new ArrayList<>(top.rows);
+        rows.sort(best);
+        List<RankedProduct> result = new ArrayList<>(rows.size());
+        for (int i : rows) {
+            BigDecimal price = BigDecimal.valueOf(prices[i], PRICE_SCALE);
+            result.add(new RankedProduct(ids[i], names.get(nameCodes[i]), quantities[i], price,
+                    price.multiply(BigDecimal.valueOf(quantities[i]))));
+        }
+        return result;
+    }
+
+    private int indexOf(long id) {
+        // new products almost always have the highest id
+        if (size == 0 || ids[size - 1] < id) {
+            return -(size + 1);
+        }
+        return Arrays.binarySearch(ids, 0, size, id);
+    }
+
+    /**
+     * Drops the rows of deleted products, keeping the others in order
+     */
+    private void compact() {
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            if (nameCodes[i] != DELETED) {
+                ids[kept] = ids[i];
+                quantities[kept] = quantities[i];
+                prices[kept] = prices[i];
+                nameCodes[kept] = nameCodes[i];
+                kept++;
+            }
+        }
+        size = kept;
+        deleted = 0;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > ids.length) {
+            int grown = Math.max(capacity, ids.length + (ids.length >> 1));
+            ids = Arrays.copyOf(ids, grown);
+            quantities = Arrays.copyOf(quantities, grown);
+            prices = Arrays.copyOf(prices, grown);
+            nameCodes = Arrays.copyOf(nameCodes, grown);
+        }
+    }
+
+    private int compareStockValue(int i, int j) {
+        long high = Math.multiplyHigh(quantities[i], prices[i]);
+        long otherHigh = Math.multiplyHigh(quantities[j], prices[j]);
+        return high != otherHigh
+                ? Long.compare(high, otherHigh)
+                : Long.compareUnsigned(quantities[i] * prices[i], quantities[j] * prices[j]);
+    }
+
+    /**
+     * Runs a scan over every chunk, in parallel when there is more than one, and merges the results
+     */
+    private <T extends Scan<T>> T scan(ProductFilter filter, Function<Matcher, T> factory) {
+        Matcher matcher = new Matcher(filter);
+        int chunks = (size + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        if (chunks <= 1) {
+            T result = factory.apply(matcher);
+            result.scan(0, size);
+            return result;
+        }
+        return IntStream.range(0, chunks).parallel()
+                .mapToObj(c -> {
+                    T result = factory.apply(matcher);
+                    result.scan(c * CHUNK_SIZE, Math.min(size, (c + 1) * CHUNK_SIZE));
+                    return result;
+                })
+                .reduce(Scan::merge)
+                .orElseThrow();
+    }
+
+    /**
+     * Filter converted to the representation of the columns
+     */
+    private class Matcher {
+
+        private final int minQuantity;
+        private final int maxQuantity;
+        private final long minPrice;
+        private final long maxPrice;
+        // indexed by name code, null when names are not filtered
+        private final boolean[] names;
+
+        Matcher(ProductFilter filter) {
+            minQuantity = filter.getMinQuantity() == null ? Integer.MIN_VALUE : filter.getMinQuantity();
+            maxQuantity = filter.getMaxQuantity() == null ? Integer.MAX_VALUE : filter.getMaxQuantity();
+            minPrice = filter.getMinPrice() == null ? Long.MIN_VALUE : cents(filter.getMinPrice(), RoundingMode.CEILING);
+            maxPrice = filter.getMaxPrice() == null ? Long.MAX_VALUE : cents(filter.getMaxPrice(), RoundingMode.FLOOR);
+            if (filter.getName() == null || filter.getName().isBlank()) {
+                names = null;
+            } else {
+                String text = filter.getName().toLowerCase(Locale.ROOT);
+                names = new boolean[ProductColumns.this.names.size()];
+                for (int code = 0; code < names.length; code++) {
+                    names[code] = ProductColumns.this.names.get(code).toLowerCase(Locale.ROOT).contains(text);
+                }
+            }
+        }
+
+        boolean matches(int i) {
+            int quantity = quantities[i];
+            long price = prices[i];
+            int nameCode = nameCodes[i];
+            return quantity >= minQuantity & quantity <= maxQuantity & price >= minPrice & price <= maxPrice
+                    & nameCode != DELETED && (names == null || names[nameCode]);
+        }
+
+        private static long cents(BigDecimal price, RoundingMode rounding) {
+            BigDecimal cents = price.setScale(PRICE_SCALE, rounding).movePointRight(PRICE_SCALE);
+            return cents.min(MAX_CENTS).max(MAX_CENTS.negate()).longValue();
+        }
+    }
+
+    private abstract static class Scan<T extends Scan<T>> {
+
+        protected final Matcher matcher;
+
+        Scan(Matcher matcher) {
+            this.matcher = matcher;
+        }
+
+        abstract void scan(int from, int to);
+
+        abstract T merge(T other);
+    }
+
+    private class Stats extends Scan<Stats> {
+
+        private long products;
+        private long totalQuantity;
+        private final Int128 stockValue = new Int128();
+        private final Int128 priceSum = new Int128();
+        private long minPrice = Long.MAX_VALUE;
+        private long maxPrice = Long.MIN_VALUE;
+
+        Stats(Matcher matcher) {
+            super(matcher);
+        }
+
+        @Override
+        void scan(int from, int to) {
+            for (int i = from; i < to; i++) {
+                if (matcher.matches(i)) {
+                    long price = prices[i];
+                    products++;
+                    totalQuantity += quantities[i];
+                    stockValue.addProduct(quantities[i], price);
+                    priceSum.add(price);
+                    minPrice = Math.min(minPrice, price);
+                    maxPrice = Math.max(maxPrice, price);
+                }
+            }
+        }
+
+        @Override
+        Stats merge(Stats other) {
+            products += other.products;
+            totalQuantity += other.totalQuantity;
+            stockValue.add(other.stockValue);
+            priceSum.add(other.priceSum);
+            minPrice = Math.min(minPrice, other.minPrice);
+            maxPrice = Math.max(maxPrice, other.maxPrice);
+            return this;
+        }
+    }
+
+    private class Histogram extends Scan<Histogram> {
+
+        private final long min;
+        private final long width;
+        private final long[] products;
+        private final long[] quantities;
+
+        Histogram(Matcher matcher, long min, long width, int buckets) {
+            super(matcher);
+            this.min = min;
+            this.width = width;
+            this.products = new long[buckets];
+            this.quantities = new long[buckets];
+        }
+
+        @Override
+        void scan(int from, int to) {
+            for (int i = from; i < to; i++) {
+                if (matcher.matches(i)) {
+                    int bucket = (int) ((prices[i] - min) / width);
+                    products[bucket]++;
+                    quantities[bucket] += ProductColumns.this.quantities[i];
+                }
+            }
+        }
+
+        @Override
+        Histogram merge(Histogram other) {
+            for (int b = 0; b < products.length; b++) {
+                products[b] += other.products[b];
+                quantities[b] += other.quantities[b];
+            }
+            return this;
+        }
+    }
+
+    private static class Top extends Scan<Top> {
+
+        private final Comparator<Integer> best;
+        private final int limit;
+        // worst row on top, so it is the one replaced
+        private final PriorityQueue<Integer> rows;
+
+        Top(Matcher matcher, Comparator<Integer> best, int limit) {
+            super(matcher);
+            this.best = best;
+            this.limit = limit;
+            this.rows = new PriorityQueue<>(limit + 1, best.reversed());
+        }
+
+        @Override
+        void scan(int from, int to) {
+            for (int i = from; i < to; i++) {
+                if (matcher.matches(i)) {
+                    offer(i);
+                }
+            }
+        }
+
+        @Override
+        Top merge(Top other) {
+            other.rows.forEach(this::offer);
+            return this;
+        }
+
+        private void offer(int row) {
+            if (rows.size() < limit) {
+                rows.add(row);
+            } else if (best.compare(row, rows.peek()) < 0) {
+                rows.poll();
+                rows.add(row);
+            }
+        }
+    }
+
+    /**
+     * Signed 128 bit sum, sums of quantity * price in cents do not always fit into a long
+     */
+    private static class Int128 {
+
+        private long high;
+        private long low;
+
+        void addProduct(long a, long b) {
+            add(Math.multiplyHigh(a, b), a * b);
+        }
+
+        void add(long value) {
+            add(value >> 63, value);
+        }
+
+        void add(Int128 other) {
+            add(other.high, other.low);
+        }
+
+        private void add(long otherHigh, long otherLow) {
+            long sum = low + otherLow;
+            high += otherHigh + (Long.compareUnsigned(sum, otherLow) < 0 ? 1 : 0);
+            low = sum;
+        }
+
+        BigInteger toBigInteger() {
+            return BigInteger.valueOf(high).shiftLeft(64).add(new BigInteger(Long.toUnsignedString(low)));
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.product.inventory.service;
+
+import com.product.inventory.exception.InvalidRequestException;
+import com.product.inventory.model.Product;
+import com.product.inventory.model.ProductSortKey;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Position in a cursor paginated listing: sort order plus sort key value and id of the last listed product.
+ * Clients get it as an opaque url-safe token.
+ */
+final class ProductCursor {
+
+    private static final String SEPARATOR = "\n";
+
+    private final ProductSortKey sortKey;
+    private final boolean descending;
+    private final Long lastId;
+    private final Object lastValue;
+
+    private ProductCursor(ProductSortKey sortKey, boolean descending, Long lastId, Object lastValue) {
+        this.sortKey = sortKey;
+        this.descending = descending;
+        this.lastId = lastId;
+        this.lastValue = lastValue;
+    }
+
+    static ProductCursor after(Product product, ProductSortKey sortKey, boolean descending) {
+        return new ProductCursor(sortKey, descending, product.getId(), sortKey.valueOf(product));
+    }
+
+    ProductSortKey getSortKey() {
+        return sortKey;
+    }
+
+    boolean isDescending() {
+        return descending;
+    }
+
+    Long getLastId() {
+        return lastId;
+    }
+
+    Object getLastValue() {
+        return lastValue;
+    }
+
+    String encode() {
+        // value goes last, it is the only part which may contain the separator
+        String raw = sortKey + SEPARATOR + (descending ? "desc" : "asc") + SEPARATOR + lastId + SEPARATOR + lastValue;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static ProductCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split(SEPARATOR, 4);
+            ProductSortKey sortKey = ProductSortKey.valueOf(parts[0]);
+            return new ProductCursor(sortKey, "desc".equals(parts[1]), Long.valueOf(parts[2]), sortKey.parse(parts[3]));
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+            throw new InvalidRequestException("Invalid cursor");
+        }
+    }
+}
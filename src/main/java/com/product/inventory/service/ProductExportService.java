@@ -0,0 +1,111 @@
+package com.product.inventory.service;
+
+import com.product.inventory.configuration.MetricsConfig;
+import com.product.inventory.model.Product;
+import com.product.inventory.model.ProductFeedFormat;
+import com.product.inventory.repositoty.ProductRepository;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import tools.jackson.databind.ObjectMapper;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes the whole catalog to an output stream.
+ * Products are read through a forward-only database cursor and written as they arrive,
+ * so a full export is a single query and memory use does not depend on the catalog size.
+ */
+@Service
+@Timed(MetricsConfig.SERVICE_TIMER)
+public class ProductExportService {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final byte[] NEW_LINE = {'\n'};
+    private static final byte[] CSV_HEADER = "id,name,quantity,price\n".getBytes(StandardCharsets.UTF_8);
+
+    private final ProductRepository repo;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate readOnlyTransaction;
+    private final int fetchSize;
+
+    public ProductExportService(ProductRepository repo, ObjectMapper objectMapper,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${inventory.export.fetch-size:1000}") int fetchSize) {
+        this.repo = repo;
+        this.objectMapper = objectMapper;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Writes all products ordered by id, one product per line or record
+     *
+     * @param out    : stream to write to, it is not closed
+     * @param format : JSON lines, CSV with header line or binary
+     * @param gzip   : compress written data with gzip
+     * @return number of exported products
+     */
+    public long exportProducts(OutputStream out, ProductFeedFormat format, boolean gzip) throws IOException {
+        GZIPOutputStream gzipOut = gzip ? new GZIPOutputStream(out, BUFFER_SIZE) : null;
+        OutputStream target = new BufferedOutputStream(gzip ? gzipOut : out, BUFFER_SIZE);
+        if (format == ProductFeedFormat.CSV) {
+            target.write(CSV_HEADER);
+        }
+        ProductBinaryWriter binaryWriter = format == ProductFeedFormat.BINARY ? new ProductBinaryWriter(target) : null;
+        // a PostgreSQL cursor only fetches rows in chunks inside a transaction
+        Long count = readOnlyTransaction.execute(status -> {
+            try (Stream<Product> products = repo.streamAll(fetchSize)) {
+                long written = 0;
+                Iterator<Product> iterator = products.iterator();
+                while (iterator.hasNext()) {
+                    if (binaryWriter != null) {
+                        binaryWriter.write(iterator.next());
+                    } else {
+                        writeProduct(target, iterator.next(), format);
+                    }
+                    written++;
+                }
+                if (binaryWriter != null) {
+                    binaryWriter.flush();
+                }
+                return written;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        target.flush();
+        if (gzipOut != null) {
+            gzipOut.finish();
+        }
+        return count == null ? 0 : count;
+    }
+
+    private void writeProduct(OutputStream out, Product product, ProductFeedFormat format) throws IOException {
+        if (format == ProductFeedFormat.CSV) {
+            String line = product.getId() + "," + csvField(product.getName()) + "," + product.getQuantity() + ","
+                    + product.getPrice().toPlainString() + "\n";
+            out.write(line.getBytes(StandardCharsets.UTF_8));
+        } else {
+            out.write(objectMapper.writeValueAsBytes(product));
+            out.write(NEW_LINE);
+        }
+    }
+
+    private String csvField(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,229 @@
+package com.product.inventory.service;
+
+import com.product.inventory.configuration.MetricsConfig;
+import com.product.inventory.event.ProductChangeEvent;
+import com.product.inventory.exception.InvalidRequestException;
+import com.product.inventory.model.ImportError;
+import com.product.inventory.model.ImportReport;
+import com.product.inventory.model.Product;
+import com.product.inventory.model.ProductFeedFormat;
+import com.product.inventory.repositoty.ProductBulkRepository;
+import io.micrometer.core.annotation.Timed;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import tools.jackson.core.JacksonException;
+import tools.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Imports products from a JSON lines or CSV stream.
+ * The body is read line by line, every row is validated on its own and valid rows are written
+ * in batches of {@code inventory.import.batch-size}, so memory use does not depend on the feed size.
+ * Each batch is committed separately, rows of already written batches stay imported when a later row fails.
+ */
+@Service
+@Timed(MetricsConfig.SERVICE_TIMER)
+public class ProductImportService {
+
+    private final ProductBulkRepository bulkRepo;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int batchSize;
+    private final int maxReportedErrors;
+
+    public ProductImportService(ProductBulkRepository bulkRepo, ObjectMapper objectMapper, Validator validator,
+                                ApplicationEventPublisher eventPublisher,
+                                @Value("${inventory.import.batch-size:1000}") int batchSize,
+                                @Value("${inventory.import.max-reported-errors:1000}") int maxReportedErrors) {
+        this.bulkRepo = bulkRepo;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.eventPublisher = eventPublisher;
+        this.batchSize = batchSize;
+        this.maxReportedErrors = maxReportedErrors;
+    }
+
+    /**
+     * Imports all products from given stream
+     *
+     * @param body   : one product per line, CSV needs a header line with name, quantity and price columns
+     * @param format : format of the body
+     * @return report with imported and rejected row counts
+     */
+    public ImportReport importProducts(InputStream body, ProductFeedFormat format) throws IOException {
+        long start = System.nanoTime();
+        ImportRun run = new ImportRun();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+
+        CsvColumns columns = null;
+        if (format == ProductFeedFormat.CSV) {
+            run.line++;
+            columns = CsvColumns.of(reader.readLine());
+        }
+        String line;
+        while ((line = reader.readLine()) != null) {
+            run.line++;
+            if (line.isBlank()) {
+                continue;
+            }
+            run.received++;
+            Product product = parse(line, columns, run);
+            if (product != null && isValid(product, run)) {
+                run.batch.add(product);
+                if (run.batch.size() >= batchSize) {
+                    flush(run);
+                }
+            }
+        }
+        flush(run);
+
+        long durationMillis = (System.nanoTime() - start) / 1_000_000;
+        long rowsPerSecond = durationMillis == 0 ? run.imported : run.imported * 1000 / durationMillis;
+        return new ImportReport(run.received, run.imported, run.rejected, durationMillis, rowsPerSecond,
+                List.copyOf(run.errors));
+    }
+
+    private Product parse(String line, CsvColumns columns, ImportRun run) {
+        try {
+            Product product = columns == null ? objectMapper.readValue(line, Product.class) : columns.parse(line);
+            // ids are always generated by database
+            product.setId(null);
+            return product;
+        } catch (JacksonException e) {
+            reject(run, "Invalid JSON: " + e.getOriginalMessage());
+        } catch (NumberFormatException e) {
+            reject(run, "Invalid number: " + e.getMessage());
+        } catch (IllegalArgumentException e) {
+            reject(run, e.getMessage());
+        }
+        return null;
+    }
+
+    private boolean isValid(Product product, ImportRun run) {
+        Set<ConstraintViolation<Product>> violations = validator.validate(product);
+        if (violations.isEmpty()) {
+            return true;
+        }
+        reject(run, violations.stream()
+                .map(v -> v.getPropertyPath() + ": " + v.getMessage())
+                .sorted()
+                .collect(Collectors.joining(", ")));
+        return false;
+    }
+
+    private void reject(ImportRun run, String message) {
+        run.rejected++;
+        if (run.errors.size() < maxReportedErrors) {
+            run.errors.add(new ImportError(run.line, message));
+        }
+    }
+
+    private void flush(ImportRun run) {
+        if (run.batch.isEmpty()) {
+            return;
+        }
+        List<Product> inserted = bulkRepo.insertAll(run.batch);
+        inserted.forEach(p -> eventPublisher.publishEvent(ProductChangeEvent.created(p)));
+        run.imported += inserted.size();
+        run.batch.clear();
+    }
+
+    /**
+     * Mutable state of a single import
+     */
+    private final class ImportRun {
+        private final List<Product> batch = new ArrayList<>(batchSize);
+        private final List<ImportError> errors = new ArrayList<>();
+        private long line;
+        private long received;
+        private long imported;
+        private long rejected;
+    }
+
+    /**
+     * Positions of product fields in CSV rows, read from the header line
+     */
+    private static final class CsvColumns {
+        private final int name;
+        private final int quantity;
+        private final int price;
+
+        private CsvColumns(int name, int quantity, int price) {
+            this.name = name;
+            this.quantity = quantity;
+            this.price = price;
+        }
+
+        static CsvColumns of(String header) {
+            List<String> columns = header == null ? List.of() : splitCsv(header).stream()
+                    .map(c -> c.trim().toLowerCase(Locale.ROOT))
+                    .toList();
+            int name = columns.indexOf("name");
+            int quantity = columns.indexOf("quantity");
+            int price = columns.indexOf("price");
+            if (name < 0 || quantity < 0 || price < 0) {
+                throw new InvalidRequestException("CSV header must contain name, quantity and price columns");
+            }
+            return new CsvColumns(name, quantity, price);
+        }
+
+        Product parse(String line) {
+            List<String> fields = splitCsv(line);
+            if (fields.size() <= Math.max(name, Math.max(quantity, price))) {
+                throw new IllegalArgumentException("Expected " + (Math.max(name, Math.max(quantity, price)) + 1)
+                        + " columns but found " + fields.size());
+            }
+            Product product = new Product();
+            product.setName(fields.get(name));
+            product.setQuantity(Integer.valueOf(fields.get(quantity).trim()));
+            product.setPrice(new BigDecimal(fields.get(price).trim()));
+            return product;
+        }
+
+        /**
+         * Splits a CSV line, fields may be quoted with " and quotes inside them doubled
+         */
+        static List<String> splitCsv(String line) {
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            for (int i = 0; i < line.length(); i++) {
+                char c = line.charAt(i);
+                if (quoted) {
+                    if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        field.append('"');
+                        i++;
+                    } else if (c == '"') {
+                        quoted = false;
+                    } else {
+                        field.append(c);
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else {
+                    field.append(c);
+                }
+            }
+            fields.add(field.toString());
+            return fields;
+        }
+    }
+}
@@ -1,6 +1,11 @@
 package com.product.inventory.service;
 
+import com.product.inventory.model.LowStockPage;
 import com.product.inventory.model.Product;
+import com.product.inventory.model.ProductCursorPage;
+import com.product.inventory.model.ProductSortKey;
+import com.product.inventory.model.StockUpdate;
+import com.product.inventory.model.StockUpdateReport;
 import org.springframework.data.domain.Pageable;
 
 import java.util.List;
@@ -10,16 +15,32 @@ public interface ProductService {
 
     Product createProduct(Product product);
 
+    Product getProductById(Long id);
+
     List<Product> getAllProducts(Pageable pageable);
 
+    ProductCursorPage getProductsAfter(String cursor, ProductSortKey sortKey, boolean descending, int size);
+
     boolean existsById(Long id);
 
     List<Product> searchByName(String name);
 
+    List<Product> searchByName(String name, Pageable pageable);
+
     Product updateQuantity(Long id, Integer quantity);
 
+    Product updateQuantity(Long id, Integer quantity, Long expectedVersion);
+
+    Product adjustQuantity(Long id, int delta);
+
+    StockUpdateReport updateQuantities(List<StockUpdate> updates);
+
     void deleteProduct(Long id);
 
     Map<String, Object> getInventorySummary();
 
+    Map<String, Object> getInventorySummary(boolean forceRefresh);
+
+    LowStockPage getOutOfStockProducts(boolean includeLowStock, Pageable pageable);
+
 }
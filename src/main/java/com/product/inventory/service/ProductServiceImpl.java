@@ -1,10 +1,26 @@
 package com.product.inventory.service;
 
+import com.product.inventory.configuration.Coalesced;
+import com.product.inventory.configuration.MetricsConfig;
+import com.product.inventory.configuration.ReadFromReplica;
+import com.product.inventory.event.ProductChangeEvent;
+import com.product.inventory.exception.PreconditionFailedException;
 import com.product.inventory.exception.ResourceNotFoundException;
+import com.product.inventory.model.InventorySummary;
+import com.product.inventory.model.LowStockPage;
 import com.product.inventory.model.OutOfStockProduct;
 import com.product.inventory.model.Product;
+import com.product.inventory.model.ProductCursorPage;
+import com.product.inventory.model.ProductSortKey;
+import com.product.inventory.model.StockUpdate;
+import com.product.inventory.model.StockUpdateReport;
+import com.product.inventory.repositoty.ProductBulkRepository;
+import com.product.inventory.repositoty.ProductBulkRepository.UpdatedQuantity;
 import com.product.inventory.repositoty.ProductRepository;
-import org.springframework.data.domain.Page;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
 import org.springframework.data.domain.Pageable;
@@ -17,14 +33,41 @@ import java.util.Map;
 /**
  * This class handles implementation logic for controller endpoints.
  * All methods are referenced directly by ProductController.
+ * Every call is timed as inventory.service, tagged with method name and exception.
+ * Listings and search are read from a read replica when replicas are configured, see {@link ReadFromReplica}.
+ * Products by id are read from the primary, so a client reads its own writes.
+ * Concurrent identical listings, searches and summaries share one execution, see {@link Coalesced}.
  */
 @Service
+@Timed(MetricsConfig.SERVICE_TIMER)
 public class ProductServiceImpl implements ProductService {
 
+    private static final int DEFAULT_SEARCH_LIMIT = 20;
+
     private final ProductRepository repo;
+    private final ProductBulkRepository bulkRepo;
+    private final ApplicationEventPublisher eventPublisher;
+    private final InventorySummaryEngine summaryEngine;
+    private final StockAdjustmentCombiner stockAdjustmentCombiner;
+    private final LowStockIndex lowStockIndex;
+    private final StockBatchUpdater stockBatchUpdater;
+    private final QuantityWriteBehind quantityWriteBehind;
+    private final ProductCache productCache;
 
-    public ProductServiceImpl(ProductRepository repo) {
+    public ProductServiceImpl(ProductRepository repo, ProductBulkRepository bulkRepo,
+                              ApplicationEventPublisher eventPublisher,
+                              InventorySummaryEngine summaryEngine, StockAdjustmentCombiner stockAdjustmentCombiner,
+                              LowStockIndex lowStockIndex, StockBatchUpdater stockBatchUpdater,
+                              QuantityWriteBehind quantityWriteBehind, ProductCache productCache) {
         this.repo = repo;
+        this.bulkRepo = bulkRepo;
+        this.eventPublisher = eventPublisher;
+        this.summaryEngine = summaryEngine;
+        this.stockAdjustmentCombiner = stockAdjustmentCombiner;
+        this.lowStockIndex = lowStockIndex;
+        this.stockBatchUpdater = stockBatchUpdater;
+        this.quantityWriteBehind = quantityWriteBehind;
+        this.productCache = productCache;
     }
 
     /**
@@ -35,16 +78,61 @@ public class ProductServiceImpl implements ProductService {
      */
     @Override
     public Product createProduct(Product product) {
-        return repo.save(product);
+        Product saved = repo.save(product);
+        eventPublisher.publishEvent(ProductChangeEvent.created(saved));
+        return saved;
+    }
+
+    /**
+     * Returns product with given id. Products are cached, writes put their new version
+     * through {@link ProductCache}.
+     * Throws Resource not found exception when product is not found
+     *
+     * @param id : id of the product
+     */
+    @Override
+    public Product getProductById(Long id) {
+        return productCache.get(id);
     }
 
     /**
      * @return All products in inventory
      */
     @Override
+    @ReadFromReplica
+    @Coalesced("listing")
     public List<Product> getAllProducts(Pageable pageable) {
-        Page<Product> page = repo.findAll(pageable);
-        return page.getContent();
+        return repo.findAllBy(pageable).getContent();
+    }
+
+    /**
+     * Lists products with cursor pagination.
+     * Cost of a page does not depend on how deep into the listing it is.
+     *
+     * @param cursor     : nextCursor of previous page, null for the first page
+     * @param sortKey    : sort order of the first page, later pages keep the order stored in cursor
+     * @param descending : sort direction of the first page
+     * @param size       : max number of products in page
+     */
+    @Override
+    @ReadFromReplica
+    @Coalesced("cursor")
+    public ProductCursorPage getProductsAfter(String cursor, ProductSortKey sortKey, boolean descending, int size) {
+        List<Product> products;
+        if (cursor == null || cursor.isBlank()) {
+            products = repo.findPage(sortKey, descending, null, null, size + 1);
+        } else {
+            ProductCursor position = ProductCursor.decode(cursor);
+            sortKey = position.getSortKey();
+            descending = position.isDescending();
+            products = repo.findPage(sortKey, descending, position.getLastValue(), position.getLastId(), size + 1);
+        }
+        if (products.size() <= size) {
+            return new ProductCursorPage(products, null);
+        }
+        List<Product> page = products.subList(0, size);
+        String nextCursor = ProductCursor.after(page.get(size - 1), sortKey, descending).encode();
+        return new ProductCursorPage(List.copyOf(page), nextCursor);
     }
 
     @Override
@@ -53,49 +141,141 @@ public class ProductServiceImpl implements ProductService {
     }
 
     /**
-     * Searches product by name. This is case-insensitive
+     * Searches product by name. This is case-insensitive.
+     * Returns first page of best matches
      *
      * @param name : product name to be searched for
      */
     @Override
+    @ReadFromReplica
+    @Coalesced("search")
     public List<Product> searchByName(String name) {
-        return repo.findByNameContainingIgnoreCase(name);
+        return searchByName(name, PageRequest.of(0, DEFAULT_SEARCH_LIMIT));
+    }
+
+    /**
+     * Searches product by name. This is case-insensitive.
+     * Best matches come first: exact name, then names starting with given name, then other names containing it
+     *
+     * @param name     : product name to be searched for
+     * @param pageable : page of matches to be returned, sort is ignored
+     */
+    @Override
+    @ReadFromReplica
+    @Coalesced(value = "search", key = "{#name, #pageable.offset, #pageable.pageSize}")
+    public List<Product> searchByName(String name, Pageable pageable) {
+        String pattern = name.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+        return repo.searchByName(name, pattern, pageable.getPageSize(), pageable.getOffset());
     }
 
     /**
      * Updates quantity of a given product.
+     * With write-behind enabled the update is journaled and written to database asynchronously.
      * Throws Resource not found exception when product is not found
      *
      * @param id : id of the product to be updated
      */
     @Override
     public Product updateQuantity(Long id, Integer quantity) {
+        return updateQuantity(id, quantity, null);
+    }
+
+    /**
+     * Updates quantity of a given product if it is still in the expected version.
+     * Without expected version the quantity is set with a single statement, which waits for concurrent updates
+     * of the product instead of failing, and the change event carries the quantity which was actually replaced.
+     * With write-behind enabled the update is journaled and its change published, the returned product carries
+     * the version it is written with. Conditional updates bypass write-behind, they write pending updates first.
+     * Throws Resource not found exception when product is not found and
+     * Precondition failed exception when it is in another version
+     *
+     * @param id              : id of the product to be updated
+     * @param expectedVersion : version the client has seen, null to update any version
+     */
+    @Override
+    public Product updateQuantity(Long id, Integer quantity, Long expectedVersion) {
+        if (expectedVersion == null && quantityWriteBehind.isEnabled()) {
+            UpdatedQuantity accepted = quantityWriteBehind.write(productCache.get(id), quantity);
+            // published once journaled, the flush does not publish it again
+            eventPublisher.publishEvent(ProductChangeEvent.quantityChanged(accepted.getProduct(),
+                    accepted.getOldQuantity()));
+            return accepted.getProduct();
+        }
+        quantityWriteBehind.flushIfPending();
+        if (expectedVersion == null) {
+            UpdatedQuantity updated = bulkRepo.setQuantity(id, quantity)
+                    .orElseThrow(() -> new ResourceNotFoundException("Product not found"));
+            eventPublisher.publishEvent(ProductChangeEvent.quantityChanged(updated.getProduct(),
+                    updated.getOldQuantity()));
+            return updated.getProduct();
+        }
         Product product = repo.findById(id).orElseThrow(() -> new ResourceNotFoundException("Product not found"));
+        if (!expectedVersion.equals(product.getVersion())) {
+            throw new PreconditionFailedException("Product has been changed");
+        }
+        int oldQuantity = product.getQuantity();
         product.setQuantity(quantity);
-        return repo.save(product);
+        Product saved;
+        try {
+            saved = repo.save(product);
+        } catch (OptimisticLockingFailureException e) {
+            throw new PreconditionFailedException("Product has been changed");
+        }
+        eventPublisher.publishEvent(ProductChangeEvent.quantityChanged(saved, oldQuantity));
+        return saved;
+    }
+
+    /**
+     * Increments or decrements quantity of a given product with a single conditional update,
+     * so concurrent changes to the same product are never lost.
+     * Throws Resource not found exception when product is not found and
+     * Insufficient stock exception when quantity would become negative
+     *
+     * @param id    : id of the product to be updated
+     * @param delta : quantity to be added, negative to remove stock
+     */
+    @Override
+    public Product adjustQuantity(Long id, int delta) {
+        quantityWriteBehind.flushIfPending();
+        return stockAdjustmentCombiner.adjust(id, delta);
+    }
+
+    /**
+     * Sets or changes quantities of many products in one transaction.
+     * Unknown products and rejected entries are reported, they do not abort the batch
+     *
+     * @param updates : new quantity or delta per product, at most one entry per product
+     */
+    @Override
+    public StockUpdateReport updateQuantities(List<StockUpdate> updates) {
+        quantityWriteBehind.flushIfPending();
+        return stockBatchUpdater.update(updates);
     }
 
     /**
-     * Deletes product from inventory when id matches.
+     * Deletes product from inventory when id matches, with a single statement.
+     * Many products are removed with {@link ProductCleanupService}.
      * Throws Resource not found exception when product is not found
      *
      * @param id : id of the product to be deleted
      */
     @Override
     public void deleteProduct(Long id) {
-        if (existsById(id)) {
-            throw new ResourceNotFoundException("Product not found");
-        }
-        repo.deleteById(id);
+        quantityWriteBehind.flushIfPending();
+        Product product = repo.deleteReturning(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Product not found"));
+        eventPublisher.publishEvent(ProductChangeEvent.deleted(product));
     }
 
     /**
-     * Return inventory Summary in form of Map
+     * Return inventory Summary in form of Map.
+     * The summary is served from memory by {@link InventorySummaryEngine}
      *
      * @return e.g {
      * "totalProducts": 5,
      * "totalQuantity": 78,
      * "averagePrice": 219.99,
+     * "outOfStockCount": 2,
      * "outOfStock": [
      * { "id": 3, "name": "Monitor" },
      * { "id": 5, "name": "Keyboard" }
@@ -103,24 +283,48 @@ public class ProductServiceImpl implements ProductService {
      * }
      */
     @Override
+    @Coalesced("summary")
     public Map<String, Object> getInventorySummary() {
-        long totalProducts = repo.countProducts();
-        long totalQuantity = repo.sumQuantities();
-        BigDecimal averagePrice = repo.averagePrice();
-        List<OutOfStockProduct> outOfStock = repo.findByQuantity(0);
+        return getInventorySummary(false);
+    }
+
+    /**
+     * Same as {@link #getInventorySummary()}
+     *
+     * @param forceRefresh : re-read the summary from database instead of serving it from memory.
+     *                     Always re-read from the primary, changes arriving afterwards are applied to what it read
+     */
+    @Override
+    @Coalesced("summary")
+    public Map<String, Object> getInventorySummary(boolean forceRefresh) {
+        InventorySummary summary = summaryEngine.getSummary(forceRefresh);
+        return generateSummaryMap(summary.getTotalProducts(), summary.getTotalQuantity(), summary.getAveragePrice(),
+                summary.getOutOfStockCount(), summary.getOutOfStock());
+    }
 
-        return generateSummaryMap(totalProducts, totalQuantity, averagePrice, outOfStock);
+    /**
+     * Returns out-of-stock products, or all products with quantity at or below the low-stock threshold.
+     * Served from the in-memory low-stock index, lowest quantity first
+     *
+     * @param includeLowStock : false lists only products with quantity 0
+     * @param pageable        : page number and size
+     */
+    @Override
+    public LowStockPage getOutOfStockProducts(boolean includeLowStock, Pageable pageable) {
+        return new LowStockPage(lowStockIndex.getThreshold(), lowStockIndex.count(includeLowStock),
+                lowStockIndex.list(includeLowStock, pageable.getOffset(), pageable.getPageSize()));
     }
 
     /**
      * Creates summary map from given parameters
      */
     private Map<String, Object> generateSummaryMap(long totalProducts, long totalQuantity, BigDecimal averagePrice,
-                                                   List<OutOfStockProduct> outOfStock) {
+                                                   long outOfStockCount, List<OutOfStockProduct> outOfStock) {
         Map<String, Object> summary = new HashMap<>();
         summary.put("totalProducts", totalProducts);
         summary.put("totalQuantity", totalQuantity);
         summary.put("averagePrice", averagePrice);
+        summary.put("outOfStockCount", outOfStockCount);
         summary.put("outOfStock", outOfStock);
         return summary;
     }
@@ -0,0 +1,121 @@
+package com.product.inventory.service;
+
+import com.product.inventory.event.ProductChangeEvent;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Last known version and quantity of recently changed products, used to put changes relayed from other nodes
+ * in order. Nodes relay their changes independently, so a change may arrive after a later change of the same
+ * product made on another node:
+ * <ul>
+ *     <li>a change whose version is not newer than the known one is superseded and dropped</li>
+ *     <li>a quantity change is applied as a change from the known quantity, so a delta skipped by dropping
+ *     a superseded change is still counted by views keeping totals</li>
+ *     <li>a deleted product stays deleted</li>
+ * </ul>
+ * The least recently changed products are forgotten beyond {@code capacity}, their changes are applied as they come.
+ * A creation superseded by a change of the same product can not be made up for, it is counted as missed.
+ */
+public class ProductVersionTracker {
+
+    private static final long DELETED = Long.MAX_VALUE;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<Long, Known> known;
+    private int missedCreations;
+
+    /**
+     * @param capacity : max number of products tracked
+     */
+    public ProductVersionTracker(int capacity) {
+        this.known = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Known> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Records a change committed by this node
+     */
+    public void record(ProductChangeEvent event) {
+        if (event.getVersion() == null) {
+            return;
+        }
+        lock.lock();
+        try {
+            Known current = known.get(event.getProductId());
+            if (current == null || event.getVersion() > current.version
+                    || event.getType() == ProductChangeEvent.Type.DELETED) {
+                known.put(event.getProductId(), newKnown(event, true));
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Records a change committed by another node
+     *
+     * @return change to be applied, null when it is superseded
+     */
+    public ProductChangeEvent reorder(ProductChangeEvent event) {
+        if (event.getVersion() == null) {
+            return event;
+        }
+        lock.lock();
+        try {
+            Known current = known.get(event.getProductId());
+            if (current != null && event.getVersion() <= current.version
+                    && !(event.getType() == ProductChangeEvent.Type.DELETED && current.version != DELETED)) {
+                if (event.getType() == ProductChangeEvent.Type.CREATED && !current.created) {
+                    current.created = true;
+                    missedCreations++;
+                }
+                return null;
+            }
+            boolean created = event.getType() == ProductChangeEvent.Type.CREATED;
+            known.put(event.getProductId(), newKnown(event, created || current != null && current.created));
+            return current == null || created ? event : event.withOldQuantity(current.quantity);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return number of creations superseded since the last call, views may lack those products
+     */
+    public int takeMissedCreations() {
+        lock.lock();
+        try {
+            int missed = missedCreations;
+            missedCreations = 0;
+            return missed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static Known newKnown(ProductChangeEvent event, boolean created) {
+        boolean deleted = event.getType() == ProductChangeEvent.Type.DELETED;
+        return new Known(deleted ? DELETED : event.getVersion(),
+                deleted ? event.getOldQuantity() : event.getNewQuantity(), created);
+    }
+
+    private static final class Known {
+        private final long version;
+        private final Integer quantity;
+        // creation of the product has been seen, or the product was known before it was tracked
+        private boolean created;
+
+        private Known(long version, Integer quantity, boolean created) {
+            this.version = version;
+            this.quantity = quantity;
+            this.created = created;
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package com.product.inventory.service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Journal of quantity updates in a memory-mapped file, used as a ring of {@code capacity} records.
+ * The header holds the ring size, the sequence number of the record in the first slot and the sequence number
+ * of the last record written to the database. Every record holds a sequence number, product id, quantity and
+ * checksum, and goes to the slot given by its sequence number.
+ * Records survive a crash of the process as soon as they are appended, once forced
+ * they also survive a crash of the machine.
+ * Slots of records written to the database are reused, so the journal only fills up when the database falls behind
+ * by capacity records. Recovery reads the records following the flushed one until the sequence breaks or a checksum
+ * does not match.
+ * A changed capacity takes effect when the journal is opened with no record left to write to the database.
+ * Not thread-safe, callers synchronize. Only {@link #force} may run while records are appended.
+ */
+public class QuantityJournal implements Closeable {
+
+    private static final int MAGIC = 0x51544A31;
+    private static final int HEADER_SIZE = 24;
+    private static final int CAPACITY_OFFSET = 4;
+    private static final int BASE_SEQUENCE_OFFSET = 8;
+    private static final int FLUSHED_SEQUENCE_OFFSET = 16;
+    private static final int RECORD_SIZE = 24;
+
+    private final FileChannel channel;
+    private final CRC32 crc = new CRC32();
+
+    private MappedByteBuffer buffer;
+    private int capacity;
+    private long baseSequence;
+    private long flushedSequence;
+    private long lastSequence;
+
+    /**
+     * Opens or creates the journal
+     *
+     * @param file     : journal file
+     * @param capacity : max number of records not yet written to the database
+     */
+    public QuantityJournal(Path file, int capacity) throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        int existing = existingCapacity();
+        if (existing > 0) {
+            map(existing);
+            baseSequence = buffer.getLong(BASE_SEQUENCE_OFFSET);
+            flushedSequence = buffer.getLong(FLUSHED_SEQUENCE_OFFSET);
+            recover();
+            if (existing == capacity || lastSequence > flushedSequence) {
+                return;
+            }
+        }
+        map(capacity);
+        baseSequence = lastSequence + 1;
+        flushedSequence = lastSequence;
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(CAPACITY_OFFSET, capacity);
+        buffer.putLong(BASE_SEQUENCE_OFFSET, baseSequence);
+        buffer.putLong(FLUSHED_SEQUENCE_OFFSET, flushedSequence);
+        buffer.force(0, HEADER_SIZE);
+    }
+
+    /**
+     * Reads records which were appended but not written to the database before the last shutdown
+     * and positions the journal after them
+     *
+     * @return latest quantity per product id, in order of first update
+     */
+    public Map<Long, Integer> recover() {
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
+        lastSequence = flushedSequence;
+        // records of previous rounds of the ring have lower sequence numbers
+        while (lastSequence - flushedSequence < capacity) {
+            int record = slot(lastSequence + 1);
+            if (buffer.getLong(record) != lastSequence + 1 || buffer.getInt(record + 20) != checksum(record)) {
+                break;
+            }
+            quantities.put(buffer.getLong(record + 8), buffer.getInt(record + 16));
+            lastSequence++;
+        }
+        return quantities;
+    }
+
+    /**
+     * @return false when the journal is full
+     */
+    public boolean append(long productId, int quantity) {
+        if (isFull()) {
+            return false;
+        }
+        int record = slot(lastSequence + 1);
+        buffer.putLong(record, lastSequence + 1);
+        buffer.putLong(record + 8, productId);
+        buffer.putInt(record + 16, quantity);
+        buffer.putInt(record + 20, checksum(record));
+        lastSequence++;
+        return true;
+    }
+
+    /**
+     * Forces appended records to the storage device, one call covers any number of them
+     *
+     * @param fromSequence : first record to force
+     * @param toSequence   : last record to force
+     */
+    public void force(long fromSequence, long toSequence) {
+        long count = toSequence - fromSequence + 1;
+        if (count <= 0) {
+            return;
+        }
+        int end = HEADER_SIZE + capacity * RECORD_SIZE;
+        if (count >= capacity) {
+            buffer.force(HEADER_SIZE, end - HEADER_SIZE);
+            return;
+        }
+        int first = slot(fromSequence);
+        int last = slot(toSequence);
+        if (first <= last) {
+            buffer.force(first, last - first + RECORD_SIZE);
+        } else {
+            // the records wrap around the end of the ring
+            buffer.force(first, end - first);
+            buffer.force(HEADER_SIZE, last - HEADER_SIZE + RECORD_SIZE);
+        }
+    }
+
+    /**
+     * Marks all records up to given sequence number as written to the database, their slots can be reused
+     */
+    public void markFlushed(long sequence) {
+        flushedSequence = sequence;
+        buffer.putLong(FLUSHED_SEQUENCE_OFFSET, sequence);
+        buffer.force(0, HEADER_SIZE);
+    }
+
+    public boolean isFull() {
+        return lastSequence - flushedSequence >= capacity;
+    }
+
+    public long getLastSequence() {
+        return lastSequence;
+    }
+
+    public long getFlushedSequence() {
+        return flushedSequence;
+    }
+
+    @Override
+    public void close() throws IOException {
+        buffer.force();
+        channel.close();
+    }
+
+    /**
+     * @return ring size of the journal in the file, 0 for a new file.
+     * Files written before the size was recorded hold their records from the first slot on
+     */
+    private int existingCapacity() throws IOException {
+        if (channel.size() < HEADER_SIZE) {
+            return 0;
+        }
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        channel.read(header, 0);
+        if (header.getInt(0) != MAGIC) {
+            return 0;
+        }
+        int recorded = header.getInt(CAPACITY_OFFSET);
+        return recorded > 0 ? recorded : (int) ((channel.size() - HEADER_SIZE) / RECORD_SIZE);
+    }
+
+    private void map(int capacity) throws IOException {
+        this.capacity = capacity;
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) capacity * RECORD_SIZE);
+    }
+
+    private int slot(long sequence) {
+        return HEADER_SIZE + (int) Math.floorMod(sequence - baseSequence, (long) capacity) * RECORD_SIZE;
+    }
+
+    private int checksum(int record) {
+        crc.reset();
+        crc.update(buffer.slice(record, 20));
+        return (int) crc.getValue();
+    }
+}
@@ -0,0 +1,340 @@
+package com.product.inventory.service;
+
+import com.product.inventory.exception.ServiceUnavailableException;
+import com.product.inventory.model.Product;
+import com.product.inventory.repositoty.ProductBulkRepository.UpdatedQuantity;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Optional write-behind for absolute quantity updates, enabled with {@code inventory.stock.write-behind.enabled}.
+ * An update is acknowledged once it is appended to the {@link QuantityJournal}, with {@code sync} once it is forced
+ * to disk. Writers arriving while the journal is forced wait for the next force, which covers all of them,
+ * so concurrent updates share one force instead of taking one each. An accepted update gets the next version
+ * of the product and its change event is published right away, so the product cache and the in-memory views
+ * follow it before it reaches the database. A background thread writes the latest quantity and version
+ * of every changed product to the database every {@code flush-interval} in one batch.
+ * A product changed by someone else meanwhile gets a version above both and its change is published again,
+ * the summary may be off by that change until it is re-read.
+ * Updates which were journaled but not written are replayed on startup.
+ * When the journal is full, writers wait up to {@code max-wait} for the next flush and then get 503,
+ * so the database never falls behind by more than the journal capacity.
+ */
+@Component
+public class QuantityWriteBehind implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(QuantityWriteBehind.class);
+
+    private final StockBatchUpdater stockBatchUpdater;
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final Path journalFile;
+    private final int capacity;
+    private final boolean sync;
+    private final Duration flushInterval;
+    private final Duration maxWait;
+
+    // guards journal and pending quantities
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition journalHasSpace = lock.newCondition();
+    // only one flush at a time, held while writing to the database
+    private final ReentrantLock flushLock = new ReentrantLock();
+    // only one force of the journal at a time, held while forcing it to disk
+    private final ReentrantLock forceLock = new ReentrantLock();
+    // last journal record forced to disk
+    private volatile long forcedSequence;
+    private QuantityJournal journal;
+    // latest accepted product per id, without a version when recovered from the journal
+    private Map<Long, Product> pending = new LinkedHashMap<>();
+    // System.nanoTime of the oldest update not yet written to database, 0 when there is none
+    private long oldestUnflushed;
+    private ScheduledExecutorService flusher;
+    private volatile boolean running;
+
+    public QuantityWriteBehind(StockBatchUpdater stockBatchUpdater, MeterRegistry meterRegistry,
+                               @Value("${inventory.stock.write-behind.enabled:false}") boolean enabled,
+                               @Value("${inventory.stock.write-behind.journal:data/quantity.journal}") Path journalFile,
+                               @Value("${inventory.stock.write-behind.capacity:1000000}") int capacity,
+                               @Value("${inventory.stock.write-behind.sync:true}") boolean sync,
+                               @Value("${inventory.stock.write-behind.flush-interval:50ms}") Duration flushInterval,
+                               @Value("${inventory.stock.write-behind.max-wait:5s}") Duration maxWait) {
+        this.stockBatchUpdater = stockBatchUpdater;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.journalFile = journalFile;
+        this.capacity = capacity;
+        this.sync = sync;
+        this.flushInterval = flushInterval;
+        this.maxWait = maxWait;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Journals new quantity of a product, it is written to the database by the next flush.
+     * Throws 503 when the journal stays full for longer than max-wait
+     *
+     * @param current : product as cached, an update accepted later than it takes precedence
+     * @return product with the new quantity and the version following the latest one,
+     * with the quantity it replaces. Its change is not published yet
+     */
+    public UpdatedQuantity write(Product current, int quantity) {
+        Long id = current.getId();
+        UpdatedQuantity accepted;
+        long sequence;
+        lock.lock();
+        try {
+            long remaining = maxWait.toNanos();
+            while (!journal.append(id, quantity)) {
+                if (remaining <= 0) {
+                    throw new ServiceUnavailableException(
+                            "Quantity updates are not written to database fast enough, try again later");
+                }
+                flusher.execute(this::flushQuietly);
+                remaining = journalHasSpace.awaitNanos(remaining);
+            }
+            sequence = journal.getLastSequence();
+            Product previous = pending.get(id);
+            Product latest = previous != null && previous.getVersion() != null
+                    && previous.getVersion() > current.getVersion() ? previous : current;
+            Product updated = new Product(current.getName(), quantity, current.getPrice());
+            updated.setId(id);
+            updated.setVersion(latest.getVersion() + 1);
+            pending.put(id, updated);
+            accepted = new UpdatedQuantity(updated, latest.getQuantity());
+            if (oldestUnflushed == 0) {
+                oldestUnflushed = System.nanoTime();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceUnavailableException("Interrupted");
+        } finally {
+            lock.unlock();
+        }
+        if (sync) {
+            force(sequence);
+        }
+        return accepted;
+    }
+
+    /**
+     * Writes journaled quantities to the database now. Called before other stock changes,
+     * so a journaled quantity is never written over a later change
+     */
+    public void flushIfPending() {
+        if (enabled && hasPending()) {
+            flush();
+        }
+    }
+
+    /**
+     * Writes all journaled quantities to the database.
+     * On failure they stay pending and are written by the next flush
+     */
+    public void flush() {
+        flushLock.lock();
+        try {
+            Map<Long, Product> products;
+            long upTo;
+            lock.lock();
+            try {
+                if (pending.isEmpty()) {
+                    return;
+                }
+                products = pending;
+                pending = new LinkedHashMap<>();
+                upTo = journal.getLastSequence();
+            } finally {
+                lock.unlock();
+            }
+
+            List<Long> missingIds;
+            try {
+                missingIds = stockBatchUpdater.write(products.values());
+            } catch (RuntimeException e) {
+                lock.lock();
+                try {
+                    // quantities journaled meanwhile are newer
+                    products.forEach(pending::putIfAbsent);
+                } finally {
+                    lock.unlock();
+                }
+                throw e;
+            }
+            if (!missingIds.isEmpty()) {
+                log.warn("Dropped journaled quantities of deleted products {}", missingIds);
+            }
+
+            lock.lock();
+            try {
+                journal.markFlushed(upTo);
+                oldestUnflushed = pending.isEmpty() ? 0 : System.nanoTime();
+                journalHasSpace.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * @return seconds since the oldest update which is not yet written to the database, 0 when there is none
+     */
+    public double getLagSeconds() {
+        lock.lock();
+        try {
+            return oldestUnflushed == 0 ? 0 : (System.nanoTime() - oldestUnflushed) / 1e9;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getPendingCount() {
+        lock.lock();
+        try {
+            return pending.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            journal = new QuantityJournal(journalFile, capacity);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Can not open quantity journal " + journalFile, e);
+        }
+        journal.recover().forEach((id, quantity) -> pending.put(id, recovered(id, quantity)));
+        forcedSequence = journal.getLastSequence();
+        if (!pending.isEmpty()) {
+            log.info("Replaying {} journaled quantity updates", pending.size());
+            oldestUnflushed = System.nanoTime();
+            flush();
+        }
+        flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "quantity-write-behind");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flushQuietly, flushInterval.toNanos(), flushInterval.toNanos(),
+                TimeUnit.NANOSECONDS);
+        Gauge.builder("inventory.write-behind.lag", this, QuantityWriteBehind::getLagSeconds)
+                .baseUnit("seconds")
+                .description("Age of the oldest quantity update not yet written to database")
+                .register(meterRegistry);
+        Gauge.builder("inventory.write-behind.pending", this, QuantityWriteBehind::getPendingCount)
+                .description("Products with a journaled quantity not yet written to database")
+                .register(meterRegistry);
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(maxWait.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // whatever is not written now is replayed on next startup
+        flushQuietly();
+        try {
+            journal.close();
+        } catch (IOException e) {
+            log.warn("Can not close quantity journal", e);
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Started before and stopped after the web server, so no request can write to a closed journal
+     */
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 4096;
+    }
+
+    /**
+     * Forces the journal up to given record. Whoever forces it forces every record appended so far,
+     * outside the journal lock, so writers keep appending and the next force covers them together
+     */
+    private void force(long sequence) {
+        if (forcedSequence >= sequence) {
+            return;
+        }
+        forceLock.lock();
+        try {
+            if (forcedSequence >= sequence) {
+                return;
+            }
+            long upTo;
+            lock.lock();
+            try {
+                upTo = journal.getLastSequence();
+            } finally {
+                lock.unlock();
+            }
+            journal.force(forcedSequence + 1, upTo);
+            forcedSequence = upTo;
+        } finally {
+            forceLock.unlock();
+        }
+    }
+
+    // only id and quantity are journaled, the flush gives it the next version and publishes its change
+    private static Product recovered(Long id, int quantity) {
+        Product product = new Product(null, quantity, null);
+        product.setId(id);
+        return product;
+    }
+
+    private boolean hasPending() {
+        lock.lock();
+        try {
+            return !pending.isEmpty();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.warn("Writing journaled quantities to database failed, retrying with next flush", e);
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.product.inventory.service;
+
+import com.product.inventory.event.ProductChangeEvent;
+import com.product.inventory.exception.InsufficientStockException;
+import com.product.inventory.exception.ResourceNotFoundException;
+import com.product.inventory.model.Product;
+import com.product.inventory.repositoty.ProductRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Applies stock deltas with conditional database updates, combining concurrent deltas for the same product.
+ * Requests are queued on a stripe chosen by product id. The first thread that finds its stripe idle drains
+ * the queue and applies the net delta of every product in the batch with a single update, so a burst of
+ * requests against a hot product costs one row lock instead of one per request.
+ * A thread drains only until its own delta is applied, then wakes the next waiting thread to take over,
+ * so no caller keeps serving the others while the stripe stays busy.
+ * When the net delta of a batch is rejected, its deltas are retried one by one so each caller
+ * gets the same answer it would have got alone.
+ */
+@Component
+public class StockAdjustmentCombiner {
+
+    private final ProductRepository repo;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Stripe[] stripes;
+    private final int maxBatchSize;
+
+    public StockAdjustmentCombiner(ProductRepository repo, ApplicationEventPublisher eventPublisher,
+                                   @Value("${inventory.stock.delta.stripes:64}") int stripeCount,
+                                   @Value("${inventory.stock.delta.max-batch-size:256}") int maxBatchSize) {
+        this.repo = repo;
+        this.eventPublisher = eventPublisher;
+        this.maxBatchSize = maxBatchSize;
+        this.stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    /**
+     * Adds delta to product quantity.
+     * Throws Resource not found exception when product is not found and
+     * Insufficient stock exception when quantity would become negative
+     *
+     * @return product as updated by the batch that contained this delta
+     */
+    public Product adjust(Long id, int delta) {
+        PendingDelta pending = new PendingDelta(id, delta, Thread.currentThread());
+        Stripe stripe = stripes[Math.floorMod(Long.hashCode(id), stripes.length)];
+        stripe.queue.add(pending);
+        await(stripe, pending);
+        try {
+            return pending.result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Drains the stripe queue whenever the stripe is idle, parks while another thread drains it.
+     * Whoever releases the stripe wakes the thread at the head of the queue, and every thread
+     * is woken when its delta is applied, so a queued delta is never left behind.
+     */
+    private void await(Stripe stripe, PendingDelta pending) {
+        boolean interrupted = false;
+        while (!pending.result.isDone()) {
+            if (stripe.draining.compareAndSet(false, true)) {
+                try {
+                    drain(stripe, pending);
+                } finally {
+                    stripe.draining.set(false);
+                }
+                PendingDelta next = stripe.queue.peek();
+                if (next != null) {
+                    LockSupport.unpark(next.waiter);
+                }
+            } else {
+                LockSupport.park(this);
+                // like join, the caller waits for its delta anyway and gets its interrupt back afterwards
+                interrupted |= Thread.interrupted();
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Applies batches until the delta of the draining thread is applied, which is within the first batch
+     * unless more than max-batch-size deltas were queued before it
+     */
+    private void drain(Stripe stripe, PendingDelta own) {
+        while (!own.result.isDone()) {
+            List<PendingDelta> batch = new ArrayList<>();
+            PendingDelta next;
+            while (batch.size() < maxBatchSize && (next = stripe.queue.poll()) != null) {
+                batch.add(next);
+            }
+            applyBatch(batch);
+        }
+    }
+
+    private void applyBatch(List<PendingDelta> batch) {
+        Map<Long, List<PendingDelta>> byProduct = new LinkedHashMap<>();
+        batch.forEach(p -> byProduct.computeIfAbsent(p.productId, id -> new ArrayList<>()).add(p));
+
+        byProduct.forEach((id, deltas) -> {
+            try {
+                int netDelta = deltas.stream().mapToInt(p -> p.delta).sum();
+                Optional<Product> updated = apply(id, netDelta);
+                if (updated.isPresent()) {
+                    deltas.forEach(p -> p.complete(updated.get()));
+                } else if (deltas.size() == 1) {
+                    deltas.get(0).fail(rejection(id));
+                } else {
+                    deltas.forEach(this::applySingle);
+                }
+            } catch (RuntimeException e) {
+                deltas.forEach(p -> p.fail(e));
+            }
+        });
+    }
+
+    private void applySingle(PendingDelta pending) {
+        try {
+            Optional<Product> updated = apply(pending.productId, pending.delta);
+            if (updated.isPresent()) {
+                pending.complete(updated.get());
+            } else {
+                pending.fail(rejection(pending.productId));
+            }
+        } catch (RuntimeException e) {
+            pending.fail(e);
+        }
+    }
+
+    private Optional<Product> apply(Long id, int delta) {
+        Optional<Product> updated = repo.adjustQuantity(id, delta);
+        updated.ifPresent(p -> eventPublisher.publishEvent(
+                ProductChangeEvent.quantityChanged(p, p.getQuantity() - delta)));
+        return updated;
+    }
+
+    private RuntimeException rejection(Long id) {
+        if (!repo.existsById(id)) {
+            return new ResourceNotFoundException("Product not found");
+        }
+        return new InsufficientStockException("Insufficient stock");
+    }
+
+    private static final class Stripe {
+        private final Queue<PendingDelta> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean draining = new AtomicBoolean();
+    }
+
+    private static final class PendingDelta {
+        private final Long productId;
+        private final int delta;
+        private final Thread waiter;
+        private final CompletableFuture<Product> result = new CompletableFuture<>();
+
+        private PendingDelta(Long productId, int delta, Thread waiter) {
+            this.productId = productId;
+            this.delta = delta;
+            this.waiter = waiter;
+        }
+
+        private void complete(Product product) {
+            result.complete(product);
+            LockSupport.unpark(waiter);
+        }
+
+        private void fail(RuntimeException e) {
+            result.completeExceptionally(e);
+            LockSupport.unpark(waiter);
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package com.product.inventory.service;
+
+import com.product.inventory.event.ProductChangeEvent;
+import com.product.inventory.exception.InvalidRequestException;
+import com.product.inventory.model.Product;
+import com.product.inventory.model.StockUpdate;
+import com.product.inventory.model.StockUpdateError;
+import com.product.inventory.model.StockUpdateReport;
+import com.product.inventory.repositoty.ProductBulkRepository;
+import com.product.inventory.repositoty.ProductBulkRepository.UpdatedQuantity;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Applies a batch of stock updates in one transaction.
+ * Entries are sent in chunks of {@code inventory.stock.batch.chunk-size}, every chunk is a single
+ * set-based update, so a reconciliation of tens of thousands of products needs only a few statements.
+ * Invalid entries, unknown products and deltas which would make the quantity negative are reported
+ * and skipped, they never abort the rest of the batch.
+ */
+@Component
+public class StockBatchUpdater {
+
+    private final ProductBulkRepository bulkRepo;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transaction;
+    private final int chunkSize;
+    private final int maxSize;
+
+    public StockBatchUpdater(ProductBulkRepository bulkRepo, ApplicationEventPublisher eventPublisher,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${inventory.stock.batch.chunk-size:5000}") int chunkSize,
+                             @Value("${inventory.stock.batch.max-size:100000}") int maxSize) {
+        this.bulkRepo = bulkRepo;
+        this.eventPublisher = eventPublisher;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Applies all valid entries, either all of them are committed or none
+     *
+     * @param updates : at most one entry per product
+     * @return report with updated count, missing ids and rejected entries
+     */
+    public StockUpdateReport update(List<StockUpdate> updates) {
+        if (updates.size() > maxSize) {
+            throw new InvalidRequestException("At most " + maxSize + " updates are allowed in one batch");
+        }
+        long start = System.nanoTime();
+        List<StockUpdateError> rejected = new ArrayList<>();
+        Map<Long, Integer> indexById = new HashMap<>();
+        List<StockUpdate> accepted = validate(updates, indexById, rejected);
+        // every chunk locks its rows in id order, sorting makes the order global across chunks
+        accepted.sort(Comparator.comparing(StockUpdate::getId));
+
+        List<UpdatedQuantity> updated = new ArrayList<>(accepted.size());
+        List<Long> notUpdated = new ArrayList<>();
+        Set<Long> existing = new HashSet<>();
+        transaction.executeWithoutResult(status -> {
+            for (int from = 0; from < accepted.size(); from += chunkSize) {
+                List<StockUpdate> chunk = accepted.subList(from, Math.min(from + chunkSize, accepted.size()));
+                updated.addAll(applyChunk(chunk, notUpdated));
+            }
+            if (!notUpdated.isEmpty()) {
+                existing.addAll(bulkRepo.findExistingIds(notUpdated.toArray(Long[]::new)));
+            }
+        });
+
+        List<Long> missingIds = new ArrayList<>();
+        for (Long id : notUpdated) {
+            if (existing.contains(id)) {
+                rejected.add(new StockUpdateError(indexById.get(id), id, "Insufficient stock"));
+            } else {
+                missingIds.add(id);
+            }
+        }
+        rejected.sort(Comparator.comparingInt(StockUpdateError::getIndex));
+
+        // published after commit, listeners must never see changes which are rolled back
+        updated.forEach(u -> eventPublisher.publishEvent(
+                ProductChangeEvent.quantityChanged(u.getProduct(), u.getOldQuantity())));
+        return new StockUpdateReport(updates.size(), updated.size(), missingIds, rejected,
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Writes quantities accepted by {@link QuantityWriteBehind} in one transaction.
+     * Their changes were published when they were accepted. Only products changed by someone else meanwhile,
+     * which get a version above the accepted one, and products recovered from the journal, which have no version,
+     * are published again
+     *
+     * @param accepted : products with their accepted quantity and version, at most one per product
+     * @return ids of products which no longer exist
+     */
+    List<Long> write(Collection<Product> accepted) {
+        List<Product> sorted = new ArrayList<>(accepted);
+        sorted.sort(Comparator.comparing(Product::getId));
+
+        List<UpdatedQuantity> written = new ArrayList<>(sorted.size());
+        transaction.executeWithoutResult(status -> {
+            for (int from = 0; from < sorted.size(); from += chunkSize) {
+                List<Product> chunk = sorted.subList(from, Math.min(from + chunkSize, sorted.size()));
+                written.addAll(bulkRepo.writeQuantities(
+                        chunk.stream().map(Product::getId).toArray(Long[]::new),
+                        chunk.stream().map(Product::getQuantity).toArray(Integer[]::new),
+                        chunk.stream().map(Product::getVersion).toArray(Long[]::new)));
+            }
+        });
+
+        Map<Long, Product> missing = new HashMap<>();
+        sorted.forEach(product -> missing.put(product.getId(), product));
+        for (UpdatedQuantity u : written) {
+            Product product = missing.remove(u.getProduct().getId());
+            if (!u.getProduct().getVersion().equals(product.getVersion())) {
+                eventPublisher.publishEvent(ProductChangeEvent.quantityChanged(u.getProduct(), u.getOldQuantity()));
+            }
+        }
+        return new ArrayList<>(missing.keySet());
+    }
+
+    private List<UpdatedQuantity> applyChunk(List<StockUpdate> chunk, List<Long> notUpdated) {
+        Long[] ids = new Long[chunk.size()];
+        Integer[] quantities = new Integer[chunk.size()];
+        Integer[] deltas = new Integer[chunk.size()];
+        for (int i = 0; i < chunk.size(); i++) {
+            StockUpdate update = chunk.get(i);
+            ids[i] = update.getId();
+            quantities[i] = update.getQuantity();
+            deltas[i] = update.getDelta();
+        }
+        List<UpdatedQuantity> updated = bulkRepo.updateQuantities(ids, quantities, deltas);
+        if (updated.size() < ids.length) {
+            Set<Long> updatedIds = new HashSet<>();
+            updated.forEach(u -> updatedIds.add(u.getProduct().getId()));
+            for (Long id : ids) {
+                if (!updatedIds.contains(id)) {
+                    notUpdated.add(id);
+                }
+            }
+        }
+        return updated;
+    }
+
+    /**
+     * @param indexById : filled with the request position of every accepted entry
+     * @return entries which can be sent to the database, others are added to rejected
+     */
+    private List<StockUpdate> validate(List<StockUpdate> updates, Map<Long, Integer> indexById,
+                                       List<StockUpdateError> rejected) {
+        List<StockUpdate> accepted = new ArrayList<>(updates.size());
+        for (int i = 0; i < updates.size(); i++) {
+            StockUpdate update = updates.get(i);
+            String error = validate(update);
+            if (error == null && indexById.putIfAbsent(update.getId(), i) != null) {
+                error = "Duplicate product id, first given at index " + indexById.get(update.getId());
+            }
+            if (error == null) {
+                accepted.add(update);
+            } else {
+                rejected.add(new StockUpdateError(i, update == null ? null : update.getId(), error));
+            }
+        }
+        return accepted;
+    }
+
+    private String validate(StockUpdate update) {
+        if (update == null || update.getId() == null) {
+            return "Id can not be null";
+        }
+        if ((update.getQuantity() == null) == (update.getDelta() == null)) {
+            return "Exactly one of quantity and delta must be given";
+        }
+        if (update.getQuantity() != null && update.getQuantity() < 0) {
+            return "Quantity must be greater than or equal to 0";
+        }
+        return null;
+    }
+}
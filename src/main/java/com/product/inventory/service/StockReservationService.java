@@ -0,0 +1,392 @@
+package com.product.inventory.service;
+
+import com.product.inventory.configuration.MetricsConfig;
+import com.product.inventory.event.ProductChangeEvent;
+import com.product.inventory.exception.InsufficientStockException;
+import com.product.inventory.exception.InvalidRequestException;
+import com.product.inventory.exception.ResourceNotFoundException;
+import com.product.inventory.exception.ServiceUnavailableException;
+import com.product.inventory.model.Product;
+import com.product.inventory.model.StockAvailability;
+import com.product.inventory.model.StockReservation;
+import com.product.inventory.repositoty.ProductBulkRepository.UpdatedQuantity;
+import com.product.inventory.repositoty.ProductRepository;
+import com.product.inventory.repositoty.StockReservationRepository;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Holds stock for checkouts: a reservation takes quantity out of what is available to sell until it is confirmed,
+ * released or expires. Confirming removes the quantity from the product, releasing and expiring give it back.
+ * Reservations and the quantity they hold per product are kept in the database by {@link StockReservationRepository},
+ * so reservations made on different nodes never oversell a product, and any node can confirm or release them.
+ * Reserving and releasing are one statement each, confirming deletes the reservation and applies the delta
+ * in one transaction.
+ * Expiries of the reservations made on this node are kept in a {@link TimingWheel} advanced every
+ * {@code inventory.reservation.tick}, and restored from the database on startup. Every
+ * {@code inventory.reservation.sweep-interval} expired reservations of any node are released as well,
+ * so those of a node which is down do not hold stock.
+ */
+@Service
+@Timed(MetricsConfig.SERVICE_TIMER)
+public class StockReservationService implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(StockReservationService.class);
+
+    private final ProductRepository productRepo;
+    private final StockReservationRepository reservationRepo;
+    private final QuantityWriteBehind quantityWriteBehind;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transaction;
+    private final MeterRegistry meterRegistry;
+    private final Duration defaultTtl;
+    private final Duration maxTtl;
+    private final Duration tick;
+    private final Duration sweepInterval;
+    private final String owner;
+
+    // reservations made on this node and not finished on it, by id
+    private final Map<String, Reservation> reservations = new ConcurrentHashMap<>();
+    private final TimingWheel<Reservation> expiries;
+
+    private ScheduledExecutorService scheduler;
+    private volatile boolean running;
+
+    /**
+     * @param tick          : resolution of expiries, reservations expire at most one tick late
+     * @param wheelSlots    : ticks per turn of the timing wheel, longer TTLs wait in their slot for more turns
+     * @param sweepInterval : how often expired reservations of every node are released
+     * @param owner         : name of this node in the stock_reservation table, the host name when empty.
+     *                      Has to stay the same across restarts of a node and differ between nodes
+     */
+    public StockReservationService(ProductRepository productRepo, StockReservationRepository reservationRepo,
+                                   QuantityWriteBehind quantityWriteBehind, ApplicationEventPublisher eventPublisher,
+                                   PlatformTransactionManager transactionManager, MeterRegistry meterRegistry,
+                                   @Value("${inventory.reservation.default-ttl:15m}") Duration defaultTtl,
+                                   @Value("${inventory.reservation.max-ttl:24h}") Duration maxTtl,
+                                   @Value("${inventory.reservation.tick:100ms}") Duration tick,
+                                   @Value("${inventory.reservation.wheel-slots:4096}") int wheelSlots,
+                                   @Value("${inventory.reservation.sweep-interval:1s}") Duration sweepInterval,
+                                   @Value("${inventory.reservation.owner:}") String owner) {
+        this.productRepo = productRepo;
+        this.reservationRepo = reservationRepo;
+        this.quantityWriteBehind = quantityWriteBehind;
+        this.eventPublisher = eventPublisher;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.meterRegistry = meterRegistry;
+        this.defaultTtl = defaultTtl;
+        this.maxTtl = maxTtl;
+        this.tick = tick;
+        this.sweepInterval = sweepInterval;
+        this.owner = owner.isBlank() ? hostName() : owner;
+        this.expiries = new TimingWheel<>(tick, wheelSlots, System.nanoTime());
+    }
+
+    /**
+     * Reserves quantity of a product until it is confirmed, released or ttl has passed.
+     * Throws Resource not found exception when product is not found and
+     * Insufficient stock exception when less than quantity is available
+     *
+     * @param ttl : time until the reservation expires, null for {@code inventory.reservation.default-ttl}
+     */
+    public StockReservation reserve(Long productId, int quantity, Duration ttl) {
+        if (quantity < 1) {
+            throw new InvalidRequestException("Quantity must be at least 1");
+        }
+        if (ttl == null) {
+            ttl = defaultTtl;
+        }
+        if (ttl.compareTo(tick) < 0 || ttl.compareTo(maxTtl) > 0) {
+            throw new InvalidRequestException(
+                    "Ttl must be between " + tick.toMillis() + "ms and " + maxTtl.toSeconds() + "s");
+        }
+        if (!running) {
+            throw new ServiceUnavailableException("Reservations are not accepted now");
+        }
+        // available-to-sell is checked against the database, journaled quantities have to be there first
+        quantityWriteBehind.flushIfPending();
+        Reservation reservation = new Reservation(UUID.randomUUID().toString(), productId, quantity,
+                Instant.now().plus(ttl), System.nanoTime() + ttl.toNanos());
+        StockReservation reserved = reservation.snapshot();
+        if (!reservationRepo.reserve(owner, reserved)) {
+            if (!productRepo.existsById(productId)) {
+                throw new ResourceNotFoundException("Product not found");
+            }
+            throw new InsufficientStockException("Insufficient stock");
+        }
+        schedule(reservation);
+        return reserved;
+    }
+
+    /**
+     * Removes the reserved quantity from the product, in the transaction which deletes the reservation.
+     * When the product has been deleted or has not enough stock left, the reservation is released.
+     * Throws Resource not found exception when the reservation is not active
+     *
+     * @return product with its new quantity
+     */
+    public Product confirm(String reservationId) {
+        if (!isReservationId(reservationId)) {
+            throw new ResourceNotFoundException("Reservation not found");
+        }
+        quantityWriteBehind.flushIfPending();
+        Confirmation confirmation = transaction.execute(status -> {
+            Optional<StockReservation> deleted = reservationRepo.delete(reservationId);
+            if (deleted.isEmpty()) {
+                return null;
+            }
+            StockReservation reservation = deleted.get();
+            Optional<UpdatedQuantity> taken = reservationRepo.takeReserved(reservation.getProductId(),
+                    reservation.getQuantity());
+            if (taken.isPresent()) {
+                return new Confirmation(taken.get(), true);
+            }
+            // released instead, committed before the caller is told
+            return new Confirmation(null, reservationRepo.giveBackReserved(reservation.getProductId(),
+                    reservation.getQuantity()));
+        });
+        if (confirmation == null) {
+            throw new ResourceNotFoundException("Reservation not found");
+        }
+        forget(reservationId);
+        if (confirmation.taken == null) {
+            if (!confirmation.productExists) {
+                throw new ResourceNotFoundException("Product not found");
+            }
+            throw new InsufficientStockException("Insufficient stock");
+        }
+        // published after commit, listeners must never see changes which are rolled back
+        eventPublisher.publishEvent(ProductChangeEvent.quantityChanged(confirmation.taken.getProduct(),
+                confirmation.taken.getOldQuantity()));
+        return confirmation.taken.getProduct();
+    }
+
+    /**
+     * Gives the reserved quantity back.
+     * Throws Resource not found exception when the reservation is not active
+     */
+    public void release(String reservationId) {
+        if (!isReservationId(reservationId) || !reservationRepo.release(reservationId)) {
+            throw new ResourceNotFoundException("Reservation not found");
+        }
+        forget(reservationId);
+    }
+
+    /**
+     * Throws Resource not found exception when the reservation is not active
+     */
+    public StockReservation getReservation(String reservationId) {
+        if (!isReservationId(reservationId)) {
+            throw new ResourceNotFoundException("Reservation not found");
+        }
+        return reservationRepo.findById(reservationId)
+                .orElseThrow(() -> new ResourceNotFoundException("Reservation not found"));
+    }
+
+    /**
+     * Throws Resource not found exception when product is not found
+     */
+    public StockAvailability getAvailability(Long productId) {
+        return reservationRepo.findAvailability(productId)
+                .orElseThrow(() -> new ResourceNotFoundException("Product not found"));
+    }
+
+    /**
+     * @return number of reservations made on this node which were not finished on it and have not expired
+     */
+    public int getActiveCount() {
+        return reservations.size();
+    }
+
+    /**
+     * Releases the reservations of this node whose ttl has passed.
+     * When that fails, they are released by the next sweep
+     */
+    public void expire() {
+        List<Reservation> expired = expiries.advance(System.nanoTime());
+        if (expired.isEmpty()) {
+            return;
+        }
+        expired.forEach(reservation -> reservations.remove(reservation.id));
+        reservationRepo.expire(expired.stream().map(reservation -> reservation.id).toArray(String[]::new));
+    }
+
+    /**
+     * Releases the reservations of every node whose ttl has passed
+     *
+     * @return number of released reservations
+     */
+    public int sweep() {
+        return reservationRepo.expireAll();
+    }
+
+    @Override
+    public void start() {
+        int expired = reservationRepo.expireAll();
+        List<StockReservation> persisted = reservationRepo.findByOwner(owner);
+        Instant now = Instant.now();
+        long nowNanos = System.nanoTime();
+        for (StockReservation persistedReservation : persisted) {
+            schedule(new Reservation(persistedReservation.getId(), persistedReservation.getProductId(),
+                    persistedReservation.getQuantity(), persistedReservation.getExpiresAt(),
+                    nowNanos + Duration.between(now, persistedReservation.getExpiresAt()).toNanos()));
+        }
+        if (!persisted.isEmpty() || expired > 0) {
+            log.info("Restored expiries of {} stock reservations of {}, released {} expired",
+                    persisted.size(), owner, expired);
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "stock-reservations");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(this::expireQuietly, tick.toNanos(), tick.toNanos(), TimeUnit.NANOSECONDS);
+        scheduler.scheduleWithFixedDelay(this::sweepQuietly, sweepInterval.toNanos(), sweepInterval.toNanos(),
+                TimeUnit.NANOSECONDS);
+        Gauge.builder("inventory.reservations.active", this, StockReservationService::getActiveCount)
+                .description("Stock reservations made on this node neither confirmed, released nor expired")
+                .register(meterRegistry);
+        running = true;
+    }
+
+    /**
+     * Active reservations stay in the database, their expiries are restored on next startup
+     */
+    @Override
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(sweepInterval.toMillis() + 1000, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Started before and stopped after the web server, like the write-behind of quantities
+     */
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 4096;
+    }
+
+    private void schedule(Reservation reservation) {
+        reservations.put(reservation.id, reservation);
+        reservation.timeout = expiries.schedule(reservation, reservation.deadlineNanos);
+    }
+
+    /**
+     * Drops the expiry of a reservation finished on this node, nothing when it was made on another one
+     */
+    private void forget(String reservationId) {
+        Reservation reservation = reservations.remove(reservationId);
+        if (reservation != null) {
+            expiries.cancel(reservation.timeout);
+        }
+    }
+
+    private static boolean isReservationId(String reservationId) {
+        try {
+            UUID.fromString(reservationId);
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            throw new IllegalStateException("Can not tell the host name, set inventory.reservation.owner", e);
+        }
+    }
+
+    private void expireQuietly() {
+        try {
+            expire();
+        } catch (RuntimeException e) {
+            log.warn("Expiring stock reservations failed, releasing them with next sweep", e);
+        }
+    }
+
+    private void sweepQuietly() {
+        try {
+            sweep();
+        } catch (RuntimeException e) {
+            log.warn("Releasing expired stock reservations failed, retrying with next sweep", e);
+        }
+    }
+
+    /**
+     * Result of the confirm transaction, exceptions are thrown once it has committed
+     */
+    private static final class Confirmation {
+        // null when the reservation was released instead
+        private final UpdatedQuantity taken;
+        private final boolean productExists;
+
+        private Confirmation(UpdatedQuantity taken, boolean productExists) {
+            this.taken = taken;
+            this.productExists = productExists;
+        }
+    }
+
+    /**
+     * Reservation made on this node, kept for its expiry
+     */
+    private static final class Reservation {
+        private final String id;
+        private final Long productId;
+        private final int quantity;
+        private final Instant expiresAt;
+        private final long deadlineNanos;
+        private TimingWheel.Timeout<Reservation> timeout;
+
+        /**
+         * @param deadlineNanos : expiresAt as {@link System#nanoTime}
+         */
+        private Reservation(String id, Long productId, int quantity, Instant expiresAt, long deadlineNanos) {
+            this.id = id;
+            this.productId = productId;
+            this.quantity = quantity;
+            this.expiresAt = expiresAt;
+            this.deadlineNanos = deadlineNanos;
+        }
+
+        private StockReservation snapshot() {
+            return new StockReservation(id, productId, quantity, expiresAt, StockReservation.State.ACTIVE);
+        }
+    }
+}
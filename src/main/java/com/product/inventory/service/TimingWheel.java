@@ -0,0 +1,162 @@
+package com.product.inventory.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Hashed timing wheel: deadlines are rounded up to ticks and kept in a ring of slots, one slot per tick.
+ * Scheduling and cancelling cost the same however many timeouts are pending, advancing costs the ticks passed
+ * plus the timeouts found in their slots. A timeout further away than one turn of the wheel waits in its slot
+ * for as many turns as needed. Timeouts never fire early, and at most one tick late after {@link #advance}.
+ * Time is given by the caller in {@link System#nanoTime} units.
+ *
+ * @param <T> : item returned when its timeout fires
+ */
+public final class TimingWheel<T> {
+
+    private final long tickNanos;
+    private final long startNanos;
+    // doubly linked list per slot, so cancel is O(1)
+    private final Timeout<T>[] slots;
+    private final ReentrantLock lock = new ReentrantLock();
+    // next tick to be processed
+    private long currentTick;
+    private int size;
+
+    /**
+     * @param tick       : resolution of the wheel
+     * @param slotCount  : ticks per turn of the wheel
+     * @param startNanos : time of tick 0
+     */
+    @SuppressWarnings("unchecked")
+    public TimingWheel(Duration tick, int slotCount, long startNanos) {
+        if (tick.isNegative() || tick.isZero() || slotCount < 1) {
+            throw new IllegalArgumentException("Tick must be positive and slot count at least 1");
+        }
+        this.tickNanos = tick.toNanos();
+        this.startNanos = startNanos;
+        this.slots = new Timeout[slotCount];
+    }
+
+    /**
+     * Deadlines already passed fire with the next tick
+     *
+     * @return handle to cancel the timeout
+     */
+    public Timeout<T> schedule(T item, long deadlineNanos) {
+        // rounded up, a timeout never fires before its deadline
+        long deadlineTick = -Math.floorDiv(startNanos - deadlineNanos, tickNanos);
+        Timeout<T> timeout = new Timeout<>(item, deadlineTick);
+        lock.lock();
+        try {
+            link(timeout, Math.floorMod(Math.max(deadlineTick, currentTick), slots.length));
+            size++;
+        } finally {
+            lock.unlock();
+        }
+        return timeout;
+    }
+
+    /**
+     * @return false when the timeout has already fired or was cancelled before
+     */
+    public boolean cancel(Timeout<T> timeout) {
+        lock.lock();
+        try {
+            if (timeout.slot < 0) {
+                return false;
+            }
+            unlink(timeout);
+            size--;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Processes the ticks up to now
+     *
+     * @return items whose deadline has passed, in no particular order
+     */
+    public List<T> advance(long nowNanos) {
+        List<T> expired = new ArrayList<>();
+        lock.lock();
+        try {
+            long lastTick = Math.floorDiv(nowNanos - startNanos, tickNanos);
+            // after a long pause every slot is visited once, not once per tick missed
+            long ticks = Math.min(lastTick - currentTick + 1, slots.length);
+            for (long tick = currentTick; tick < currentTick + ticks; tick++) {
+                int slot = Math.floorMod(tick, slots.length);
+                Timeout<T> timeout = slots[slot];
+                while (timeout != null) {
+                    Timeout<T> next = timeout.next;
+                    if (timeout.deadlineTick <= lastTick) {
+                        unlink(timeout);
+                        size--;
+                        expired.add(timeout.item);
+                    }
+                    timeout = next;
+                }
+            }
+            currentTick = Math.max(currentTick, lastTick + 1);
+        } finally {
+            lock.unlock();
+        }
+        return expired;
+    }
+
+    /**
+     * @return number of scheduled timeouts which have neither fired nor been cancelled
+     */
+    public int size() {
+        lock.lock();
+        try {
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void link(Timeout<T> timeout, int slot) {
+        timeout.slot = slot;
+        timeout.next = slots[slot];
+        if (slots[slot] != null) {
+            slots[slot].prev = timeout;
+        }
+        slots[slot] = timeout;
+    }
+
+    private void unlink(Timeout<T> timeout) {
+        if (timeout.prev != null) {
+            timeout.prev.next = timeout.next;
+        } else {
+            slots[timeout.slot] = timeout.next;
+        }
+        if (timeout.next != null) {
+            timeout.next.prev = timeout.prev;
+        }
+        timeout.prev = null;
+        timeout.next = null;
+        timeout.slot = -1;
+    }
+
+    /**
+     * Scheduled item, guarded by the lock of its wheel
+     */
+    public static final class Timeout<T> {
+        private final T item;
+        private final long deadlineTick;
+        private Timeout<T> prev;
+        private Timeout<T> next;
+        // -1 once fired or cancelled
+        private int slot = -1;
+
+        private Timeout(T item, long deadlineTick) {
+            this.item = item;
+            this.deadlineTick = deadlineTick;
+        }
+    }
+}
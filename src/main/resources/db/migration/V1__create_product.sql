@@ -0,0 +1,19 @@
+-- Product table as created by Hibernate before migrations were introduced.
+-- Databases created that way are baselined at version 1 and skip this migration (spring.flyway.baseline-on-migrate)
+
+CREATE TABLE IF NOT EXISTS product
+(
+    id       bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name     varchar(255)   NOT NULL,
+    quantity integer        NOT NULL,
+    price    numeric(38, 2) NOT NULL,
+    version  bigint         NOT NULL DEFAULT 0
+);
+
+-- Keyset pagination by name and by price (cursor pages)
+CREATE INDEX IF NOT EXISTS idx_product_name_id ON product (name, id);
+CREATE INDEX IF NOT EXISTS idx_product_price_id ON product (price, id);
+
+-- Trigram index lets name ILIKE '%text%' searches use an index instead of scanning the table
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+CREATE INDEX IF NOT EXISTS idx_product_name_trgm ON product USING gin (name gin_trgm_ops);
@@ -0,0 +1,37 @@
+-- When the quantity of a product last became 0, null while it is in stock.
+-- Kept by a trigger, so every write path (JPA, bulk statements, write-behind) maintains it
+ALTER TABLE product ADD COLUMN IF NOT EXISTS out_of_stock_since timestamptz;
+UPDATE product SET out_of_stock_since = now() WHERE quantity = 0 AND out_of_stock_since IS NULL;
+
+CREATE OR REPLACE FUNCTION product_track_out_of_stock() RETURNS trigger AS
+$$
+BEGIN
+    IF NEW.quantity <> 0 THEN
+        NEW.out_of_stock_since := NULL;
+    ELSIF TG_OP = 'INSERT' OR OLD.quantity <> 0 THEN
+        NEW.out_of_stock_since := now();
+    END IF;
+    RETURN NEW;
+END
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS product_track_out_of_stock ON product;
+CREATE TRIGGER product_track_out_of_stock
+    BEFORE INSERT OR UPDATE OF quantity ON product
+    FOR EACH ROW EXECUTE FUNCTION product_track_out_of_stock();
+
+-- Cleanup of products out of stock for a while, oldest first
+CREATE INDEX IF NOT EXISTS idx_product_out_of_stock_since ON product (out_of_stock_since, id)
+    WHERE out_of_stock_since IS NOT NULL;
+
+-- Products removed by a cleanup with archive=true
+CREATE TABLE IF NOT EXISTS product_archive
+(
+    id                 bigint PRIMARY KEY,
+    name               varchar(255)   NOT NULL,
+    quantity           integer        NOT NULL,
+    price              numeric(38, 2) NOT NULL,
+    version            bigint         NOT NULL,
+    out_of_stock_since timestamptz,
+    archived_at        timestamptz    NOT NULL DEFAULT now()
+);
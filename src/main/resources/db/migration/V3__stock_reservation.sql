@@ -0,0 +1,9 @@
+-- Active stock reservations of checkouts, written in batches by StockReservationService and read on startup.
+-- No foreign key to product: a batch must not fail because one of its products was deleted meanwhile
+CREATE TABLE IF NOT EXISTS stock_reservation
+(
+    id         uuid PRIMARY KEY,
+    product_id bigint      NOT NULL,
+    quantity   integer     NOT NULL,
+    expires_at timestamptz NOT NULL
+);
@@ -0,0 +1,4 @@
+-- Node holding each reservation in memory, a node restores and deletes only its own reservations.
+-- Reservations written before are claimed by the first node starting up
+ALTER TABLE stock_reservation ADD COLUMN IF NOT EXISTS owner varchar(255);
+CREATE INDEX IF NOT EXISTS idx_stock_reservation_owner ON stock_reservation (owner);
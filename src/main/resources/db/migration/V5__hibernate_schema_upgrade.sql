@@ -0,0 +1,10 @@
+-- Brings product tables created by Hibernate before migrations existed up to V1.
+-- Such databases used to be baselined at version 1 and skipped V1, they now get the version column, the keyset
+-- and trigram indexes here. Every statement is a no-op where V1 already ran.
+ALTER TABLE product ADD COLUMN IF NOT EXISTS version bigint NOT NULL DEFAULT 0;
+
+CREATE INDEX IF NOT EXISTS idx_product_name_id ON product (name, id);
+CREATE INDEX IF NOT EXISTS idx_product_price_id ON product (price, id);
+
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+CREATE INDEX IF NOT EXISTS idx_product_name_trgm ON product USING gin (name gin_trgm_ops);
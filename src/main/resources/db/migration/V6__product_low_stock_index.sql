@@ -0,0 +1,4 @@
+-- Low-stock index load (quantity <= inventory.stock.low-threshold) reads only the products at or below the default
+-- threshold instead of scanning the table. A higher threshold is not covered and scans again.
+-- Quantity becomes an indexed column, so quantity updates are no longer HOT updates.
+CREATE INDEX IF NOT EXISTS idx_product_low_stock ON product (quantity, id) WHERE quantity <= 10;
@@ -0,0 +1,12 @@
+-- Quantity held by the active reservations of each product. It changes in the same statement or transaction as
+-- the stock_reservation rows, so every node checks and takes available-to-sell (quantity - reserved) on one row
+ALTER TABLE product ADD COLUMN IF NOT EXISTS reserved integer NOT NULL DEFAULT 0;
+
+-- reservations written before hold their quantity from now on, expired ones hold nothing
+DELETE FROM stock_reservation WHERE expires_at <= now();
+UPDATE product p SET reserved = r.quantity
+FROM (SELECT product_id, SUM(quantity)::integer AS quantity FROM stock_reservation GROUP BY product_id) r
+WHERE p.id = r.product_id;
+
+-- expired reservations of any node are released by the next sweep
+CREATE INDEX IF NOT EXISTS idx_stock_reservation_expires_at ON stock_reservation (expires_at);
@@ -0,0 +1,115 @@
+package com.product.inventory.unit;
+
+import com.product.inventory.exception.AllExceptionHandler;
+import com.product.inventory.model.InventorySummary;
+import com.product.inventory.model.OutOfStockProduct;
+import com.product.inventory.model.Product;
+import com.product.inventory.reactive.ReactiveProductController;
+import com.product.inventory.reactive.ReactiveProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class ReactiveProductControllerTest {
+
+    private ReactiveProductRepository repository;
+
+    private WebTestClient client;
+
+    private Product product;
+
+    @BeforeEach
+    public void setup() {
+        repository = mock(ReactiveProductRepository.class);
+        client = WebTestClient.bindToController(new ReactiveProductController(repository, 100))
+                .controllerAdvice(new AllExceptionHandler())
+                .build();
+        product = new Product("Laptop", 5, new BigDecimal("1000.00"));
+        product.setId(1L);
+    }
+
+    @Test
+    public void testGetProduct() {
+        when(repository.findById(1L)).thenReturn(Mono.just(product));
+        when(repository.findById(2L)).thenReturn(Mono.empty());
+
+        client.get().uri("/products/1").exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.name").isEqualTo("Laptop");
+        client.get().uri("/products/2").exchange()
+                .expectStatus().isNotFound()
+                .expectBody().jsonPath("$.error").isEqualTo("Product not found");
+    }
+
+    @Test
+    public void testListIsStreamedAsJsonLines() {
+        Product mouse = new Product("Mouse", 0, new BigDecimal("20.00"));
+        mouse.setId(2L);
+        when(repository.findAll(20, 20)).thenReturn(Flux.just(product, mouse));
+
+        client.get().uri("/products?page=2").accept(MediaType.APPLICATION_NDJSON).exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .expectBodyList(Product.class).hasSize(2);
+    }
+
+    @Test
+    public void testSearchEscapesWildcards() {
+        when(repository.searchByName("50%", "50\\%", 20, 0)).thenReturn(Flux.just(product));
+
+        client.get().uri(uri -> uri.path("/products/search").queryParam("name", "{name}").build("50%")).exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$[0].id").isEqualTo(1);
+    }
+
+    @Test
+    public void testAdjustQuantity() {
+        when(repository.adjustQuantity(1L, -10)).thenReturn(Mono.empty());
+        when(repository.existsById(1L)).thenReturn(Mono.just(true));
+        when(repository.adjustQuantity(2L, -1)).thenReturn(Mono.empty());
+        when(repository.existsById(2L)).thenReturn(Mono.just(false));
+
+        client.patch().uri("/products/1/quantity/delta?delta=-10").exchange().expectStatus().isEqualTo(409);
+        client.patch().uri("/products/2/quantity/delta?delta=-1").exchange().expectStatus().isNotFound();
+    }
+
+    @Test
+    public void testCreateAndDelete() {
+        when(repository.insert(any(Product.class))).thenReturn(Mono.just(product));
+        when(repository.deleteById(1L)).thenReturn(Mono.just(1L));
+        when(repository.deleteById(2L)).thenReturn(Mono.just(0L));
+
+        client.post().uri("/products").contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"name\": \"Laptop\", \"quantity\": 5, \"price\": 1000.00}")
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody().jsonPath("$.id").isEqualTo(1);
+        client.delete().uri("/products/1").exchange().expectStatus().isOk();
+        client.delete().uri("/products/2").exchange().expectStatus().isNotFound();
+    }
+
+    @Test
+    public void testSummary() {
+        when(repository.summarize(100)).thenReturn(Mono.just(new InventorySummary(2L, 5L, new BigDecimal("510.00"), 1L,
+                List.of(new OutOfStockProduct(2L, "Mouse")))));
+
+        client.get().uri("/products/summary").exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.totalProducts").isEqualTo(2)
+                .jsonPath("$.totalQuantity").isEqualTo(5)
+                .jsonPath("$.averagePrice").isEqualTo(510.00)
+                .jsonPath("$.outOfStockCount").isEqualTo(1)
+                .jsonPath("$.outOfStock[0].id").isEqualTo(2)
+                .jsonPath("$.outOfStock[0].name").isEqualTo("Mouse");
+    }
+}
@@ -0,0 +1,29 @@
+package com.product.inventory.reactive;
+
+import com.product.inventory.exception.AllExceptionHandler;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.annotation.Profile;
+
+/**
+ * WebFlux + R2DBC variant of the /products API, built with the reactive Maven profile.
+ * Only the classes of this package are scanned, the MVC/JPA application is left out.
+ * It runs with the reactive Spring profile, see application-reactive.properties.
+ */
+@SpringBootApplication
+@Import(AllExceptionHandler.class)
+@Profile(ReactiveInventoryApplication.PROFILE)
+public class ReactiveInventoryApplication {
+
+    public static final String PROFILE = "reactive";
+
+    public static void main(String[] args) {
+        SpringApplication application = new SpringApplication(ReactiveInventoryApplication.class);
+        application.setWebApplicationType(WebApplicationType.REACTIVE);
+        application.setAdditionalProfiles(PROFILE);
+        application.run(args);
+        System.out.println("Reactive Inventory Application has been started");
+    }
+}
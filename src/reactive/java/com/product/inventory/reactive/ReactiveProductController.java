@@ -0,0 +1,119 @@
+package com.product.inventory.reactive;
+
+import com.product.inventory.exception.InsufficientStockException;
+import com.product.inventory.exception.ResourceNotFoundException;
+import com.product.inventory.model.Product;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.PositiveOrZero;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Same /products endpoints as ProductController on WebFlux. Lists and search results are streamed
+ * as they are read from the database, as JSON array or, with Accept: application/x-ndjson, one product per line.
+ * A slow client only slows down reading of its own rows, it holds neither a thread nor, once the rows
+ * are read, a connection.
+ * The in-memory views of the default application (summary, low-stock index, analytics, change stream)
+ * are not part of this variant, the summary is read from the database on every request.
+ */
+@RestController
+@RequestMapping("/products")
+@Validated
+@Profile(ReactiveInventoryApplication.PROFILE)
+public class ReactiveProductController {
+
+    private static final String NDJSON = "application/x-ndjson";
+
+    private final ReactiveProductRepository repo;
+    private final int maxOutOfStock;
+
+    /**
+     * @param maxOutOfStock : maximum number of out-of-stock products listed by the summary
+     */
+    public ReactiveProductController(ReactiveProductRepository repo,
+                                     @Value("${inventory.summary.max-out-of-stock:100}") int maxOutOfStock) {
+        this.repo = repo;
+        this.maxOutOfStock = maxOutOfStock;
+    }
+
+    @PostMapping
+    @ResponseStatus(HttpStatus.CREATED)
+    public Mono<Product> addNewProduct(@Valid @RequestBody Product product) {
+        return repo.insert(product);
+    }
+
+    @GetMapping(produces = {MediaType.APPLICATION_JSON_VALUE, NDJSON})
+    public Flux<Product> getAllProducts(
+            @RequestParam(defaultValue = "1") @Min(value = 1, message = "Page must be at least 1") int page,
+            @RequestParam(defaultValue = "20") @Min(value = 1, message = "Size must be at least 1")
+            @Max(value = 100, message = "Size must be at most 100") int size) {
+        return repo.findAll(size, (long) (page - 1) * size);
+    }
+
+    @GetMapping("/{id}")
+    public Mono<Product> getProduct(@PathVariable Long id) {
+        return repo.findById(id).switchIfEmpty(notFound());
+    }
+
+    @GetMapping(value = "/search", produces = {MediaType.APPLICATION_JSON_VALUE, NDJSON})
+    public Flux<Product> searchProduct(
+            @RequestParam @NotBlank(message = "Name must not be blank") String name,
+            @RequestParam(defaultValue = "1") @Min(value = 1, message = "Page must be at least 1") int page,
+            @RequestParam(defaultValue = "20") @Min(value = 1, message = "Size must be at least 1")
+            @Max(value = 100, message = "Size must be at most 100") int size) {
+        String pattern = name.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+        return repo.searchByName(name, pattern, size, (long) (page - 1) * size);
+    }
+
+    @PutMapping("/{id}/quantity")
+    public Mono<Product> updateProductQuantity(@PathVariable Long id,
+            @RequestParam @PositiveOrZero(message = "Quantity must be greater than or equal to 0") Integer quantity) {
+        return repo.updateQuantity(id, quantity).switchIfEmpty(notFound());
+    }
+
+    @PatchMapping("/{id}/quantity/delta")
+    public Mono<Product> adjustProductQuantity(@PathVariable Long id, @RequestParam int delta) {
+        return repo.adjustQuantity(id, delta)
+                .switchIfEmpty(repo.existsById(id).flatMap(exists -> Mono.error(exists
+                        ? new InsufficientStockException("Insufficient stock")
+                        : new ResourceNotFoundException("Product not found"))));
+    }
+
+    @DeleteMapping("/{id}")
+    public Mono<String> deleteProduct(@PathVariable Long id) {
+        return repo.deleteById(id)
+                .flatMap(deleted -> deleted == 0 ? notFound() : Mono.just("Product deleted Successfully"));
+    }
+
+    /**
+     * Same keys as the summary of ProductController
+     */
+    @GetMapping("/summary")
+    public Mono<Map<String, Object>> getSummary() {
+        return repo.summarize(maxOutOfStock).map(totals -> {
+            Map<String, Object> summary = new HashMap<>();
+            summary.put("totalProducts", totals.getTotalProducts());
+            summary.put("totalQuantity", totals.getTotalQuantity());
+            summary.put("averagePrice", totals.getAveragePrice());
+            summary.put("outOfStockCount", totals.getOutOfStockCount());
+            summary.put("outOfStock", totals.getOutOfStock());
+            return summary;
+        });
+    }
+
+    private static <T> Mono<T> notFound() {
+        return Mono.error(new ResourceNotFoundException("Product not found"));
+    }
+}
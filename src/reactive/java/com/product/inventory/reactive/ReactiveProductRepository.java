@@ -0,0 +1,154 @@
+package com.product.inventory.reactive;
+
+import com.product.inventory.model.InventorySummary;
+import com.product.inventory.model.OutOfStockProduct;
+import com.product.inventory.model.Product;
+import io.r2dbc.spi.Readable;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Non-blocking access to the product table with the same statements as the JPA repositories.
+ * A connection is only taken from the pool while a statement runs and rows are emitted as they are read.
+ * Updates increment the version like the JPA entity does, so both variants can share one database.
+ */
+@Repository
+@Profile(ReactiveInventoryApplication.PROFILE)
+public class ReactiveProductRepository {
+
+    private static final String COLUMNS = "id, name, quantity, price, version";
+
+    private final DatabaseClient db;
+
+    public ReactiveProductRepository(DatabaseClient db) {
+        this.db = db;
+    }
+
+    public Flux<Product> findAll(int limit, long offset) {
+        return db.sql("SELECT " + COLUMNS + " FROM product ORDER BY id LIMIT :limit OFFSET :offset")
+                .bind("limit", limit)
+                .bind("offset", offset)
+                .map(ReactiveProductRepository::toProduct)
+                .all();
+    }
+
+    public Mono<Product> findById(Long id) {
+        return db.sql("SELECT " + COLUMNS + " FROM product WHERE id = :id")
+                .bind("id", id)
+                .map(ReactiveProductRepository::toProduct)
+                .one();
+    }
+
+    /**
+     * Same search as ProductRepository.searchByName, served by the trigram index on name
+     *
+     * @param name    : searched text
+     * @param pattern : searched text with LIKE wildcards escaped
+     */
+    public Flux<Product> searchByName(String name, String pattern, int limit, long offset) {
+        return db.sql("SELECT " + COLUMNS + " FROM product WHERE name ILIKE '%' || :pattern || '%' " +
+                        "ORDER BY lower(name) = lower(:name) DESC, name ILIKE :pattern || '%' DESC, " +
+                        "word_similarity(:name, name) DESC, name, id " +
+                        "LIMIT :limit OFFSET :offset")
+                .bind("name", name)
+                .bind("pattern", pattern)
+                .bind("limit", limit)
+                .bind("offset", offset)
+                .map(ReactiveProductRepository::toProduct)
+                .all();
+    }
+
+    public Mono<Product> insert(Product product) {
+        return db.sql("INSERT INTO product (name, quantity, price) VALUES (:name, :quantity, :price) " +
+                        "RETURNING " + COLUMNS)
+                .bind("name", product.getName())
+                .bind("quantity", product.getQuantity())
+                .bind("price", product.getPrice())
+                .map(ReactiveProductRepository::toProduct)
+                .one();
+    }
+
+    /**
+     * @return updated product, empty when product does not exist
+     */
+    public Mono<Product> updateQuantity(Long id, int quantity) {
+        return db.sql("UPDATE product SET quantity = :quantity, version = version + 1 WHERE id = :id " +
+                        "RETURNING " + COLUMNS)
+                .bind("id", id)
+                .bind("quantity", quantity)
+                .map(ReactiveProductRepository::toProduct)
+                .one();
+    }
+
+    /**
+     * Adds delta to product quantity in a single statement, unless the result would be negative.
+     *
+     * @return updated product, empty when product does not exist or has not enough stock
+     */
+    public Mono<Product> adjustQuantity(Long id, int delta) {
+        return db.sql("UPDATE product SET quantity = quantity + :delta, version = version + 1 " +
+                        "WHERE id = :id AND quantity + :delta >= 0 RETURNING " + COLUMNS)
+                .bind("id", id)
+                .bind("delta", delta)
+                .map(ReactiveProductRepository::toProduct)
+                .one();
+    }
+
+    public Mono<Boolean> existsById(Long id) {
+        return db.sql("SELECT 1 FROM product WHERE id = :id")
+                .bind("id", id)
+                .map(row -> true)
+                .first()
+                .defaultIfEmpty(false);
+    }
+
+    /**
+     * @return number of deleted rows
+     */
+    public Mono<Long> deleteById(Long id) {
+        return db.sql("DELETE FROM product WHERE id = :id")
+                .bind("id", id)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    /**
+     * Same figures as the in-memory summary of the default application, read by an aggregate query
+     * and a query for the first out-of-stock products, which run concurrently
+     *
+     * @param maxOutOfStock : maximum number of listed out-of-stock products
+     */
+    public Mono<InventorySummary> summarize(int maxOutOfStock) {
+        Mono<List<OutOfStockProduct>> outOfStock = db.sql("SELECT id, name FROM product WHERE quantity = 0 " +
+                        "ORDER BY id LIMIT :limit")
+                .bind("limit", maxOutOfStock)
+                .map(row -> new OutOfStockProduct(row.get("id", Long.class), row.get("name", String.class)))
+                .all()
+                .collectList();
+        // SUM and AVG over an empty table are null
+        Mono<InventorySummary> totals = db.sql("SELECT COUNT(*) AS total_products, " +
+                        "COALESCE(SUM(quantity), 0) AS total_quantity, " +
+                        "COALESCE(ROUND(AVG(price), 2), 0) AS average_price, " +
+                        "COUNT(*) FILTER (WHERE quantity = 0) AS out_of_stock_count FROM product")
+                .map(row -> new InventorySummary(row.get("total_products", Long.class),
+                        row.get("total_quantity", Long.class), row.get("average_price", BigDecimal.class),
+                        row.get("out_of_stock_count", Long.class), List.of()))
+                .one();
+        return Mono.zip(totals, outOfStock, (summary, products) -> new InventorySummary(summary.getTotalProducts(),
+                summary.getTotalQuantity(), summary.getAveragePrice(), summary.getOutOfStockCount(), products));
+    }
+
+    private static Product toProduct(Readable row) {
+        Product product = new Product(row.get("name", String.class), row.get("quantity", Integer.class),
+                row.get("price", BigDecimal.class));
+        product.setId(row.get("id", Long.class));
+        product.setVersion(row.get("version", Long.class));
+        return product;
+    }
+}
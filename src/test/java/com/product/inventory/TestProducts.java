@@ -0,0 +1,32 @@
+package com.product.inventory;
+
+import com.product.inventory.model.Product;
+
+import java.math.BigDecimal;
+
+/**
+ * Products as read from the database, for tests which do not go through a repository
+ */
+public final class TestProducts {
+
+    private TestProducts() {
+    }
+
+    /**
+     * @return product named "Product {id}" priced 10.00
+     */
+    public static Product product(Long id, int quantity) {
+        return product(id, "Product " + id, quantity, "10.00");
+    }
+
+    public static Product product(Long id, String name, int quantity, String price) {
+        return product(id, name, quantity, price, null);
+    }
+
+    public static Product product(Long id, String name, int quantity, String price, Long version) {
+        Product product = new Product(name, quantity, new BigDecimal(price));
+        product.setId(id);
+        product.setVersion(version);
+        return product;
+    }
+}
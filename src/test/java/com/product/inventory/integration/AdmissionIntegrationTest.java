@@ -0,0 +1,55 @@
+package com.product.inventory.integration;
+
+import com.product.inventory.TestPostgresContainer;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Admission control with a budget of 10 tokens per client, so a client runs out after two searches
+ */
+@SpringBootTest(properties = {
+        "inventory.admission.rate=0.1",
+        "inventory.admission.burst=10",
+        "inventory.admission.client-header=X-Client-Id"})
+@Testcontainers
+@AutoConfigureMockMvc
+public class AdmissionIntegrationTest {
+
+    @Container
+    public static TestPostgresContainer postgres = TestPostgresContainer.getInstance();
+
+    @DynamicPropertySource
+    static void configure(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void testClientIsRejectedOnceItsTokensAreUsed() throws Exception {
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(get("/products/search?name=lap").header("X-Client-Id", "crawler"))
+                    .andExpect(status().isOk());
+        }
+        mockMvc.perform(get("/products/search?name=lap").header("X-Client-Id", "crawler"))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().exists("Retry-After"))
+                .andExpect(jsonPath("$.error").value("Too many requests, retry later"));
+
+        mockMvc.perform(get("/products/search?name=lap").header("X-Client-Id", "checkout"))
+                .andExpect(status().isOk());
+    }
+}
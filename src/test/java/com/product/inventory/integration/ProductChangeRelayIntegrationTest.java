@@ -0,0 +1,111 @@
+package com.product.inventory.integration;
+
+import com.product.inventory.TestPostgresContainer;
+import com.product.inventory.event.ProductChangeEvent;
+import com.product.inventory.model.Product;
+import com.product.inventory.service.ProductChangeMessage;
+import com.product.inventory.service.ProductChangeRelay;
+import com.product.inventory.service.ProductService;
+import org.junit.jupiter.api.Test;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import tools.jackson.databind.ObjectMapper;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Another node is played by notifying and listening on the relay channel directly
+ */
+@SpringBootTest
+@Testcontainers
+public class ProductChangeRelayIntegrationTest {
+
+    private static final String CHANNEL = "inventory_product_changes";
+
+    @Container
+    public static TestPostgresContainer postgres = TestPostgresContainer.getInstance();
+
+    @DynamicPropertySource
+    static void props(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+    }
+
+    @Autowired
+    private ProductService service;
+
+    @Autowired
+    private ProductChangeRelay relay;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void testChangeOfOtherNodeUpdatesCachedProduct() throws Exception {
+        awaitTrue(relay::isConnected);
+        Product saved = service.createProduct(new Product("Relayed lamp", 10, new BigDecimal("25.00")));
+        assertEquals(10, service.getProductById(saved.getId()).getQuantity());
+
+        // committed by the other node, then relayed
+        jdbcTemplate.update("UPDATE product SET quantity = 3, version = version + 1 WHERE id = ?", saved.getId());
+        Product changed = new Product(saved.getName(), 3, saved.getPrice());
+        changed.setId(saved.getId());
+        changed.setVersion(saved.getVersion() + 1);
+        List<String> messages = ProductChangeMessage.encode(objectMapper, "other-node", 1,
+                List.of(ProductChangeEvent.quantityChanged(changed, 10)), 7900);
+        jdbcTemplate.queryForList("SELECT pg_notify(?, ?)", CHANNEL, messages.get(0));
+
+        awaitTrue(() -> service.getProductById(saved.getId()).getQuantity() == 3);
+    }
+
+    @Test
+    void testChangeOfThisNodeIsNotified() throws Exception {
+        awaitTrue(relay::isConnected);
+        try (Connection connection = DriverManager.getConnection(postgres.getJdbcUrl(), postgres.getUsername(),
+                postgres.getPassword())) {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("LISTEN " + CHANNEL);
+            }
+            Product saved = service.createProduct(new Product("Notified desk", 4, new BigDecimal("150.00")));
+
+            long deadline = System.currentTimeMillis() + 5000;
+            while (System.currentTimeMillis() < deadline) {
+                PGNotification[] notifications = connection.unwrap(PGConnection.class).getNotifications(100);
+                for (PGNotification notification : notifications == null ? new PGNotification[0] : notifications) {
+                    ProductChangeMessage message = ProductChangeMessage.decode(objectMapper,
+                            notification.getParameter());
+                    if (message.getNode().equals(relay.getNode()) && message.getChanges().stream().anyMatch(c -> c.getProductId().equals(saved.getId()))) {
+                        return;
+                    }
+                }
+            }
+            fail("Change was not notified");
+        }
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "Condition not met within 5s");
+            Thread.sleep(20);
+        }
+    }
+}
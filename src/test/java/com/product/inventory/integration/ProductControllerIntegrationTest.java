@@ -2,26 +2,33 @@ package com.product.inventory.integration;
 
 import com.product.inventory.TestPostgresContainer;
 import com.product.inventory.model.Product;
+import com.product.inventory.model.ProductFeedFormat;
 import com.product.inventory.repositoty.ProductRepository;
+import com.product.inventory.service.ProductBinaryReader;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
 import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.DynamicPropertyRegistry;
 import org.springframework.test.context.DynamicPropertySource;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.ResultActions;
 import org.testcontainers.junit.jupiter.Container;
 import org.testcontainers.junit.jupiter.Testcontainers;
 import tools.jackson.databind.ObjectMapper;
 
+import java.io.ByteArrayInputStream;
 import java.io.UnsupportedEncodingException;
 import java.math.BigDecimal;
+import java.util.List;
 
 import static org.assertj.core.api.Assertions.*;
 import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.endsWith;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -39,7 +46,6 @@ public class ProductControllerIntegrationTest {
         registry.add("spring.datasource.url", postgres::getJdbcUrl);
         registry.add("spring.datasource.username", postgres::getUsername);
         registry.add("spring.datasource.password", postgres::getPassword);
-        registry.add("spring.jpa.hibernate.ddl-auto", () -> "create-drop");
     }
 
     @Autowired
@@ -51,9 +57,13 @@ public class ProductControllerIntegrationTest {
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
     @BeforeEach
     void cleanDb() {
         repository.deleteAll();
+        jdbcTemplate.update("DELETE FROM product_archive");
     }
 
     @Test
@@ -78,6 +88,33 @@ public class ProductControllerIntegrationTest {
         assertValidationException(result, "Price must be positive");
     }
 
+    @Test
+    void testImportProducts() throws Exception {
+        String body = "name,quantity,price\nLaptop,5,1200.00\nMouse,-1,20.00\n";
+
+        mockMvc.perform(post("/products/import")
+                        .contentType("text/csv")
+                        .content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported").value(1))
+                .andExpect(jsonPath("$.rejected").value(1));
+
+        assertThat(repository.searchByName("Laptop", "Laptop", 20, 0)).hasSize(1);
+    }
+
+    @Test
+    void testExportProducts() throws Exception {
+        repository.save(new Product("Laptop", 5, new BigDecimal("1000.00")));
+
+        MvcResult result = mockMvc.perform(get("/products/export?format=csv"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("Laptop,5,1000.00")));
+    }
+
     @Test
     void testGetAllProducts() throws Exception {
         repository.save(new Product("Laptop", 5, new BigDecimal("1000.0")));
@@ -89,6 +126,129 @@ public class ProductControllerIntegrationTest {
         assertThat(response.contains("Laptop")).isTrue();
     }
 
+    @Test
+    void testGetAllProducts_binary() throws Exception {
+        repository.save(new Product("Laptop", 5, new BigDecimal("1000.0")));
+
+        MvcResult result = mockMvc.perform(get("/products").accept(ProductFeedFormat.BINARY.getMediaType()))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(ProductFeedFormat.BINARY.getMediaType()))
+                .andExpect(header().string("ETag", endsWith("-binary\"")))
+                .andReturn();
+
+        List<Product> products = new ProductBinaryReader(
+                new ByteArrayInputStream(result.getResponse().getContentAsByteArray())).readAll();
+        assertThat(products).hasSize(1);
+        assertThat(products.get(0).getName()).isEqualTo("Laptop");
+        assertThat(products.get(0).getPrice()).isEqualByComparingTo("1000.00");
+    }
+
+    @Test
+    void testGetProductsWithCursor() throws Exception {
+        repository.save(new Product("Laptop", 5, new BigDecimal("1000.0")));
+        repository.save(new Product("Mouse", 5, new BigDecimal("20.0")));
+        repository.save(new Product("Monitor", 5, new BigDecimal("300.0")));
+
+        String firstPage = mockMvc.perform(get("/products/cursor?sort=price&size=2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].name").value("Mouse"))
+                .andExpect(jsonPath("$.items[1].name").value("Monitor"))
+                .andReturn().getResponse().getContentAsString();
+        String cursor = objectMapper.readTree(firstPage).get("nextCursor").asString();
+
+        mockMvc.perform(get("/products/cursor?size=2&cursor=" + cursor))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].name").value("Laptop"))
+                .andExpect(jsonPath("$.nextCursor").doesNotExist());
+    }
+
+    @Test
+    void testGetProductsWithCursor_invalidCursor() throws Exception {
+        mockMvc.perform(get("/products/cursor?cursor=abc"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testGetProductsWithCursor_invalidDirection() throws Exception {
+        mockMvc.perform(get("/products/cursor?direction=descending"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testGetProduct_seesQuantityUpdate() throws Exception {
+        Product saved = repository.save(new Product("TV", 3, new BigDecimal("800.0")));
+
+        mockMvc.perform(get("/products/" + saved.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.quantity").value(3));
+        mockMvc.perform(patch("/products/" + saved.getId() + "/quantity/delta?delta=2"));
+
+        mockMvc.perform(get("/products/" + saved.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.quantity").value(5));
+    }
+
+    @Test
+    void testGetProduct_productNotFound() throws Exception {
+        mockMvc.perform(get("/products/" + 3000L))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void testGetProduct_notModified() throws Exception {
+        Product saved = repository.save(new Product("TV", 3, new BigDecimal("800.0")));
+
+        String etag = mockMvc.perform(get("/products/" + saved.getId()))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"0-json\""))
+                .andReturn().getResponse().getHeader("ETag");
+        mockMvc.perform(get("/products/" + saved.getId()).header("If-None-Match", etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        mockMvc.perform(patch("/products/" + saved.getId() + "/quantity/delta?delta=2"));
+        mockMvc.perform(get("/products/" + saved.getId()).header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"1-json\""))
+                .andExpect(jsonPath("$.quantity").value(5));
+    }
+
+    @Test
+    void testGetAllProducts_notModified() throws Exception {
+        repository.save(new Product("TV", 3, new BigDecimal("800.0")));
+
+        String etag = mockMvc.perform(get("/products"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+        assertThat(etag).startsWith("W/\"").endsWith("-json\"");
+        mockMvc.perform(get("/products").header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+        mockMvc.perform(get("/products/summary").header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+
+        mockMvc.perform(post("/products")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new Product("Radio", 1, new BigDecimal("50.0")))));
+        mockMvc.perform(get("/products").header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2));
+    }
+
+    @Test
+    void testUpdateQuantity_ifMatch() throws Exception {
+        Product saved = repository.save(new Product("TV", 3, new BigDecimal("800.0")));
+
+        mockMvc.perform(put("/products/" + saved.getId() + "/quantity?quantity=7").header("If-Match", "\"5\""))
+                .andExpect(status().isPreconditionFailed());
+        mockMvc.perform(put("/products/" + saved.getId() + "/quantity?quantity=7").header("If-Match", "\"0\""))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.version").value(1));
+        mockMvc.perform(put("/products/" + saved.getId() + "/quantity?quantity=9").header("If-Match", "\"0\""))
+                .andExpect(status().isPreconditionFailed());
+
+        assertThat(repository.findById(saved.getId()).orElseThrow().getQuantity()).isEqualTo(7);
+    }
+
     @Test
     void testUpdateQuantity_success() throws Exception {
         Product saved = repository.save(new Product("TV", 3, new BigDecimal("800.0")));
@@ -113,6 +273,30 @@ public class ProductControllerIntegrationTest {
                 .andExpect(content().string(containsString("Quantity must be greater than or equal to 0")));
     }
 
+    @Test
+    void testAdjustQuantity_success() throws Exception {
+        Product saved = repository.save(new Product("TV", 3, new BigDecimal("800.0")));
+
+        mockMvc.perform(patch("/products/" + saved.getId() + "/quantity/delta?delta=-2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.quantity").value(1));
+    }
+
+    @Test
+    void testAdjustQuantity_insufficientStock() throws Exception {
+        Product saved = repository.save(new Product("TV", 3, new BigDecimal("800.0")));
+
+        mockMvc.perform(patch("/products/" + saved.getId() + "/quantity/delta?delta=-4"))
+                .andExpect(status().isConflict())
+                .andExpect(content().string(containsString("Insufficient stock")));
+    }
+
+    @Test
+    void testAdjustQuantity_productNotFound() throws Exception {
+        mockMvc.perform(patch("/products/" + 3000L + "/quantity/delta?delta=1"))
+                .andExpect(status().isNotFound());
+    }
+
     @Test
     void testDeleteProduct() throws Exception {
         Product saved = repository.save(new Product("Camera", 2, new BigDecimal("700.0")));
@@ -127,6 +311,111 @@ public class ProductControllerIntegrationTest {
         assertValidationException(resultActions, "Product not found");
     }
 
+    @Test
+    void testReserveAndConfirmStock() throws Exception {
+        Product saved = repository.save(new Product("Camera", 5, new BigDecimal("700.0")));
+
+        MvcResult reserved = mockMvc.perform(post("/products/" + saved.getId() + "/reservations?quantity=3"))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.state").value("ACTIVE"))
+                .andReturn();
+        String location = reserved.getResponse().getHeader("Location");
+
+        mockMvc.perform(get("/products/" + saved.getId() + "/availability"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.quantity").value(5))
+                .andExpect(jsonPath("$.reserved").value(3))
+                .andExpect(jsonPath("$.available").value(2));
+        mockMvc.perform(post("/products/" + saved.getId() + "/reservations?quantity=3"))
+                .andExpect(status().isConflict());
+
+        mockMvc.perform(post(location + "/confirm"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.quantity").value(2));
+        mockMvc.perform(get("/products/" + saved.getId() + "/availability"))
+                .andExpect(jsonPath("$.reserved").value(0))
+                .andExpect(jsonPath("$.available").value(2));
+        mockMvc.perform(get(location))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void testReleaseReservation() throws Exception {
+        Product saved = repository.save(new Product("Camera", 5, new BigDecimal("700.0")));
+
+        String location = mockMvc.perform(post("/products/" + saved.getId() + "/reservations?quantity=5&ttlSeconds=60"))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getHeader("Location");
+
+        mockMvc.perform(delete(location))
+                .andExpect(status().isNoContent());
+        mockMvc.perform(delete(location))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(get("/products/" + saved.getId() + "/availability"))
+                .andExpect(jsonPath("$.available").value(5));
+    }
+
+    @Test
+    void testCleanupProducts_archive() throws Exception {
+        Product camera = repository.save(new Product("Camera", 0, new BigDecimal("700.0")));
+        Product laptop = repository.save(new Product("Laptop", 5, new BigDecimal("1000.0")));
+
+        MvcResult submitted = mockMvc.perform(post("/products/cleanup")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"ids\":[" + camera.getId() + ",3000],\"archive\":true}"))
+                .andExpect(status().isAccepted())
+                .andExpect(header().exists("Location"))
+                .andReturn();
+        String location = submitted.getResponse().getHeader("Location");
+
+        String state = "QUEUED";
+        for (int i = 0; i < 100 && (state.equals("QUEUED") || state.equals("RUNNING")); i++) {
+            Thread.sleep(50);
+            state = objectMapper.readTree(mockMvc.perform(get(location)).andReturn().getResponse()
+                    .getContentAsString()).get("state").asString();
+        }
+        mockMvc.perform(get(location))
+                .andExpect(jsonPath("$.state").value("COMPLETED"))
+                .andExpect(jsonPath("$.removed").value(1))
+                .andExpect(jsonPath("$.notFound").value(1));
+
+        assertThat(repository.findById(camera.getId())).isEmpty();
+        assertThat(repository.findById(laptop.getId())).isPresent();
+        assertThat(jdbcTemplate.queryForObject("SELECT name FROM product_archive WHERE id = ?", String.class,
+                camera.getId())).isEqualTo("Camera");
+    }
+
+    @Test
+    void testCleanupProducts_outOfStock() throws Exception {
+        Product camera = repository.save(new Product("Camera", 3, new BigDecimal("700.0")));
+        jdbcTemplate.update("UPDATE product SET quantity = 0 WHERE id = ?", camera.getId());
+        jdbcTemplate.update("UPDATE product SET out_of_stock_since = now() - interval '40 days' WHERE id = ?",
+                camera.getId());
+        Product tripod = repository.save(new Product("Tripod", 0, new BigDecimal("50.0")));
+
+        mockMvc.perform(post("/products/cleanup")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"outOfStockDays\":30}"))
+                .andExpect(status().isAccepted());
+
+        for (int i = 0; i < 100 && repository.findById(camera.getId()).isPresent(); i++) {
+            Thread.sleep(50);
+        }
+        assertThat(repository.findById(camera.getId())).isEmpty();
+        assertThat(repository.findById(tripod.getId())).isPresent();
+    }
+
+    @Test
+    void testCleanupProducts_invalidRequest() throws Exception {
+        mockMvc.perform(post("/products/cleanup")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"ids\":[1],\"outOfStockDays\":30}"))
+                .andExpect(status().isBadRequest());
+
+        mockMvc.perform(get("/products/cleanup/unknown"))
+                .andExpect(status().isNotFound());
+    }
+
     @Test
     void testInventorySummary() throws Exception {
         repository.save(new Product("Laptop", 0, new BigDecimal("1000.0")));
@@ -138,6 +427,129 @@ public class ProductControllerIntegrationTest {
         assertThat(response.contains("averagePrice")).isTrue();
     }
 
+    @Test
+    void testInventorySummary_refresh() throws Exception {
+        mockMvc.perform(get("/products/summary"));
+        repository.save(new Product("Mouse", 0, new BigDecimal("20.0")));
+
+        ResultActions result = mockMvc.perform(get("/products/summary?refresh=true"));
+        String response = result.andReturn().getResponse().getContentAsString();
+
+        result.andExpect(status().isOk());
+        assertThat(response.contains("Mouse")).isTrue();
+    }
+
+    @Test
+    void testGetOutOfStockProducts() throws Exception {
+        repository.save(new Product("Laptop", 5, new BigDecimal("1000.0")));
+        repository.save(new Product("Mouse", 0, new BigDecimal("20.0")));
+        repository.save(new Product("Monitor", 50, new BigDecimal("300.0")));
+        mockMvc.perform(get("/products/summary?refresh=true"));
+
+        mockMvc.perform(get("/products/out-of-stock"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalElements").value(1))
+                .andExpect(jsonPath("$.items[0].name").value("Mouse"));
+
+        mockMvc.perform(get("/products/out-of-stock?lowStock=true&size=1&page=2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalElements").value(2))
+                .andExpect(jsonPath("$.items[0].name").value("Laptop"));
+    }
+
+    @Test
+    void testPrometheusMetrics() throws Exception {
+        Product saved = repository.save(new Product("Laptop", 5, new BigDecimal("1000.0")));
+        mockMvc.perform(get("/products/" + saved.getId())).andExpect(status().isOk());
+
+        mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("inventory_service_seconds_bucket")))
+                .andExpect(content().string(containsString("method=\"getProductById\"")))
+                .andExpect(content().string(containsString("spring_data_repository_invocations_seconds")))
+                .andExpect(content().string(containsString("hikaricp_connections_pending")));
+    }
+
+    @Test
+    void testUpdateProductQuantities() throws Exception {
+        Product laptop = repository.save(new Product("Laptop", 5, new BigDecimal("1000.0")));
+        Product mouse = repository.save(new Product("Mouse", 1, new BigDecimal("20.0")));
+        String body = "[{\"id\": " + laptop.getId() + ", \"quantity\": 50}, " +
+                "{\"id\": " + mouse.getId() + ", \"delta\": -2}, {\"id\": 987654, \"quantity\": 1}]";
+
+        mockMvc.perform(put("/products/quantities")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.updated").value(1))
+                .andExpect(jsonPath("$.missingIds[0]").value(987654))
+                .andExpect(jsonPath("$.rejected[0].index").value(1));
+
+        assertThat(repository.findById(laptop.getId()).orElseThrow().getQuantity()).isEqualTo(50);
+        assertThat(repository.findById(mouse.getId()).orElseThrow().getQuantity()).isEqualTo(1);
+    }
+
+    @Test
+    void testStreamProductChanges() throws Exception {
+        MvcResult stream = mockMvc.perform(get("/products/events").param("since", "0"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(post("/products")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new Product("Laptop", 5, new BigDecimal("1000.0")))))
+                .andExpect(status().isCreated());
+
+        // a stream resuming from an unknown sequence starts with a reset
+        String events = awaitContent(stream, "event:created");
+        assertThat(events).startsWith("id:");
+        assertThat(events).contains("event:reset");
+        assertThat(events).contains("\"name\":\"Laptop\"");
+    }
+
+    private String awaitContent(MvcResult result, String expected) throws Exception {
+        long deadline = System.currentTimeMillis() + 5000;
+        String content = result.getResponse().getContentAsString();
+        while (!content.contains(expected) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+            content = result.getResponse().getContentAsString();
+        }
+        return content;
+    }
+
+    @Test
+    void testProductAnalytics() throws Exception {
+        repository.save(new Product("Laptop", 5, new BigDecimal("1000.0")));
+        repository.save(new Product("Mouse", 10, new BigDecimal("20.0")));
+
+        mockMvc.perform(get("/products/analytics/stats?refresh=true"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.products").value(2))
+                .andExpect(jsonPath("$.stockValue").value(5200.0));
+
+        mockMvc.perform(post("/products")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new Product("Gaming Mouse", 3, new BigDecimal("80.0")))))
+                .andExpect(status().isCreated());
+
+        mockMvc.perform(get("/products/analytics/stats?name=mouse"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.products").value(2))
+                .andExpect(jsonPath("$.totalQuantity").value(13));
+
+        mockMvc.perform(get("/products/analytics/top?by=stock-value&limit=1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].name").value("Laptop"));
+
+        mockMvc.perform(get("/products/analytics/price-histogram?buckets=2&maxPrice=100"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].products").value(1));
+
+        mockMvc.perform(get("/products/analytics/top?by=name"))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     void testSearchByName_Success() throws Exception {
         repository.save(new Product("Laptop", 0, new BigDecimal("1000.0")));
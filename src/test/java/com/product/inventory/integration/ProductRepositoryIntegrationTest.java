@@ -3,6 +3,7 @@ package com.product.inventory.integration;
 import com.product.inventory.TestPostgresContainer;
 import com.product.inventory.model.Product;
 import com.product.inventory.repositoty.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
@@ -30,12 +31,16 @@ public class ProductRepositoryIntegrationTest {
         registry.add("spring.datasource.url", postgres::getJdbcUrl);
         registry.add("spring.datasource.username", postgres::getUsername);
         registry.add("spring.datasource.password", postgres::getPassword);
-        registry.add("spring.jpa.hibernate.ddl-auto", () -> "create-drop");
     }
 
     @Autowired
     private ProductRepository repository;
 
+    @BeforeEach
+    void cleanDb() {
+        repository.deleteAll();
+    }
+
     @Test
     void testSaveAndFind() {
         Product p = new Product("Laptop", 4, new BigDecimal("1200.0"));
@@ -50,10 +55,25 @@ public class ProductRepositoryIntegrationTest {
         repository.save(new Product("Laptop", 5, new BigDecimal("1200.0")));
         repository.save(new Product("laptop",6,  new BigDecimal("1100.0")));
 
-        List<Product> products = repository.findByNameContainingIgnoreCase("LAP");
+        List<Product> products = repository.searchByName("LAP", "LAP", 20, 0);
         assertThat(products).hasSize(2);
     }
 
+    @Test
+    void testSearchByName_ranksBestMatchesFirst() {
+        repository.save(new Product("Gaming Laptop", 1, new BigDecimal("1500.0")));
+        repository.save(new Product("Laptop Stand", 2, new BigDecimal("40.0")));
+        repository.save(new Product("laptop", 3, new BigDecimal("900.0")));
+        repository.save(new Product("Monitor", 4, new BigDecimal("300.0")));
+
+        List<Product> products = repository.searchByName("Laptop", "Laptop", 10, 0);
+
+        assertThat(products).extracting(Product::getName)
+                .containsExactly("laptop", "Laptop Stand", "Gaming Laptop");
+        assertThat(repository.searchByName("Laptop", "Laptop", 1, 1))
+                .extracting(Product::getName).containsExactly("Laptop Stand");
+    }
+
     @Test
     void testSaveAndDelete() {
         Product p = new Product("Monitor", 10, new BigDecimal("120.0"));
@@ -2,6 +2,7 @@ package com.product.inventory.integration;
 
 import com.product.inventory.TestPostgresContainer;
 import com.product.inventory.model.Product;
+import com.product.inventory.repositoty.ProductRepository;
 import com.product.inventory.service.ProductService;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -12,9 +13,13 @@ import org.testcontainers.junit.jupiter.Container;
 import org.testcontainers.junit.jupiter.Testcontainers;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatNoException;
@@ -33,12 +38,14 @@ public class ProductServiceIntegrationTest {
         registry.add("spring.datasource.url", postgres::getJdbcUrl);
         registry.add("spring.datasource.username", postgres::getUsername);
         registry.add("spring.datasource.password", postgres::getPassword);
-        registry.add("spring.jpa.hibernate.ddl-auto", () -> "create-drop");
     }
 
     @Autowired
     private ProductService service;
 
+    @Autowired
+    private ProductRepository repository;
+
     @Test
     void testCreateProduct() {
         Product p = new Product("TV", 2, new BigDecimal("900.0"));
@@ -55,6 +62,26 @@ public class ProductServiceIntegrationTest {
         assertThat(updated.getQuantity()).isEqualTo(updatedQuantity);
     }
 
+    @Test
+    void testUpdateQuantity_concurrent() throws Exception {
+        Product saved = service.createProduct(new Product("Mouse", 0, new BigDecimal("20.0")));
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Product>> updates = new ArrayList<>();
+            for (int i = 1; i <= 200; i++) {
+                int quantity = i;
+                updates.add(executor.submit(() -> service.updateQuantity(saved.getId(), quantity)));
+            }
+            // none of them fails on a concurrent update, every one increments the version
+            for (Future<Product> update : updates) {
+                update.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(saved.getVersion() + 200, repository.findById(saved.getId()).orElseThrow().getVersion());
+    }
+
     @Test
     void testUpdateQuantity_productNotFound() {
         int updatedQuantity = 5;
@@ -0,0 +1,116 @@
+package com.product.inventory.integration;
+
+import com.product.inventory.TestPostgresContainer;
+import com.product.inventory.model.Product;
+import com.product.inventory.repositoty.ProductRepository;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.not;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Runs the application against two independent PostgreSQL instances, the second one configured as replica.
+ * Rows only present on the replica show which requests are routed to it.
+ */
+@SpringBootTest
+@Testcontainers
+@AutoConfigureMockMvc
+public class ReadReplicaRoutingIntegrationTest {
+
+    @Container
+    public static TestPostgresContainer postgres = TestPostgresContainer.getInstance();
+
+    @Container
+    public static PostgreSQLContainer<?> replica = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @DynamicPropertySource
+    static void configure(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+        registry.add("inventory.datasource.replicas", replica::getJdbcUrl);
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ProductRepository repository;
+
+    @BeforeAll
+    static void createReplicaSchema() throws SQLException {
+        execute("""
+                CREATE EXTENSION IF NOT EXISTS pg_trgm;
+                CREATE TABLE IF NOT EXISTS product (id bigserial PRIMARY KEY, name varchar(255) NOT NULL,
+                    quantity integer NOT NULL, price numeric(38, 2) NOT NULL, version bigint NOT NULL DEFAULT 0)""");
+    }
+
+    @BeforeEach
+    void cleanDb() throws SQLException {
+        repository.deleteAll();
+        execute("TRUNCATE product");
+    }
+
+    @Test
+    void testListingsAreReadFromReplica() throws Exception {
+        execute("INSERT INTO product (id, name, quantity, price) VALUES (1000, 'Replica Monitor', 3, 150.00)");
+
+        mockMvc.perform(get("/products"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].name").value(hasItem("Replica Monitor")));
+        mockMvc.perform(get("/products/search").param("name", "monitor"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].id").value(hasItem(1000)));
+    }
+
+    @Test
+    void testProductByIdIsReadFromPrimary() throws Exception {
+        execute("INSERT INTO product (id, name, quantity, price) VALUES (1000, 'Replica Monitor', 3, 150.00)");
+        Product saved = repository.save(new Product("Primary Laptop", 5, new BigDecimal("1200.00")));
+
+        mockMvc.perform(get("/products/1000"))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(get("/products/" + saved.getId()))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/products"))
+                .andExpect(jsonPath("$[*].name").value(not(hasItem("Primary Laptop"))));
+    }
+
+    @Test
+    void testSummaryIsReadFromPrimary() throws Exception {
+        execute("INSERT INTO product (id, name, quantity, price) VALUES (1000, 'Replica Monitor', 3, 150.00)");
+        repository.save(new Product("Primary Laptop", 5, new BigDecimal("1200.00")));
+
+        mockMvc.perform(get("/products/summary").param("refresh", "true"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalProducts").value(1))
+                .andExpect(jsonPath("$.totalQuantity").value(5));
+    }
+
+    private static void execute(String sql) throws SQLException {
+        try (Connection connection = DriverManager.getConnection(replica.getJdbcUrl(), replica.getUsername(),
+                replica.getPassword());
+             Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+}
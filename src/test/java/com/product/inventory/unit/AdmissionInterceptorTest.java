@@ -0,0 +1,222 @@
+package com.product.inventory.unit;
+
+import com.product.inventory.configuration.AdaptiveConcurrencyLimit;
+import com.product.inventory.configuration.AdmissionCost;
+import com.product.inventory.configuration.AdmissionInterceptor;
+import com.product.inventory.exception.TooManyRequestsException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.DispatcherType;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AdmissionInterceptorTest {
+
+    private static final long MS = 1_000_000;
+
+    private final MockHttpServletResponse response = new MockHttpServletResponse();
+
+    @Test
+    public void testClientBeyondBurstIsRejectedWithRetryAfter() throws Exception {
+        // 1 token per second, burst of 10
+        AdmissionInterceptor interceptor = interceptor("", 100);
+
+        for (int i = 0; i < 10; i++) {
+            admit(interceptor, request("10.0.0.1"), "byId");
+        }
+        TooManyRequestsException rejected = assertThrows(TooManyRequestsException.class,
+                () -> interceptor.preHandle(request("10.0.0.1"), response, handler("byId")));
+        assertEquals(1, rejected.getRetryAfterSeconds());
+        // other clients have their own bucket
+        admit(interceptor, request("10.0.0.2"), "byId");
+    }
+
+    @Test
+    public void testExpensiveEndpointTakesMoreTokens() throws Exception {
+        AdmissionInterceptor interceptor = interceptor("", 100);
+
+        admit(interceptor, request("10.0.0.1"), "search");
+        admit(interceptor, request("10.0.0.1"), "search");
+        TooManyRequestsException rejected = assertThrows(TooManyRequestsException.class,
+                () -> interceptor.preHandle(request("10.0.0.1"), response, handler("search")));
+        assertEquals(5, rejected.getRetryAfterSeconds());
+    }
+
+    @Test
+    public void testClientsAreToldApartByHeader() throws Exception {
+        AdmissionInterceptor interceptor = interceptor("X-Client-Id", 100);
+
+        for (int i = 0; i < 10; i++) {
+            admit(interceptor, withClientId(request("10.0.0.1"), "a"), "byId");
+        }
+        assertThrows(TooManyRequestsException.class,
+                () -> interceptor.preHandle(withClientId(request("10.0.0.1"), "a"), response, handler("byId")));
+        admit(interceptor, withClientId(request("10.0.0.1"), "b"), "byId");
+    }
+
+    @Test
+    public void testEndpointConcurrencyIsLimitedByCost() throws Exception {
+        // 10 requests of cost 1 at once, 2 of cost 5
+        AdmissionInterceptor interceptor = interceptor("", 10);
+        MockHttpServletRequest first = request("10.0.0.1");
+        admit(interceptor, first, "search");
+        admit(interceptor, request("10.0.0.2"), "search");
+
+        TooManyRequestsException rejected = assertThrows(TooManyRequestsException.class,
+                () -> interceptor.preHandle(request("10.0.0.3"), response, handler("search")));
+        assertEquals(1, rejected.getRetryAfterSeconds());
+        // other endpoints have their own limit
+        admit(interceptor, request("10.0.0.3"), "byId");
+
+        interceptor.afterCompletion(first, response, handler("search"), null);
+        admit(interceptor, request("10.0.0.3"), "search");
+        assertEquals(2, interceptor.getLimit(handler("search").getMethod()).getInFlight());
+    }
+
+    @Test
+    public void testAsyncDispatchAndStreamsAreNotCountedAgain() throws Exception {
+        AdmissionInterceptor interceptor = interceptor("", 1);
+        MockHttpServletRequest request = request("10.0.0.1");
+        admit(interceptor, request, "byId");
+
+        request.setDispatcherType(DispatcherType.ASYNC);
+        admit(interceptor, request, "byId");
+        interceptor.afterCompletion(request, response, handler("byId"), null);
+        assertEquals(0, interceptor.getLimit(handler("byId").getMethod()).getInFlight());
+
+        admit(interceptor, request("10.0.0.1"), "stream");
+        admit(interceptor, request("10.0.0.1"), "stream");
+    }
+
+    @Test
+    public void testDisabledAdmitsEverything() throws Exception {
+        AdmissionInterceptor interceptor = new AdmissionInterceptor(new SimpleMeterRegistry(), false, 1, 1, "", 100,
+                1, 1, 2, Duration.ofMillis(100));
+        for (int i = 0; i < 10; i++) {
+            admit(interceptor, request("10.0.0.1"), "search");
+        }
+    }
+
+    @Test
+    public void testConcurrencyLimitShrinksWhileLatencyGrows() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(10, 1, 2, 100 * MS, 0);
+
+        assertTrue(limit.tryAcquire());
+        limit.release(20 * MS, 100 * MS);
+        assertEquals(10, limit.getLimit());
+        assertEquals(20 * MS, limit.getBaselineNanos());
+
+        long now = release(limit, 200 * MS, 100 * MS, 1);
+        assertEquals(9, limit.getLimit());
+        assertTrue(limit.tryAcquire());
+        // within the adjust interval the limit stays
+        limit.release(200 * MS, now + 50 * MS);
+        assertEquals(9, limit.getLimit());
+
+        release(limit, 200 * MS, now, 50);
+        assertEquals(1, limit.getLimit());
+        assertTrue(limit.tryAcquire());
+        assertFalse(limit.tryAcquire());
+    }
+
+    @Test
+    public void testSlowEndpointKeepsItsLimit() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(10, 1, 2, 100 * MS, 0);
+
+        release(limit, 500 * MS, 0, 100);
+
+        assertEquals(10, limit.getLimit());
+        assertEquals(500 * MS, limit.getBaselineNanos());
+    }
+
+    @Test
+    public void testConcurrencyLimitStopsAtItsMinimum() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(20, 5, 2, 100 * MS, 0);
+        long now = release(limit, MS, 0, 1);
+
+        release(limit, 500 * MS, now, 50);
+
+        assertEquals(5, limit.getLimit());
+    }
+
+    @Test
+    public void testConcurrencyLimitGrowsBackOnceLatencyIsUsualAgain() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(4, 1, 2, 100 * MS, 0);
+        long now = release(limit, MS, 0, 1);
+        now = release(limit, 500 * MS, now, 10);
+        assertEquals(1, limit.getLimit());
+
+        release(limit, MS, now, 100);
+        assertEquals(4, limit.getLimit());
+        assertEquals(0, limit.getInFlight());
+    }
+
+    @Test
+    public void testFixedConcurrencyLimit() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(2, 1, 0, 100 * MS, 0);
+
+        assertTrue(limit.tryAcquire());
+        assertTrue(limit.tryAcquire());
+        assertFalse(limit.tryAcquire());
+        limit.release(60_000 * MS, 1000 * MS);
+        assertEquals(2, limit.getLimit());
+        assertTrue(limit.tryAcquire());
+    }
+    /**
+     * Completes one request of given latency per adjust interval
+     *
+     * @return time of the last completion
+     */
+    private static long release(AdaptiveConcurrencyLimit limit, long latencyNanos, long now, int times) {
+        for (int i = 0; i < times; i++) {
+            now += 100 * MS;
+            assertTrue(limit.tryAcquire());
+            limit.release(latencyNanos, now);
+        }
+        return now;
+    }
+
+    private static AdmissionInterceptor interceptor(String clientHeader, int maxConcurrency) {
+        return new AdmissionInterceptor(new SimpleMeterRegistry(), true, 1, 10, clientHeader, 100, maxConcurrency,
+                1, 2, Duration.ofMillis(100));
+    }
+
+    private static void admit(AdmissionInterceptor interceptor, MockHttpServletRequest request, String endpoint)
+            throws Exception {
+        assertTrue(interceptor.preHandle(request, new MockHttpServletResponse(), handler(endpoint)));
+    }
+
+    private static MockHttpServletRequest request(String remoteAddress) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/products");
+        request.setRemoteAddr(remoteAddress);
+        return request;
+    }
+
+    private static MockHttpServletRequest withClientId(MockHttpServletRequest request, String clientId) {
+        request.addHeader("X-Client-Id", clientId);
+        return request;
+    }
+
+    private static HandlerMethod handler(String method) throws NoSuchMethodException {
+        return new HandlerMethod(new Endpoints(), Endpoints.class.getMethod(method));
+    }
+
+    public static class Endpoints {
+
+        public void byId() {
+        }
+
+        @AdmissionCost(5)
+        public void search() {
+        }
+
+        @AdmissionCost(value = 1, concurrencyLimited = false)
+        public void stream() {
+        }
+    }
+}
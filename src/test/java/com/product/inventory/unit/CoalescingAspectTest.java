@@ -0,0 +1,136 @@
+package com.product.inventory.unit;
+
+import com.product.inventory.configuration.Coalesced;
+import com.product.inventory.configuration.CoalescingAspect;
+import com.product.inventory.event.ProductChangeEvent;
+import com.product.inventory.model.Product;
+import com.product.inventory.service.InventoryVersion;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CoalescingAspectTest {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final InventoryVersion inventoryVersion = new InventoryVersion("", Duration.ofSeconds(1),
+            Duration.ofSeconds(1));
+    private final Searches target = new Searches();
+    private final ExecutorService pool = Executors.newFixedThreadPool(4);
+
+    @AfterEach
+    public void shutdown() {
+        target.release.countDown();
+        pool.shutdownNow();
+    }
+
+    @Test
+    public void testIdenticalSearchesShareOneQuery() throws Exception {
+        Searches searches = proxy(true);
+        List<Future<List<String>>> results = List.of(
+                pool.submit(() -> searches.search("lap", 0)),
+                pool.submit(() -> searches.search("lap", 0)),
+                pool.submit(() -> searches.search("lap", 0)));
+        awaitJoined("search", 2);
+        target.release.countDown();
+
+        for (Future<List<String>> result : results) {
+            assertEquals(List.of("lap:0"), result.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, target.queries.get());
+        assertEquals(1, count("search", "executed"));
+    }
+
+    @Test
+    public void testSearchesWithOtherKeysAreNotShared() throws Exception {
+        Searches searches = proxy(true);
+        target.release.countDown();
+
+        searches.search("lap", 0);
+        searches.search("lap", 1);
+        searches.search("mouse", 0);
+
+        assertEquals(3, target.queries.get());
+        assertEquals(0, count("search", "joined"));
+    }
+
+    @Test
+    public void testSearchStartedBeforeChangeIsNotShared() throws Exception {
+        Searches searches = proxy(true);
+        Future<List<String>> before = pool.submit(() -> searches.search("lap", 0));
+        while (target.queries.get() == 0) {
+            Thread.sleep(1);
+        }
+        Product product = new Product("Laptop", 3, new BigDecimal("10.00"));
+        product.setId(1L);
+        inventoryVersion.onProductChange(ProductChangeEvent.created(product));
+
+        Future<List<String>> after = pool.submit(() -> searches.search("lap", 0));
+        while (target.queries.get() < 2) {
+            Thread.sleep(1);
+        }
+        target.release.countDown();
+        before.get(5, TimeUnit.SECONDS);
+        after.get(5, TimeUnit.SECONDS);
+        assertEquals(0, count("search", "joined"));
+    }
+
+    @Test
+    public void testDisabled() throws Exception {
+        Searches searches = proxy(false);
+        target.release.countDown();
+
+        searches.search("lap", 0);
+        searches.search("lap", 0);
+
+        assertEquals(2, target.queries.get());
+        assertNull(meterRegistry.find("inventory.coalescing.calls").counter());
+    }
+
+    private Searches proxy(boolean enabled) {
+        AspectJProxyFactory factory = new AspectJProxyFactory(target);
+        factory.setProxyTargetClass(true);
+        factory.addAspect(new CoalescingAspect(inventoryVersion, meterRegistry, enabled));
+        return factory.getProxy();
+    }
+
+    private void awaitJoined(String method, int joined) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (count(method, "joined") < joined && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+    }
+
+    private double count(String method, String result) {
+        Counter counter = meterRegistry.find("inventory.coalescing.calls").tag("method", method)
+                .tag("result", result).counter();
+        return counter == null ? 0 : counter.count();
+    }
+
+    public static class Searches {
+
+        private final AtomicInteger queries = new AtomicInteger();
+        private final CountDownLatch release = new CountDownLatch(1);
+
+        @Coalesced(value = "search", key = "{#name, #page}")
+        public List<String> search(String name, int page) throws InterruptedException {
+            queries.incrementAndGet();
+            release.await();
+            return List.of(name + ":" + page);
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package com.product.inventory.unit;
+
+import com.product.inventory.event.ProductChangeEvent;
+import com.product.inventory.model.InventorySummary;
+import com.product.inventory.model.InventoryTotals;
+import com.product.inventory.model.LowStockProduct;
+import com.product.inventory.model.Product;
+import com.product.inventory.repositoty.ProductBulkRepository;
+import com.product.inventory.repositoty.ProductRepository;
+import com.product.inventory.service.InventorySummaryEngine;
+import com.product.inventory.service.LowStockIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+
+import static com.product.inventory.TestProducts.product;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class InventorySummaryEngineTest {
+
+    private ProductRepository repository;
+
+    private ProductBulkRepository bulkRepository;
+
+    private PlatformTransactionManager transactionManager;
+
+    private LowStockIndex lowStockIndex;
+
+    private InventorySummaryEngine engine;
+
+    @BeforeEach
+    public void setup() {
+        repository = mock(ProductRepository.class);
+        when(repository.summarize()).thenReturn(new InventoryTotals(2L, 10L, new BigDecimal("300.00")));
+        when(repository.findLowStock(10)).thenReturn(List.of(new LowStockProduct(2L, "Mouse", 0)));
+        bulkRepository = mock(ProductBulkRepository.class);
+        transactionManager = mock(PlatformTransactionManager.class);
+        lowStockIndex = new LowStockIndex(repository, 10);
+        engine = new InventorySummaryEngine(repository, bulkRepository, lowStockIndex, transactionManager,
+                Duration.ofMinutes(1), Duration.ofSeconds(1), 100);
+    }
+
+    @Test
+    public void testSummaryIsLoadedOnce() {
+        InventorySummary first = engine.getSummary(false);
+        InventorySummary second = engine.getSummary(false);
+
+        assertEquals(2L, first.getTotalProducts());
+        assertEquals(10L, first.getTotalQuantity());
+        assertEquals(new BigDecimal("150.00"), first.getAveragePrice());
+        assertEquals(1L, first.getOutOfStockCount());
+        assertEquals(1, first.getOutOfStock().size());
+        assertSame(first, second);
+        verify(repository, times(1)).summarize();
+        verify(repository, times(1)).findLowStock(10);
+    }
+
+    @Test
+    public void testForceRefresh() {
+        engine.getSummary(false);
+        engine.getSummary(true);
+
+        verify(repository, times(2)).summarize();
+        verify(repository, times(2)).findLowStock(10);
+    }
+
+    @Test
+    public void testZeroStalenessAlwaysReloads() {
+        engine = new InventorySummaryEngine(repository, bulkRepository, lowStockIndex, transactionManager,
+                Duration.ZERO, Duration.ofSeconds(1), 100);
+        engine.getSummary(false);
+        engine.getSummary(false);
+
+        verify(repository, times(2)).summarize();
+        verify(repository, times(2)).findLowStock(10);
+    }
+
+    @Test
+    public void testLowStockIndexIsReloadedWhenStale() throws InterruptedException {
+        engine = new InventorySummaryEngine(repository, bulkRepository, lowStockIndex, transactionManager,
+                Duration.ofMillis(50), Duration.ofSeconds(1), 100);
+        engine.getSummary(false);
+        // sold out outside this service
+        when(repository.findLowStock(10)).thenReturn(List.of(new LowStockProduct(1L, "Laptop", 0),
+                new LowStockProduct(2L, "Mouse", 0)));
+        assertEquals(1L, engine.getSummary(false).getOutOfStockCount());
+
+        Thread.sleep(100);
+
+        assertEquals(2L, engine.getSummary(false).getOutOfStockCount());
+        verify(repository, times(2)).findLowStock(10);
+    }
+
+    @Test
+    public void testChangesAreAppliedIncrementally() {
+        engine.getSummary(false);
+
+        Product created = product(3L, "Laptop", 0, "600.00");
+        publish(ProductChangeEvent.created(created));
+        InventorySummary summary = engine.getSummary(false);
+        assertEquals(3L, summary.getTotalProducts());
+        assertEquals(new BigDecimal("300.00"), summary.getAveragePrice());
+        assertEquals(2, summary.getOutOfStock().size());
+
+        created.setQuantity(5);
+        publish(ProductChangeEvent.quantityChanged(created, 0));
+        summary = engine.getSummary(false);
+        assertEquals(15L, summary.getTotalQuantity());
+        assertEquals(1, summary.getOutOfStock().size());
+
+        publish(ProductChangeEvent.deleted(product(2L, "Mouse", 0, "100.00")));
+        summary = engine.getSummary(false);
+        assertEquals(2L, summary.getTotalProducts());
+        assertEquals(15L, summary.getTotalQuantity());
+        assertEquals(new BigDecimal("400.00"), summary.getAveragePrice());
+        assertTrue(summary.getOutOfStock().isEmpty());
+
+        verify(repository, times(1)).summarize();
+    }
+
+    @Test
+    public void testChangeCountedByReloadIsNotAppliedAgain() {
+        engine.getSummary(false);
+        Product laptop = product(1L, "Laptop", 15, "200.00", 2L);
+        // committed before the aggregate query read, arriving while it runs
+        when(repository.summarize()).thenAnswer(invocation -> {
+            publish(ProductChangeEvent.quantityChanged(laptop, 10));
+            return new InventoryTotals(2L, 15L, new BigDecimal("300.00"));
+        });
+        when(bulkRepository.findByIds(new Long[]{1L})).thenReturn(List.of(laptop));
+
+        assertEquals(15L, engine.getSummary(true).getTotalQuantity());
+        verify(bulkRepository, times(1)).findByIds(any());
+    }
+
+    @Test
+    public void testChangeMissedByReloadIsApplied() {
+        engine.getSummary(false);
+        Product laptop = product(1L, "Laptop", 15, "200.00", 2L);
+        // committed after the aggregate query read, arriving while it runs
+        when(repository.summarize()).thenAnswer(invocation -> {
+            publish(ProductChangeEvent.quantityChanged(laptop, 10));
+            return new InventoryTotals(2L, 10L, new BigDecimal("300.00"));
+        });
+        when(bulkRepository.findByIds(new Long[]{1L}))
+                .thenReturn(List.of(product(1L, "Laptop", 10, "200.00", 1L)));
+
+        assertEquals(15L, engine.getSummary(true).getTotalQuantity());
+    }
+
+    @Test
+    public void testProductCreatedDuringReloadIsCountedOnce() {
+        engine.getSummary(false);
+        // committed after the aggregate query read, the lookup does not find it
+        when(repository.summarize()).thenAnswer(invocation -> {
+            publish(ProductChangeEvent.created(product(3L, "Laptop", 5, "600.00", 0L)));
+            return new InventoryTotals(2L, 10L, new BigDecimal("300.00"));
+        });
+
+        InventorySummary summary = engine.getSummary(true);
+
+        assertEquals(3L, summary.getTotalProducts());
+        assertEquals(15L, summary.getTotalQuantity());
+        assertEquals(new BigDecimal("300.00"), summary.getAveragePrice());
+    }
+
+    @Test
+    public void testOutOfStockListIsBounded() {
+        engine = new InventorySummaryEngine(repository, bulkRepository, lowStockIndex, transactionManager,
+                Duration.ofMinutes(1), Duration.ofSeconds(1), 1);
+        engine.getSummary(false);
+
+        publish(ProductChangeEvent.created(product(1L, "Laptop", 0, "600.00")));
+        InventorySummary summary = engine.getSummary(false);
+
+        assertEquals(2L, summary.getOutOfStockCount());
+        assertEquals(1, summary.getOutOfStock().size());
+        assertEquals(1L, summary.getOutOfStock().get(0).getId());
+    }
+
+    @Test
+    public void testChangesBeforeFirstLoadAreIgnored() {
+        engine.onProductChange(ProductChangeEvent.created(product(3L, "Laptop", 1, "600.00")));
+
+        assertEquals(2L, engine.getSummary(false).getTotalProducts());
+    }
+
+    @Test
+    public void testRemoteChangeDeliveredAfterReloadIsReconciled() throws InterruptedException {
+        engine = new InventorySummaryEngine(repository, bulkRepository, lowStockIndex, transactionManager,
+                Duration.ofMinutes(1), Duration.ofMillis(100), 100);
+        engine.getSummary(false);
+        // committed on another node, counted by the reload, delivered after it
+        when(repository.summarize()).thenReturn(new InventoryTotals(2L, 15L, new BigDecimal("300.00")));
+        engine.getSummary(true);
+        publish(ProductChangeEvent.remote(ProductChangeEvent.Type.QUANTITY_CHANGED, 1L, "Laptop",
+                new BigDecimal("200.00"), 10, 15, 2L));
+
+        Thread.sleep(150);
+
+        assertEquals(15L, engine.getSummary(false).getTotalQuantity());
+        verify(repository, times(3)).summarize();
+        // settled, until the next change arriving right after a reload
+        engine.getSummary(false);
+        verify(repository, times(3)).summarize();
+    }
+
+    @Test
+    public void testRemoteChangeDeliveredLaterIsApplied() throws InterruptedException {
+        engine = new InventorySummaryEngine(repository, bulkRepository, lowStockIndex, transactionManager,
+                Duration.ofMinutes(1), Duration.ofMillis(100), 100);
+        engine.getSummary(false);
+        Thread.sleep(150);
+
+        publish(ProductChangeEvent.remote(ProductChangeEvent.Type.QUANTITY_CHANGED, 1L, "Laptop",
+                new BigDecimal("200.00"), 10, 15, 2L));
+
+        assertEquals(15L, engine.getSummary(false).getTotalQuantity());
+        verify(repository, times(1)).summarize();
+    }
+
+    // same order as the listeners run in the application
+    private void publish(ProductChangeEvent event) {
+        lowStockIndex.onProductChange(event);
+        engine.onProductChange(event);
+    }
+}
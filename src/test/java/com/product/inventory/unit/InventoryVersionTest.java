@@ -0,0 +1,59 @@
+package com.product.inventory.unit;
+
+import com.product.inventory.event.ProductChangeEvent;
+import com.product.inventory.model.Product;
+import com.product.inventory.service.InventoryVersion;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InventoryVersionTest {
+
+    @Test
+    public void testETagChangesWithEveryChange() {
+        InventoryVersion version = withoutReplicas();
+        Product product = new Product("Laptop", 5, new BigDecimal("1200.00"));
+        product.setId(1L);
+
+        String initial = version.getTag();
+        assertFalse(initial.contains("\""));
+        assertEquals(initial, version.getTag());
+
+        version.onProductChange(ProductChangeEvent.quantityChanged(product, 3));
+        String changed = version.getTag();
+        assertNotEquals(initial, changed);
+
+        version.onProductChange(ProductChangeEvent.deleted(product));
+        assertNotEquals(changed, version.getTag());
+    }
+
+    @Test
+    public void testETagsOfDifferentInstancesDiffer() {
+        assertNotEquals(withoutReplicas().getTag(), withoutReplicas().getTag());
+    }
+
+    @Test
+    public void testNoETagUntilReplicasCaughtUp() throws InterruptedException {
+        InventoryVersion version = new InventoryVersion("jdbc:postgresql://localhost:5433/inventory",
+                Duration.ofMillis(50), Duration.ofMillis(50));
+        Product product = new Product("Laptop", 5, new BigDecimal("1200.00"));
+        product.setId(1L);
+        String initial = version.getTag();
+        assertNotNull(initial);
+
+        version.onProductChange(ProductChangeEvent.quantityChanged(product, 3));
+        assertNull(version.getTag());
+
+        Thread.sleep(150);
+        String settled = version.getTag();
+        assertNotNull(settled);
+        assertNotEquals(initial, settled);
+    }
+
+    private static InventoryVersion withoutReplicas() {
+        return new InventoryVersion("", Duration.ofSeconds(1), Duration.ofSeconds(1));
+    }
+}
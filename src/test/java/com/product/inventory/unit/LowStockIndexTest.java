@@ -0,0 +1,108 @@
+package com.product.inventory.unit;
+
+import com.product.inventory.event.ProductChangeEvent;
+import com.product.inventory.model.LowStockProduct;
+import com.product.inventory.model.Product;
+import com.product.inventory.repositoty.ProductRepository;
+import com.product.inventory.service.LowStockIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static com.product.inventory.TestProducts.product;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class LowStockIndexTest {
+
+    private ProductRepository repository;
+
+    private LowStockIndex index;
+
+    @BeforeEach
+    public void setup() {
+        repository = mock(ProductRepository.class);
+        when(repository.findLowStock(5)).thenReturn(List.of(
+                new LowStockProduct(1L, "Laptop", 3),
+                new LowStockProduct(2L, "Mouse", 0),
+                new LowStockProduct(3L, "Monitor", 0)));
+        index = new LowStockIndex(repository, 5);
+    }
+
+    @Test
+    public void testListsLowestQuantityFirst() {
+        List<LowStockProduct> all = index.list(true, 0, 10);
+
+        assertEquals(List.of(2L, 3L, 1L), all.stream().map(LowStockProduct::getId).toList());
+        assertEquals(3L, index.count(true));
+        assertEquals(2L, index.count(false));
+        verify(repository, times(1)).findLowStock(5);
+    }
+
+    @Test
+    public void testOutOfStockOnly() {
+        List<LowStockProduct> outOfStock = index.list(false, 0, 10);
+
+        assertEquals(List.of(2L, 3L), outOfStock.stream().map(LowStockProduct::getId).toList());
+    }
+
+    @Test
+    public void testPaging() {
+        assertEquals(List.of(3L), index.list(true, 1, 1).stream().map(LowStockProduct::getId).toList());
+        assertTrue(index.list(true, 3, 10).isEmpty());
+    }
+
+    @Test
+    public void testChangeDuringLoadIsNotBlockedAndApplied() {
+        when(repository.findLowStock(5)).thenAnswer(invocation -> {
+            // committed while the table is read, on another thread
+            CompletableFuture.runAsync(() -> index.onProductChange(
+                    ProductChangeEvent.quantityChanged(product(4L, "Keyboard", 1, "10.00"), 7)))
+                    .get(1, TimeUnit.SECONDS);
+            return List.of(new LowStockProduct(1L, "Laptop", 3));
+        });
+
+        assertEquals(List.of(4L, 1L), index.list(true, 0, 10).stream().map(LowStockProduct::getId).toList());
+    }
+
+    @Test
+    public void testChangesAreApplied() {
+        index.count(true);
+
+        Product mouse = product(2L, "Mouse", 8, "10.00");
+        index.onProductChange(ProductChangeEvent.quantityChanged(mouse, 0));
+        Product keyboard = product(4L, "Keyboard", 0, "10.00");
+        index.onProductChange(ProductChangeEvent.created(keyboard));
+        index.onProductChange(ProductChangeEvent.created(product(5L, "TV", 50, "10.00")));
+        index.onProductChange(ProductChangeEvent.deleted(product(1L, "Laptop", 3, "10.00")));
+
+        assertEquals(List.of(3L, 4L), index.list(true, 0, 10).stream().map(LowStockProduct::getId).toList());
+        assertEquals(2L, index.count(false));
+
+        keyboard.setQuantity(4);
+        index.onProductChange(ProductChangeEvent.quantityChanged(keyboard, 0));
+        assertEquals(1L, index.count(false));
+        assertEquals(4, index.list(true, 1, 1).get(0).getQuantity());
+    }
+
+    @Test
+    public void testChangesBeforeFirstLoadAreIgnored() {
+        index.onProductChange(ProductChangeEvent.created(product(4L, "Keyboard", 0, "10.00")));
+
+        assertEquals(3L, index.count(true));
+    }
+
+    @Test
+    public void testReload() {
+        index.count(true);
+        when(repository.findLowStock(5)).thenReturn(List.of());
+
+        index.reload();
+
+        assertEquals(0L, index.count(true));
+        assertEquals(0L, index.count(false));
+    }
+}
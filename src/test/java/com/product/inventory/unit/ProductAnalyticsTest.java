@@ -0,0 +1,99 @@
+package com.product.inventory.unit;
+
+import com.product.inventory.event.ProductChangeEvent;
+import com.product.inventory.event.ProductResyncEvent;
+import com.product.inventory.model.Product;
+import com.product.inventory.model.ProductFilter;
+import com.product.inventory.model.ProductStats;
+import com.product.inventory.repositoty.ProductRepository;
+import com.product.inventory.service.ProductAnalytics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.util.stream.Stream;
+
+import static com.product.inventory.TestProducts.product;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+public class ProductAnalyticsTest {
+
+    private ProductRepository repository;
+
+    private ProductAnalytics analytics;
+
+    @BeforeEach
+    public void setup() {
+        repository = mock(ProductRepository.class);
+        when(repository.streamAll(anyInt())).thenAnswer(invocation -> Stream.of(
+                product(1L, "Laptop", 5, "1000.00"), product(2L, "Mouse", 0, "20.00")));
+        analytics = new ProductAnalytics(repository, mock(PlatformTransactionManager.class), 100);
+    }
+
+    @Test
+    public void testSnapshotIsLoadedOnce() {
+        ProductStats first = analytics.getStats(new ProductFilter(), false);
+        analytics.getStats(new ProductFilter(), false);
+
+        assertEquals(2, first.getProducts());
+        assertEquals(new BigDecimal("5000.00"), first.getStockValue());
+        verify(repository, times(1)).streamAll(100);
+    }
+
+    @Test
+    public void testRefresh() {
+        analytics.getStats(new ProductFilter(), false);
+        analytics.getStats(new ProductFilter(), true);
+
+        verify(repository, times(2)).streamAll(100);
+    }
+
+    @Test
+    public void testChangesAreApplied() {
+        analytics.getStats(new ProductFilter(), false);
+
+        Product mouse = product(2L, "Mouse", 4, "20.00");
+        analytics.onProductChange(ProductChangeEvent.quantityChanged(mouse, 0));
+        analytics.onProductChange(ProductChangeEvent.created(product(3L, "Monitor", 1, "300.00")));
+        analytics.onProductChange(ProductChangeEvent.deleted(product(1L, "Laptop", 5, "1000.00")));
+
+        ProductStats stats = analytics.getStats(new ProductFilter(), false);
+        assertEquals(2, stats.getProducts());
+        assertEquals(5, stats.getTotalQuantity());
+        assertEquals(new BigDecimal("380.00"), stats.getStockValue());
+        verify(repository, times(1)).streamAll(100);
+    }
+
+    @Test
+    public void testChangesDuringLoadAreApplied() {
+        when(repository.streamAll(anyInt())).thenAnswer(invocation -> {
+            // committed while the table is read, after the cursor has passed the row
+            analytics.onProductChange(ProductChangeEvent.quantityChanged(product(1L, "Laptop", 2, "1000.00"), 5));
+            return Stream.of(product(1L, "Laptop", 5, "1000.00"));
+        });
+
+        ProductStats stats = analytics.getStats(new ProductFilter(), false);
+
+        assertEquals(2, stats.getTotalQuantity());
+    }
+
+    @Test
+    public void testResyncReloadsOnNextQuery() {
+        analytics.getStats(new ProductFilter(), false);
+        analytics.onResync(new ProductResyncEvent("connected"));
+        analytics.getStats(new ProductFilter(), false);
+        analytics.getStats(new ProductFilter(), false);
+
+        verify(repository, times(2)).streamAll(100);
+    }
+
+    @Test
+    public void testChangesBeforeFirstLoadAreIgnored() {
+        analytics.onProductChange(ProductChangeEvent.created(product(3L, "Monitor", 1, "300.00")));
+
+        assertEquals(2, analytics.getStats(new ProductFilter(), false).getProducts());
+    }
+}
@@ -0,0 +1,142 @@
+package com.product.inventory.unit;
+
+import com.product.inventory.configuration.AdmissionInterceptor;
+import com.product.inventory.configuration.ProductBinaryHttpMessageConverter;
+import com.product.inventory.configuration.WebConfig;
+import com.product.inventory.model.Product;
+import com.product.inventory.model.ProductFeedFormat;
+import com.product.inventory.service.ProductBinaryReader;
+import com.product.inventory.service.ProductBinaryWriter;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.core.ResolvableType;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.HttpMessageConverters;
+import org.springframework.http.converter.json.JacksonJsonHttpMessageConverter;
+import org.springframework.mock.http.MockHttpInputMessage;
+import org.springframework.mock.http.MockHttpOutputMessage;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.product.inventory.TestProducts.product;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+public class ProductBinaryFormatTest {
+
+    private static final MediaType BINARY = ProductFeedFormat.BINARY.getMediaType();
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            String price = BigDecimal.valueOf(i * 7L + 1, 2).toPlainString();
+            products.add(product((long) i + 1, "Product é " + i, i % 300, price, i % 10 == 0 ? null : (long) i));
+        }
+        // longer than the writer and reader buffers
+        products.add(product(Long.MAX_VALUE, "x".repeat(20_000), Integer.MAX_VALUE, "99999999.9", 0L));
+
+        List<Product> read = new ProductBinaryReader(new ByteArrayInputStream(write(products))).readAll();
+
+        assertEquals(products.size(), read.size());
+        for (int i = 0; i < products.size(); i++) {
+            Product expected = products.get(i);
+            Product actual = read.get(i);
+            assertEquals(expected.getId(), actual.getId());
+            assertEquals(expected.getVersion(), actual.getVersion());
+            assertEquals(expected.getName(), actual.getName());
+            assertEquals(expected.getQuantity(), actual.getQuantity());
+            assertEquals(0, expected.getPrice().compareTo(actual.getPrice()));
+            assertEquals(2, actual.getPrice().scale());
+        }
+    }
+
+    @Test
+    public void testEmptyStream() throws IOException {
+        byte[] bytes = write(List.of());
+
+        assertEquals(4, bytes.length);
+        assertTrue(new ProductBinaryReader(new ByteArrayInputStream(bytes)).readAll().isEmpty());
+    }
+
+    @Test
+    public void testInvalidStreams() throws IOException {
+        byte[] bytes = write(List.of(product(1L, "Laptop", 5, "1200.00", 3L)));
+
+        assertThrows(IOException.class,
+                () -> new ProductBinaryReader(new ByteArrayInputStream("[{}]".getBytes())));
+        assertThrows(EOFException.class, () -> new ProductBinaryReader(
+                new ByteArrayInputStream(Arrays.copyOf(bytes, bytes.length - 2))).read());
+    }
+
+    @Test
+    public void testPriceWithMoreThanTwoDecimals() {
+        Product product = product(1L, "Laptop", 5, "1.005", 0L);
+
+        assertThrows(ArithmeticException.class, () -> write(List.of(product)));
+    }
+
+    @Test
+    public void testConverter() throws IOException {
+        ProductBinaryHttpMessageConverter converter = new ProductBinaryHttpMessageConverter();
+        ResolvableType productList = ResolvableType.forType(new ParameterizedTypeReference<List<Product>>() {
+        });
+        ResolvableType stringList = ResolvableType.forType(new ParameterizedTypeReference<List<String>>() {
+        });
+        List<Product> products = List.of(product(1L, "Laptop", 5, "1200.00", 3L),
+                product(2L, "Mouse", 0, "19.99", 0L));
+
+        assertTrue(converter.canWrite(productList, ArrayList.class, BINARY));
+        assertTrue(converter.canWrite(ResolvableType.forClass(Product.class), Product.class, BINARY));
+        assertFalse(converter.canWrite(stringList, ArrayList.class, BINARY));
+        assertFalse(converter.canWrite(productList, ArrayList.class, MediaType.APPLICATION_JSON));
+
+        MockHttpOutputMessage output = new MockHttpOutputMessage();
+        converter.write(products, productList, BINARY, output, null);
+        assertEquals(BINARY, output.getHeaders().getContentType());
+
+        @SuppressWarnings("unchecked")
+        List<Product> read = (List<Product>) converter.read(productList,
+                new MockHttpInputMessage(output.getBodyAsBytes()), null);
+        assertEquals(2, read.size());
+        assertEquals("Mouse", read.get(1).getName());
+        assertEquals(new BigDecimal("19.99"), read.get(1).getPrice());
+    }
+
+    @Test
+    public void testJsonStaysTheDefault() {
+        JacksonJsonHttpMessageConverter json = new JacksonJsonHttpMessageConverter();
+        HttpMessageConverters.ServerBuilder builder = HttpMessageConverters.forServer().registerDefaults();
+        new WebConfig(mock(AdmissionInterceptor.class), json).configureMessageConverters(builder);
+
+        List<HttpMessageConverter<?>> converters = new ArrayList<>();
+        builder.build().forEach(converters::add);
+
+        int binary = -1;
+        for (int i = 0; i < converters.size(); i++) {
+            if (converters.get(i) instanceof ProductBinaryHttpMessageConverter) {
+                binary = i;
+            }
+        }
+        assertTrue(binary >= 0);
+        assertTrue(converters.indexOf(json) < binary);
+    }
+
+    private static byte[] write(List<Product> products) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ProductBinaryWriter writer = new ProductBinaryWriter(out);
+        for (Product product : products) {
+            writer.write(product);
+        }
+        writer.flush();
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,119 @@
+package com.product.inventory.unit;
+
+import com.product.inventory.configuration.CacheConfig;
+import com.product.inventory.event.ProductChangeEvent;
+import com.product.inventory.event.ProductResyncEvent;
+import com.product.inventory.exception.ResourceNotFoundException;
+import com.product.inventory.model.Product;
+import com.product.inventory.repositoty.ProductRepository;
+import com.product.inventory.service.ProductCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+
+import java.util.Optional;
+
+import static com.product.inventory.TestProducts.product;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class ProductCacheTest {
+
+    private ProductRepository repository;
+
+    private Cache cache;
+
+    private ProductCache productCache;
+
+    private Product product;
+
+    @BeforeEach
+    public void setup() {
+        repository = mock(ProductRepository.class);
+        ConcurrentMapCacheManager cacheManager = new ConcurrentMapCacheManager(CacheConfig.PRODUCTS_CACHE);
+        cache = cacheManager.getCache(CacheConfig.PRODUCTS_CACHE);
+        productCache = new ProductCache(repository, cacheManager);
+        product = product(1L, "Laptop", 5, "1200.00", 1L);
+        when(repository.findById(1L)).thenReturn(Optional.of(product));
+    }
+
+    @Test
+    public void testProductIsReadOnce() {
+        assertSame(product, productCache.get(1L));
+        assertSame(product, productCache.get(1L));
+        verify(repository, times(1)).findById(1L);
+    }
+
+    @Test
+    public void testQuantityChangePutsNewVersion() {
+        productCache.get(1L);
+
+        productCache.onProductChange(ProductChangeEvent.quantityChanged(product(1L, "Laptop", 4, "1200.00", 2L), 5));
+
+        Product cached = productCache.get(1L);
+        assertEquals(4, cached.getQuantity());
+        assertEquals(2L, cached.getVersion());
+        verify(repository, times(1)).findById(1L);
+    }
+
+    @Test
+    public void testStaleReadDoesNotReplaceNewerVersion() {
+        // the read started before the change and finishes after its event
+        productCache.onProductChange(ProductChangeEvent.quantityChanged(product(1L, "Laptop", 4, "1200.00", 2L), 5));
+        cache.evict(1L);
+        productCache.onProductChange(ProductChangeEvent.quantityChanged(product(1L, "Laptop", 3, "1200.00", 3L), 4));
+
+        Product cached = productCache.get(1L);
+        assertEquals(3L, cached.getVersion());
+        verify(repository, never()).findById(1L);
+
+        // an older change arriving late is ignored as well
+        productCache.onProductChange(ProductChangeEvent.quantityChanged(product(1L, "Laptop", 4, "1200.00", 2L), 5));
+        assertEquals(3, productCache.get(1L).getQuantity());
+    }
+
+    @Test
+    public void testLoadedRowOlderThanCachedIsDropped() {
+        when(repository.findById(1L)).thenAnswer(invocation -> {
+            // committed and published while the row was read
+            productCache.onProductChange(
+                    ProductChangeEvent.quantityChanged(product(1L, "Laptop", 9, "1200.00", 2L), 5));
+            return Optional.of(product);
+        });
+
+        assertEquals(9, productCache.get(1L).getQuantity());
+        assertEquals(9, productCache.get(1L).getQuantity());
+    }
+
+    @Test
+    public void testDeletedProductIsNotFound() {
+        when(repository.findById(1L)).thenAnswer(invocation -> {
+            productCache.onProductChange(ProductChangeEvent.deleted(product));
+            return Optional.of(product);
+        });
+
+        assertThrows(ResourceNotFoundException.class, () -> productCache.get(1L));
+        assertThrows(ResourceNotFoundException.class, () -> productCache.get(1L));
+        verify(repository, times(1)).findById(1L);
+    }
+
+    @Test
+    public void testMissingProductIsNotCached() {
+        when(repository.findById(2L)).thenReturn(Optional.empty());
+
+        assertThrows(ResourceNotFoundException.class, () -> productCache.get(2L));
+        assertThrows(ResourceNotFoundException.class, () -> productCache.get(2L));
+        verify(repository, times(2)).findById(2L);
+    }
+
+    @Test
+    public void testResyncClearsCache() {
+        productCache.get(1L);
+
+        productCache.onResync(new ProductResyncEvent("connected"));
+
+        productCache.get(1L);
+        verify(repository, times(2)).findById(1L);
+    }
+}
@@ -0,0 +1,67 @@
+package com.product.inventory.unit;
+
+import com.product.inventory.event.ProductChangeEvent;
+import com.product.inventory.model.ProductChange;
+import com.product.inventory.service.ProductChangeLog;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.product.inventory.TestProducts.product;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ProductChangeLogTest {
+
+    private final ProductChangeLog changeLog = new ProductChangeLog(3, 100);
+
+    @Test
+    public void testChangesAreReadInOrder() {
+        changeLog.append(ProductChangeEvent.created(product(1L, 5)));
+        changeLog.append(ProductChangeEvent.quantityChanged(product(1L, 3), 5));
+
+        List<ProductChange> changes = new ArrayList<>();
+        assertEquals(100, changeLog.readAfter(100, 10, changes));
+
+        assertEquals(2, changes.size());
+        assertEquals(101, changes.get(0).getSequence());
+        assertEquals(ProductChangeEvent.Type.CREATED, changes.get(0).getType());
+        assertEquals(102, changes.get(1).getSequence());
+        assertEquals(5, changes.get(1).getOldQuantity());
+        assertEquals(3, changes.get(1).getNewQuantity());
+        assertEquals(102, changeLog.getLastSequence());
+    }
+
+    @Test
+    public void testReadIsLimited() {
+        for (int i = 0; i < 3; i++) {
+            changeLog.append(ProductChangeEvent.created(product((long) i, i)));
+        }
+
+        List<ProductChange> changes = new ArrayList<>();
+        assertEquals(101, changeLog.readAfter(101, 1, changes));
+
+        assertEquals(1, changes.size());
+        assertEquals(102, changes.get(0).getSequence());
+    }
+
+    @Test
+    public void testOverwrittenChangesAreReported() {
+        for (int i = 0; i < 5; i++) {
+            changeLog.append(ProductChangeEvent.created(product((long) i, i)));
+        }
+
+        List<ProductChange> changes = new ArrayList<>();
+        assertEquals(102, changeLog.readAfter(100, 10, changes));
+
+        assertEquals(List.of(103L, 104L, 105L), changes.stream().map(ProductChange::getSequence).toList());
+    }
+
+    @Test
+    public void testNothingToRead() {
+        List<ProductChange> changes = new ArrayList<>();
+        assertEquals(100, changeLog.readAfter(100, 10, changes));
+        assertEquals(100, changeLog.readAfter(50, 10, changes));
+        assertTrue(changes.isEmpty());
+    }
+}
@@ -0,0 +1,72 @@
+package com.product.inventory.unit;
+
+import com.product.inventory.event.ProductChangeEvent;
+import com.product.inventory.model.Product;
+import com.product.inventory.service.ProductChangeMessage;
+import org.junit.jupiter.api.Test;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.product.inventory.TestProducts.product;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ProductChangeMessageTest {
+
+    private final ObjectMapper mapper = JsonMapper.builder().build();
+
+    @Test
+    public void testChangesRoundTrip() {
+        Product laptop = product(1L, "Laptop \"Pro\" – 15\"", 4, "1299.90", 3L);
+        List<ProductChangeEvent> changes = List.of(ProductChangeEvent.created(laptop),
+                ProductChangeEvent.quantityChanged(laptop, 7), ProductChangeEvent.deleted(laptop));
+
+        List<String> messages = ProductChangeMessage.encode(mapper, "node-a", 42, changes, 7900);
+        assertEquals(1, messages.size());
+
+        ProductChangeMessage message = ProductChangeMessage.decode(mapper, messages.get(0));
+        assertEquals("node-a", message.getNode());
+        assertEquals(42, message.getSequence());
+        assertEquals(3, message.getChanges().size());
+        for (int i = 0; i < changes.size(); i++) {
+            ProductChangeEvent sent = changes.get(i);
+            ProductChangeEvent received = message.getChanges().get(i);
+            assertEquals(sent.getType(), received.getType());
+            assertEquals(sent.getProductId(), received.getProductId());
+            assertEquals(sent.getName(), received.getName());
+            assertEquals(sent.getPrice(), received.getPrice());
+            assertEquals(sent.getOldQuantity(), received.getOldQuantity());
+            assertEquals(sent.getNewQuantity(), received.getNewQuantity());
+            assertEquals(sent.getVersion(), received.getVersion());
+            assertTrue(received.isRemote());
+        }
+    }
+
+    @Test
+    public void testLargeBatchIsSplitIntoNumberedMessages() {
+        List<ProductChangeEvent> changes = new ArrayList<>();
+        for (long id = 1; id <= 1000; id++) {
+            changes.add(ProductChangeEvent.quantityChanged(product(id, "Product ü " + id, 5, "9.99", 1L), 4));
+        }
+
+        List<String> messages = ProductChangeMessage.encode(mapper, "node-a", 7, changes, 2000);
+
+        assertTrue(messages.size() > 1);
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < messages.size(); i++) {
+            assertTrue(messages.get(i).getBytes(StandardCharsets.UTF_8).length <= 2000);
+            ProductChangeMessage message = ProductChangeMessage.decode(mapper, messages.get(i));
+            assertEquals(7 + i, message.getSequence());
+            message.getChanges().forEach(change -> ids.add(change.getProductId()));
+        }
+        assertEquals(changes.stream().map(ProductChangeEvent::getProductId).toList(), ids);
+    }
+
+    @Test
+    public void testNoChangesNoMessages() {
+        assertEquals(List.of(), ProductChangeMessage.encode(mapper, "node-a", 1, List.of(), 7900));
+    }
+}
@@ -0,0 +1,62 @@
+package com.product.inventory.unit;
+
+import com.product.inventory.event.ProductChangeEvent;
+import com.product.inventory.exception.ServiceUnavailableException;
+import com.product.inventory.model.Product;
+import com.product.inventory.service.ProductChangeStream;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ProductChangeStreamTest {
+
+    private ProductChangeStream stream;
+
+    @BeforeEach
+    public void setup() {
+        stream = new ProductChangeStream(new SimpleMeterRegistry(), 10, 2, Duration.ofMinutes(1), Duration.ofSeconds(15));
+        stream.start();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        stream.stop();
+    }
+
+    @Test
+    public void testChangesAreNumbered() {
+        long first = stream.getLastSequence();
+        Product product = new Product("Laptop", 5, new BigDecimal("1000.00"));
+        product.setId(1L);
+
+        stream.onProductChange(ProductChangeEvent.created(product));
+        stream.onProductChange(ProductChangeEvent.deleted(product));
+
+        assertEquals(first + 2, stream.getLastSequence());
+    }
+
+    @Test
+    public void testSubscribersAreLimited() {
+        assertNotNull(stream.subscribe(null));
+        assertNotNull(stream.subscribe(stream.getLastSequence()));
+        assertEquals(2, stream.getSubscriberCount());
+
+        assertThrows(ServiceUnavailableException.class, () -> stream.subscribe(null));
+    }
+
+    @Test
+    public void testStopCompletesStreams() {
+        stream.subscribe(null);
+        stream.stop();
+
+        assertEquals(0, stream.getSubscriberCount());
+        assertThrows(ServiceUnavailableException.class, () -> stream.subscribe(null));
+        stream.start();
+    }
+}
@@ -0,0 +1,147 @@
+package com.product.inventory.unit;
+
+import com.product.inventory.event.ProductChangeEvent;
+import com.product.inventory.exception.InvalidRequestException;
+import com.product.inventory.exception.ResourceNotFoundException;
+import com.product.inventory.model.ProductCleanupRequest;
+import com.product.inventory.model.ProductCleanupStatus;
+import com.product.inventory.model.ProductCleanupStatus.State;
+import com.product.inventory.repositoty.ProductBulkRepository;
+import com.product.inventory.service.ProductCleanupService;
+import com.product.inventory.service.QuantityWriteBehind;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.product.inventory.TestProducts.product;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class ProductCleanupServiceTest {
+
+    private ProductBulkRepository bulkRepository;
+    private ApplicationEventPublisher eventPublisher;
+    private QuantityWriteBehind writeBehind;
+    private ProductCleanupService cleanupService;
+
+    @BeforeEach
+    public void setup() {
+        bulkRepository = mock(ProductBulkRepository.class);
+        eventPublisher = mock(ApplicationEventPublisher.class);
+        writeBehind = mock(QuantityWriteBehind.class);
+        cleanupService = new ProductCleanupService(bulkRepository, eventPublisher, writeBehind, 2, Duration.ZERO,
+                10, 2);
+        cleanupService.start();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        cleanupService.stop();
+    }
+
+    @Test
+    public void testIdsAreRemovedInChunksOrderedById() throws InterruptedException {
+        List<Long[]> sentIds = new ArrayList<>();
+        when(bulkRepository.deleteByIds(any(), eq(true))).thenAnswer(invocation -> {
+            Long[] ids = invocation.getArgument(0);
+            sentIds.add(ids.clone());
+            // product 4 does not exist
+            return Arrays.stream(ids).filter(id -> id != 4L).map(id -> product(id, 0)).toList();
+        });
+
+        ProductCleanupStatus status = awaitFinished(
+                cleanupService.submit(ProductCleanupRequest.ids(List.of(5L, 1L, 4L, 2L, 1L), true)));
+
+        assertEquals(State.COMPLETED, status.getState());
+        assertEquals(4, status.getTotal());
+        assertEquals(3, status.getRemoved());
+        assertEquals(1, status.getNotFound());
+        assertEquals(2, status.getChunks());
+        assertTrue(status.isArchive());
+        assertArrayEquals(new Long[]{1L, 2L}, sentIds.get(0));
+        assertArrayEquals(new Long[]{4L, 5L}, sentIds.get(1));
+        verify(writeBehind).flushIfPending();
+        verify(eventPublisher, times(3)).publishEvent(any(ProductChangeEvent.class));
+    }
+
+    @Test
+    public void testOutOfStockProductsAreRemovedUntilNoneAreLeft() throws InterruptedException {
+        when(bulkRepository.countOutOfStockSince(any())).thenReturn(3L);
+        when(bulkRepository.deleteOutOfStockSince(any(), eq(2), eq(false)))
+                .thenReturn(List.of(product(1L, 0), product(2L, 0)))
+                .thenReturn(List.of(product(3L, 0)));
+
+        Instant before = Instant.now();
+        ProductCleanupStatus status = awaitFinished(
+                cleanupService.submit(ProductCleanupRequest.outOfStockDays(30, false)));
+
+        assertEquals(State.COMPLETED, status.getState());
+        assertEquals(3, status.getTotal());
+        assertEquals(3, status.getRemoved());
+        assertEquals(0, status.getNotFound());
+        assertEquals(2, status.getChunks());
+        verify(bulkRepository, times(2)).deleteOutOfStockSince(
+                argThat(cutoff -> !cutoff.isAfter(before.minus(Duration.ofDays(29)))), eq(2), eq(false));
+        verify(eventPublisher, times(3)).publishEvent(any(ProductChangeEvent.class));
+    }
+
+    @Test
+    public void testFailedChunkKeepsEarlierChunks() throws InterruptedException {
+        when(bulkRepository.deleteByIds(any(), anyBoolean()))
+                .thenReturn(List.of(product(1L, 0), product(2L, 0)))
+                .thenThrow(new IllegalStateException("Connection lost"));
+
+        ProductCleanupStatus status = awaitFinished(
+                cleanupService.submit(ProductCleanupRequest.ids(List.of(1L, 2L, 3L), false)));
+
+        assertEquals(State.FAILED, status.getState());
+        assertEquals("Connection lost", status.getError());
+        assertEquals(2, status.getRemoved());
+        verify(eventPublisher, times(2)).publishEvent(any(ProductChangeEvent.class));
+    }
+
+    @Test
+    public void testInvalidRequestsAreRejected() {
+        assertBadRequest(new ProductCleanupRequest(null, null, false));
+        assertBadRequest(new ProductCleanupRequest(List.of(1L), 30, false));
+        assertBadRequest(ProductCleanupRequest.ids(List.of(), false));
+        assertBadRequest(ProductCleanupRequest.ids(Arrays.asList(1L, null), false));
+        assertBadRequest(ProductCleanupRequest.ids(List.of(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L, 10L, 11L), false));
+        assertBadRequest(ProductCleanupRequest.outOfStockDays(-1, false));
+        verifyNoInteractions(bulkRepository);
+    }
+
+    @Test
+    public void testOnlyLastCleanupsAreRetained() throws InterruptedException {
+        when(bulkRepository.deleteByIds(any(), anyBoolean())).thenReturn(List.of());
+        ProductCleanupStatus first = awaitFinished(cleanupService.submit(ProductCleanupRequest.ids(List.of(1L), false)));
+        awaitFinished(cleanupService.submit(ProductCleanupRequest.ids(List.of(2L), false)));
+        awaitFinished(cleanupService.submit(ProductCleanupRequest.ids(List.of(3L), false)));
+
+        assertThrows(ResourceNotFoundException.class, () -> cleanupService.getStatus(first.getId()));
+        assertThrows(ResourceNotFoundException.class, () -> cleanupService.getStatus("unknown"));
+    }
+
+    private void assertBadRequest(ProductCleanupRequest request) {
+        assertThrows(InvalidRequestException.class, () -> cleanupService.submit(request));
+    }
+
+    private ProductCleanupStatus awaitFinished(ProductCleanupStatus submitted) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        ProductCleanupStatus status = cleanupService.getStatus(submitted.getId());
+        while ((status.getState() == State.QUEUED || status.getState() == State.RUNNING)
+                && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+            status = cleanupService.getStatus(submitted.getId());
+        }
+        return status;
+    }
+}
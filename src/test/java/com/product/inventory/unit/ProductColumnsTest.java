@@ -0,0 +1,140 @@
+package com.product.inventory.unit;
+
+import com.product.inventory.model.PriceBucket;
+import com.product.inventory.model.ProductFilter;
+import com.product.inventory.model.ProductRanking;
+import com.product.inventory.model.ProductStats;
+import com.product.inventory.model.RankedProduct;
+import com.product.inventory.service.ProductColumns;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ProductColumnsTest {
+
+    private ProductColumns columns;
+
+    @BeforeEach
+    public void setup() {
+        columns = new ProductColumns(2);
+        columns.put(1L, "Laptop", 5, new BigDecimal("1000.00"));
+        columns.put(3L, "Mouse", 0, new BigDecimal("20.50"));
+        columns.put(2L, "Gaming Mouse", 10, new BigDecimal("80.00"));
+    }
+
+    @Test
+    public void testStats() {
+        ProductStats stats = columns.stats(new ProductFilter());
+
+        assertEquals(3, stats.getProducts());
+        assertEquals(15, stats.getTotalQuantity());
+        assertEquals(new BigDecimal("5800.00"), stats.getStockValue());
+        assertEquals(new BigDecimal("20.50"), stats.getMinPrice());
+        assertEquals(new BigDecimal("1000.00"), stats.getMaxPrice());
+        assertEquals(new BigDecimal("366.83"), stats.getAveragePrice());
+    }
+
+    @Test
+    public void testFilters() {
+        ProductStats mice = columns.stats(new ProductFilter(null, null, null, null, "MOUSE"));
+        assertEquals(2, mice.getProducts());
+        assertEquals(10, mice.getTotalQuantity());
+
+        ProductStats inStock = columns.stats(new ProductFilter(1, null, null, new BigDecimal("999.999"), null));
+        assertEquals(1, inStock.getProducts());
+        assertEquals(new BigDecimal("80.00"), inStock.getMinPrice());
+
+        ProductStats none = columns.stats(new ProductFilter(null, null, null, null, "keyboard"));
+        assertEquals(0, none.getProducts());
+        assertNull(none.getAveragePrice());
+    }
+
+    @Test
+    public void testChanges() {
+        columns.put(3L, "Mouse", 7, new BigDecimal("20.50"));
+        columns.remove(1L);
+        columns.remove(42L);
+
+        ProductStats stats = columns.stats(new ProductFilter());
+        assertEquals(2, columns.size());
+        assertEquals(17, stats.getTotalQuantity());
+        assertEquals(new BigDecimal("943.50"), stats.getStockValue());
+    }
+
+    @Test
+    public void testPriceHistogram() {
+        List<PriceBucket> buckets = columns.priceHistogram(new ProductFilter(), 2);
+
+        assertEquals(2, buckets.size());
+        assertEquals(new BigDecimal("20.50"), buckets.get(0).getFromPrice());
+        assertEquals(2, buckets.get(0).getProducts());
+        assertEquals(10, buckets.get(0).getTotalQuantity());
+        assertEquals(1, buckets.get(1).getProducts());
+        assertTrue(buckets.get(1).getToPrice().compareTo(new BigDecimal("1000.00")) > 0);
+    }
+
+    @Test
+    public void testPriceHistogramOfOnePrice() {
+        List<PriceBucket> buckets = columns.priceHistogram(new ProductFilter(null, null, null, null, "laptop"), 10);
+
+        assertEquals(1, buckets.size());
+        assertEquals(new BigDecimal("1000.00"), buckets.get(0).getFromPrice());
+        assertEquals(new BigDecimal("1000.01"), buckets.get(0).getToPrice());
+    }
+
+    @Test
+    public void testTop() {
+        List<RankedProduct> byQuantity = columns.top(new ProductFilter(), ProductRanking.QUANTITY, 2);
+        assertEquals(List.of(2L, 1L), byQuantity.stream().map(RankedProduct::getId).toList());
+
+        List<RankedProduct> byValue = columns.top(new ProductFilter(), ProductRanking.STOCK_VALUE, 10);
+        assertEquals(List.of(1L, 2L, 3L), byValue.stream().map(RankedProduct::getId).toList());
+        assertEquals(new BigDecimal("5000.00"), byValue.get(0).getStockValue());
+        assertEquals("Laptop", byValue.get(0).getName());
+    }
+
+    @Test
+    public void testRemovedProductsAreCompacted() {
+        ProductColumns many = new ProductColumns(16);
+        for (int i = 1; i <= 1000; i++) {
+            many.put(i, "Product " + i, 1, new BigDecimal("10.00"));
+        }
+        // every second product, compactions run in between
+        for (int i = 2; i <= 1000; i += 2) {
+            many.remove(i);
+        }
+        many.remove(2);
+        // deleted and put again, a product relayed late by another node
+        many.remove(3);
+        many.put(3, "Product 3", 4, new BigDecimal("10.00"));
+
+        assertEquals(500, many.size());
+        ProductStats stats = many.stats(new ProductFilter());
+        assertEquals(500, stats.getProducts());
+        assertEquals(503, stats.getTotalQuantity());
+        List<RankedProduct> top = many.top(new ProductFilter(), ProductRanking.QUANTITY, 2);
+        assertEquals(List.of(3L, 1L), top.stream().map(RankedProduct::getId).toList());
+    }
+
+    @Test
+    public void testParallelScanOfManyProducts() {
+        ProductColumns many = new ProductColumns(16);
+        int count = 200_000;
+        for (int i = 1; i <= count; i++) {
+            many.put(i, "Product " + (i % 100), i % 10, new BigDecimal(i % 1000 + 1));
+        }
+
+        ProductStats stats = many.stats(new ProductFilter(5, null, null, null, null));
+        List<RankedProduct> top = many.top(new ProductFilter(), ProductRanking.STOCK_VALUE, 3);
+
+        assertEquals(count / 2, stats.getProducts());
+        // quantity 9 and price 1000
+        assertEquals(new BigDecimal("9000.00"), top.get(0).getStockValue());
+        assertEquals(999L, top.get(0).getId());
+        assertEquals(1999L, top.get(1).getId());
+    }
+}
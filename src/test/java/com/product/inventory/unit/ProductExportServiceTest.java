@@ -0,0 +1,90 @@
+package com.product.inventory.unit;
+
+import com.product.inventory.model.Product;
+import com.product.inventory.model.ProductFeedFormat;
+import com.product.inventory.repositoty.ProductRepository;
+import com.product.inventory.service.ProductBinaryReader;
+import com.product.inventory.service.ProductExportService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+import static com.product.inventory.TestProducts.product;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class ProductExportServiceTest {
+
+    private ProductRepository repository;
+
+    private ProductExportService exportService;
+
+    @BeforeEach
+    public void setup() {
+        repository = mock(ProductRepository.class);
+        exportService = new ProductExportService(repository, JsonMapper.builder().build(),
+                mock(PlatformTransactionManager.class), 500);
+        when(repository.streamAll(500)).thenAnswer(invocation -> Stream.of(
+                product(1L, "Laptop", 5, "1200.00"),
+                product(2L, "Monitor, 27\"", 0, "300.50")));
+    }
+
+    @Test
+    public void testExportJsonLines() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long count = exportService.exportProducts(out, ProductFeedFormat.JSON_LINES, false);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, count);
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].contains("\"name\":\"Laptop\""));
+    }
+
+    @Test
+    public void testExportCsv() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        exportService.exportProducts(out, ProductFeedFormat.CSV, false);
+
+        assertEquals("""
+                id,name,quantity,price
+                1,Laptop,5,1200.00
+                2,"Monitor, 27\"\"",0,300.50
+                """, out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testExportGzip() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        exportService.exportProducts(out, ProductFeedFormat.CSV, true);
+
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            String content = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            assertTrue(content.startsWith("id,name,quantity,price\n1,Laptop,5,1200.00\n"));
+        }
+    }
+
+    @Test
+    public void testExportBinary() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long count = exportService.exportProducts(out, ProductFeedFormat.BINARY, false);
+
+        List<Product> products = new ProductBinaryReader(new ByteArrayInputStream(out.toByteArray())).readAll();
+        assertEquals(2, count);
+        assertEquals(2, products.size());
+        assertEquals("Monitor, 27\"", products.get(1).getName());
+        assertEquals(new BigDecimal("300.50"), products.get(1).getPrice());
+    }
+}
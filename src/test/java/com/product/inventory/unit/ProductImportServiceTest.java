@@ -0,0 +1,111 @@
+package com.product.inventory.unit;
+
+import com.product.inventory.event.ProductChangeEvent;
+import com.product.inventory.exception.InvalidRequestException;
+import com.product.inventory.model.ImportReport;
+import com.product.inventory.model.Product;
+import com.product.inventory.model.ProductFeedFormat;
+import com.product.inventory.repositoty.ProductBulkRepository;
+import com.product.inventory.service.ProductImportService;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+public class ProductImportServiceTest {
+
+    private ProductBulkRepository bulkRepository;
+
+    private ApplicationEventPublisher eventPublisher;
+
+    private ProductImportService importService;
+
+    private final List<Integer> batchSizes = new ArrayList<>();
+
+    private final List<String> importedNames = new ArrayList<>();
+
+    @BeforeEach
+    public void setup() {
+        bulkRepository = mock(ProductBulkRepository.class);
+        eventPublisher = mock(ApplicationEventPublisher.class);
+        when(bulkRepository.insertAll(anyList())).thenAnswer(invocation -> {
+            List<Product> products = invocation.getArgument(0);
+            batchSizes.add(products.size());
+            products.forEach(p -> importedNames.add(p.getName()));
+            return new ArrayList<>(products);
+        });
+        importService = new ProductImportService(bulkRepository, JsonMapper.builder().build(),
+                Validation.buildDefaultValidatorFactory().getValidator(), eventPublisher, 2, 1);
+    }
+
+    @Test
+    public void testImportJsonLines() throws Exception {
+        ImportReport report = importService.importProducts(body("""
+                {"name":"Laptop","quantity":5,"price":1200.00}
+                {"name":"Mouse","quantity":0,"price":20.50}
+
+                {"name":"Monitor","quantity":3,"price":300}
+                """), ProductFeedFormat.JSON_LINES);
+
+        assertEquals(3, report.getReceived());
+        assertEquals(3, report.getImported());
+        assertEquals(0, report.getRejected());
+        assertEquals(List.of(2, 1), batchSizes);
+        verify(eventPublisher, times(3)).publishEvent(any(ProductChangeEvent.class));
+    }
+
+    @Test
+    public void testImportJsonLines_InvalidRows() throws Exception {
+        ImportReport report = importService.importProducts(body("""
+                {"name":"Laptop","quantity":5,"price":1200.00}
+                {"name":"Mouse","quantity":-1,"price":20.50}
+                not json
+                """), ProductFeedFormat.JSON_LINES);
+
+        assertEquals(3, report.getReceived());
+        assertEquals(1, report.getImported());
+        assertEquals(2, report.getRejected());
+        // only first error is reported
+        assertEquals(1, report.getErrors().size());
+        assertEquals(2, report.getErrors().get(0).getLine());
+        assertTrue(report.getErrors().get(0).getMessage().contains("Quantity must be greater than or equal to 0"));
+    }
+
+    @Test
+    public void testImportCsv() throws Exception {
+        ImportReport report = importService.importProducts(body("""
+                price,name,quantity
+                1200.00,"Laptop, 15""\",5
+                20.50,Mouse,abc
+                """), ProductFeedFormat.CSV);
+
+        assertEquals(2, report.getReceived());
+        assertEquals(1, report.getImported());
+        assertEquals(1, report.getRejected());
+        assertEquals(3, report.getErrors().get(0).getLine());
+        assertEquals(List.of("Laptop, 15\""), importedNames);
+    }
+
+    @Test
+    public void testImportCsv_MissingHeader() {
+        assertThrows(InvalidRequestException.class,
+                () -> importService.importProducts(body("name,quantity\nLaptop,5\n"), ProductFeedFormat.CSV));
+        verifyNoInteractions(bulkRepository);
+    }
+
+    private InputStream body(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -1,12 +1,34 @@
 package com.product.inventory.unit;
 
+import com.product.inventory.event.ProductChangeEvent;
+import com.product.inventory.exception.InvalidRequestException;
+import com.product.inventory.exception.PreconditionFailedException;
+import com.product.inventory.exception.ResourceNotFoundException;
+import com.product.inventory.model.InventorySummary;
+import com.product.inventory.model.LowStockPage;
+import com.product.inventory.model.LowStockProduct;
 import com.product.inventory.model.OutOfStockProduct;
 import com.product.inventory.model.Product;
+import com.product.inventory.model.ProductCursorPage;
+import com.product.inventory.model.ProductSortKey;
+import com.product.inventory.model.StockUpdate;
+import com.product.inventory.model.StockUpdateReport;
+import com.product.inventory.repositoty.ProductBulkRepository;
+import com.product.inventory.repositoty.ProductBulkRepository.UpdatedQuantity;
 import com.product.inventory.repositoty.ProductRepository;
+import com.product.inventory.service.InventorySummaryEngine;
+import com.product.inventory.service.LowStockIndex;
+import com.product.inventory.service.ProductCache;
 import com.product.inventory.service.ProductServiceImpl;
+import com.product.inventory.service.QuantityWriteBehind;
+import com.product.inventory.service.StockBatchUpdater;
+import com.product.inventory.service.StockAdjustmentCombiner;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.*;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 
 import java.math.BigDecimal;
 import java.util.*;
@@ -19,6 +41,30 @@ public class ProductServiceTest {
     @Mock
     private ProductRepository repository;
 
+    @Mock
+    private ProductBulkRepository bulkRepository;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private InventorySummaryEngine summaryEngine;
+
+    @Mock
+    private StockAdjustmentCombiner stockAdjustmentCombiner;
+
+    @Mock
+    private LowStockIndex lowStockIndex;
+
+    @Mock
+    private StockBatchUpdater stockBatchUpdater;
+
+    @Mock
+    private QuantityWriteBehind quantityWriteBehind;
+
+    @Mock
+    private ProductCache productCache;
+
     @InjectMocks
     private ProductServiceImpl service;
 
@@ -37,76 +83,172 @@ public class ProductServiceTest {
         Product saved = service.createProduct(product);
         assertEquals("Laptop", saved.getName());
         verify(repository, times(1)).save(product);
+        verify(eventPublisher, times(1)).publishEvent(any(ProductChangeEvent.class));
+    }
+
+    @Test
+    public void testGetProductById() {
+        when(productCache.get(1L)).thenReturn(product);
+
+        assertEquals("Laptop", service.getProductById(1L).getName());
+    }
+
+    @Test
+    public void testGetProductById_ProductNotFound() {
+        when(productCache.get(1L)).thenThrow(new ResourceNotFoundException("Product not found"));
+
+        RuntimeException exception = assertThrows(RuntimeException.class, () -> service.getProductById(1L));
+        assertEquals("Product not found", exception.getMessage());
     }
 
     @Test
     public void testDeleteById_Success() {
-        when(repository.existsById(1L)).thenReturn(true);
-        doNothing().when(repository).deleteById(1L);
+        when(repository.deleteReturning(1L)).thenReturn(Optional.of(product));
 
         service.deleteProduct(1L);
 
-        verify(repository, times(1)).existsById(1L);
-        verify(repository, times(1)).deleteById(1L);
+        verify(repository, times(1)).deleteReturning(1L);
+        verify(repository, never()).findById(any());
+        verify(eventPublisher, times(1)).publishEvent(any(ProductChangeEvent.class));
     }
 
     @Test
     public void testDeleteById_ProductNotFound() {
-        when(repository.existsById(1L)).thenReturn(false);
+        when(repository.deleteReturning(1L)).thenReturn(Optional.empty());
 
         RuntimeException exception = assertThrows(RuntimeException.class,
                 () -> service.deleteProduct(1L));
 
         assertEquals("Product not found", exception.getMessage());
-        verify(repository, times(1)).existsById(1L);
-        verify(repository, times(0)).deleteById(any());
+        verify(repository, times(1)).deleteReturning(1L);
+        verify(eventPublisher, times(0)).publishEvent(any());
     }
 
     @Test
     public void testUpdateQuantity_Success() {
-        when(repository.findById(1L)).thenReturn(Optional.of(product));
-        when(repository.save(any(Product.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        product.setQuantity(10);
+        product.setVersion(3L);
+        // another update committed first, the statement replaced its quantity
+        when(bulkRepository.setQuantity(1L, 10)).thenReturn(Optional.of(new UpdatedQuantity(product, 7)));
 
         Product updated = service.updateQuantity(1L, 10);
 
-        assertEquals(10, updated.getQuantity());
-        verify(repository, times(1)).findById(1L);
-        verify(repository, times(1)).save(updated);
+        assertSame(product, updated);
+        verify(bulkRepository, times(1)).setQuantity(1L, 10);
+        verifyNoInteractions(repository);
+        ArgumentCaptor<ProductChangeEvent> event = ArgumentCaptor.forClass(ProductChangeEvent.class);
+        verify(eventPublisher, times(1)).publishEvent(event.capture());
+        assertEquals(7, event.getValue().getOldQuantity());
+        assertEquals(10, event.getValue().getNewQuantity());
     }
 
     @Test
     public void testUpdateQuantity_ProductNotFound() {
-        when(repository.findById(1L)).thenReturn(Optional.empty());
+        when(bulkRepository.setQuantity(1L, 10)).thenReturn(Optional.empty());
 
         RuntimeException exception = assertThrows(RuntimeException.class,
                 () -> service.updateQuantity(1L, 10));
 
         assertEquals("Product not found", exception.getMessage());
+        verify(bulkRepository, times(1)).setQuantity(1L, 10);
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    public void testUpdateQuantity_ExpectedVersion() {
+        product.setVersion(2L);
+        when(repository.findById(1L)).thenReturn(Optional.of(product));
+        when(repository.save(any(Product.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        assertThrows(PreconditionFailedException.class, () -> service.updateQuantity(1L, 10, 1L));
+        verify(repository, never()).save(any());
+
+        assertEquals(10, service.updateQuantity(1L, 10, 2L).getQuantity());
+        verify(repository, times(1)).save(product);
+    }
+
+    @Test
+    public void testUpdateQuantity_ConcurrentChangeWithExpectedVersion() {
+        product.setVersion(0L);
+        when(repository.findById(1L)).thenReturn(Optional.of(product));
+        when(repository.save(product)).thenThrow(new ObjectOptimisticLockingFailureException(Product.class, 1L));
+
+        assertThrows(PreconditionFailedException.class, () -> service.updateQuantity(1L, 10, 0L));
         verify(repository, times(1)).findById(1L);
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    public void testAdjustQuantity() {
+        product.setQuantity(3);
+        when(stockAdjustmentCombiner.adjust(1L, 3)).thenReturn(product);
+
+        Product updated = service.adjustQuantity(1L, 3);
+
+        assertEquals(3, updated.getQuantity());
+        verify(stockAdjustmentCombiner, times(1)).adjust(1L, 3);
         verify(repository, times(0)).save(any());
     }
 
+    @Test
+    public void testGetProductsAfter_FirstPage() {
+        Product second = new Product("Mouse", 3, new BigDecimal("20.00"));
+        second.setId(2L);
+        when(repository.findPage(ProductSortKey.PRICE, true, null, null, 2)).thenReturn(List.of(product, second));
+
+        ProductCursorPage page = service.getProductsAfter(null, ProductSortKey.PRICE, true, 1);
+
+        assertEquals(1, page.getItems().size());
+        assertNotNull(page.getNextCursor());
+
+        when(repository.findPage(ProductSortKey.PRICE, true, new BigDecimal("1200.00"), 1L, 2))
+                .thenReturn(List.of(second));
+
+        // sort of the first page is kept in cursor
+        ProductCursorPage next = service.getProductsAfter(page.getNextCursor(), ProductSortKey.ID, false, 1);
+
+        assertEquals("Mouse", next.getItems().get(0).getName());
+        assertNull(next.getNextCursor());
+    }
+
+    @Test
+    public void testGetProductsAfter_InvalidCursor() {
+        assertThrows(InvalidRequestException.class,
+                () -> service.getProductsAfter("not-a-cursor", ProductSortKey.ID, false, 10));
+        verify(repository, times(0)).findPage(any(), anyBoolean(), any(), any(), anyInt());
+    }
+
     @Test
     public void testSearchByName_Found() {
-        when(repository.findByNameContainingIgnoreCase("laptop"))
+        when(repository.searchByName("laptop", "laptop", 20, 0))
                 .thenReturn(List.of(product));
 
         List<Product> result = service.searchByName("laptop");
 
         assertEquals(1, result.size());
         assertEquals("Laptop", result.get(0).getName());
-        verify(repository, times(1)).findByNameContainingIgnoreCase("laptop");
+        verify(repository, times(1)).searchByName("laptop", "laptop", 20, 0);
+    }
+
+    @Test
+    public void testSearchByName_EscapesWildcards() {
+        when(repository.searchByName(anyString(), anyString(), anyInt(), anyLong()))
+                .thenReturn(Collections.emptyList());
+
+        service.searchByName("50%_off\\", PageRequest.of(2, 10));
+
+        verify(repository, times(1)).searchByName("50%_off\\", "50\\%\\_off\\\\", 10, 20);
     }
 
     @Test
     public void testSearchByName_EmptyList() {
-        when(repository.findByNameContainingIgnoreCase("unknown"))
+        when(repository.searchByName("unknown", "unknown", 20, 0))
                 .thenReturn(Collections.emptyList());
 
         List<Product> result = service.searchByName("unknown");
 
         assertTrue(result.isEmpty());
-        verify(repository, times(1)).findByNameContainingIgnoreCase("unknown");
+        verify(repository, times(1)).searchByName("unknown", "unknown", 20, 0);
     }
 
     @Test
@@ -114,23 +256,76 @@ public class ProductServiceTest {
         List<OutOfStockProduct> outOfStock = new ArrayList<>();
         outOfStock.add(new OutOfStockProduct(1L, "Laptop"));
 
-        when(repository.sumQuantities()).thenReturn(Long.valueOf(product.getQuantity()));
-        when(repository.averagePrice()).thenReturn(product.getPrice());
-        when(repository.countProducts()).thenReturn(1L);
-        when(repository.findByQuantity(0)).thenReturn(outOfStock);
+        when(summaryEngine.getSummary(false))
+                .thenReturn(new InventorySummary(1L, product.getQuantity(), product.getPrice(), 1L, outOfStock));
 
         Map<String, Object> result = service.getInventorySummary();
         List<Object> outOfStockProducts = Collections.singletonList(result.get("outOfStock"));
 
         assertEquals(1L, result.get("totalProducts"));
-        assertEquals(0, result.get("totalQuantity"));
+        assertEquals(0L, result.get("totalQuantity"));
+        assertEquals(1L, result.get("outOfStockCount"));
         assertEquals(outOfStock.size(), outOfStockProducts.size());
 
-        verify(repository, times(1)).findByQuantity(0);
-        verify(repository, times(1)).sumQuantities();
-        verify(repository, times(1)).countProducts();
-        verify(repository, times(1)).averagePrice();
+        verify(summaryEngine, times(1)).getSummary(false);
+        verifyNoInteractions(repository);
+    }
+
+    @Test
+    public void testGetSummary_ForceRefresh() {
+        when(summaryEngine.getSummary(true))
+                .thenReturn(new InventorySummary(0L, 0L, BigDecimal.ZERO, 0L, List.of()));
+
+        Map<String, Object> result = service.getInventorySummary(true);
 
+        assertEquals(0L, result.get("totalProducts"));
+        verify(summaryEngine, times(1)).getSummary(true);
     }
-}
 
+    @Test
+    public void testGetOutOfStockProducts() {
+        List<LowStockProduct> lowStock = List.of(new LowStockProduct(1L, "Laptop", 0));
+        when(lowStockIndex.getThreshold()).thenReturn(10);
+        when(lowStockIndex.count(true)).thenReturn(25L);
+        when(lowStockIndex.list(true, 20L, 20)).thenReturn(lowStock);
+
+        LowStockPage result = service.getOutOfStockProducts(true, PageRequest.of(1, 20));
+
+        assertEquals(10, result.getThreshold());
+        assertEquals(25L, result.getTotalElements());
+        assertSame(lowStock, result.getItems());
+        verifyNoInteractions(repository);
+    }
+
+    @Test
+    public void testUpdateQuantities() {
+        List<StockUpdate> updates = List.of(StockUpdate.quantity(1L, 5));
+        StockUpdateReport report = new StockUpdateReport(1, 1, List.of(), List.of(), 0);
+        when(stockBatchUpdater.update(updates)).thenReturn(report);
+
+        assertSame(report, service.updateQuantities(updates));
+        verifyNoInteractions(repository);
+    }
+
+    @Test
+    public void testUpdateQuantity_writeBehind() {
+        when(quantityWriteBehind.isEnabled()).thenReturn(true);
+        when(productCache.get(1L)).thenReturn(product);
+        Product accepted = new Product("Laptop", 15, new BigDecimal("1200.00"));
+        accepted.setId(1L);
+        accepted.setVersion(1L);
+        when(quantityWriteBehind.write(product, 15)).thenReturn(new UpdatedQuantity(accepted, 0));
+
+        Product result = service.updateQuantity(1L, 15);
+
+        assertSame(accepted, result);
+        assertEquals(0, product.getQuantity());
+        verify(repository, never()).findById(any());
+        verify(repository, never()).save(any());
+        ArgumentCaptor<ProductChangeEvent> event = ArgumentCaptor.forClass(ProductChangeEvent.class);
+        verify(eventPublisher, times(1)).publishEvent(event.capture());
+        assertEquals(1L, event.getValue().getVersion());
+        assertEquals(0, event.getValue().getOldQuantity());
+        assertEquals(15, event.getValue().getNewQuantity());
+    }
+}
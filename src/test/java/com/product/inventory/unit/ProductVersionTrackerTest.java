@@ -0,0 +1,84 @@
+package com.product.inventory.unit;
+
+import com.product.inventory.event.ProductChangeEvent;
+import com.product.inventory.event.ProductChangeEvent.Type;
+import com.product.inventory.service.ProductVersionTracker;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static com.product.inventory.TestProducts.product;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ProductVersionTrackerTest {
+
+    private final ProductVersionTracker tracker = new ProductVersionTracker(100);
+
+    @Test
+    public void testChangesInOrderAreAppliedAsTheyCome() {
+        ProductChangeEvent first = remote(Type.QUANTITY_CHANGED, 1L, 5, 4, 1L);
+        ProductChangeEvent second = remote(Type.QUANTITY_CHANGED, 1L, 4, 3, 2L);
+
+        assertSame(first, tracker.reorder(first));
+        ProductChangeEvent applied = tracker.reorder(second);
+        assertEquals(4, applied.getOldQuantity());
+        assertEquals(3, applied.getNewQuantity());
+    }
+
+    @Test
+    public void testSupersededChangeIsDroppedAndItsDeltaKept() {
+        tracker.reorder(remote(Type.QUANTITY_CHANGED, 1L, 10, 8, 1L));
+
+        // version 3 arrives before version 2, which changed 8 to 7
+        ProductChangeEvent applied = tracker.reorder(remote(Type.QUANTITY_CHANGED, 1L, 7, 5, 3L));
+        assertEquals(8, applied.getOldQuantity());
+        assertEquals(5, applied.getNewQuantity());
+        assertTrue(applied.isRemote());
+
+        assertNull(tracker.reorder(remote(Type.QUANTITY_CHANGED, 1L, 8, 7, 2L)));
+    }
+
+    @Test
+    public void testRemoteChangeOlderThanLocalChangeIsDropped() {
+        tracker.record(ProductChangeEvent.quantityChanged(product(1L, "Laptop", 3, "10.00", 4L), 6));
+
+        assertNull(tracker.reorder(remote(Type.QUANTITY_CHANGED, 1L, 8, 6, 3L)));
+        assertEquals(3, tracker.reorder(remote(Type.QUANTITY_CHANGED, 1L, 3, 1, 5L)).getOldQuantity());
+    }
+
+    @Test
+    public void testDeletedProductStaysDeleted() {
+        tracker.reorder(remote(Type.QUANTITY_CHANGED, 1L, 5, 4, 2L));
+
+        ProductChangeEvent deleted = tracker.reorder(remote(Type.DELETED, 1L, 4, null, 2L));
+        assertEquals(4, deleted.getOldQuantity());
+        assertNull(tracker.reorder(remote(Type.DELETED, 1L, 4, null, 2L)));
+        assertNull(tracker.reorder(remote(Type.QUANTITY_CHANGED, 1L, 4, 9, 3L)));
+        assertEquals(0, tracker.takeMissedCreations());
+    }
+
+    @Test
+    public void testCreationArrivingAfterChangeIsMissed() {
+        tracker.reorder(remote(Type.QUANTITY_CHANGED, 1L, 5, 4, 1L));
+
+        assertNull(tracker.reorder(remote(Type.CREATED, 1L, null, 5, 0L)));
+        assertEquals(1, tracker.takeMissedCreations());
+        assertEquals(0, tracker.takeMissedCreations());
+    }
+
+    @Test
+    public void testForgottenProductsAreAppliedAsTheyCome() {
+        ProductVersionTracker small = new ProductVersionTracker(1);
+        small.reorder(remote(Type.QUANTITY_CHANGED, 1L, 10, 8, 5L));
+        small.reorder(remote(Type.QUANTITY_CHANGED, 2L, 1, 2, 1L));
+
+        ProductChangeEvent older = remote(Type.QUANTITY_CHANGED, 1L, 10, 9, 4L);
+        assertSame(older, small.reorder(older));
+    }
+
+    private static ProductChangeEvent remote(Type type, Long id, Integer oldQuantity, Integer newQuantity,
+                                             Long version) {
+        return ProductChangeEvent.remote(type, id, "Laptop", new BigDecimal("10.00"), oldQuantity, newQuantity,
+                version);
+    }
+}
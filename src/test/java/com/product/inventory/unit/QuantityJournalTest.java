@@ -0,0 +1,154 @@
+package com.product.inventory.unit;
+
+import com.product.inventory.service.QuantityJournal;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class QuantityJournalTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void testUnflushedRecordsAreRecovered() throws Exception {
+        Path file = dir.resolve("quantity.journal");
+        try (QuantityJournal journal = new QuantityJournal(file, 10)) {
+            journal.append(1L, 5);
+            journal.append(2L, 7);
+            journal.append(1L, 3);
+        }
+
+        try (QuantityJournal journal = new QuantityJournal(file, 10)) {
+            Map<Long, Integer> recovered = journal.recover();
+            assertEquals(Map.of(1L, 3, 2L, 7), recovered);
+            assertEquals(3, journal.getLastSequence());
+        }
+    }
+
+    @Test
+    public void testFlushedRecordsAreNotRecovered() throws Exception {
+        Path file = dir.resolve("quantity.journal");
+        try (QuantityJournal journal = new QuantityJournal(file, 10)) {
+            journal.append(1L, 5);
+            journal.append(2L, 7);
+            journal.markFlushed(1);
+            journal.append(3L, 9);
+        }
+
+        try (QuantityJournal journal = new QuantityJournal(file, 10)) {
+            assertEquals(Map.of(2L, 7, 3L, 9), journal.recover());
+        }
+    }
+
+    @Test
+    public void testJournalIsReusedOnceEverythingIsFlushed() throws Exception {
+        Path file = dir.resolve("quantity.journal");
+        try (QuantityJournal journal = new QuantityJournal(file, 2)) {
+            assertTrue(journal.append(1L, 5));
+            assertTrue(journal.append(2L, 7));
+            assertFalse(journal.append(3L, 9));
+            assertTrue(journal.isFull());
+
+            journal.markFlushed(2);
+            assertTrue(journal.append(3L, 9));
+            assertEquals(3, journal.getLastSequence());
+        }
+
+        try (QuantityJournal journal = new QuantityJournal(file, 2)) {
+            // the stale second record of the first round must not be replayed
+            assertEquals(Map.of(3L, 9), journal.recover());
+            assertEquals(3, journal.getLastSequence());
+        }
+    }
+
+    @Test
+    public void testFlushedSlotsAreReused() throws Exception {
+        Path file = dir.resolve("quantity.journal");
+        try (QuantityJournal journal = new QuantityJournal(file, 3)) {
+            journal.append(1L, 5);
+            journal.append(2L, 7);
+            journal.append(3L, 9);
+            // the first two are written while the third is not
+            journal.markFlushed(2);
+            assertTrue(journal.append(4L, 1));
+            assertTrue(journal.append(5L, 2));
+            assertFalse(journal.append(6L, 3));
+        }
+
+        try (QuantityJournal journal = new QuantityJournal(file, 3)) {
+            assertEquals(Map.of(3L, 9, 4L, 1, 5L, 2), journal.recover());
+            assertEquals(5, journal.getLastSequence());
+        }
+    }
+
+    @Test
+    public void testRecordsAreForcedAcrossTheEndOfTheRing() throws Exception {
+        Path file = dir.resolve("quantity.journal");
+        try (QuantityJournal journal = new QuantityJournal(file, 3)) {
+            journal.append(1L, 5);
+            journal.append(2L, 7);
+            journal.append(3L, 9);
+            journal.markFlushed(2);
+            journal.append(4L, 1);
+            journal.append(5L, 2);
+
+            // third slot, then first and second
+            journal.force(3, 5);
+            journal.force(1, 5);
+        }
+
+        try (QuantityJournal journal = new QuantityJournal(file, 3)) {
+            assertEquals(Map.of(3L, 9, 4L, 1, 5L, 2), journal.recover());
+        }
+    }
+
+    @Test
+    public void testCapacityChangesOnceEverythingIsFlushed() throws Exception {
+        Path file = dir.resolve("quantity.journal");
+        try (QuantityJournal journal = new QuantityJournal(file, 2)) {
+            journal.append(1L, 5);
+            journal.append(2L, 7);
+        }
+
+        // records left are replayed with the size they were written with
+        try (QuantityJournal journal = new QuantityJournal(file, 4)) {
+            assertEquals(Map.of(1L, 5, 2L, 7), journal.recover());
+            assertTrue(journal.isFull());
+            journal.markFlushed(2);
+        }
+
+        try (QuantityJournal journal = new QuantityJournal(file, 4)) {
+            assertTrue(journal.recover().isEmpty());
+            for (int i = 0; i < 4; i++) {
+                assertTrue(journal.append(3L + i, i));
+            }
+            assertTrue(journal.isFull());
+            assertEquals(6, journal.getLastSequence());
+        }
+    }
+
+    @Test
+    public void testTornRecordEndsRecovery() throws Exception {
+        Path file = dir.resolve("quantity.journal");
+        try (QuantityJournal journal = new QuantityJournal(file, 10)) {
+            journal.append(1L, 5);
+            journal.append(2L, 7);
+        }
+        try (RandomAccessFile raw = new RandomAccessFile(file.toFile(), "rw")) {
+            // quantity of the second record
+            raw.seek(24 + 24 + 16);
+            raw.writeInt(1000);
+        }
+
+        try (QuantityJournal journal = new QuantityJournal(file, 10)) {
+            assertEquals(Map.of(1L, 5), journal.recover());
+            assertEquals(1, journal.getLastSequence());
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package com.product.inventory.unit;
+
+import com.product.inventory.event.ProductChangeEvent;
+import com.product.inventory.exception.ServiceUnavailableException;
+import com.product.inventory.model.Product;
+import com.product.inventory.repositoty.ProductBulkRepository;
+import com.product.inventory.repositoty.ProductBulkRepository.UpdatedQuantity;
+import com.product.inventory.service.QuantityWriteBehind;
+import com.product.inventory.service.StockBatchUpdater;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static com.product.inventory.TestProducts.product;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class QuantityWriteBehindTest {
+
+    @TempDir
+    Path dir;
+
+    private ProductBulkRepository bulkRepository;
+
+    private ApplicationEventPublisher eventPublisher;
+
+    // quantities as written to the database
+    private final Map<Long, Integer> database = new HashMap<>();
+
+    // versions as written to the database
+    private final Map<Long, Long> versions = new HashMap<>();
+
+    private boolean databaseDown;
+
+    private QuantityWriteBehind writeBehind;
+
+    @BeforeEach
+    public void setup() {
+        bulkRepository = mock(ProductBulkRepository.class);
+        eventPublisher = mock(ApplicationEventPublisher.class);
+        when(bulkRepository.writeQuantities(any(), any(), any())).thenAnswer(invocation -> {
+            if (databaseDown) {
+                throw new IllegalStateException("Database is down");
+            }
+            Long[] ids = invocation.getArgument(0);
+            Integer[] quantities = invocation.getArgument(1);
+            Long[] given = invocation.getArgument(2);
+            List<UpdatedQuantity> updated = new ArrayList<>();
+            for (int i = 0; i < ids.length; i++) {
+                Integer old = database.put(ids[i], quantities[i]);
+                long next = versions.getOrDefault(ids[i], 0L) + 1;
+                long version = given[i] == null ? next : Math.max(next, given[i]);
+                versions.put(ids[i], version);
+                updated.add(new UpdatedQuantity(product(ids[i], "Product " + ids[i], quantities[i], "10.00", version),
+                        old == null ? 0 : old));
+            }
+            return updated;
+        });
+        writeBehind = writeBehind(2, Duration.ofHours(1), Duration.ofMillis(100));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        writeBehind.stop();
+    }
+
+    @Test
+    public void testUpdatesAreWrittenOnFlush() {
+        writeBehind.start();
+        UpdatedQuantity first = writeBehind.write(cached(1L), 5);
+        UpdatedQuantity second = writeBehind.write(cached(1L), 6);
+
+        assertTrue(database.isEmpty());
+        assertEquals(1, writeBehind.getPendingCount());
+        assertTrue(writeBehind.getLagSeconds() >= 0);
+        assertEquals(1L, first.getProduct().getVersion());
+        assertEquals(0, first.getOldQuantity());
+        // follows the accepted update, not the cached product
+        assertEquals(2L, second.getProduct().getVersion());
+        assertEquals(5, second.getOldQuantity());
+
+        writeBehind.flushIfPending();
+
+        assertEquals(Map.of(1L, 6), database);
+        assertEquals(Map.of(1L, 2L), versions);
+        assertEquals(0, writeBehind.getPendingCount());
+        assertEquals(0, writeBehind.getLagSeconds());
+        // published when accepted
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    public void testChangeMadeMeanwhileIsPublishedAgain() {
+        writeBehind.start();
+        writeBehind.write(cached(1L), 5);
+        // written by someone else since the product was cached
+        versions.put(1L, 1L);
+
+        writeBehind.flushIfPending();
+
+        assertEquals(Map.of(1L, 2L), versions);
+        ArgumentCaptor<ProductChangeEvent> event = ArgumentCaptor.forClass(ProductChangeEvent.class);
+        verify(eventPublisher, times(1)).publishEvent(event.capture());
+        assertEquals(2L, event.getValue().getVersion());
+        assertEquals(5, event.getValue().getNewQuantity());
+    }
+
+    @Test
+    public void testJournaledUpdatesAreReplayedOnStartup() {
+        writeBehind.start();
+        writeBehind.write(cached(1L), 5);
+        writeBehind.write(cached(2L), 7);
+        // nothing reaches the database before shutdown
+        databaseDown = true;
+        writeBehind.stop();
+        assertTrue(database.isEmpty());
+
+        databaseDown = false;
+        writeBehind = writeBehind(2, Duration.ofHours(1), Duration.ofMillis(100));
+        writeBehind.start();
+
+        assertEquals(Map.of(1L, 5, 2L, 7), database);
+        // not published by the node which accepted them
+        verify(eventPublisher, times(2)).publishEvent(any(ProductChangeEvent.class));
+    }
+
+    @Test
+    public void testFullJournalIsFlushedBeforeWriting() {
+        writeBehind = writeBehind(2, Duration.ofHours(1), Duration.ofSeconds(5));
+        writeBehind.start();
+        writeBehind.write(cached(1L), 5);
+        writeBehind.write(cached(2L), 7);
+
+        writeBehind.write(cached(3L), 9);
+
+        assertEquals(Map.of(1L, 5, 2L, 7), database);
+        assertEquals(1, writeBehind.getPendingCount());
+    }
+
+    @Test
+    public void testFullJournalWithDatabaseDown() {
+        writeBehind.start();
+        databaseDown = true;
+        writeBehind.write(cached(1L), 5);
+        writeBehind.write(cached(2L), 7);
+
+        assertThrows(ServiceUnavailableException.class, () -> writeBehind.write(cached(3L), 9));
+        assertEquals(2, writeBehind.getPendingCount());
+    }
+
+    @Test
+    public void testConcurrentSyncedUpdatesAreAcknowledged() throws Exception {
+        writeBehind = new QuantityWriteBehind(updater(), new SimpleMeterRegistry(), true,
+                dir.resolve("quantity.journal"), 1000, true, Duration.ofHours(1), Duration.ofSeconds(1));
+        writeBehind.start();
+        ExecutorService writers = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> writes = new ArrayList<>();
+            for (long id = 1; id <= 100; id++) {
+                long productId = id;
+                writes.add(writers.submit(() -> writeBehind.write(cached(productId), 1)));
+            }
+            for (Future<?> write : writes) {
+                write.get(5, TimeUnit.SECONDS);
+            }
+        } finally {
+            writers.shutdown();
+        }
+
+        assertEquals(100, writeBehind.getPendingCount());
+        writeBehind.flushIfPending();
+        assertEquals(100, database.size());
+    }
+
+    @Test
+    public void testDisabled() {
+        QuantityWriteBehind disabled = new QuantityWriteBehind(null, new SimpleMeterRegistry(), false,
+                dir.resolve("unused.journal"), 2, false, Duration.ofMillis(50), Duration.ofSeconds(1));
+        disabled.start();
+
+        assertFalse(disabled.isEnabled());
+        assertFalse(disabled.isRunning());
+        disabled.flushIfPending();
+        assertFalse(dir.resolve("unused.journal").toFile().exists());
+    }
+
+    // as read from the database before any update
+    private static Product cached(Long id) {
+        return product(id, "Product " + id, 0, "10.00", 0L);
+    }
+
+    private QuantityWriteBehind writeBehind(int capacity, Duration flushInterval, Duration maxWait) {
+        return new QuantityWriteBehind(updater(), new SimpleMeterRegistry(), true, dir.resolve("quantity.journal"),
+                capacity, false, flushInterval, maxWait);
+    }
+
+    private StockBatchUpdater updater() {
+        return new StockBatchUpdater(bulkRepository, eventPublisher, mock(PlatformTransactionManager.class), 1000,
+                1000);
+    }
+}
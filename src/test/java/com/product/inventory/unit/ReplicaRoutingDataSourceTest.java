@@ -0,0 +1,205 @@
+package com.product.inventory.unit;
+
+import com.product.inventory.configuration.ReadFromReplica;
+import com.product.inventory.configuration.ReadFromReplicaAspect;
+import com.product.inventory.configuration.ReadReplicas;
+import com.product.inventory.configuration.ReplicaRoutingDataSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class ReplicaRoutingDataSourceTest {
+
+    private DataSource primary;
+    private DataSource replica1;
+    private DataSource replica2;
+    private Connection primaryConnection;
+    // WAL position of the primary
+    private String primaryLsn = "0/3000000";
+    private ReadReplicas replicas;
+    private ReplicaRoutingDataSource dataSource;
+    private Reader reader;
+
+    @BeforeEach
+    public void setUp() throws SQLException {
+        primary = mock(DataSource.class);
+        primaryConnection = mock(Connection.class);
+        when(primary.getConnection()).thenReturn(primaryConnection);
+        Statement statement = mock(Statement.class);
+        ResultSet result = mock(ResultSet.class);
+        when(primaryConnection.createStatement()).thenReturn(statement);
+        when(statement.executeQuery(anyString())).thenReturn(result);
+        when(result.next()).thenReturn(true);
+        when(result.getString(1)).thenAnswer(invocation -> primaryLsn);
+        replica1 = replicaLagging("0");
+        replica2 = replicaLagging("0.2");
+        Map<String, DataSource> pools = new LinkedHashMap<>();
+        pools.put("replica-1", replica1);
+        pools.put("replica-2", replica2);
+        replicas = new ReadReplicas(primary, pools, Duration.ofSeconds(1), Duration.ofSeconds(1), new SimpleMeterRegistry());
+        dataSource = new ReplicaRoutingDataSource(primary, replicas);
+
+        AspectJProxyFactory proxyFactory = new AspectJProxyFactory(new Reader());
+        proxyFactory.addAspect(new ReadFromReplicaAspect());
+        reader = proxyFactory.getProxy();
+    }
+
+    @Test
+    public void testPrimaryOutsideReplicaReads() throws Exception {
+        replicas.check();
+
+        assertSame(primaryConnection, dataSource.getConnection());
+        assertSame(primaryConnection, reader.onPrimary(dataSource::getConnection));
+    }
+
+    @Test
+    public void testReplicasTakeTurns() throws Exception {
+        replicas.check();
+
+        Connection first = reader.onReplica(dataSource::getConnection);
+        Connection second = reader.onReplica(dataSource::getConnection);
+
+        assertNotSame(primaryConnection, first);
+        assertNotSame(primaryConnection, second);
+        assertNotSame(first, second);
+        assertSame(first, reader.onReplica(dataSource::getConnection));
+        assertSame(primaryConnection, dataSource.getConnection());
+    }
+
+    @Test
+    public void testReplicasAreNotUsedBeforeChecked() throws Exception {
+        assertSame(primaryConnection, reader.onReplica(dataSource::getConnection));
+    }
+
+    @Test
+    public void testLaggingReplicaIsSkipped() throws Exception {
+        replica2 = replicaLagging("5");
+        Map<String, DataSource> pools = new LinkedHashMap<>();
+        pools.put("replica-1", replica1);
+        pools.put("replica-2", replica2);
+        replicas = new ReadReplicas(primary, pools, Duration.ofSeconds(1), Duration.ofSeconds(1), new SimpleMeterRegistry());
+        dataSource = new ReplicaRoutingDataSource(primary, replicas);
+        replicas.check();
+
+        Connection replicaConnection = replica1.getConnection();
+        for (int i = 0; i < 4; i++) {
+            assertSame(replicaConnection, reader.onReplica(dataSource::getConnection));
+        }
+    }
+
+    @Test
+    public void testDisconnectedReplicaIsSkipped() throws Exception {
+        // replayed all it received before its WAL receiver disconnected, last transaction replayed 30s ago
+        replica2 = replicaStoppedAt("0/3000000", "30");
+        Map<String, DataSource> pools = new LinkedHashMap<>();
+        pools.put("replica-1", replica1);
+        pools.put("replica-2", replica2);
+        replicas = new ReadReplicas(primary, pools, Duration.ofSeconds(1), Duration.ofSeconds(1),
+                new SimpleMeterRegistry());
+        dataSource = new ReplicaRoutingDataSource(primary, replicas);
+
+        // nothing written since, it is as fresh as can be
+        replicas.check();
+        assertNotSame(reader.onReplica(dataSource::getConnection), reader.onReplica(dataSource::getConnection));
+
+        primaryLsn = "0/3000100";
+        replicas.check();
+
+        Connection replicaConnection = replica1.getConnection();
+        for (int i = 0; i < 4; i++) {
+            assertSame(replicaConnection, reader.onReplica(dataSource::getConnection));
+        }
+    }
+
+    @Test
+    public void testPrimaryPositionUnknown() throws Exception {
+        replicas.check();
+        when(primaryConnection.createStatement()).thenThrow(new SQLException("Query canceled"));
+        replicas.check();
+
+        assertSame(primaryConnection, reader.onReplica(dataSource::getConnection));
+        verify(replica1, times(1)).getConnection();
+        verify(replica2, times(1)).getConnection();
+    }
+
+    @Test
+    public void testFallsBackToPrimaryWhenReplicaRefusesConnection() throws Exception {
+        replicas.check();
+        when(replica1.getConnection()).thenThrow(new SQLException("Connection refused"));
+        when(replica2.getConnection()).thenThrow(new SQLException("Connection refused"));
+
+        assertSame(primaryConnection, reader.onReplica(dataSource::getConnection));
+        assertSame(primaryConnection, reader.onReplica(dataSource::getConnection));
+        // both are left out until the next check, only the check and the refused read connected to them
+        assertSame(primaryConnection, reader.onReplica(dataSource::getConnection));
+        verify(replica1, times(2)).getConnection();
+        verify(replica2, times(2)).getConnection();
+    }
+
+    private static DataSource replicaLagging(String lagSeconds) throws SQLException {
+        DataSource replica = mock(DataSource.class);
+        Connection connection = mock(Connection.class);
+        PreparedStatement statement = mock(PreparedStatement.class);
+        ResultSet result = mock(ResultSet.class);
+        when(replica.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement(anyString())).thenReturn(statement);
+        when(statement.executeQuery()).thenReturn(result);
+        when(result.next()).thenReturn(true);
+        when(result.getBigDecimal(1)).thenReturn(new BigDecimal(lagSeconds));
+        return replica;
+    }
+
+    /**
+     * Replica which stopped replaying at a WAL position, lagging from the primary position passed on
+     */
+    private static DataSource replicaStoppedAt(String replayedLsn, String sinceLastReplaySeconds) throws SQLException {
+        DataSource replica = mock(DataSource.class);
+        Connection connection = mock(Connection.class);
+        PreparedStatement statement = mock(PreparedStatement.class);
+        ResultSet result = mock(ResultSet.class);
+        String[] primaryLsn = new String[1];
+        when(replica.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement(anyString())).thenReturn(statement);
+        doAnswer(invocation -> primaryLsn[0] = invocation.getArgument(1)).when(statement).setString(eq(1), anyString());
+        when(statement.executeQuery()).thenReturn(result);
+        when(result.next()).thenReturn(true);
+        when(result.getBigDecimal(1)).thenAnswer(invocation -> lsn(replayedLsn) >= lsn(primaryLsn[0])
+                ? BigDecimal.ZERO : new BigDecimal(sinceLastReplaySeconds));
+        return replica;
+    }
+
+    private static long lsn(String lsn) {
+        String[] parts = lsn.split("/");
+        return Long.parseLong(parts[0], 16) << 32 | Long.parseLong(parts[1], 16);
+    }
+
+    public static class Reader {
+
+        @ReadFromReplica
+        public <T> T onReplica(Callable<T> read) throws Exception {
+            return read.call();
+        }
+
+        public <T> T onPrimary(Callable<T> read) throws Exception {
+            return read.call();
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.product.inventory.unit;
+
+import com.product.inventory.configuration.SingleFlight;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SingleFlightTest {
+
+    private final SingleFlight flights = new SingleFlight();
+    private final AtomicInteger executions = new AtomicInteger();
+    private final AtomicInteger joins = new AtomicInteger();
+
+    @Test
+    public void testConcurrentIdenticalCallsShareOneExecution() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Object>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(pool.submit(() -> run("laptop", 0, () -> {
+                    executions.incrementAndGet();
+                    release.await();
+                    return "result";
+                })));
+            }
+            // every caller has either joined or is the one running
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (joins.get() < 7 && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+            release.countDown();
+            for (Future<Object> result : results) {
+                assertEquals("result", result.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(1, executions.get());
+        assertEquals(7, joins.get());
+        assertEquals(0, flights.size());
+    }
+
+    @Test
+    public void testExceptionIsSharedWithJoinedCalls() throws Exception {
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread leader = new Thread(() -> assertThrows(IllegalStateException.class, () -> run("laptop", 0, () -> {
+            running.countDown();
+            release.await();
+            throw new IllegalStateException("database down");
+        })));
+        leader.start();
+        running.await();
+
+        AtomicReference<Exception> joinerFailure = new AtomicReference<>();
+        Thread joiner = new Thread(() -> {
+            try {
+                run("laptop", 0, () -> "not run");
+            } catch (Exception e) {
+                joinerFailure.set(e);
+            }
+        });
+        joiner.start();
+        while (joins.get() == 0) {
+            Thread.sleep(1);
+        }
+        release.countDown();
+        leader.join(5000);
+        joiner.join(5000);
+        assertInstanceOf(IllegalStateException.class, joinerFailure.get());
+        assertEquals("database down", joinerFailure.get().getMessage());
+        assertEquals(0, flights.size());
+    }
+
+    @Test
+    public void testCallOfLaterGenerationDoesNotJoinOlderCall() throws Exception {
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread leader = new Thread(() -> assertDoesNotThrow(() -> run("laptop", 1, () -> {
+            running.countDown();
+            release.await();
+            return "before change";
+        })));
+        leader.start();
+        running.await();
+
+        assertEquals("after change", run("laptop", 2, () -> "after change"));
+        assertEquals(0, joins.get());
+        release.countDown();
+        leader.join(5000);
+    }
+
+    @Test
+    public void testDifferentKeysRunIndependently() throws Exception {
+        assertEquals("a", run("a", 0, () -> "a"));
+        assertEquals("b", run("b", 0, () -> "b"));
+        assertEquals(0, joins.get());
+        assertEquals(0, flights.size());
+    }
+
+    private Object run(String key, long generation, SingleFlight.Computation computation) throws Exception {
+        try {
+            return flights.run(key, generation, computation, joins::incrementAndGet);
+        } catch (Exception | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.product.inventory.unit;
+
+import com.product.inventory.configuration.SlowQueryLoggingPostProcessor;
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SlowQueryLoggingPostProcessorTest {
+
+    @Test
+    public void testDataSourceIsWrapped() throws Exception {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource();
+        SlowQueryLoggingPostProcessor postProcessor = new SlowQueryLoggingPostProcessor(Duration.ofMillis(200));
+
+        Object processed = postProcessor.postProcessAfterInitialization(dataSource, "dataSource");
+
+        assertInstanceOf(ProxyDataSource.class, processed);
+        assertSame(dataSource, ((DataSource) processed).unwrap(DriverManagerDataSource.class));
+        assertSame(processed, postProcessor.postProcessAfterInitialization(processed, "dataSource"));
+    }
+
+    @Test
+    public void testOtherBeansAreNotWrapped() {
+        SlowQueryLoggingPostProcessor postProcessor = new SlowQueryLoggingPostProcessor(Duration.ofMillis(200));
+        Object bean = new Object();
+
+        assertSame(bean, postProcessor.postProcessAfterInitialization(bean, "bean"));
+    }
+
+    @Test
+    public void testZeroThresholdDisablesLogging() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource();
+        SlowQueryLoggingPostProcessor postProcessor = new SlowQueryLoggingPostProcessor(Duration.ZERO);
+
+        assertSame(dataSource, postProcessor.postProcessAfterInitialization(dataSource, "dataSource"));
+    }
+}
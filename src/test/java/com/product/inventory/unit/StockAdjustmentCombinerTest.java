@@ -0,0 +1,162 @@
+package com.product.inventory.unit;
+
+import com.product.inventory.event.ProductChangeEvent;
+import com.product.inventory.exception.InsufficientStockException;
+import com.product.inventory.exception.ResourceNotFoundException;
+import com.product.inventory.model.Product;
+import com.product.inventory.repositoty.ProductRepository;
+import com.product.inventory.service.StockAdjustmentCombiner;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static com.product.inventory.TestProducts.product;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+public class StockAdjustmentCombinerTest {
+
+    private ProductRepository repository;
+
+    private ApplicationEventPublisher eventPublisher;
+
+    private StockAdjustmentCombiner combiner;
+
+    private ExecutorService executor;
+
+    @BeforeEach
+    public void setup() {
+        repository = mock(ProductRepository.class);
+        eventPublisher = mock(ApplicationEventPublisher.class);
+        combiner = new StockAdjustmentCombiner(repository, eventPublisher, 4, 16);
+        executor = Executors.newFixedThreadPool(3);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testAdjust_Success() {
+        when(repository.adjustQuantity(1L, -2)).thenReturn(Optional.of(product(1L, "Laptop", 8, "1200.00")));
+
+        Product updated = combiner.adjust(1L, -2);
+
+        assertEquals(8, updated.getQuantity());
+        verify(eventPublisher, times(1)).publishEvent(any(ProductChangeEvent.class));
+    }
+
+    @Test
+    public void testAdjust_InsufficientStock() {
+        when(repository.adjustQuantity(1L, -20)).thenReturn(Optional.empty());
+        when(repository.existsById(1L)).thenReturn(true);
+
+        assertThrows(InsufficientStockException.class, () -> combiner.adjust(1L, -20));
+        verify(eventPublisher, times(0)).publishEvent(any());
+    }
+
+    @Test
+    public void testAdjust_ProductNotFound() {
+        when(repository.adjustQuantity(1L, 1)).thenReturn(Optional.empty());
+        when(repository.existsById(1L)).thenReturn(false);
+
+        RuntimeException exception = assertThrows(ResourceNotFoundException.class, () -> combiner.adjust(1L, 1));
+        assertEquals("Product not found", exception.getMessage());
+    }
+
+    @Test
+    public void testConcurrentDeltasAreCombined() throws Exception {
+        CountDownLatch firstUpdateStarted = new CountDownLatch(1);
+        CountDownLatch releaseFirstUpdate = new CountDownLatch(1);
+        when(repository.adjustQuantity(1L, -1)).thenAnswer(invocation -> {
+            firstUpdateStarted.countDown();
+            releaseFirstUpdate.await(5, TimeUnit.SECONDS);
+            return Optional.of(product(1L, "Laptop", 9, "1200.00"));
+        });
+        when(repository.adjustQuantity(1L, -5)).thenReturn(Optional.of(product(1L, "Laptop", 4, "1200.00")));
+
+        CompletableFuture<Product> first = CompletableFuture.supplyAsync(() -> combiner.adjust(1L, -1), executor);
+        assertTrue(firstUpdateStarted.await(5, TimeUnit.SECONDS));
+        // queued while the first update holds the stripe, applied together as -5
+        CompletableFuture<Product> second = CompletableFuture.supplyAsync(() -> combiner.adjust(1L, -2), executor);
+        CompletableFuture<Product> third = CompletableFuture.supplyAsync(() -> combiner.adjust(1L, -3), executor);
+        Thread.sleep(100);
+        releaseFirstUpdate.countDown();
+
+        assertEquals(9, first.get(5, TimeUnit.SECONDS).getQuantity());
+        assertEquals(4, second.get(5, TimeUnit.SECONDS).getQuantity());
+        assertEquals(4, third.get(5, TimeUnit.SECONDS).getQuantity());
+        verify(repository, times(2)).adjustQuantity(eq(1L), anyInt());
+    }
+
+    @Test
+    public void testRejectedBatchIsRetriedPerDelta() throws Exception {
+        CountDownLatch firstUpdateStarted = new CountDownLatch(1);
+        CountDownLatch releaseFirstUpdate = new CountDownLatch(1);
+        when(repository.adjustQuantity(1L, -1)).thenAnswer(invocation -> {
+            firstUpdateStarted.countDown();
+            releaseFirstUpdate.await(5, TimeUnit.SECONDS);
+            return Optional.of(product(1L, "Laptop", 2, "1200.00"));
+        });
+        when(repository.adjustQuantity(1L, -4)).thenReturn(Optional.empty());
+        when(repository.adjustQuantity(1L, -2)).thenReturn(Optional.of(product(1L, "Laptop", 0, "1200.00")));
+        when(repository.existsById(1L)).thenReturn(true);
+
+        CompletableFuture<Product> first = CompletableFuture.supplyAsync(() -> combiner.adjust(1L, -1), executor);
+        assertTrue(firstUpdateStarted.await(5, TimeUnit.SECONDS));
+        CompletableFuture<Product> second = CompletableFuture.supplyAsync(() -> combiner.adjust(1L, -2), executor);
+        CompletableFuture<Product> third = CompletableFuture.supplyAsync(() -> combiner.adjust(1L, -2), executor);
+        Thread.sleep(100);
+        releaseFirstUpdate.countDown();
+
+        assertEquals(2, first.get(5, TimeUnit.SECONDS).getQuantity());
+        assertEquals(0, second.get(5, TimeUnit.SECONDS).getQuantity());
+        assertEquals(0, third.get(5, TimeUnit.SECONDS).getQuantity());
+        verify(repository, times(1)).adjustQuantity(1L, -4);
+        verify(repository, times(2)).adjustQuantity(1L, -2);
+    }
+
+    @Test
+    public void testDrainingThreadReturnsOnceItsDeltaIsApplied() throws Exception {
+        combiner = new StockAdjustmentCombiner(repository, eventPublisher, 4, 1);
+        CountDownLatch firstUpdateStarted = new CountDownLatch(1);
+        CountDownLatch releaseFirstUpdate = new CountDownLatch(1);
+        CountDownLatch releaseLastUpdate = new CountDownLatch(1);
+        when(repository.adjustQuantity(1L, -1)).thenAnswer(invocation -> {
+            firstUpdateStarted.countDown();
+            releaseFirstUpdate.await(5, TimeUnit.SECONDS);
+            return Optional.of(product(1L, "Laptop", 9, "1200.00"));
+        });
+        when(repository.adjustQuantity(1L, -2)).thenReturn(Optional.of(product(1L, "Laptop", 7, "1200.00")));
+        when(repository.adjustQuantity(1L, -3)).thenAnswer(invocation -> {
+            releaseLastUpdate.await(5, TimeUnit.SECONDS);
+            return Optional.of(product(1L, "Laptop", 4, "1200.00"));
+        });
+
+        CompletableFuture<Product> first = CompletableFuture.supplyAsync(() -> combiner.adjust(1L, -1), executor);
+        assertTrue(firstUpdateStarted.await(5, TimeUnit.SECONDS));
+        CompletableFuture<Product> second = CompletableFuture.supplyAsync(() -> combiner.adjust(1L, -2), executor);
+        Thread.sleep(50);
+        CompletableFuture<Product> third = CompletableFuture.supplyAsync(() -> combiner.adjust(1L, -3), executor);
+        Thread.sleep(50);
+        releaseFirstUpdate.countDown();
+
+        // batches of one, the first thread would otherwise go on with the blocked update of the third delta
+        assertEquals(9, first.get(5, TimeUnit.SECONDS).getQuantity());
+        assertEquals(7, second.get(5, TimeUnit.SECONDS).getQuantity());
+        assertFalse(third.isDone());
+        releaseLastUpdate.countDown();
+        assertEquals(4, third.get(5, TimeUnit.SECONDS).getQuantity());
+    }
+}
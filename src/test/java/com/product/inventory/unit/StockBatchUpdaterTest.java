@@ -0,0 +1,106 @@
+package com.product.inventory.unit;
+
+import com.product.inventory.event.ProductChangeEvent;
+import com.product.inventory.exception.InvalidRequestException;
+import com.product.inventory.model.StockUpdate;
+import com.product.inventory.model.StockUpdateReport;
+import com.product.inventory.repositoty.ProductBulkRepository;
+import com.product.inventory.repositoty.ProductBulkRepository.UpdatedQuantity;
+import com.product.inventory.service.StockBatchUpdater;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.product.inventory.TestProducts.product;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class StockBatchUpdaterTest {
+
+    private ProductBulkRepository bulkRepository;
+
+    private ApplicationEventPublisher eventPublisher;
+
+    private StockBatchUpdater updater;
+
+    @BeforeEach
+    public void setup() {
+        bulkRepository = mock(ProductBulkRepository.class);
+        eventPublisher = mock(ApplicationEventPublisher.class);
+        updater = new StockBatchUpdater(bulkRepository, eventPublisher, mock(PlatformTransactionManager.class),
+                2, 10);
+    }
+
+    @Test
+    public void testUpdatesAreSentInChunksOrderedById() {
+        List<Long[]> sentIds = new ArrayList<>();
+        when(bulkRepository.updateQuantities(any(), any(), any())).thenAnswer(invocation -> {
+            Long[] ids = invocation.getArgument(0);
+            Integer[] quantities = invocation.getArgument(1);
+            Integer[] deltas = invocation.getArgument(2);
+            sentIds.add(ids.clone());
+            List<UpdatedQuantity> updated = new ArrayList<>();
+            for (int i = 0; i < ids.length; i++) {
+                int quantity = quantities[i] != null ? quantities[i] : 10 + deltas[i];
+                updated.add(new UpdatedQuantity(product(ids[i], quantity), 10));
+            }
+            return updated;
+        });
+
+        StockUpdateReport report = updater.update(List.of(
+                StockUpdate.quantity(3L, 5), StockUpdate.delta(1L, -2), StockUpdate.quantity(2L, 0)));
+
+        assertEquals(3, report.getReceived());
+        assertEquals(3, report.getUpdated());
+        assertTrue(report.getMissingIds().isEmpty());
+        assertTrue(report.getRejected().isEmpty());
+        assertArrayEquals(new Long[]{1L, 2L}, sentIds.get(0));
+        assertArrayEquals(new Long[]{3L}, sentIds.get(1));
+
+        ArgumentCaptor<ProductChangeEvent> events = ArgumentCaptor.forClass(ProductChangeEvent.class);
+        verify(eventPublisher, times(3)).publishEvent(events.capture());
+        assertEquals(8, events.getAllValues().get(0).getNewQuantity());
+        assertEquals(10, events.getAllValues().get(0).getOldQuantity());
+    }
+
+    @Test
+    public void testMissingAndRejectedEntriesAreReported() {
+        when(bulkRepository.updateQuantities(any(), any(), any()))
+                .thenReturn(List.of(new UpdatedQuantity(product(1L, 4), 5)), List.of());
+        when(bulkRepository.findExistingIds(any())).thenReturn(List.of(2L));
+
+        StockUpdateReport report = updater.update(List.of(
+                StockUpdate.delta(1L, -1),
+                StockUpdate.delta(2L, -100),
+                StockUpdate.quantity(3L, 1),
+                new StockUpdate(4L, 1, 1),
+                StockUpdate.quantity(5L, -1),
+                StockUpdate.quantity(1L, 7)));
+
+        assertEquals(6, report.getReceived());
+        assertEquals(1, report.getUpdated());
+        assertEquals(List.of(3L), report.getMissingIds());
+        assertEquals(List.of(1, 3, 4, 5),
+                report.getRejected().stream().map(e -> e.getIndex()).toList());
+        assertEquals("Insufficient stock", report.getRejected().get(0).getMessage());
+        assertEquals("Duplicate product id, first given at index 0", report.getRejected().get(3).getMessage());
+        verify(eventPublisher, times(1)).publishEvent(any(ProductChangeEvent.class));
+    }
+
+    @Test
+    public void testTooManyUpdates() {
+        List<StockUpdate> updates = new ArrayList<>();
+        for (long id = 1; id <= 11; id++) {
+            updates.add(StockUpdate.quantity(id, 1));
+        }
+
+        assertThrows(InvalidRequestException.class, () -> updater.update(updates));
+        verifyNoInteractions(bulkRepository);
+    }
+}
@@ -0,0 +1,451 @@
+package com.product.inventory.unit;
+
+import com.product.inventory.event.ProductChangeEvent;
+import com.product.inventory.exception.InsufficientStockException;
+import com.product.inventory.exception.InvalidRequestException;
+import com.product.inventory.exception.ResourceNotFoundException;
+import com.product.inventory.model.Product;
+import com.product.inventory.model.StockAvailability;
+import com.product.inventory.model.StockReservation;
+import com.product.inventory.repositoty.ProductBulkRepository.UpdatedQuantity;
+import com.product.inventory.repositoty.ProductRepository;
+import com.product.inventory.repositoty.StockReservationRepository;
+import com.product.inventory.service.QuantityWriteBehind;
+import com.product.inventory.service.StockReservationService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static com.product.inventory.TestProducts.product;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class StockReservationServiceTest {
+
+    private ProductRepository productRepository;
+    private QuantityWriteBehind quantityWriteBehind;
+    private ApplicationEventPublisher eventPublisher;
+    private Database database;
+    private StockReservationService reservationService;
+
+    @BeforeEach
+    public void setup() {
+        productRepository = mock(ProductRepository.class);
+        quantityWriteBehind = mock(QuantityWriteBehind.class);
+        eventPublisher = mock(ApplicationEventPublisher.class);
+        database = new Database();
+        database.addProduct(1L, 10);
+        when(productRepository.existsById(1L)).thenReturn(true);
+        reservationService = reservationService("node-1");
+        reservationService.start();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        reservationService.stop();
+    }
+
+    @Test
+    public void testReserveTakesQuantityOutOfAvailable() {
+        StockReservation reservation = reservationService.reserve(1L, 4, null);
+
+        assertEquals(StockReservation.State.ACTIVE, reservation.getState());
+        assertTrue(reservation.getExpiresAt().isAfter(Instant.now().plus(Duration.ofMinutes(14))));
+        assertAvailability(10, 4, 6);
+        assertEquals(1, reservationService.getActiveCount());
+
+        reservationService.reserve(1L, 6, null);
+        assertAvailability(10, 10, 0);
+        assertThrows(InsufficientStockException.class, () -> reservationService.reserve(1L, 1, null));
+        // journaled quantities reach the database before available-to-sell is checked there
+        verify(quantityWriteBehind, times(3)).flushIfPending();
+    }
+
+    @Test
+    public void testReserveUnknownProduct() {
+        assertThrows(ResourceNotFoundException.class, () -> reservationService.reserve(2L, 1, null));
+        assertThrows(ResourceNotFoundException.class, () -> reservationService.getAvailability(2L));
+    }
+
+    @Test
+    public void testInvalidReservationsAreRejected() {
+        assertBadRequest(() -> reservationService.reserve(1L, 0, null));
+        assertBadRequest(() -> reservationService.reserve(1L, 1, Duration.ofDays(2)));
+        assertBadRequest(() -> reservationService.reserve(1L, 1, Duration.ZERO));
+        assertThrows(ResourceNotFoundException.class, () -> reservationService.getReservation("not-a-uuid"));
+        assertThrows(ResourceNotFoundException.class, () -> reservationService.confirm("not-a-uuid"));
+    }
+
+    @Test
+    public void testReleaseGivesQuantityBack() {
+        StockReservation reservation = reservationService.reserve(1L, 4, null);
+
+        reservationService.release(reservation.getId());
+
+        assertAvailability(10, 0, 10);
+        assertEquals(0, reservationService.getActiveCount());
+        assertThrows(ResourceNotFoundException.class, () -> reservationService.release(reservation.getId()));
+        assertThrows(ResourceNotFoundException.class, () -> reservationService.getReservation(reservation.getId()));
+    }
+
+    @Test
+    public void testReservationExpires() throws InterruptedException {
+        StockReservation reservation = reservationService.reserve(1L, 4, Duration.ofMillis(50));
+
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (database.rowCount() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+
+        assertEquals(0, reservationService.getActiveCount());
+        assertAvailability(10, 0, 10);
+        assertThrows(ResourceNotFoundException.class, () -> reservationService.confirm(reservation.getId()));
+    }
+
+    @Test
+    public void testSweepReleasesExpiredReservationsOfEveryNode() {
+        database.addRow(new StockReservation("00000000-0000-0000-0000-000000000001", 1L, 3,
+                Instant.now().minusSeconds(1), StockReservation.State.ACTIVE), "node-2");
+
+        assertEquals(1, reservationService.sweep());
+
+        assertAvailability(10, 0, 10);
+    }
+
+    @Test
+    public void testConfirmRemovesQuantityFromProduct() {
+        StockReservation reservation = reservationService.reserve(1L, 4, null);
+
+        Product product = reservationService.confirm(reservation.getId());
+
+        assertEquals(6, product.getQuantity());
+        assertAvailability(6, 0, 6);
+        assertEquals(0, database.rowCount());
+        assertEquals(0, reservationService.getActiveCount());
+        ArgumentCaptor<ProductChangeEvent> event = ArgumentCaptor.forClass(ProductChangeEvent.class);
+        verify(eventPublisher).publishEvent(event.capture());
+        assertEquals(10, event.getValue().getOldQuantity());
+        assertEquals(6, event.getValue().getNewQuantity());
+        assertThrows(ResourceNotFoundException.class, () -> reservationService.confirm(reservation.getId()));
+    }
+
+    @Test
+    public void testReservationIsConfirmedOnAnotherNode() {
+        StockReservation reservation = reservationService.reserve(1L, 4, null);
+        StockReservationService otherNode = reservationService("node-2");
+        otherNode.start();
+        try {
+            assertEquals(4, otherNode.getReservation(reservation.getId()).getQuantity());
+            assertThrows(InsufficientStockException.class, () -> otherNode.reserve(1L, 7, null));
+
+            assertEquals(6, otherNode.confirm(reservation.getId()).getQuantity());
+
+            assertAvailability(6, 0, 6);
+            assertThrows(ResourceNotFoundException.class, () -> reservationService.release(reservation.getId()));
+        } finally {
+            otherNode.stop();
+        }
+    }
+
+    @Test
+    public void testConfirmWithoutEnoughStockReleasesReservation() {
+        StockReservation reservation = reservationService.reserve(1L, 4, null);
+        // quantity set below what is reserved
+        database.setQuantity(1L, 2);
+
+        assertThrows(InsufficientStockException.class, () -> reservationService.confirm(reservation.getId()));
+
+        assertAvailability(2, 0, 2);
+        assertEquals(0, database.rowCount());
+        assertEquals(0, reservationService.getActiveCount());
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    @Test
+    public void testConfirmOfDeletedProduct() {
+        StockReservation reservation = reservationService.reserve(1L, 4, null);
+        database.deleteProduct(1L);
+
+        assertThrows(ResourceNotFoundException.class, () -> reservationService.confirm(reservation.getId()));
+        assertEquals(0, database.rowCount());
+    }
+
+    @Test
+    public void testReservationsAreRestoredOnStart() {
+        reservationService.stop();
+        database.addRow(new StockReservation("00000000-0000-0000-0000-000000000001", 1L, 3,
+                Instant.now().plus(Duration.ofMinutes(5)), StockReservation.State.ACTIVE), "node-1");
+        database.addRow(new StockReservation("00000000-0000-0000-0000-000000000002", 1L, 2,
+                Instant.now().minusSeconds(1), StockReservation.State.ACTIVE), "node-1");
+        reservationService = reservationService("node-1");
+        reservationService.start();
+
+        assertEquals(1, reservationService.getActiveCount());
+        assertAvailability(10, 3, 7);
+        assertEquals(3, reservationService.getReservation("00000000-0000-0000-0000-000000000001").getQuantity());
+    }
+
+    @Test
+    public void testConcurrentReservationsNeverOversell() throws Exception {
+        StockReservationService otherNode = reservationService("node-2");
+        otherNode.start();
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        try {
+            List<Future<Boolean>> attempts = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                StockReservationService node = i % 2 == 0 ? reservationService : otherNode;
+                attempts.add(executor.submit(() -> {
+                    try {
+                        node.reserve(1L, 1, null);
+                        return true;
+                    } catch (InsufficientStockException e) {
+                        return false;
+                    }
+                }));
+            }
+            int reserved = 0;
+            for (Future<Boolean> attempt : attempts) {
+                reserved += attempt.get() ? 1 : 0;
+            }
+            assertEquals(10, reserved);
+            assertAvailability(10, 10, 0);
+        } finally {
+            executor.shutdownNow();
+            otherNode.stop();
+        }
+    }
+
+    private StockReservationService reservationService(String owner) {
+        return new StockReservationService(productRepository, database, quantityWriteBehind, eventPublisher,
+                mock(PlatformTransactionManager.class), new SimpleMeterRegistry(), Duration.ofMinutes(15),
+                Duration.ofHours(24), Duration.ofMillis(10), 16, Duration.ofHours(1), owner);
+    }
+
+    private void assertAvailability(int quantity, int reserved, int available) {
+        StockAvailability availability = reservationService.getAvailability(1L);
+        assertEquals(quantity, availability.getQuantity());
+        assertEquals(reserved, availability.getReserved());
+        assertEquals(available, availability.getAvailable());
+    }
+
+    private void assertBadRequest(Runnable call) {
+        assertThrows(InvalidRequestException.class, call::run);
+    }
+
+    /**
+     * Product rows and reservation rows shared by every node, each statement applied under one lock
+     */
+    private static final class Database extends StockReservationRepository {
+        private final ReentrantLock lock = new ReentrantLock();
+        // quantity on hand and reserved quantity
+        private final Map<Long, int[]> products = new HashMap<>();
+        private final Map<String, StockReservation> rows = new HashMap<>();
+        private final Map<String, String> owners = new HashMap<>();
+
+        private Database() {
+            super(null);
+        }
+
+        private void addProduct(Long id, int quantity) {
+            lock.lock();
+            try {
+                products.put(id, new int[]{quantity, 0});
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void setQuantity(Long id, int quantity) {
+            lock.lock();
+            try {
+                products.get(id)[0] = quantity;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void deleteProduct(Long id) {
+            lock.lock();
+            try {
+                products.remove(id);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void addRow(StockReservation reservation, String owner) {
+            lock.lock();
+            try {
+                rows.put(reservation.getId(), reservation);
+                owners.put(reservation.getId(), owner);
+                products.get(reservation.getProductId())[1] += reservation.getQuantity();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private int rowCount() {
+            lock.lock();
+            try {
+                return rows.size();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public boolean reserve(String owner, StockReservation reservation) {
+            lock.lock();
+            try {
+                int[] product = products.get(reservation.getProductId());
+                if (product == null || product[0] - product[1] < reservation.getQuantity()) {
+                    return false;
+                }
+                product[1] += reservation.getQuantity();
+                rows.put(reservation.getId(), reservation);
+                owners.put(reservation.getId(), owner);
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public Optional<StockReservation> delete(String id) {
+            lock.lock();
+            try {
+                Optional<StockReservation> active = findById(id);
+                active.ifPresent(reservation -> rows.remove(id));
+                return active;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public Optional<UpdatedQuantity> takeReserved(Long productId, int quantity) {
+            lock.lock();
+            try {
+                int[] product = products.get(productId);
+                if (product == null || product[0] < quantity) {
+                    return Optional.empty();
+                }
+                int oldQuantity = product[0];
+                product[0] -= quantity;
+                product[1] -= quantity;
+                return Optional.of(new UpdatedQuantity(product(productId, product[0]), oldQuantity));
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public boolean giveBackReserved(Long productId, int quantity) {
+            lock.lock();
+            try {
+                int[] product = products.get(productId);
+                if (product == null) {
+                    return false;
+                }
+                product[1] -= quantity;
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public boolean release(String id) {
+            lock.lock();
+            try {
+                Optional<StockReservation> active = delete(id);
+                active.ifPresent(reservation -> giveBackReserved(reservation.getProductId(), reservation.getQuantity()));
+                return active.isPresent();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public int expire(String[] ids) {
+            lock.lock();
+            try {
+                int released = 0;
+                for (String id : ids) {
+                    StockReservation reservation = rows.remove(id);
+                    if (reservation != null) {
+                        giveBackReserved(reservation.getProductId(), reservation.getQuantity());
+                        released++;
+                    }
+                }
+                return released;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public int expireAll() {
+            lock.lock();
+            try {
+                return expire(rows.values().stream()
+                        .filter(reservation -> !reservation.getExpiresAt().isAfter(Instant.now()))
+                        .map(StockReservation::getId)
+                        .toArray(String[]::new));
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public Optional<StockReservation> findById(String id) {
+            lock.lock();
+            try {
+                return Optional.ofNullable(rows.get(id))
+                        .filter(reservation -> reservation.getExpiresAt().isAfter(Instant.now()));
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public Optional<StockAvailability> findAvailability(Long productId) {
+            lock.lock();
+            try {
+                return Optional.ofNullable(products.get(productId)).map(product ->
+                        new StockAvailability(productId, product[0], product[1], product[0] - product[1]));
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public List<StockReservation> findByOwner(String owner) {
+            lock.lock();
+            try {
+                return rows.values().stream()
+                        .filter(reservation -> owner.equals(owners.get(reservation.getId())))
+                        .filter(reservation -> products.containsKey(reservation.getProductId()))
+                        .toList();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
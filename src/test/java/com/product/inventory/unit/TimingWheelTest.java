@@ -0,0 +1,81 @@
+package com.product.inventory.unit;
+
+import com.product.inventory.service.TimingWheel;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TimingWheelTest {
+
+    private static final long MS = 1_000_000;
+
+    // 8 slots of 10ms, one turn is 80ms
+    private final TimingWheel<String> wheel = new TimingWheel<>(Duration.ofMillis(10), 8, 0);
+
+    @Test
+    public void testTimeoutFiresOnceItsDeadlineHasPassed() {
+        wheel.schedule("a", 25 * MS);
+
+        assertEquals(List.of(), wheel.advance(20 * MS));
+        assertEquals(List.of(), wheel.advance(29 * MS));
+        assertEquals(List.of("a"), wheel.advance(30 * MS));
+        assertEquals(List.of(), wheel.advance(40 * MS));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void testCancelledTimeoutDoesNotFire() {
+        TimingWheel.Timeout<String> a = wheel.schedule("a", 15 * MS);
+        wheel.schedule("b", 15 * MS);
+
+        assertTrue(wheel.cancel(a));
+        assertFalse(wheel.cancel(a));
+        assertEquals(1, wheel.size());
+        assertEquals(List.of("b"), wheel.advance(20 * MS));
+    }
+
+    @Test
+    public void testCancelAfterFiringReturnsFalse() {
+        TimingWheel.Timeout<String> a = wheel.schedule("a", 10 * MS);
+        assertEquals(List.of("a"), wheel.advance(10 * MS));
+        assertFalse(wheel.cancel(a));
+    }
+
+    @Test
+    public void testTimeoutBeyondOneTurnWaitsForLaterTurn() {
+        // same slot as 10ms, two turns later
+        wheel.schedule("late", 170 * MS);
+        wheel.schedule("early", 10 * MS);
+
+        assertEquals(List.of("early"), wheel.advance(10 * MS));
+        assertEquals(List.of(), wheel.advance(90 * MS));
+        assertEquals(List.of(), wheel.advance(169 * MS));
+        assertEquals(List.of("late"), wheel.advance(170 * MS));
+    }
+
+    @Test
+    public void testLongPauseFiresEverythingDue() {
+        wheel.schedule("a", 10 * MS);
+        wheel.schedule("b", 75 * MS);
+        wheel.schedule("c", 500 * MS);
+        wheel.schedule("d", 2000 * MS);
+
+        List<String> expired = wheel.advance(1000 * MS);
+
+        assertEquals(3, expired.size());
+        assertTrue(expired.containsAll(List.of("a", "b", "c")));
+        assertEquals(List.of("d"), wheel.advance(2000 * MS));
+    }
+
+    @Test
+    public void testPassedDeadlineFiresWithNextTick() {
+        wheel.advance(100 * MS);
+        wheel.schedule("a", 50 * MS);
+
+        assertEquals(List.of(), wheel.advance(105 * MS));
+        assertEquals(List.of("a"), wheel.advance(110 * MS));
+    }
+}
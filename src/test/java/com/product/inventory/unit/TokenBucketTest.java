@@ -0,0 +1,90 @@
+package com.product.inventory.unit;
+
+import com.product.inventory.configuration.TokenBucket;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TokenBucketTest {
+
+    private static final long MS = 1_000_000;
+
+    @Test
+    public void testBurstIsAdmittedThenRate() {
+        // 10 tokens per second, 1 every 100ms
+        TokenBucket bucket = new TokenBucket(10, 5, 0);
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals(0, bucket.tryTake(1, 0));
+        }
+        assertEquals(100 * MS, bucket.tryTake(1, 0));
+        assertEquals(50 * MS, bucket.tryTake(1, 50 * MS));
+        assertEquals(0, bucket.tryTake(1, 100 * MS));
+        assertEquals(100 * MS, bucket.tryTake(1, 100 * MS));
+    }
+
+    @Test
+    public void testCostTakesSeveralTokens() {
+        TokenBucket bucket = new TokenBucket(10, 10, 0);
+
+        assertEquals(0, bucket.tryTake(5, 0));
+        assertEquals(0, bucket.tryTake(5, 0));
+        assertEquals(500 * MS, bucket.tryTake(5, 0));
+        assertEquals(0, bucket.tryTake(1, 100 * MS));
+    }
+
+    @Test
+    public void testCostAboveBurstIsTakenFromFullBucket() {
+        TokenBucket bucket = new TokenBucket(10, 5, 0);
+
+        assertEquals(0, bucket.tryTake(20, 0));
+        assertFalse(bucket.isFull(0));
+        assertTrue(bucket.isFull(500 * MS));
+    }
+
+    @Test
+    public void testTokensGivenBackCanBeTakenAgain() {
+        TokenBucket bucket = new TokenBucket(10, 5, 0);
+
+        assertEquals(0, bucket.tryTake(5, 0));
+        bucket.giveBack(5);
+        assertTrue(bucket.isFull(0));
+        assertEquals(0, bucket.tryTake(5, 0));
+    }
+
+    @Test
+    public void testIdleBucketDoesNotSaveMoreThanBurst() {
+        TokenBucket bucket = new TokenBucket(10, 2, 0);
+
+        long later = 60_000 * MS;
+        assertEquals(0, bucket.tryTake(1, later));
+        assertEquals(0, bucket.tryTake(1, later));
+        assertTrue(bucket.tryTake(1, later) > 0);
+    }
+
+    @Test
+    public void testConcurrentTakesNeverExceedBurst() throws InterruptedException {
+        TokenBucket bucket = new TokenBucket(1, 1000, 0);
+        AtomicInteger taken = new AtomicInteger();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 500; i++) {
+                    if (bucket.tryTake(1, 0) == 0) {
+                        taken.incrementAndGet();
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(1000, taken.get());
+    }
+}